@@ -0,0 +1,129 @@
+package com.example.finance.benchmark;
+
+import com.example.finance.ml.LinearSVMClassifier;
+import com.example.finance.ml.ModelSnapshot;
+import com.example.finance.ml.TFIDFVectorizer;
+import com.example.finance.ml.TextVectorizer;
+import com.example.finance.service.*;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Shared benchmark fixtures (no Spring context, no database)
+ * - Inputs: descriptions of ai-service/vietnamese_transactions_14categories_test.json, with seeded
+ *   amounts (the dataset has none) so the amount-bucketed cache keys vary like real traffic
+ * - Model: TF-IDF (2000 features) + linear SVM trained on the train split with a fixed seed, the
+ *   same setup as the differential tests (the bundled /ml-models files are Python pickles)
+ *
+ * Paths resolve against the backend/ directory; override with -Dbenchmark.dataset / -Dbenchmark.train.
+ */
+public final class BenchmarkFixtures {
+
+    private static final String DATASET = System.getProperty("benchmark.dataset",
+        "../ai-service/vietnamese_transactions_14categories_test.json");
+    private static final String TRAIN_SET = System.getProperty("benchmark.train",
+        "../ai-service/vietnamese_transactions_14categories_train.json");
+
+    private BenchmarkFixtures() {
+    }
+
+    public record Sample(String description, double amount, int categoryId) {
+    }
+
+    public static List<Sample> testSamples() {
+        return read(DATASET);
+    }
+
+    /**
+     * Model snapshot trained on the train split (version "bench-1")
+     */
+    public static ModelSnapshot trainedSnapshot() {
+        return trainedSnapshot(new TFIDFVectorizer(2000));
+    }
+
+    /**
+     * Same classifier settings on another vectorizer (fitted here)
+     */
+    public static ModelSnapshot trainedSnapshot(TextVectorizer vectorizer) {
+        List<Sample> train = read(TRAIN_SET);
+        List<String> documents = new ArrayList<>();
+        int[] labels = new int[train.size()];
+        for (int i = 0; i < train.size(); i++) {
+            documents.add(train.get(i).description());
+            labels[i] = train.get(i).categoryId();
+        }
+        LinearSVMClassifier svm = new LinearSVMClassifier(1.0, 30);
+        svm.setSeed(42);
+        svm.train(vectorizer, documents, labels);
+        return new ModelSnapshot("bench-1", vectorizer, svm, 1.0, "benchmark", "train split", Instant.now());
+    }
+
+    /**
+     * Categorization service wired by hand around the given snapshot; resultCacheSize 0 disables the
+     * shared result cache so every call runs the layers
+     */
+    public static AICategorizationService categorizationService(ModelSnapshot snapshot, long resultCacheSize) {
+        try {
+            ModelRegistryService registry = new ModelRegistryService();
+            @SuppressWarnings("unchecked")
+            AtomicReference<ModelSnapshot> current = (AtomicReference<ModelSnapshot>) field(registry, "current");
+            current.set(snapshot);
+
+            CategorizationMetrics metrics = new CategorizationMetrics(new SimpleMeterRegistry());
+            AICategorizationService ai = new AICategorizationService();
+            inject(ai, "fuzzyMatchingService", new FuzzyMatchingService());
+            inject(ai, "featureExtractor", new EnhancedFeatureExtractor());
+            inject(ai, "confidenceCalibrator", new ConfidenceCalibrationService());
+            inject(ai, "userPatternCache", new UserPatternCacheService(null, null, 1000, 200, 30));
+            inject(ai, "modelRegistry", registry);
+            inject(ai, "metrics", metrics);
+            inject(ai, "resultCache", new CategorizationResultCache(null, metrics, resultCacheSize, resultCacheSize, 60));
+            ai.rebuildFuzzyKeywordIndex();
+            return ai;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot wire AICategorizationService", e);
+        }
+    }
+
+    private static List<Sample> read(String path) {
+        File file = new File(path);
+        if (!file.exists()) {
+            throw new IllegalStateException("Fixture not found: " + file.getAbsolutePath()
+                + " (run from backend/ or set -Dbenchmark.dataset / -Dbenchmark.train)");
+        }
+        try {
+            List<Sample> samples = new ArrayList<>();
+            Random random = new Random(5);
+            for (JsonNode node : new ObjectMapper().readTree(file)) {
+                samples.add(new Sample(node.get("description").asText(),
+                    10_000.0 * (1 + random.nextInt(200)), node.get("category_id").asInt()));
+            }
+            return samples;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Object field(Object target, String name) throws ReflectiveOperationException {
+        Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        return field.get(target);
+    }
+
+    private static void inject(Object target, String name, Object value) throws ReflectiveOperationException {
+        Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+}
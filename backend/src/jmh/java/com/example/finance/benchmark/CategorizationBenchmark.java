@@ -0,0 +1,55 @@
+package com.example.finance.benchmark;
+
+import com.example.finance.ml.ModelSnapshot;
+import com.example.finance.service.AICategorizationService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AICategorizationService.categorizeExpense end to end (no user), one fixture per operation:
+ * - uncached: shared result cache disabled, every call runs Layers 1 - 3
+ * - cached: shared result cache on and warmed with one pass over the fixtures (steady state for
+ *   repeated descriptions)
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class CategorizationBenchmark {
+
+    private BenchmarkFixtures.Sample[] samples;
+    private AICategorizationService uncached;
+    private AICategorizationService cached;
+    private int cursor;
+
+    @Setup
+    public void setup() {
+        ModelSnapshot snapshot = BenchmarkFixtures.trainedSnapshot();
+        List<BenchmarkFixtures.Sample> fixtures = BenchmarkFixtures.testSamples();
+        samples = fixtures.toArray(new BenchmarkFixtures.Sample[0]);
+        uncached = BenchmarkFixtures.categorizationService(snapshot, 0);
+        cached = BenchmarkFixtures.categorizationService(snapshot, 50_000);
+        for (BenchmarkFixtures.Sample sample : samples) {
+            cached.categorizeExpense(sample.description(), sample.amount(), null);
+        }
+    }
+
+    private BenchmarkFixtures.Sample next() {
+        BenchmarkFixtures.Sample sample = samples[cursor];
+        cursor = cursor + 1 == samples.length ? 0 : cursor + 1;
+        return sample;
+    }
+
+    @Benchmark
+    public AICategorizationService.CategorizationResult uncached() {
+        BenchmarkFixtures.Sample sample = next();
+        return uncached.categorizeExpense(sample.description(), sample.amount(), null);
+    }
+
+    @Benchmark
+    public AICategorizationService.CategorizationResult cached() {
+        BenchmarkFixtures.Sample sample = next();
+        return cached.categorizeExpense(sample.description(), sample.amount(), null);
+    }
+}
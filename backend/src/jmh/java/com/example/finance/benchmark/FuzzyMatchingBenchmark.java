@@ -0,0 +1,59 @@
+package com.example.finance.benchmark;
+
+import com.example.finance.ml.FuzzyKeywordIndex;
+import com.example.finance.service.FuzzyMatchingService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Layer 2 fuzzy matching, one fixture description per operation:
+ * - keywordIndexFind: BK-tree lookup over the Layer 2 keywords (input already fullNormalize()d)
+ * - similarity: Levenshtein similarity between consecutive fixture descriptions, with and
+ *   without the 0.70 cut-off Layer 2 uses
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class FuzzyMatchingBenchmark {
+
+    private String[] normalized;
+    private FuzzyMatchingService fuzzyMatchingService;
+    private FuzzyKeywordIndex keywordIndex;
+    private int cursor;
+
+    @Setup
+    public void setup() {
+        fuzzyMatchingService = new FuzzyMatchingService();
+        keywordIndex = BenchmarkFixtures.categorizationService(BenchmarkFixtures.trainedSnapshot(), 0)
+            .rebuildFuzzyKeywordIndex();
+        List<BenchmarkFixtures.Sample> samples = BenchmarkFixtures.testSamples();
+        normalized = samples.stream()
+            .map(sample -> fuzzyMatchingService.fullNormalize(sample.description()))
+            .toArray(String[]::new);
+    }
+
+    private int advance() {
+        int index = cursor;
+        cursor = cursor + 1 == normalized.length ? 0 : cursor + 1;
+        return index;
+    }
+
+    @Benchmark
+    public FuzzyKeywordIndex.Match keywordIndexFind() {
+        return keywordIndex.find(normalized[advance()]);
+    }
+
+    @Benchmark
+    public double similarity() {
+        int index = advance();
+        return fuzzyMatchingService.calculateSimilarity(normalized[index], normalized[cursor]);
+    }
+
+    @Benchmark
+    public double similarityWithCutoff() {
+        int index = advance();
+        return fuzzyMatchingService.calculateSimilarity(normalized[index], normalized[cursor], 0.70);
+    }
+}
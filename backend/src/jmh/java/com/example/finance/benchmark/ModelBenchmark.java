@@ -0,0 +1,92 @@
+package com.example.finance.benchmark;
+
+import com.example.finance.ml.BinaryModelFormat;
+import com.example.finance.ml.LinearSVMClassifier;
+import com.example.finance.ml.ModelSnapshot;
+import com.example.finance.ml.SparseVector;
+import com.example.finance.ml.TextVectorizer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Layer 2.5 model, one fixture description per operation:
+ * - tfidfTransform: TFIDFVectorizer.transformSparse (normalize + vocabulary lookup + weighting)
+ * - svmPredict: LinearSVMClassifier.predictWithConfidence on a precomputed vector
+ * - vectorizeAndPredict: both, as Layer 2.5 runs them
+ * - svmPredictBatch: top-1 of every fixture vector (LinearSVMClassifier.predict(SparseVector[]))
+ *
+ * weights: double (trained, heap), mapped (float32 BinaryModelFormat file), int8 (quantize())
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class ModelBenchmark {
+
+    private String[] descriptions;
+    private SparseVector[] vectors;
+    private TextVectorizer vectorizer;
+    private LinearSVMClassifier svm;
+    private int cursor;
+
+    @Param({"double", "mapped", "int8"})
+    public String weights;
+
+    @Setup
+    public void setup() throws IOException {
+        ModelSnapshot snapshot = BenchmarkFixtures.trainedSnapshot();
+        vectorizer = snapshot.getVectorizer();
+        svm = switch (weights) {
+            case "mapped" -> mapped(snapshot);
+            case "int8" -> snapshot.getClassifier().quantize();
+            default -> snapshot.getClassifier();
+        };
+        List<BenchmarkFixtures.Sample> samples = BenchmarkFixtures.testSamples();
+        descriptions = samples.stream().map(BenchmarkFixtures.Sample::description).toArray(String[]::new);
+        vectors = new SparseVector[descriptions.length];
+        for (int i = 0; i < descriptions.length; i++) {
+            vectors[i] = vectorizer.transformSparse(descriptions[i]);
+        }
+    }
+
+    private static LinearSVMClassifier mapped(ModelSnapshot snapshot) throws IOException {
+        Path file = Files.createTempFile("benchmark-model", ".fmdl");
+        try {
+            BinaryModelFormat.write(snapshot.getVectorizer(), snapshot.getClassifier(), file);
+            return BinaryModelFormat.map(file, null).getClassifier();
+        } finally {
+            // The mapping stays valid after the file is unlinked
+            Files.delete(file);
+        }
+    }
+
+    private int advance() {
+        int index = cursor;
+        cursor = cursor + 1 == descriptions.length ? 0 : cursor + 1;
+        return index;
+    }
+
+    @Benchmark
+    public SparseVector tfidfTransform() {
+        return vectorizer.transformSparse(descriptions[advance()]);
+    }
+
+    @Benchmark
+    public LinearSVMClassifier.PredictionResult svmPredict() {
+        return svm.predictWithConfidence(vectors[advance()]);
+    }
+
+    @Benchmark
+    public LinearSVMClassifier.PredictionResult vectorizeAndPredict() {
+        return svm.predictWithConfidence(vectorizer.transformSparse(descriptions[advance()]));
+    }
+
+    @Benchmark
+    public int[] svmPredictBatch() {
+        return svm.predict(vectors);
+    }
+}
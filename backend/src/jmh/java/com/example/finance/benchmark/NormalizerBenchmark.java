@@ -0,0 +1,50 @@
+package com.example.finance.benchmark;
+
+import com.example.finance.ml.VietnameseTextNormalizer;
+import com.example.finance.service.FuzzyMatchingService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Text normalization, one fixture description per operation:
+ * VietnameseTextNormalizer (Layers 1, 2.5) and FuzzyMatchingService.fullNormalize (Layers 2, 3)
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class NormalizerBenchmark {
+
+    private String[] descriptions;
+    private FuzzyMatchingService fuzzyMatchingService;
+    private int cursor;
+
+    @Setup
+    public void setup() {
+        List<BenchmarkFixtures.Sample> samples = BenchmarkFixtures.testSamples();
+        descriptions = samples.stream().map(BenchmarkFixtures.Sample::description).toArray(String[]::new);
+        fuzzyMatchingService = new FuzzyMatchingService();
+    }
+
+    private String next() {
+        String description = descriptions[cursor];
+        cursor = cursor + 1 == descriptions.length ? 0 : cursor + 1;
+        return description;
+    }
+
+    @Benchmark
+    public String normalize() {
+        return VietnameseTextNormalizer.normalize(next());
+    }
+
+    @Benchmark
+    public List<String> tokenize() {
+        return VietnameseTextNormalizer.tokenize(next());
+    }
+
+    @Benchmark
+    public String fullNormalize() {
+        return fuzzyMatchingService.fullNormalize(next());
+    }
+}
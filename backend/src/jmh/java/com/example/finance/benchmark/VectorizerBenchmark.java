@@ -0,0 +1,66 @@
+package com.example.finance.benchmark;
+
+import com.example.finance.ml.HashingVectorizer;
+import com.example.finance.ml.LinearSVMClassifier;
+import com.example.finance.ml.ModelSnapshot;
+import com.example.finance.ml.SparseVector;
+import com.example.finance.ml.TFIDFVectorizer;
+import com.example.finance.ml.TextVectorizer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TF-IDF vocabulary lookup vs feature hashing, one fixture description per operation:
+ * - transform: TextVectorizer.transformSparse
+ * - vectorizeAndPredict: transform + LinearSVMClassifier.predictWithConfidence (Layer 2.5 model path)
+ *
+ * vectorizer: tfidf = TFIDFVectorizer(2000), hashing = HashingVectorizer(65536) words only,
+ * hashing-ngrams = HashingVectorizer(65536, 3, 5). Run with -prof gc to compare allocation per op;
+ * test-set accuracy of the three is printed by HashingVectorizerTest.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class VectorizerBenchmark {
+
+    @Param({"tfidf", "hashing", "hashing-ngrams"})
+    public String vectorizerType;
+
+    private String[] descriptions;
+    private TextVectorizer vectorizer;
+    private LinearSVMClassifier svm;
+    private int cursor;
+
+    @Setup
+    public void setup() {
+        TextVectorizer untrained = switch (vectorizerType) {
+            case "tfidf" -> new TFIDFVectorizer(2000);
+            case "hashing" -> new HashingVectorizer(HashingVectorizer.DEFAULT_BUCKETS);
+            case "hashing-ngrams" -> new HashingVectorizer(HashingVectorizer.DEFAULT_BUCKETS, 3, 5);
+            default -> throw new IllegalArgumentException(vectorizerType);
+        };
+        ModelSnapshot snapshot = BenchmarkFixtures.trainedSnapshot(untrained);
+        vectorizer = snapshot.getVectorizer();
+        svm = snapshot.getClassifier();
+        List<BenchmarkFixtures.Sample> samples = BenchmarkFixtures.testSamples();
+        descriptions = samples.stream().map(BenchmarkFixtures.Sample::description).toArray(String[]::new);
+    }
+
+    private int advance() {
+        int index = cursor;
+        cursor = cursor + 1 == descriptions.length ? 0 : cursor + 1;
+        return index;
+    }
+
+    @Benchmark
+    public SparseVector transform() {
+        return vectorizer.transformSparse(descriptions[advance()]);
+    }
+
+    @Benchmark
+    public LinearSVMClassifier.PredictionResult vectorizeAndPredict() {
+        return svm.predictWithConfidence(vectorizer.transformSparse(descriptions[advance()]));
+    }
+}
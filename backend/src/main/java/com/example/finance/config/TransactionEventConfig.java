@@ -0,0 +1,88 @@
+package com.example.finance.config;
+
+import com.example.finance.repository.TransactionRepository;
+import com.example.finance.repository.UserRepository;
+import com.example.finance.repository.WalletRepository;
+import com.example.finance.service.AchievementService;
+import com.example.finance.service.BudgetAlertService;
+import com.example.finance.service.BudgetService;
+import com.example.finance.service.GamificationService;
+import com.example.finance.service.GoalService;
+import com.example.finance.service.NotificationService;
+import com.example.finance.service.TransactionChangedEvent;
+import com.example.finance.service.TransactionEventHandler;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+
+import java.math.BigDecimal;
+
+/**
+ * Handlers TransactionEventService runs after a transaction save or delete commits, in this order
+ * (achievements read the counters the gamification handler updates)
+ */
+@Configuration
+public class TransactionEventConfig {
+
+    static final BigDecimal LOW_BALANCE_THRESHOLD = new BigDecimal("50000");
+
+    @Bean
+    @Order(1)
+    public TransactionEventHandler budgetEventHandler(TransactionRepository transactionRepository,
+                                                      BudgetAlertService budgetAlertService,
+                                                      BudgetService budgetService) {
+        return TransactionEventHandler.of("budget", event -> {
+            if (event.isLive() && "expense".equals(event.type()) && event.categoryId() != null) {
+                transactionRepository.findByIdWithDetails(event.transactionId())
+                    .ifPresent(budgetAlertService::checkBudgetAlert);
+            }
+            // Spent amounts shown on the budget page
+            budgetService.clearBudgetCache(event.userId());
+        });
+    }
+
+    @Bean
+    @Order(2)
+    public TransactionEventHandler goalEventHandler(GoalService goalService) {
+        return TransactionEventHandler.of("goal", event -> goalService.checkAndUpdateGoalStatus(event.userId()));
+    }
+
+    @Bean
+    @Order(3)
+    public TransactionEventHandler notificationEventHandler(WalletRepository walletRepository,
+                                                            NotificationService notificationService) {
+        return TransactionEventHandler.of("notification", event -> {
+            if (event.walletId() == null) {
+                return;
+            }
+            // Balance as of now, not as of the save: a later event may already have moved it back up
+            walletRepository.findById(event.walletId())
+                .filter(wallet -> wallet.getBalance() != null && wallet.getBalance().compareTo(LOW_BALANCE_THRESHOLD) < 0)
+                .ifPresent(wallet -> notificationService.createLowBalanceNotification(
+                    event.userId(), wallet.getId(), wallet.getBalance()));
+        });
+    }
+
+    @Bean
+    @Order(4)
+    public TransactionEventHandler gamificationEventHandler(UserRepository userRepository,
+                                                            GamificationService gamificationService) {
+        return TransactionEventHandler.of("gamification", event -> {
+            if (TransactionChangedEvent.CREATED.equals(event.change())) {
+                userRepository.findById(event.userId())
+                    .ifPresent(user -> gamificationService.recordActivity(user, "transaction"));
+            }
+        });
+    }
+
+    @Bean
+    @Order(5)
+    public TransactionEventHandler achievementEventHandler(UserRepository userRepository,
+                                                           AchievementService achievementService) {
+        return TransactionEventHandler.of("achievement", event -> {
+            if (event.isLive()) {
+                userRepository.findById(event.userId()).ifPresent(achievementService::checkAndUnlockAchievements);
+            }
+        });
+    }
+}
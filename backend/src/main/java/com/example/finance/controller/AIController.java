@@ -6,6 +6,7 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.security.core.Authentication;
 
 import com.example.finance.service.AICategorizationService;
+import com.example.finance.service.BatchCategorizationService;
 import com.example.finance.service.SmartBudgetService;
 import com.example.finance.service.OverspendingDetectionService;
 import com.example.finance.service.LongTermPlanningService;
@@ -34,6 +35,9 @@ public class AIController {
     @Autowired
     private AICategorizationService aiCategorizationService;
     
+    @Autowired
+    private BatchCategorizationService batchCategorizationService;
+    
     @Autowired
     private SmartBudgetService smartBudgetService;
     
@@ -108,7 +112,8 @@ public class AIController {
                 "categoryName", result.getCategoryName(),
                 "confidence", String.format("%.2f%%", result.getConfidence() * 100),
                 "suggestions", result.getSuggestions(),
-                "reasoning", result.getReasoning()
+                "reasoning", result.getReasoning(),
+                "modelVersion", result.getModelVersion()
             ));
             
         } catch (Exception e) {
@@ -153,7 +158,8 @@ public class AIController {
                 "categoryName", result.getCategoryName(),
                 "confidence", result.getConfidence(),
                 "suggestions", result.getSuggestions(),
-                "reasoning", result.getReasoning()
+                "reasoning", result.getReasoning(),
+                "modelVersion", result.getModelVersion()
             ));
             
         } catch (Exception e) {
@@ -457,35 +463,40 @@ public class AIController {
                 );
             }
             
-            List<Map<String, Object>> results = new ArrayList<>();
-            
+            List<BatchCategorizationService.Item> items = new ArrayList<>(transactions.size());
             for (Map<String, Object> transaction : transactions) {
-                String description = (String) transaction.get("description");
                 Double amount = transaction.get("amount") != null ? 
                     Double.valueOf(transaction.get("amount").toString()) : null;
+                items.add(new BatchCategorizationService.Item((String) transaction.get("description"), amount));
+            }
+            
+            // Deduplicated, parallel layers; results in input order
+            var batch = batchCategorizationService.categorize(items, null);
+            
+            List<Map<String, Object>> results = new ArrayList<>();
+            for (int i = 0; i < transactions.size(); i++) {
+                Object originalIndex = transactions.get(i).get("index");
+                var result = batch.getResults().get(i);
                 
-                if (description != null && !description.trim().isEmpty()) {
-                    var result = aiCategorizationService.categorizeExpense(description, amount);
-                    
-                    results.add(Map.of(
-                        "originalIndex", transaction.get("index"),
-                        "category", result.getCategory(),
-                        "categoryName", result.getCategoryName(),
-                        "confidence", result.getConfidence(),
-                        "reasoning", result.getReasoning()
-                    ));
+                Map<String, Object> entry = new LinkedHashMap<>();
+                entry.put("originalIndex", originalIndex != null ? originalIndex : i);
+                if (result != null) {
+                    entry.put("category", result.getCategory());
+                    entry.put("categoryName", result.getCategoryName());
+                    entry.put("confidence", result.getConfidence());
+                    entry.put("reasoning", result.getReasoning());
+                    entry.put("layer", batch.getLayers().get(i));
                 } else {
-                    results.add(Map.of(
-                        "originalIndex", transaction.get("index"),
-                        "error", "Description is required"
-                    ));
+                    entry.put("error", "Description is required");
                 }
+                results.add(entry);
             }
             
             return ResponseEntity.ok(Map.of(
                 "success", true,
                 "results", results,
-                "processed", results.size()
+                "processed", results.size(),
+                "stats", batch.getStats()
             ));
             
         } catch (Exception e) {
@@ -0,0 +1,138 @@
+package com.example.finance.controller;
+
+import com.example.finance.ml.ModelSnapshot;
+import com.example.finance.repository.UserRepository;
+import com.example.finance.security.CustomUserDetails;
+import com.example.finance.service.ModelRegistryService;
+import com.example.finance.service.OnlineLearningService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.*;
+
+/**
+ * Admin endpoints for the categorization model registry (ADMIN role only)
+ * - GET  /api/admin/models           current version + rollback history
+ * - POST /api/admin/models/reload    load the bundle from ml.models.dir now
+ * - POST /api/admin/models/rollback  previous version, or ?version=... for a specific one
+ * - GET  /api/admin/models/online    online learning status (base, published version, holdout accuracy)
+ * - POST /api/admin/models/online/checkpoint  write the online model to ml.models.dir now
+ * - POST /api/admin/models/online/reset       undo online learning: back to the base model and bundle
+ */
+@RestController
+@RequestMapping("/api/admin/models")
+public class ModelAdminController {
+
+    @Autowired
+    private ModelRegistryService modelRegistry;
+
+    @Autowired
+    private OnlineLearningService onlineLearningService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @GetMapping
+    public ResponseEntity<?> listVersions(Authentication authentication) {
+        if (!isAdmin(authentication)) {
+            return forbidden();
+        }
+        List<Map<String, Object>> versions = new ArrayList<>();
+        for (ModelSnapshot snapshot : modelRegistry.getVersions()) {
+            versions.add(describe(snapshot));
+        }
+        return ResponseEntity.ok(Map.of(
+            "current", modelRegistry.current().getVersion(),
+            "versions", versions
+        ));
+    }
+
+    @PostMapping("/reload")
+    public ResponseEntity<?> reload(Authentication authentication) {
+        if (!isAdmin(authentication)) {
+            return forbidden();
+        }
+        try {
+            return ResponseEntity.ok(describe(modelRegistry.reload()));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Model reload failed: " + e.getMessage()));
+        }
+    }
+
+    @PostMapping("/rollback")
+    public ResponseEntity<?> rollback(@RequestParam(required = false) String version,
+                                      Authentication authentication) {
+        if (!isAdmin(authentication)) {
+            return forbidden();
+        }
+        try {
+            ModelSnapshot snapshot = version != null
+                ? modelRegistry.rollbackTo(version)
+                : modelRegistry.rollback();
+            return ResponseEntity.ok(describe(snapshot));
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/online")
+    public ResponseEntity<?> onlineStatus(Authentication authentication) {
+        if (!isAdmin(authentication)) {
+            return forbidden();
+        }
+        return ResponseEntity.ok(onlineLearningService.status());
+    }
+
+    @PostMapping("/online/checkpoint")
+    public ResponseEntity<?> checkpoint(Authentication authentication) {
+        if (!isAdmin(authentication)) {
+            return forbidden();
+        }
+        Map<String, Object> result = new LinkedHashMap<>(onlineLearningService.status());
+        result.put("written", onlineLearningService.checkpoint());
+        return ResponseEntity.ok(result);
+    }
+
+    @PostMapping("/online/reset")
+    public ResponseEntity<?> resetOnline(Authentication authentication) {
+        if (!isAdmin(authentication)) {
+            return forbidden();
+        }
+        try {
+            return ResponseEntity.ok(describe(onlineLearningService.resetToBase()));
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Online learning reset failed: " + e.getMessage()));
+        }
+    }
+
+    private Map<String, Object> describe(ModelSnapshot snapshot) {
+        Map<String, Object> info = new LinkedHashMap<>();
+        info.put("version", snapshot.getVersion());
+        info.put("hasModel", snapshot.hasModel());
+        info.put("checksum", snapshot.getChecksum());
+        info.put("temperature", snapshot.getTemperature());
+        info.put("quantized", snapshot.hasModel() && snapshot.getClassifier().isQuantized());
+        info.put("source", snapshot.getSource());
+        info.put("loadedAt", snapshot.getLoadedAt().toString());
+        return info;
+    }
+
+    private boolean isAdmin(Authentication authentication) {
+        if (authentication == null || !(authentication.getPrincipal() instanceof CustomUserDetails)) {
+            return false;
+        }
+        Long userId = ((CustomUserDetails) authentication.getPrincipal()).getId();
+        return userRepository.findById(userId)
+            .map(user -> "ADMIN".equalsIgnoreCase(user.getRole()))
+            .orElse(false);
+    }
+
+    private ResponseEntity<?> forbidden() {
+        return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "Admin role required"));
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.finance.controller;
 
+import com.example.finance.service.CategorizationResultCache;
+import com.example.finance.service.UserPatternCacheService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.caffeine.CaffeineCache;
@@ -22,6 +24,12 @@ public class PerformanceController {
     
     @Autowired
     private DataSource dataSource;
+    
+    @Autowired
+    private UserPatternCacheService userPatternCache;
+    
+    @Autowired
+    private CategorizationResultCache categorizationResultCache;
 
     @GetMapping("/cache/stats")
     public ResponseEntity<Map<String, Object>> getCacheStats() {
@@ -44,6 +52,11 @@ public class PerformanceController {
             }
         });
         
+        // Pattern-level hits of the per-user categorization history (the cache entry above counts user loads)
+        stats.put(UserPatternCacheService.CACHE_NAME + "Lookups", userPatternCache.lookupStats());
+        // Invalidation generation and misses that waited for another request's computation
+        stats.put(CategorizationResultCache.RESULTS_CACHE_NAME + "Coalescing", categorizationResultCache.stats());
+        
         return ResponseEntity.ok(stats);
     }
 
@@ -1,15 +1,20 @@
 package com.example.finance.controller;
 
 import com.example.finance.dto.TransactionDTO;
+import com.example.finance.dto.TransactionListItem;
 import com.example.finance.dto.CategoryDTO;
 import com.example.finance.dto.WalletDTO;
 import com.example.finance.dto.WalletStatDTO;
+import com.example.finance.service.TransactionImportParser;
+import com.example.finance.service.TransactionImportService;
+import com.example.finance.service.TransactionQueryService;
 import com.example.finance.service.TransactionService;
 import com.example.finance.service.UserService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -22,6 +27,12 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import com.example.finance.service.WalletService;
 import com.example.finance.service.CategoryService;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.InputStream;
+import java.io.OutputStream;
 
 @RestController
 @RequestMapping("/api/transactions")
@@ -34,6 +45,9 @@ public class TransactionController {
  private final UserService userService;
  private final WalletService walletService;
  private final CategoryService categoryService;
+ private final TransactionImportService importService;
+ private final TransactionQueryService queryService;
+ private final ObjectMapper objectMapper;
 
  @GetMapping
  public ResponseEntity<?> list() {
@@ -48,51 +62,80 @@ public class TransactionController {
  String username = authentication.getName();
  Long currentUserId = userService.findByUsername(username).getId();
  
- // Get transactions for current user only (limit to 1000 for performance)
- List<Map<String, Object>> transactionMaps = service.getRecentTransactions(currentUserId, 1000);
- List<TransactionDTO> transactions = transactionMaps.stream()
- .map(map -> {
- TransactionDTO dto = new TransactionDTO();
- dto.setId(((Number) map.get("id")).longValue());
- dto.setAmount(new BigDecimal(map.get("amount").toString()));
- dto.setType((String) map.get("type"));
- dto.setDate(LocalDate.parse(map.get("date").toString()));
- dto.setNote((String) map.get("note"));
- // IDs for frontend usage (edit, etc.)
- if (map.get("categoryId") != null) {
- dto.setCategoryId(((Number) map.get("categoryId")).longValue());
+ // Latest 1000 transactions of the current user, projected (no entities loaded)
+ List<TransactionDTO> transactions = queryService.recent(currentUserId, 1000).stream()
+ .map(this::toDto)
+ .toList();
+ log.info("Retrieved {} transactions for user {}", transactions.size(), currentUserId);
+ return ResponseEntity.ok(transactions);
+ } catch (Exception e) {
+ log.error("Error getting transactions", e);
+ return ResponseEntity.badRequest()
+ .body(Map.of("success", false, "message", "Lỗi lấy danh sách giao dịch: " + e.getMessage()));
  }
- if (map.get("walletId") != null) {
- dto.setWalletId(((Number) map.get("walletId")).longValue());
  }
 
- // Map category name if available so frontend can display it
- Object categoryName = map.get("categoryName");
- if (categoryName != null) {
- CategoryDTO categoryDTO = new CategoryDTO();
- categoryDTO.setName(categoryName.toString());
- dto.setCategory(categoryDTO);
+ /**
+ * Keyset-paginated listing: pass nextCursor of the previous page as cursor; from / to are inclusive dates
+ */
+ @GetMapping("/page")
+ public ResponseEntity<?> page(@RequestParam(required = false) String cursor,
+ @RequestParam(required = false) Integer limit,
+ @RequestParam(required = false) String type,
+ @RequestParam(required = false) Long categoryId,
+ @RequestParam(required = false) Long walletId,
+ @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+ @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+ @RequestParam(required = false) BigDecimal minAmount,
+ @RequestParam(required = false) BigDecimal maxAmount) {
+ try {
+ Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+ if (authentication == null || !authentication.isAuthenticated()) {
+ return ResponseEntity.status(401)
+ .body(Map.of("success", false, "message", "Authentication required"));
  }
+ Long currentUserId = userService.findByUsername(authentication.getName()).getId();
 
- // Map wallet name if available (may be used by frontend later)
- Object walletName = map.get("walletName");
- if (walletName != null) {
- WalletDTO walletDTO = new WalletDTO();
- walletDTO.setName(walletName.toString());
- dto.setWallet(walletDTO);
- }
- return dto;
- })
- .toList();
- log.info("Retrieved {} transactions for user {}", transactions.size(), currentUserId);
- return ResponseEntity.ok(transactions);
+ TransactionQueryService.Filter filter = new TransactionQueryService.Filter(
+ type, categoryId, walletId, from, to, minAmount, maxAmount);
+ return ResponseEntity.ok(queryService.page(currentUserId, filter, cursor, limit));
+ } catch (IllegalArgumentException e) {
+ return ResponseEntity.badRequest()
+ .body(Map.of("success", false, "message", e.getMessage()));
  } catch (Exception e) {
- log.error("Error getting transactions", e);
+ log.error("Error getting transaction page", e);
  return ResponseEntity.badRequest()
  .body(Map.of("success", false, "message", "Lỗi lấy danh sách giao dịch: " + e.getMessage()));
  }
  }
 
+ private TransactionDTO toDto(TransactionListItem item) {
+ TransactionDTO dto = new TransactionDTO();
+ dto.setId(item.id());
+ dto.setAmount(item.amount());
+ dto.setType(item.type());
+ dto.setDate(item.date());
+ dto.setNote(item.note());
+ dto.setStatus(item.status());
+ dto.setCategoryProvisional(item.categoryProvisional());
+ // IDs for frontend usage (edit, etc.)
+ dto.setCategoryId(item.categoryId());
+ dto.setWalletId(item.walletId());
+
+ // Names so the frontend can display them
+ CategoryDTO categoryDTO = new CategoryDTO();
+ categoryDTO.setId(item.categoryId());
+ categoryDTO.setName(item.categoryName() != null ? item.categoryName() : "Không có danh mục");
+ categoryDTO.setColor(item.categoryColor());
+ categoryDTO.setIcon(item.categoryIcon());
+ dto.setCategory(categoryDTO);
+ WalletDTO walletDTO = new WalletDTO();
+ walletDTO.setId(item.walletId());
+ walletDTO.setName(item.walletName() != null ? item.walletName() : "Không có ví");
+ dto.setWallet(walletDTO);
+ return dto;
+ }
+
  @PostMapping
  public ResponseEntity<?> create(@RequestBody TransactionDTO dto) {
  try {
@@ -339,6 +382,63 @@ public class TransactionController {
  }
  }
 
+ /**
+ * Import sao kê (csv / json / ofx). Trả về NDJSON: mỗi dòng lỗi {"row", "error"} ngay khi gặp,
+ * dòng cuối {"summary": {rows, imported, failed, elapsedMs, rowsPerMinute}}
+ */
+ @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+ public ResponseEntity<?> importStatement(
+ @RequestParam("file") MultipartFile file,
+ @RequestParam(value = "format", required = false) String format,
+ @RequestParam(value = "walletId", required = false) Long walletId
+ ) {
+ Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+ if (authentication == null || !authentication.isAuthenticated()) {
+ return ResponseEntity.status(401)
+ .body(Map.of("success", false, "message", "Authentication required"));
+ }
+ Long currentUserId = userService.findByUsername(authentication.getName()).getId();
+ 
+ String resolvedFormat;
+ try {
+ resolvedFormat = TransactionImportParser.detectFormat(format, file.getOriginalFilename());
+ } catch (IllegalArgumentException e) {
+ return ResponseEntity.badRequest().body(Map.of("success", false, "message", e.getMessage()));
+ }
+ if (file.isEmpty()) {
+ return ResponseEntity.badRequest().body(Map.of("success", false, "message", "File is empty"));
+ }
+ 
+ StreamingResponseBody body = out -> {
+ try (InputStream in = file.getInputStream()) {
+ TransactionImportService.ImportSummary summary = importService.importStatement(
+ currentUserId, in, resolvedFormat, walletId, line -> writeLine(out, line));
+ writeLine(out, Map.of("summary", Map.of(
+ "rows", summary.rows(),
+ "imported", summary.imported(),
+ "failed", summary.failed(),
+ "elapsedMs", summary.elapsedMs(),
+ "rowsPerMinute", summary.rowsPerMinute())));
+ } catch (RuntimeException e) {
+ log.error("Statement import failed for user {}", currentUserId, e);
+ writeLine(out, Map.of("success", false, "message", "Lỗi import: " + e.getMessage()));
+ }
+ };
+ return ResponseEntity.ok()
+ .contentType(MediaType.APPLICATION_NDJSON)
+ .body(body);
+ }
+
+ private void writeLine(OutputStream out, Map<String, Object> line) {
+ try {
+ out.write(objectMapper.writeValueAsBytes(line));
+ out.write('\n');
+ out.flush();
+ } catch (java.io.IOException e) {
+ throw new java.io.UncheckedIOException(e);
+ }
+ }
+
  @GetMapping("/stats-by-category")
  public ResponseEntity<List<Map<String, Object>>> statsByCategory(
  @RequestParam("userId") Long userId,
@@ -21,6 +21,7 @@ public class TransactionDTO {
  private String status;
  private String tags;
  private Boolean isDeleted;
+ private Boolean categoryProvisional; // read-only: AI category not final yet
  private LocalDate deletedAt;
  private LocalDate createdAt;
  private LocalDate updatedAt;
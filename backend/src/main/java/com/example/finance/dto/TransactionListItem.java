@@ -0,0 +1,24 @@
+package com.example.finance.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * One row of the transaction listing, selected column by column (no Transaction / Category / Wallet
+ * entities are loaded). Constructor order is the select order of TransactionQueryService.
+ */
+public record TransactionListItem(
+    Long id,
+    LocalDate date,
+    BigDecimal amount,
+    String type,
+    String note,
+    String status,
+    Boolean categoryProvisional,
+    Long categoryId,
+    String categoryName,
+    String categoryColor,
+    String categoryIcon,
+    Long walletId,
+    String walletName) {
+}
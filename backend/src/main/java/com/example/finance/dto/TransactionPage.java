@@ -0,0 +1,9 @@
+package com.example.finance.dto;
+
+import java.util.List;
+
+/**
+ * A page of the transaction listing; nextCursor (null on the last page) is passed back as ?cursor=
+ */
+public record TransactionPage(List<TransactionListItem> items, String nextCursor, boolean hasMore) {
+}
@@ -49,6 +49,10 @@ public class Transaction {
  @Column(name = "deleted_at")
  private LocalDateTime deletedAt;
 
+ // Category is the Layers 1 - 2.5 guess, Layer 3 refinement still pending
+ @Column(name = "category_provisional", nullable = false, columnDefinition = "BIT DEFAULT 0")
+ private boolean categoryProvisional = false;
+
  @CreationTimestamp
  @Column(name = "created_at", updatable = false)
  private LocalDateTime createdAt;
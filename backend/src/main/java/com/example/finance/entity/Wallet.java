@@ -28,12 +28,17 @@ public class Wallet {
  @Column(nullable = false)
  private String type = "CASH"; // CASH, BANK, E_WALLET
 
- @Column(precision = 18, scale = 2)
+ // Set on insert, then changed only by WalletBalanceService deltas (a stale entity or DTO cannot write it back)
+ @Column(precision = 18, scale = 2, updatable = false)
  private BigDecimal balance = BigDecimal.ZERO;
 
  @Column(name = "initial_balance", precision = 18, scale = 2)
  private BigDecimal initialBalance = BigDecimal.ZERO;
 
+ // Bumped by every balance delta (WalletBalanceService), never written through JPA
+ @Column(name = "balance_version", insertable = false, updatable = false)
+ private Long balanceVersion;
+
  @Column(name = "created_at")
  private LocalDateTime createdAt = LocalDateTime.now();
 
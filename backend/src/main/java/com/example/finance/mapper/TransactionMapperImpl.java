@@ -40,6 +40,7 @@ public class TransactionMapperImpl {
  dto.setStatus(entity.getStatus());
  dto.setTags(entity.getTags());
  dto.setIsDeleted(entity.isDeleted());
+ dto.setCategoryProvisional(entity.isCategoryProvisional());
  dto.setDeletedAt(entity.getDeletedAt() != null ? entity.getDeletedAt().toLocalDate() : null);
  dto.setCreatedAt(entity.getCreatedAt() != null ? entity.getCreatedAt().toLocalDate() : null);
  dto.setUpdatedAt(entity.getUpdatedAt() != null ? entity.getUpdatedAt().toLocalDate() : null);
@@ -0,0 +1,320 @@
+package com.example.finance.ml;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.CRC32C;
+
+/**
+ * Versioned binary file holding a vectorizer (TF-IDF or hashing) + linear SVM, loaded with FileChannel.map.
+ *
+ * Layout (little-endian, every section 8-byte aligned):
+ * - Header (80 bytes): magic "FMDL", format version, header size, vocabulary size, feature count,
+ *   class count, maxFeatures, flags, then the offsets of each section and the total file length
+ * - String table: int32[vocabSize + 1] byte offsets, then the UTF-8 terms ordered by feature index
+ * - IDF: float32[vocabSize]
+ * - With FLAG_HASHED_FEATURES (HashingVectorizer) the vocabulary size is 0, the string table holds
+ *   int32[4] {seed, minNgram, maxNgram, 0} and IDF is float32[numFeatures], one per bucket
+ * - Classes: int32[numClasses]
+ * - Bias: float32[numClasses]
+ * - Weights: float32[numFeatures * numClasses], feature-major (row = one feature, all classes)
+ * - With FLAG_QUANTIZED (LinearSVMClassifier.quantize()) the weights section is float32[numClasses]
+ *   per-class scales, padded to 8 bytes, then int8[numFeatures * numClasses] in the same order
+ *
+ * Loading only decodes the vocabulary; the weight block is scored directly from the mapping,
+ * so it stays off-heap (int8 weights are copied to the heap: a quarter of the float block). The file checksum (CRC32C over all bytes) is what model_metadata.json records.
+ */
+public final class BinaryModelFormat {
+
+    public static final int FORMAT_VERSION = 1;
+    public static final String DEFAULT_FILE_NAME = "categorizer_model.fmdl";
+
+    public static final int FLAG_HASHED_FEATURES = 1;
+    public static final int FLAG_QUANTIZED = 2;
+
+    private static final byte[] MAGIC = { 'F', 'M', 'D', 'L' };
+    private static final int HEADER_SIZE = 80;
+
+    private BinaryModelFormat() {
+    }
+
+    /**
+     * Write the model atomically (temp file + move) and return its checksum
+     */
+    public static String write(TextVectorizer vectorizer, LinearSVMClassifier svm, Path path) throws IOException {
+        int[] classes = svm.getClasses();
+        int numClasses = classes.length;
+        int numFeatures = svm.getNumFeatures();
+        if (numFeatures != vectorizer.getDimension()) {
+            throw new IllegalArgumentException("SVM has " + numFeatures
+                + " features but the vectorizer produces " + vectorizer.getDimension());
+        }
+
+        int flags;
+        int vocabSize;
+        int maxFeatures;
+        byte[][] terms;
+        double[] idfValues;
+        long stringTableLength;
+        if (vectorizer instanceof HashingVectorizer hashing) {
+            flags = FLAG_HASHED_FEATURES;
+            vocabSize = 0;
+            maxFeatures = numFeatures;
+            terms = new byte[0][];
+            idfValues = hashing.isFitted() ? hashing.idfTable() : filled(numFeatures, 1.0);
+            stringTableLength = 4L * 4;
+        } else if (vectorizer instanceof TFIDFVectorizer tfidf) {
+            flags = 0;
+            vocabSize = tfidf.getVocabularySize();
+            maxFeatures = tfidf.getMaxFeatures();
+            terms = new byte[vocabSize][];
+            for (Map.Entry<String, Integer> entry : tfidf.getVocabulary().entrySet()) {
+                terms[entry.getValue()] = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            }
+            int termBytes = 0;
+            for (byte[] term : terms) {
+                termBytes += term.length;
+            }
+            idfValues = tfidf.idfTable();
+            stringTableLength = 4L * (vocabSize + 1) + termBytes;
+        } else {
+            throw new IllegalArgumentException("Unsupported vectorizer " + vectorizer.getClass().getName());
+        }
+        boolean quantized = svm.isQuantized();
+        if (quantized) {
+            flags |= FLAG_QUANTIZED;
+        }
+
+        long stringTableOffset = HEADER_SIZE;
+        long idfOffset = align(stringTableOffset + stringTableLength);
+        long classesOffset = align(idfOffset + 4L * idfValues.length);
+        long biasOffset = align(classesOffset + 4L * numClasses);
+        long weightsOffset = align(biasOffset + 4L * numClasses);
+        long fileLength = quantized
+            ? align(weightsOffset + 4L * numClasses) + (long) numFeatures * numClasses
+            : weightsOffset + 4L * numFeatures * numClasses;
+        if (fileLength > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Model too large for format version " + FORMAT_VERSION);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) fileLength).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(MAGIC)
+              .putInt(FORMAT_VERSION)
+              .putInt(HEADER_SIZE)
+              .putInt(vocabSize)
+              .putInt(numFeatures)
+              .putInt(numClasses)
+              .putInt(maxFeatures)
+              .putInt(flags)
+              .putLong(stringTableOffset)
+              .putLong(idfOffset)
+              .putLong(classesOffset)
+              .putLong(biasOffset)
+              .putLong(weightsOffset)
+              .putLong(fileLength);
+
+        buffer.position((int) stringTableOffset);
+        if (vectorizer instanceof HashingVectorizer hashing) {
+            buffer.putInt(hashing.getSeed())
+                  .putInt(hashing.getMinNgram())
+                  .putInt(hashing.getMaxNgram())
+                  .putInt(0);
+        } else {
+            int offset = 0;
+            for (byte[] term : terms) {
+                buffer.putInt(offset);
+                offset += term.length;
+            }
+            buffer.putInt(offset);
+            for (byte[] term : terms) {
+                buffer.put(term);
+            }
+        }
+
+        buffer.position((int) idfOffset);
+        for (double idf : idfValues) {
+            buffer.putFloat((float) idf);
+        }
+
+        buffer.position((int) classesOffset);
+        for (int label : classes) {
+            buffer.putInt(label);
+        }
+
+        buffer.position((int) biasOffset);
+        for (double b : svm.getBias()) {
+            buffer.putFloat((float) b);
+        }
+
+        buffer.position((int) weightsOffset);
+        if (quantized) {
+            for (float scale : svm.getQuantizedScales()) {
+                buffer.putFloat(scale);
+            }
+            buffer.position((int) align(weightsOffset + 4L * numClasses));
+            buffer.put(svm.getQuantizedWeights());
+        } else {
+            for (double w : svm.featureMajorTable()) {
+                buffer.putFloat((float) w);
+            }
+        }
+
+        byte[] bytes = buffer.array();
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.write(tmp, bytes);
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return checksum(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Map a model file. When expectedChecksum is not null the file must match it.
+     */
+    public static LoadedModel map(Path path, String expectedChecksum) throws IOException {
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        ByteBuffer buffer = mapped.order(ByteOrder.LITTLE_ENDIAN);
+
+        if (buffer.capacity() < HEADER_SIZE) {
+            throw new IOException("Not a model file (too short): " + path);
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (buffer.get(i) != MAGIC[i]) {
+                throw new IOException("Not a model file (bad magic): " + path);
+            }
+        }
+        int version = buffer.getInt(4);
+        if (version < 1 || version > FORMAT_VERSION) {
+            throw new IOException("Unsupported model format version " + version + " in " + path);
+        }
+        long fileLength = buffer.getLong(72);
+        if (fileLength != buffer.capacity()) {
+            throw new IOException("Truncated model file: expected " + fileLength
+                + " bytes, found " + buffer.capacity() + " in " + path);
+        }
+
+        String checksum = checksum(buffer);
+        if (expectedChecksum != null && !expectedChecksum.equals(checksum)) {
+            throw new IOException("Checksum mismatch for " + path + ": expected "
+                + expectedChecksum + ", found " + checksum);
+        }
+
+        int vocabSize = buffer.getInt(12);
+        int numFeatures = buffer.getInt(16);
+        int numClasses = buffer.getInt(20);
+        int maxFeatures = buffer.getInt(24);
+        int flags = buffer.getInt(28);
+        if ((flags & ~(FLAG_HASHED_FEATURES | FLAG_QUANTIZED)) != 0) {
+            throw new IOException("Unsupported model flags 0x" + Integer.toHexString(flags) + " in " + path);
+        }
+        int stringTableOffset = (int) buffer.getLong(32);
+        int idfOffset = (int) buffer.getLong(40);
+        int classesOffset = (int) buffer.getLong(48);
+        int biasOffset = (int) buffer.getLong(56);
+        int weightsOffset = (int) buffer.getLong(64);
+
+        boolean hashed = (flags & FLAG_HASHED_FEATURES) != 0;
+        double[] idf = new double[hashed ? numFeatures : vocabSize];
+        for (int i = 0; i < idf.length; i++) {
+            idf[i] = buffer.getFloat(idfOffset + 4 * i);
+        }
+
+        TextVectorizer vectorizer;
+        if (hashed) {
+            vectorizer = HashingVectorizer.fromParameters(numFeatures,
+                buffer.getInt(stringTableOffset + 4), buffer.getInt(stringTableOffset + 8),
+                buffer.getInt(stringTableOffset), idf);
+        } else {
+            Map<String, Integer> vocabulary = new HashMap<>(vocabSize * 4 / 3 + 1);
+            int termsStart = stringTableOffset + 4 * (vocabSize + 1);
+            byte[] scratch = new byte[64];
+            for (int i = 0; i < vocabSize; i++) {
+                int start = buffer.getInt(stringTableOffset + 4 * i);
+                int end = buffer.getInt(stringTableOffset + 4 * (i + 1));
+                int length = end - start;
+                if (scratch.length < length) {
+                    scratch = new byte[length];
+                }
+                buffer.get(termsStart + start, scratch, 0, length);
+                vocabulary.put(new String(scratch, 0, length, StandardCharsets.UTF_8), i);
+            }
+            vectorizer = TFIDFVectorizer.fromIndexedIdf(vocabulary, idf, maxFeatures);
+        }
+
+        int[] classes = new int[numClasses];
+        double[] bias = new double[numClasses];
+        for (int c = 0; c < numClasses; c++) {
+            classes[c] = buffer.getInt(classesOffset + 4 * c);
+            bias[c] = buffer.getFloat(biasOffset + 4 * c);
+        }
+
+        LinearSVMClassifier classifier;
+        if ((flags & FLAG_QUANTIZED) != 0) {
+            float[] scales = new float[numClasses];
+            for (int c = 0; c < numClasses; c++) {
+                scales[c] = buffer.getFloat(weightsOffset + 4 * c);
+            }
+            byte[] weights = new byte[numFeatures * numClasses];
+            buffer.get((int) align(weightsOffset + 4L * numClasses), weights);
+            classifier = LinearSVMClassifier.fromQuantizedWeights(classes, bias, weights, scales);
+        } else {
+            FloatBuffer weights = buffer.slice(weightsOffset, 4 * numFeatures * numClasses)
+                                        .order(ByteOrder.LITTLE_ENDIAN)
+                                        .asFloatBuffer();
+            classifier = LinearSVMClassifier.fromMappedWeights(classes, bias, weights);
+        }
+
+        return new LoadedModel(vectorizer, classifier, version, checksum);
+    }
+
+    public static String checksum(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return checksum(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    private static String checksum(ByteBuffer buffer) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.duplicate().clear());
+        return String.format("crc32c:%08x", crc.getValue());
+    }
+
+    private static double[] filled(int length, double value) {
+        double[] values = new double[length];
+        Arrays.fill(values, value);
+        return values;
+    }
+
+    private static long align(long offset) {
+        return (offset + 7) & ~7L;
+    }
+
+    public static class LoadedModel {
+        private final TextVectorizer vectorizer;
+        private final LinearSVMClassifier classifier;
+        private final int formatVersion;
+        private final String checksum;
+
+        LoadedModel(TextVectorizer vectorizer, LinearSVMClassifier classifier, int formatVersion, String checksum) {
+            this.vectorizer = vectorizer;
+            this.classifier = classifier;
+            this.formatVersion = formatVersion;
+            this.checksum = checksum;
+        }
+
+        public TextVectorizer getVectorizer() { return vectorizer; }
+        public LinearSVMClassifier getClassifier() { return classifier; }
+        public int getFormatVersion() { return formatVersion; }
+        public String getChecksum() { return checksum; }
+    }
+}
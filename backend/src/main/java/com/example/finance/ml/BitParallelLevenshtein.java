@@ -0,0 +1,241 @@
+package com.example.finance.ml;
+
+import java.util.Arrays;
+
+/**
+ * Levenshtein distance with Myers' bit-vector algorithm (Hyyrö's formulation, one 64-bit word per
+ * 64 pattern chars), with an optional max-distance cutoff.
+ *
+ * - The shorter string is the pattern, the longer one is scanned column by column; each column costs
+ *   ceil(m / 64) word operations instead of m cell updates
+ * - Common prefix/suffix are stripped first (they never change the distance)
+ * - With a cutoff k: returns -1 as soon as the distance is known to exceed k, i.e. when the length
+ *   difference is already > k, or when the last-row score minus the remaining columns is > k
+ *   (the score can drop by at most 1 per remaining column)
+ *
+ * Chars are compared as UTF-16 units, exactly like the charAt()-based DP it replaces.
+ * Scratch arrays live in a per-thread workspace, so calls do not allocate.
+ */
+public final class BitParallelLevenshtein {
+
+    private static final ThreadLocal<Workspace> WORKSPACE = ThreadLocal.withInitial(Workspace::new);
+
+    private BitParallelLevenshtein() {
+    }
+
+    public static int distance(CharSequence a, CharSequence b) {
+        return distance(a, b, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Edit distance between a and b if it is <= maxDistance, otherwise -1
+     */
+    public static int distance(CharSequence a, CharSequence b, int maxDistance) {
+        if (maxDistance < 0) {
+            return -1;
+        }
+        int aEnd = a.length();
+        int bEnd = b.length();
+
+        // Strip common prefix and suffix
+        int start = 0;
+        while (start < aEnd && start < bEnd && a.charAt(start) == b.charAt(start)) {
+            start++;
+        }
+        while (aEnd > start && bEnd > start && a.charAt(aEnd - 1) == b.charAt(bEnd - 1)) {
+            aEnd--;
+            bEnd--;
+        }
+
+        int aLength = aEnd - start;
+        int bLength = bEnd - start;
+        if (Math.abs(aLength - bLength) > maxDistance) {
+            return -1;
+        }
+        if (aLength == 0 || bLength == 0) {
+            return Math.max(aLength, bLength);
+        }
+
+        // Pattern = shorter string (fewer blocks), text = longer one
+        return aLength <= bLength
+            ? compute(a, start, aLength, b, start, bLength, maxDistance)
+            : compute(b, start, bLength, a, start, aLength, maxDistance);
+    }
+
+    private static int compute(CharSequence pattern, int patternStart, int m,
+                               CharSequence text, int textStart, int n, int maxDistance) {
+        Workspace ws = WORKSPACE.get();
+        int blocks = (m + 63) >>> 6;
+        ws.prepare(pattern, patternStart, m, blocks);
+        try {
+            return blocks == 1
+                ? computeSingleBlock(ws, m, text, textStart, n, maxDistance)
+                : computeBlocks(ws, m, blocks, text, textStart, n, maxDistance);
+        } finally {
+            ws.reset(pattern, patternStart, m, blocks);
+        }
+    }
+
+    private static int computeSingleBlock(Workspace ws, int m, CharSequence text, int textStart, int n,
+                                          int maxDistance) {
+        long pv = -1L;
+        long mv = 0L;
+        long lastBit = 1L << (m - 1);
+        int score = m;
+
+        for (int j = 0; j < n; j++) {
+            long eq = ws.peq(text.charAt(textStart + j), 0);
+            long xv = eq | mv;
+            long xh = (((eq & pv) + pv) ^ pv) | eq;
+            long ph = mv | ~(xh | pv);
+            long mh = pv & xh;
+
+            if ((ph & lastBit) != 0) {
+                score++;
+            } else if ((mh & lastBit) != 0) {
+                score--;
+            }
+            if (score - (n - j - 1) > maxDistance) {
+                return -1;
+            }
+
+            // Row 0 of the DP grows by 1 per column: horizontal delta +1 enters at the bottom
+            ph = (ph << 1) | 1L;
+            mh <<= 1;
+            pv = mh | ~(xv | ph);
+            mv = ph & xv;
+        }
+        return score <= maxDistance ? score : -1;
+    }
+
+    private static int computeBlocks(Workspace ws, int m, int blocks, CharSequence text, int textStart, int n,
+                                     int maxDistance) {
+        long[] pvs = ws.pv;
+        long[] mvs = ws.mv;
+        for (int b = 0; b < blocks; b++) {
+            pvs[b] = -1L;
+            mvs[b] = 0L;
+        }
+        long lastBit = 1L << ((m - 1) & 63);
+        int last = blocks - 1;
+        int score = m;
+
+        for (int j = 0; j < n; j++) {
+            char c = text.charAt(textStart + j);
+            int hin = 1;
+            for (int b = 0; b < blocks; b++) {
+                long pv = pvs[b];
+                long mv = mvs[b];
+                long eq = ws.peq(c, b);
+                long xv = eq | mv;
+                if (hin < 0) {
+                    eq |= 1L;
+                }
+                long xh = (((eq & pv) + pv) ^ pv) | eq;
+                long ph = mv | ~(xh | pv);
+                long mh = pv & xh;
+
+                long highBit = b == last ? lastBit : Long.MIN_VALUE;
+                int hout = (ph & highBit) != 0 ? 1 : (mh & highBit) != 0 ? -1 : 0;
+
+                ph <<= 1;
+                mh <<= 1;
+                if (hin < 0) {
+                    mh |= 1L;
+                } else if (hin > 0) {
+                    ph |= 1L;
+                }
+                pvs[b] = mh | ~(xv | ph);
+                mvs[b] = ph & xv;
+                hin = hout;
+            }
+            score += hin;
+            if (score - (n - j - 1) > maxDistance) {
+                return -1;
+            }
+        }
+        return score <= maxDistance ? score : -1;
+    }
+
+    /**
+     * Per-thread scratch: pattern match masks (Peq) and the vertical delta vectors
+     */
+    private static final class Workspace {
+        // ASCII masks: asciiPeq[c * blocks + block]; other chars: small list searched linearly
+        private long[] asciiPeq = new long[128];
+        private char[] extChars = new char[8];
+        private long[] extPeq = new long[8];
+        private int extCount;
+        private int blocks = 1;
+        private long[] pv = new long[1];
+        private long[] mv = new long[1];
+
+        void prepare(CharSequence pattern, int start, int m, int blocks) {
+            this.blocks = blocks;
+            if (asciiPeq.length < 128 * blocks) {
+                asciiPeq = new long[128 * blocks];
+            }
+            if (pv.length < blocks) {
+                pv = new long[blocks];
+                mv = new long[blocks];
+            }
+            extCount = 0;
+            for (int i = 0; i < m; i++) {
+                char c = pattern.charAt(start + i);
+                int block = i >>> 6;
+                long bit = 1L << (i & 63);
+                if (c < 128) {
+                    asciiPeq[c * blocks + block] |= bit;
+                } else {
+                    int slot = findExt(c);
+                    if (slot < 0) {
+                        slot = addExt(c);
+                    }
+                    extPeq[slot * blocks + block] |= bit;
+                }
+            }
+        }
+
+        long peq(char c, int block) {
+            if (c < 128) {
+                return asciiPeq[c * blocks + block];
+            }
+            int slot = findExt(c);
+            return slot < 0 ? 0L : extPeq[slot * blocks + block];
+        }
+
+        /**
+         * Clear only the entries prepare() set, so the next call starts from zeroed tables
+         */
+        void reset(CharSequence pattern, int start, int m, int blocks) {
+            for (int i = 0; i < m; i++) {
+                char c = pattern.charAt(start + i);
+                if (c < 128) {
+                    asciiPeq[c * blocks + (i >>> 6)] = 0L;
+                }
+            }
+            Arrays.fill(extPeq, 0, extCount * blocks, 0L);
+            extCount = 0;
+        }
+
+        private int findExt(char c) {
+            for (int i = 0; i < extCount; i++) {
+                if (extChars[i] == c) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private int addExt(char c) {
+            if (extCount == extChars.length) {
+                extChars = Arrays.copyOf(extChars, extCount * 2);
+            }
+            if (extPeq.length < (extCount + 1) * blocks) {
+                extPeq = Arrays.copyOf(extPeq, Math.max(extPeq.length * 2, (extCount + 1) * blocks));
+            }
+            extChars[extCount] = c;
+            return extCount++;
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package com.example.finance.ml;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable lookup tables for the Layer 3 scoring signals.
+ *
+ * Built once from the brand / n-gram / document definitions so that a query only does
+ * lookups and dot products instead of rebuilding maps and document frequencies:
+ * - Brands: one substring automaton over all brand patterns
+ * - N-grams: bigrams interned to int ids, each example stored as a distinct id set
+ * - TF-IDF: IDF table over every term a document can contain, plus an inverted index
+ *   term -> (document, weight) with precomputed document norms
+ *
+ * Instances are never mutated after construction; callers swap the whole index on rebuild.
+ */
+public final class CategorySignalIndex {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final int MIN_TFIDF_TERM_LENGTH = 3;
+
+    // Signal 1: brands
+    private final KeywordAutomaton brandMatcher;
+
+    // Signal 3: n-grams
+    private final Map<String, Integer> bigramIds;
+    private final long[] ngramCategories;
+    private final int[][][] ngramExamples; // [category][example] -> distinct bigram ids
+
+    // Signal 4: TF-IDF
+    private final Map<String, Double> idfTable;
+    private final Map<String, Posting> postings;
+    private final long[] tfidfCategories;
+    private final int[] docCategoryIndex;
+    private final double[] docNorms;
+
+    public CategorySignalIndex(Map<Long, List<String>> brandPatterns,
+                               Map<Long, List<String>> ngramExamples,
+                               Map<Long, List<String>> categoryDocuments) {
+        this.brandMatcher = new KeywordAutomaton(brandPatterns, false);
+
+        // ===== N-gram tables =====
+        Map<String, Integer> ids = new HashMap<>();
+        this.ngramCategories = new long[ngramExamples.size()];
+        this.ngramExamples = new int[ngramExamples.size()][][];
+        int c = 0;
+        for (Map.Entry<Long, List<String>> entry : ngramExamples.entrySet()) {
+            ngramCategories[c] = entry.getKey();
+            List<String> examples = entry.getValue();
+            this.ngramExamples[c] = new int[examples.size()][];
+            for (int e = 0; e < examples.size(); e++) {
+                Set<String> bigrams = extractBigrams(examples.get(e));
+                int[] exampleIds = new int[bigrams.size()];
+                int i = 0;
+                for (String bigram : bigrams) {
+                    Integer id = ids.get(bigram);
+                    if (id == null) {
+                        id = ids.size();
+                        ids.put(bigram, id);
+                    }
+                    exampleIds[i++] = id;
+                }
+                this.ngramExamples[c][e] = exampleIds;
+            }
+            c++;
+        }
+        this.bigramIds = Collections.unmodifiableMap(ids);
+
+        // ===== TF-IDF tables =====
+        // Document frequency = number of categories with a document containing the term
+        // (substring semantics), total = number of documents
+        int totalDocs = 0;
+        Map<String, Integer> categoryFrequency = new HashMap<>();
+        for (List<String> docs : categoryDocuments.values()) {
+            totalDocs += docs.size();
+            Set<String> substrings = new HashSet<>();
+            for (String doc : docs) {
+                for (String word : WHITESPACE.split(doc)) {
+                    for (int start = 0; start < word.length(); start++) {
+                        for (int end = start + MIN_TFIDF_TERM_LENGTH; end <= word.length(); end++) {
+                            substrings.add(word.substring(start, end));
+                        }
+                    }
+                }
+            }
+            for (String term : substrings) {
+                categoryFrequency.merge(term, 1, Integer::sum);
+            }
+        }
+
+        Map<String, Double> idf = new HashMap<>();
+        for (Map.Entry<String, Integer> entry : categoryFrequency.entrySet()) {
+            idf.put(entry.getKey(), Math.log((double) totalDocs / entry.getValue()));
+        }
+        this.idfTable = Collections.unmodifiableMap(idf);
+
+        this.tfidfCategories = new long[categoryDocuments.size()];
+        this.docCategoryIndex = new int[totalDocs];
+        this.docNorms = new double[totalDocs];
+        Map<String, List<double[]>> postingLists = new HashMap<>();
+        int doc = 0;
+        c = 0;
+        for (Map.Entry<Long, List<String>> entry : categoryDocuments.entrySet()) {
+            tfidfCategories[c] = entry.getKey();
+            for (String text : entry.getValue()) {
+                Map<String, Double> vector = tfidfVector(text);
+                double normSq = 0.0;
+                for (Map.Entry<String, Double> term : vector.entrySet()) {
+                    normSq += term.getValue() * term.getValue();
+                    postingLists.computeIfAbsent(term.getKey(), k -> new ArrayList<>())
+                                .add(new double[] { doc, term.getValue() });
+                }
+                docCategoryIndex[doc] = c;
+                docNorms[doc] = Math.sqrt(normSq);
+                doc++;
+            }
+            c++;
+        }
+
+        Map<String, Posting> index = new HashMap<>();
+        for (Map.Entry<String, List<double[]>> entry : postingLists.entrySet()) {
+            List<double[]> list = entry.getValue();
+            int[] docs = new int[list.size()];
+            double[] weights = new double[list.size()];
+            for (int i = 0; i < list.size(); i++) {
+                docs[i] = (int) list.get(i)[0];
+                weights[i] = list.get(i)[1];
+            }
+            index.put(entry.getKey(), new Posting(docs, weights));
+        }
+        this.postings = Collections.unmodifiableMap(index);
+    }
+
+    /**
+     * Signal 1: categories with at least one brand pattern contained in the text (score 1.0)
+     */
+    public Map<Long, String> matchBrands(String normalized) {
+        Map<Long, String> matches = new HashMap<>();
+        for (KeywordAutomaton.Hit hit : brandMatcher.match(normalized).getHits()) {
+            matches.putIfAbsent(hit.categoryId, hit.keyword);
+        }
+        return matches;
+    }
+
+    /**
+     * Signal 3: best bigram Jaccard similarity per category
+     */
+    public Map<Long, Double> scoreNGrams(String normalized) {
+        Set<String> inputBigrams = extractBigrams(normalized);
+        boolean[] present = new boolean[bigramIds.size()];
+        for (String bigram : inputBigrams) {
+            Integer id = bigramIds.get(bigram);
+            if (id != null) {
+                present[id] = true;
+            }
+        }
+
+        Map<Long, Double> scores = new HashMap<>();
+        int inputSize = inputBigrams.size();
+        for (int c = 0; c < ngramCategories.length; c++) {
+            double best = 0.0;
+            for (int[] example : ngramExamples[c]) {
+                int intersection = 0;
+                for (int id : example) {
+                    if (present[id]) {
+                        intersection++;
+                    }
+                }
+                int union = inputSize + example.length - intersection;
+                double similarity = union == 0 ? 0.0 : (double) intersection / union;
+                best = Math.max(best, similarity);
+            }
+            scores.put(ngramCategories[c], best);
+        }
+        return scores;
+    }
+
+    /**
+     * Signal 4: best cosine similarity per category between the text and the category documents
+     */
+    public Map<Long, Double> scoreTFIDF(String normalized) {
+        Map<Long, Double> scores = new HashMap<>();
+        Map<String, Double> input = tfidfVector(normalized);
+
+        double inputNormSq = 0.0;
+        for (double w : input.values()) {
+            inputNormSq += w * w;
+        }
+        if (inputNormSq <= 0) {
+            return scores;
+        }
+
+        double[] dots = new double[docNorms.length];
+        for (Map.Entry<String, Double> term : input.entrySet()) {
+            Posting posting = postings.get(term.getKey());
+            if (posting == null) {
+                continue;
+            }
+            double w = term.getValue();
+            for (int i = 0; i < posting.docs.length; i++) {
+                dots[posting.docs[i]] += w * posting.weights[i];
+            }
+        }
+
+        double inputNorm = Math.sqrt(inputNormSq);
+        double[] best = new double[tfidfCategories.length];
+        for (int d = 0; d < dots.length; d++) {
+            if (docNorms[d] > 0) {
+                double similarity = dots[d] / (inputNorm * docNorms[d]);
+                int c = docCategoryIndex[d];
+                best[c] = Math.max(best[c], similarity);
+            }
+        }
+        for (int c = 0; c < best.length; c++) {
+            scores.put(tfidfCategories[c], best[c]);
+        }
+        return scores;
+    }
+
+    public int getBigramCount() {
+        return bigramIds.size();
+    }
+
+    public int getIdfTableSize() {
+        return idfTable.size();
+    }
+
+    private Map<String, Double> tfidfVector(String text) {
+        String[] words = WHITESPACE.split(text);
+        Map<String, Integer> termFreq = new HashMap<>();
+        for (String word : words) {
+            if (word.length() >= MIN_TFIDF_TERM_LENGTH) {
+                termFreq.merge(word, 1, Integer::sum);
+            }
+        }
+
+        Map<String, Double> vector = new HashMap<>();
+        for (Map.Entry<String, Integer> entry : termFreq.entrySet()) {
+            double idf = idfTable.getOrDefault(entry.getKey(), 0.0);
+            if (idf != 0.0) {
+                vector.put(entry.getKey(), (double) entry.getValue() / words.length * idf);
+            }
+        }
+        return vector;
+    }
+
+    private static Set<String> extractBigrams(String text) {
+        Set<String> bigrams = new HashSet<>();
+        String[] words = WHITESPACE.split(text);
+        for (int i = 0; i < words.length - 1; i++) {
+            bigrams.add(words[i] + " " + words[i + 1]);
+        }
+        return bigrams;
+    }
+
+    private static final class Posting {
+        final int[] docs;
+        final double[] weights;
+
+        Posting(int[] docs, double[] weights) {
+            this.docs = docs;
+            this.weights = weights;
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package com.example.finance.ml;
+
+import java.util.*;
+import java.util.function.UnaryOperator;
+
+/**
+ * Candidate-pruning index for Layer 2 fuzzy keyword lookup.
+ *
+ * Built once from an ordered map categoryId -> keywords (map order, then list order = priority):
+ * - Keywords are normalized once at build time with the same normalizer as the input
+ * - Exact whole-word hits: hash lookup of every run of 1..maxKeywordWords consecutive input words
+ * - Fuzzy hits: one BK-tree (metric tree on edit distance) per keyword length. For an input of length n,
+ *   only lengths L whose best possible similarity reaches the threshold are visited, each with the
+ *   exact distance radius r(L) that 1 - d / max(n, L) >= minSimilarity allows; the triangle inequality
+ *   then prunes every subtree whose edge distance is outside [d - r, d + r]
+ *
+ * find() returns the same match as scanning every keyword of every category with
+ * FuzzyMatchingService.findBestMatch() and keeping the best category, restricted to matches
+ * with similarity >= minSimilarity: exact hits win (first category, then first keyword),
+ * otherwise the highest similarity (ties: first category, then first keyword).
+ */
+public class FuzzyKeywordIndex {
+
+    private final double minSimilarity;
+    private final Map<String, Entry> exact = new HashMap<>();
+    private final int maxKeywordWords;
+    private final Node[] treesByLength;
+    private final int keywordCount;
+
+    /**
+     * @param categoryKeywords keywords per category, in priority order
+     * @param normalizer       applied to every keyword (and expected to have been applied to the input)
+     * @param minSimilarity    fuzzy candidates below this similarity are never returned
+     */
+    public FuzzyKeywordIndex(Map<Long, List<String>> categoryKeywords, UnaryOperator<String> normalizer,
+                             double minSimilarity) {
+        this.minSimilarity = minSimilarity;
+
+        int rank = 0;
+        int words = 1;
+        int maxLength = 0;
+        for (Map.Entry<Long, List<String>> category : categoryKeywords.entrySet()) {
+            for (String keyword : category.getValue()) {
+                String normalized = keyword == null ? "" : normalizer.apply(keyword);
+                // First occurrence keeps the best rank; later duplicates can never win
+                if (!normalized.isEmpty() && !exact.containsKey(normalized)) {
+                    exact.put(normalized, new Entry(normalized, keyword, category.getKey(), rank));
+                    words = Math.max(words, normalized.split(" ").length);
+                    maxLength = Math.max(maxLength, normalized.length());
+                }
+                rank++;
+            }
+        }
+        maxKeywordWords = words;
+        keywordCount = exact.size();
+
+        treesByLength = new Node[maxLength + 1];
+        List<Entry> byRank = new ArrayList<>(exact.values());
+        byRank.sort(Comparator.comparingInt(e -> e.rank));
+        for (Entry entry : byRank) {
+            int length = entry.normalized.length();
+            if (treesByLength[length] == null) {
+                treesByLength[length] = new Node(entry);
+            } else {
+                treesByLength[length].insert(entry);
+            }
+        }
+    }
+
+    /**
+     * Best keyword match for an already-normalized input, or null if no keyword reaches minSimilarity
+     */
+    public Match find(String normalizedInput) {
+        if (normalizedInput == null || normalizedInput.isEmpty()) {
+            return null;
+        }
+
+        Entry exactHit = findExact(normalizedInput);
+        if (exactHit != null) {
+            return new Match(exactHit.categoryId, exactHit.keyword, 1.0, "exact");
+        }
+
+        Match best = null;
+        int bestRank = Integer.MAX_VALUE;
+        for (Candidate candidate : candidates(normalizedInput)) {
+            boolean better = best == null
+                || candidate.similarity > best.getSimilarity()
+                || (candidate.similarity == best.getSimilarity() && candidate.entry.rank < bestRank);
+            if (better) {
+                best = new Match(candidate.entry.categoryId, candidate.entry.keyword, candidate.similarity, "fuzzy");
+                bestRank = candidate.entry.rank;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Every keyword whose whole-string similarity with the input is >= minSimilarity
+     */
+    public List<Candidate> candidates(String normalizedInput) {
+        List<Candidate> result = new ArrayList<>();
+        int n = normalizedInput.length();
+        for (int length = 1; length < treesByLength.length; length++) {
+            Node root = treesByLength[length];
+            if (root == null) {
+                continue;
+            }
+            int maxLen = Math.max(n, length);
+            int radius = maxDistance(maxLen);
+            if (radius < 0 || Math.abs(n - length) > radius) {
+                continue;
+            }
+            root.search(normalizedInput, radius, maxLen, result);
+        }
+        return result;
+    }
+
+    public int getKeywordCount() {
+        return keywordCount;
+    }
+
+    public double getMinSimilarity() {
+        return minSimilarity;
+    }
+
+    /**
+     * Lowest-ranked keyword equal to a run of consecutive words of the input
+     * (same as the "(^|\s)keyword(\s|$)" whole-word check on single-space separated text)
+     */
+    private Entry findExact(String input) {
+        Entry best = null;
+        int length = input.length();
+        for (int start = 0; start < length; start = nextWordStart(input, start)) {
+            int end = start - 1;
+            for (int words = 0; words < maxKeywordWords && end < length; words++) {
+                end = wordEnd(input, end + 1);
+                Entry entry = exact.get(input.substring(start, end));
+                if (entry != null && (best == null || entry.rank < best.rank)) {
+                    best = entry;
+                }
+            }
+        }
+        return best;
+    }
+
+    private static int wordEnd(String text, int from) {
+        int space = text.indexOf(' ', from);
+        return space < 0 ? text.length() : space;
+    }
+
+    private static int nextWordStart(String text, int from) {
+        int space = text.indexOf(' ', from);
+        return space < 0 ? text.length() : space + 1;
+    }
+
+    /**
+     * Largest distance d with 1 - d / maxLen >= minSimilarity, evaluated with the scoring expression itself
+     */
+    private int maxDistance(int maxLen) {
+        int distance = (int) Math.min(maxLen, Math.floor((1.0 - Math.max(minSimilarity, 0.0)) * maxLen));
+        while (distance >= 0 && similarity(distance, maxLen) < minSimilarity) {
+            distance--;
+        }
+        while (distance < maxLen && similarity(distance + 1, maxLen) >= minSimilarity) {
+            distance++;
+        }
+        return distance;
+    }
+
+    private static double similarity(int distance, int maxLen) {
+        return 1.0 - ((double) distance / maxLen);
+    }
+
+    // === Inner Classes ===
+
+    private static final class Entry {
+        final String normalized;
+        final String keyword;
+        final Long categoryId;
+        final int rank;
+
+        Entry(String normalized, String keyword, Long categoryId, int rank) {
+            this.normalized = normalized;
+            this.keyword = keyword;
+            this.categoryId = categoryId;
+            this.rank = rank;
+        }
+    }
+
+    /**
+     * BK-tree node: children keyed by their edit distance to this node's keyword
+     */
+    private static final class Node {
+        final Entry entry;
+        int[] childDistances = new int[0];
+        Node[] children = new Node[0];
+        int maxChildDistance;
+
+        Node(Entry entry) {
+            this.entry = entry;
+        }
+
+        void insert(Entry newEntry) {
+            Node node = this;
+            while (true) {
+                int d = BitParallelLevenshtein.distance(newEntry.normalized, node.entry.normalized);
+                Node child = node.child(d);
+                if (child == null) {
+                    node.addChild(d, new Node(newEntry));
+                    return;
+                }
+                node = child;
+            }
+        }
+
+        void search(String query, int radius, int maxLen, List<Candidate> out) {
+            // Beyond radius + maxChildDistance neither this node nor any child can be in range
+            int d = BitParallelLevenshtein.distance(query, entry.normalized, radius + maxChildDistance);
+            if (d < 0) {
+                return;
+            }
+            if (d <= radius) {
+                out.add(new Candidate(entry, 1.0 - ((double) d / maxLen)));
+            }
+            for (int i = 0; i < children.length; i++) {
+                if (Math.abs(childDistances[i] - d) <= radius) {
+                    children[i].search(query, radius, maxLen, out);
+                }
+            }
+        }
+
+        private Node child(int distance) {
+            for (int i = 0; i < childDistances.length; i++) {
+                if (childDistances[i] == distance) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        private void addChild(int distance, Node child) {
+            childDistances = Arrays.copyOf(childDistances, childDistances.length + 1);
+            children = Arrays.copyOf(children, children.length + 1);
+            childDistances[childDistances.length - 1] = distance;
+            children[children.length - 1] = child;
+            maxChildDistance = Math.max(maxChildDistance, distance);
+        }
+    }
+
+    public static final class Candidate {
+        private final Entry entry;
+        private final double similarity;
+
+        private Candidate(Entry entry, double similarity) {
+            this.entry = entry;
+            this.similarity = similarity;
+        }
+
+        public String getKeyword() { return entry.keyword; }
+        public Long getCategoryId() { return entry.categoryId; }
+        public double getSimilarity() { return similarity; }
+    }
+
+    public static class Match {
+        private final Long categoryId;
+        private final String keyword;
+        private final double similarity;
+        private final String matchType; // "exact" or "fuzzy"
+
+        public Match(Long categoryId, String keyword, double similarity, String matchType) {
+            this.categoryId = categoryId;
+            this.keyword = keyword;
+            this.similarity = similarity;
+            this.matchType = matchType;
+        }
+
+        public Long getCategoryId() { return categoryId; }
+        public String getKeyword() { return keyword; }
+        public double getSimilarity() { return similarity; }
+        public String getMatchType() { return matchType; }
+    }
+}
@@ -0,0 +1,277 @@
+package com.example.finance.ml;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Feature-hashing vectorizer ("hashing trick"): no vocabulary, every token maps to a bucket.
+ * - Features: each normalized word, plus optionally every character n-gram of each word
+ *   (minNgram..maxNgram chars), so unseen merchant names and misspellings still share features
+ * - Bucket = murmur3_32 of the feature's char range in the normalizer buffer & (numBuckets - 1);
+ *   the hash's top bit picks the sign, so colliding features tend to cancel instead of adding up
+ * - Weights: signed counts, times a smoothed per-bucket IDF ln((1 + N) / (1 + df)) + 1 once fit()
+ *   has run (plain counts before), then L2-normalized
+ *
+ * transformSparse allocates only the returned vector: tokens are hashed in place and the
+ * (bucket, sign) pairs are sorted in a per-thread scratch buffer.
+ */
+public class HashingVectorizer implements TextVectorizer, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final int DEFAULT_BUCKETS = 1 << 16;
+    public static final int DEFAULT_SEED = 0x2f1a5c3d;
+
+    // Word and n-gram features hash with different seeds: the word "an" is not the bigram "an"
+    private static final int NGRAM_SEED_SALT = 0x5bd1e995;
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private final int numBuckets;
+    private final int minNgram;
+    private final int maxNgram;
+    private final int seed;
+    private double[] idf;
+
+    /**
+     * Words only
+     */
+    public HashingVectorizer(int numBuckets) {
+        this(numBuckets, 0, 0);
+    }
+
+    /**
+     * Words plus character n-grams of minNgram..maxNgram chars (0, 0 = words only)
+     */
+    public HashingVectorizer(int numBuckets, int minNgram, int maxNgram) {
+        this(numBuckets, minNgram, maxNgram, DEFAULT_SEED);
+    }
+
+    HashingVectorizer(int numBuckets, int minNgram, int maxNgram, int seed) {
+        if (numBuckets < 2 || Integer.bitCount(numBuckets) != 1) {
+            throw new IllegalArgumentException("numBuckets must be a power of two, got " + numBuckets);
+        }
+        if (!(minNgram == 0 && maxNgram == 0) && (minNgram < 1 || maxNgram < minNgram)) {
+            throw new IllegalArgumentException("Invalid n-gram range " + minNgram + ".." + maxNgram);
+        }
+        this.numBuckets = numBuckets;
+        this.minNgram = minNgram;
+        this.maxNgram = maxNgram;
+        this.seed = seed;
+    }
+
+    /**
+     * Vectorizer restored from a binary model file
+     */
+    static HashingVectorizer fromParameters(int numBuckets, int minNgram, int maxNgram, int seed, double[] idf) {
+        HashingVectorizer vectorizer = new HashingVectorizer(numBuckets, minNgram, maxNgram, seed);
+        vectorizer.idf = idf;
+        return vectorizer;
+    }
+
+    /**
+     * Learn the per-bucket IDF (the only fitted state)
+     */
+    public void fit(List<String> documents) {
+        int[] documentFrequency = new int[numBuckets];
+        Scratch scratch = SCRATCH.get();
+        for (String document : documents) {
+            int count = collect(document, scratch);
+            long[] keys = scratch.keys;
+            int previous = -1;
+            for (int i = 0; i < count; i++) {
+                int bucket = (int) (keys[i] >>> 1);
+                if (bucket != previous) {
+                    documentFrequency[bucket]++;
+                    previous = bucket;
+                }
+            }
+        }
+        double[] table = new double[numBuckets];
+        double numDocuments = documents.size();
+        for (int b = 0; b < numBuckets; b++) {
+            table[b] = Math.log((1 + numDocuments) / (1 + documentFrequency[b])) + 1;
+        }
+        idf = table;
+    }
+
+    @Override
+    public SparseVector transformSparse(String document) {
+        Scratch scratch = SCRATCH.get();
+        int count = collect(document, scratch);
+        if (count == 0) {
+            return SparseVector.empty(numBuckets);
+        }
+
+        // Collapse sorted (bucket, sign) keys into signed counts per bucket
+        long[] keys = scratch.keys;
+        int[] buckets = scratch.buckets(count);
+        double[] weights = scratch.weights(count);
+        int unique = 0;
+        int i = 0;
+        while (i < count) {
+            int bucket = (int) (keys[i] >>> 1);
+            int sum = 0;
+            for (; i < count && (int) (keys[i] >>> 1) == bucket; i++) {
+                sum += (keys[i] & 1) == 0 ? 1 : -1;
+            }
+            if (sum != 0) {
+                buckets[unique] = bucket;
+                weights[unique] = idf == null ? sum : sum * idf[bucket];
+                unique++;
+            }
+        }
+        if (unique == 0) {
+            return SparseVector.empty(numBuckets);
+        }
+
+        double norm = 0.0;
+        for (int j = 0; j < unique; j++) {
+            norm += weights[j] * weights[j];
+        }
+        norm = Math.sqrt(norm);
+        int[] indices = Arrays.copyOf(buckets, unique);
+        float[] values = new float[unique];
+        for (int j = 0; j < unique; j++) {
+            values[j] = (float) (weights[j] / norm);
+        }
+        return new SparseVector(indices, values, numBuckets);
+    }
+
+    @Override
+    public SparseVector[] fitTransformSparse(List<String> documents) {
+        fit(documents);
+        SparseVector[] matrix = new SparseVector[documents.size()];
+        for (int i = 0; i < documents.size(); i++) {
+            matrix[i] = transformSparse(documents.get(i));
+        }
+        return matrix;
+    }
+
+    @Override
+    public int getDimension() {
+        return numBuckets;
+    }
+
+    public int getMinNgram() {
+        return minNgram;
+    }
+
+    public int getMaxNgram() {
+        return maxNgram;
+    }
+
+    public boolean isFitted() {
+        return idf != null;
+    }
+
+    int getSeed() {
+        return seed;
+    }
+
+    /**
+     * Per-bucket IDF, null before fit()
+     */
+    double[] idfTable() {
+        return idf;
+    }
+
+    /**
+     * Normalize the document into the scratch buffer and leave its features as sorted keys
+     * (bucket << 1 | sign bit) in scratch.keys; returns the key count
+     */
+    private int collect(String document, Scratch scratch) {
+        VietnameseTextNormalizer.NormalizedText text = scratch.text;
+        VietnameseTextNormalizer.normalizeInto(document == null ? "" : document, text);
+        int tokens = text.tokenCount();
+        if (tokens == 0) {
+            return 0;
+        }
+        int bound = tokens + (maxNgram == 0 ? 0 : (maxNgram - minNgram + 1) * text.length());
+        long[] keys = scratch.keys(bound);
+        char[] chars = text.buffer();
+        int mask = numBuckets - 1;
+        int ngramSeed = seed ^ NGRAM_SEED_SALT;
+
+        int count = 0;
+        for (int t = 0; t < tokens; t++) {
+            int start = text.tokenStart(t);
+            int end = text.tokenEnd(t);
+            keys[count++] = key(murmur3(chars, start, end - start, seed), mask);
+            for (int n = minNgram; n > 0 && n <= maxNgram && n < end - start; n++) {
+                for (int i = start; i + n <= end; i++) {
+                    keys[count++] = key(murmur3(chars, i, n, ngramSeed), mask);
+                }
+            }
+        }
+        Arrays.sort(keys, 0, count);
+        return count;
+    }
+
+    private static long key(int hash, int mask) {
+        return ((long) (hash & mask) << 1) | (hash >>> 31);
+    }
+
+    /**
+     * MurmurHash3 x86_32 of chars[offset, offset + length) read as UTF-16LE bytes (two chars per block)
+     */
+    static int murmur3(char[] chars, int offset, int length, int seed) {
+        int h1 = seed;
+        int end = offset + (length & ~1);
+        for (int i = offset; i < end; i += 2) {
+            int k1 = chars[i] | (chars[i + 1] << 16);
+            h1 ^= mixK1(k1);
+            h1 = Integer.rotateLeft(h1, 13);
+            h1 = h1 * 5 + 0xe6546b64;
+        }
+        if ((length & 1) == 1) {
+            h1 ^= mixK1(chars[end]);
+        }
+        h1 ^= 2 * length;
+        h1 ^= h1 >>> 16;
+        h1 *= 0x85ebca6b;
+        h1 ^= h1 >>> 13;
+        h1 *= 0xc2b2ae35;
+        h1 ^= h1 >>> 16;
+        return h1;
+    }
+
+    private static int mixK1(int k1) {
+        k1 *= 0xcc9e2d51;
+        k1 = Integer.rotateLeft(k1, 15);
+        k1 *= 0x1b873593;
+        return k1;
+    }
+
+    /**
+     * Per-thread buffers: normalizer output, feature keys, collapsed buckets
+     */
+    private static final class Scratch {
+        final VietnameseTextNormalizer.NormalizedText text = new VietnameseTextNormalizer.NormalizedText();
+        long[] keys = new long[64];
+        int[] buckets = new int[64];
+        double[] weights = new double[64];
+
+        long[] keys(int size) {
+            if (keys.length < size) {
+                keys = new long[Math.max(size, keys.length * 2)];
+            }
+            return keys;
+        }
+
+        int[] buckets(int size) {
+            if (buckets.length < size) {
+                buckets = new int[Math.max(size, buckets.length * 2)];
+            }
+            return buckets;
+        }
+
+        double[] weights(int size) {
+            if (weights.length < size) {
+                weights = new double[Math.max(size, weights.length * 2)];
+            }
+            return weights;
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package com.example.finance.ml;
+
+import java.util.*;
+
+/**
+ * Multi-pattern keyword matcher (Aho-Corasick) with word-boundary awareness.
+ *
+ * Replaces a chain of ".*\\b(k1|k2|...)\\b.*" regexes with a single automaton:
+ * - Built once from an ordered map categoryId -> keywords (map order = priority)
+ * - One linear pass over the text finds every keyword hit with its position
+ * - A hit only counts when it starts and ends on a word boundary (same rule as regex \b),
+ *   unless built with wholeWords = false (plain substring semantics, like String.contains)
+ * - The winning category is the highest-priority category with at least one hit,
+ *   which is exactly what the first matching regex in the chain would return
+ */
+public class KeywordAutomaton {
+
+    private static final int ROOT = 0;
+
+    // Dense transition table: delta[state * alphabetSize + charClass]
+    private final int[] delta;
+    private final int alphabetSize;
+    private final int[] asciiClass;
+    private final Map<Character, Integer> extendedClass;
+
+    // Patterns reachable from each state (own + dictionary suffix outputs)
+    private final int[][] outputs;
+
+    private final String[] patterns;
+    private final long[] patternCategory;
+    private final int[] patternPriority;
+    private final Long[] categoryByPriority;
+    private final boolean wholeWords;
+
+    public KeywordAutomaton(Map<Long, List<String>> categoryKeywords) {
+        this(categoryKeywords, true);
+    }
+
+    public KeywordAutomaton(Map<Long, List<String>> categoryKeywords, boolean wholeWords) {
+        this.wholeWords = wholeWords;
+        List<String> patternList = new ArrayList<>();
+        List<Long> categoryList = new ArrayList<>();
+        List<Integer> priorityList = new ArrayList<>();
+
+        categoryByPriority = new Long[categoryKeywords.size()];
+        int priority = 0;
+        for (Map.Entry<Long, List<String>> entry : categoryKeywords.entrySet()) {
+            categoryByPriority[priority] = entry.getKey();
+            for (String keyword : entry.getValue()) {
+                if (keyword == null || keyword.isEmpty()) {
+                    continue;
+                }
+                patternList.add(keyword);
+                categoryList.add(entry.getKey());
+                priorityList.add(priority);
+            }
+            priority++;
+        }
+
+        patterns = patternList.toArray(new String[0]);
+        patternCategory = categoryList.stream().mapToLong(Long::longValue).toArray();
+        patternPriority = priorityList.stream().mapToInt(Integer::intValue).toArray();
+
+        // Alphabet: only characters that appear in some keyword get a class, everything else is class 0
+        asciiClass = new int[128];
+        extendedClass = new HashMap<>();
+        int nextClass = 1;
+        for (String pattern : patterns) {
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = pattern.charAt(i);
+                if (c < 128) {
+                    if (asciiClass[c] == 0) {
+                        asciiClass[c] = nextClass++;
+                    }
+                } else if (!extendedClass.containsKey(c)) {
+                    extendedClass.put(c, nextClass++);
+                }
+            }
+        }
+        alphabetSize = nextClass;
+
+        // Build trie
+        List<int[]> gotoRows = new ArrayList<>();
+        List<List<Integer>> ownOutputs = new ArrayList<>();
+        gotoRows.add(newRow());
+        ownOutputs.add(new ArrayList<>());
+
+        for (int p = 0; p < patterns.length; p++) {
+            int state = ROOT;
+            String pattern = patterns[p];
+            for (int i = 0; i < pattern.length(); i++) {
+                int cls = classOf(pattern.charAt(i));
+                int next = gotoRows.get(state)[cls];
+                if (next < 0) {
+                    next = gotoRows.size();
+                    gotoRows.get(state)[cls] = next;
+                    gotoRows.add(newRow());
+                    ownOutputs.add(new ArrayList<>());
+                }
+                state = next;
+            }
+            ownOutputs.get(state).add(p);
+        }
+
+        int numStates = gotoRows.size();
+        delta = new int[numStates * alphabetSize];
+        int[] fail = new int[numStates];
+        outputs = new int[numStates][];
+
+        // BFS to compute failure links and turn the trie into a full DFA
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        int[] rootRow = gotoRows.get(ROOT);
+        for (int cls = 0; cls < alphabetSize; cls++) {
+            int next = rootRow[cls];
+            if (next < 0) {
+                delta[cls] = ROOT;
+            } else {
+                delta[cls] = next;
+                fail[next] = ROOT;
+                queue.add(next);
+            }
+        }
+        outputs[ROOT] = toArray(ownOutputs.get(ROOT));
+
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+
+            List<Integer> merged = new ArrayList<>(ownOutputs.get(state));
+            for (int p : outputs[fail[state]]) {
+                merged.add(p);
+            }
+            outputs[state] = toArray(merged);
+
+            int[] row = gotoRows.get(state);
+            for (int cls = 0; cls < alphabetSize; cls++) {
+                int next = row[cls];
+                if (next < 0) {
+                    delta[state * alphabetSize + cls] = delta[fail[state] * alphabetSize + cls];
+                } else {
+                    delta[state * alphabetSize + cls] = next;
+                    fail[next] = delta[fail[state] * alphabetSize + cls];
+                    queue.add(next);
+                }
+            }
+        }
+    }
+
+    /**
+     * Scan text once and collect every keyword hit (word-bounded unless wholeWords = false).
+     * The winning category is the one with the best (lowest) priority among the hits.
+     */
+    public MatchResult match(String text) {
+        if (text == null || text.isEmpty()) {
+            return new MatchResult(null, Collections.emptyList());
+        }
+
+        List<Hit> hits = new ArrayList<>();
+        int bestPriority = Integer.MAX_VALUE;
+        int state = ROOT;
+        int length = text.length();
+
+        for (int i = 0; i < length; i++) {
+            state = delta[state * alphabetSize + classOf(text.charAt(i))];
+            int[] out = outputs[state];
+            if (out.length == 0) {
+                continue;
+            }
+
+            int end = i + 1;
+            boolean boundaryAtEnd = !wholeWords || isBoundary(text, end);
+            for (int p : out) {
+                int start = end - patterns[p].length();
+                if (boundaryAtEnd && (!wholeWords || isBoundary(text, start))) {
+                    hits.add(new Hit(patterns[p], patternCategory[p], start, end));
+                    bestPriority = Math.min(bestPriority, patternPriority[p]);
+                }
+            }
+        }
+
+        Long category = bestPriority == Integer.MAX_VALUE ? null : categoryByPriority[bestPriority];
+        return new MatchResult(category, hits);
+    }
+
+    /**
+     * Same as match(text).getCategoryId() without collecting hits
+     */
+    public Long findCategory(String text) {
+        if (text == null || text.isEmpty()) {
+            return null;
+        }
+
+        int bestPriority = Integer.MAX_VALUE;
+        int state = ROOT;
+        int length = text.length();
+
+        for (int i = 0; i < length; i++) {
+            state = delta[state * alphabetSize + classOf(text.charAt(i))];
+            int[] out = outputs[state];
+            if (out.length == 0) {
+                continue;
+            }
+
+            int end = i + 1;
+            if (wholeWords && !isBoundary(text, end)) {
+                continue;
+            }
+            for (int p : out) {
+                if (patternPriority[p] < bestPriority
+                        && (!wholeWords || isBoundary(text, end - patterns[p].length()))) {
+                    bestPriority = patternPriority[p];
+                }
+            }
+            if (bestPriority == 0) {
+                break;
+            }
+        }
+
+        return bestPriority == Integer.MAX_VALUE ? null : categoryByPriority[bestPriority];
+    }
+
+    public int getPatternCount() {
+        return patterns.length;
+    }
+
+    public int getStateCount() {
+        return outputs.length;
+    }
+
+    private int classOf(char c) {
+        if (c < 128) {
+            return asciiClass[c];
+        }
+        Integer cls = extendedClass.get(c);
+        return cls != null ? cls : 0;
+    }
+
+    private int[] newRow() {
+        int[] row = new int[alphabetSize];
+        Arrays.fill(row, -1);
+        return row;
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        int[] result = new int[values.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = values.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Word boundary between text[pos - 1] and text[pos], same definition as java.util.regex \b
+     */
+    private static boolean isBoundary(String text, int pos) {
+        boolean before = pos > 0 && isWordChar(text.charAt(pos - 1));
+        boolean after = pos < text.length() && isWordChar(text.charAt(pos));
+        return before != after;
+    }
+
+    private static boolean isWordChar(char c) {
+        return c == '_' || Character.isLetterOrDigit(c);
+    }
+
+    // === Inner Classes ===
+
+    public static class Hit {
+        public final String keyword;
+        public final long categoryId;
+        public final int start;
+        public final int end;
+
+        public Hit(String keyword, long categoryId, int start, int end) {
+            this.keyword = keyword;
+            this.categoryId = categoryId;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    public static class MatchResult {
+        private final Long categoryId;
+        private final List<Hit> hits;
+
+        public MatchResult(Long categoryId, List<Hit> hits) {
+            this.categoryId = categoryId;
+            this.hits = hits;
+        }
+
+        public Long getCategoryId() { return categoryId; }
+        public List<Hit> getHits() { return hits; }
+        public boolean isMatched() { return categoryId != null; }
+    }
+}
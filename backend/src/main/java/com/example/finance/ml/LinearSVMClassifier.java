@@ -1,7 +1,10 @@
 package com.example.finance.ml;
 
 import java.io.Serializable;
+import java.nio.FloatBuffer;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 public class LinearSVMClassifier implements Serializable {
     
@@ -13,6 +16,29 @@ public class LinearSVMClassifier implements Serializable {
     private double C = 1.0;
     private int maxIterations = 1000;
     
+    private static final double MIN_WEIGHT_SCALE = 1e-9;
+    private static final float FIXED_POINT_ONE = 32767f;
+    private static final long DEFAULT_SEED = 42L;
+    
+    // Training options (not part of the model; a deserialized model trains sequentially with seed 0)
+    private transient int parallelism = 1;
+    private transient long seed = DEFAULT_SEED;
+    private transient double earlyStoppingTolerance = 0.0;
+    private transient int earlyStoppingPatience = 0;
+    private transient int[] epochsRun;
+    
+    // weights transposed to [feature * numClasses + class] so a sparse row reads one
+    // contiguous block per non-zero term (not serialized, rebuilt on first sparse predict)
+    private transient volatile double[] featureMajorWeights;
+    
+    // Same layout as featureMajorWeights but float32 in a memory-mapped model file (weights == null then)
+    private transient FloatBuffer mappedWeights;
+    
+    // Same layout again as int8, weight = quantizedWeights[j * numClasses + c] * quantizedScales[c]
+    // (quantize() or a quantized model file; weights == null then)
+    private transient byte[] quantizedWeights;
+    private transient float[] quantizedScales;
+    
     public LinearSVMClassifier() {
     }
     
@@ -21,7 +47,104 @@ public class LinearSVMClassifier implements Serializable {
         this.maxIterations = maxIterations;
     }
     
+    /**
+     * Read-only classifier whose weights stay in a mapped file, see BinaryModelFormat
+     */
+    static LinearSVMClassifier fromMappedWeights(int[] classes, double[] bias, FloatBuffer featureMajorWeights) {
+        LinearSVMClassifier svm = new LinearSVMClassifier();
+        svm.classes = classes;
+        svm.bias = bias;
+        svm.mappedWeights = featureMajorWeights;
+        return svm;
+    }
+    
+    /**
+     * Read-only classifier scoring with int8 feature-major weights and one scale per class
+     */
+    static LinearSVMClassifier fromQuantizedWeights(int[] classes, double[] bias, byte[] featureMajorWeights,
+                                                    float[] scales) {
+        LinearSVMClassifier svm = new LinearSVMClassifier();
+        svm.classes = classes;
+        svm.bias = bias;
+        svm.quantizedWeights = featureMajorWeights;
+        svm.quantizedScales = scales;
+        return svm;
+    }
+    
+    /**
+     * Read-only int8 copy: each class's weights are scaled by max|w| / 127 and rounded, the bias
+     * stays exact. 1 byte per weight instead of 8 (heap table) or 4 (mapped file); a score moves by at
+     * most scale * (sum|x| / 2 + 127 * nnz / 65534), so only near-ties change their top-1.
+     */
+    public LinearSVMClassifier quantize() {
+        if (quantizedWeights != null) {
+            return this;
+        }
+        double[] table = featureMajorTable();
+        int numClasses = classes.length;
+        float[] scales = new float[numClasses];
+        for (int c = 0; c < numClasses; c++) {
+            double max = 0.0;
+            for (int i = c; i < table.length; i += numClasses) {
+                max = Math.max(max, Math.abs(table[i]));
+            }
+            scales[c] = max == 0.0 ? 1.0f : (float) (max / 127.0);
+        }
+        byte[] quantized = new byte[table.length];
+        for (int i = 0; i < table.length; i++) {
+            long q = Math.round(table[i] / scales[i % numClasses]);
+            quantized[i] = (byte) Math.max(-127, Math.min(127, q));
+        }
+        return fromQuantizedWeights(classes.clone(), bias.clone(), quantized, scales);
+    }
+    
+    public boolean isQuantized() {
+        return quantizedWeights != null;
+    }
+    
+    /**
+     * Number of per-class binary problems trained concurrently on a ForkJoinPool (1 = caller thread).
+     * Each class has its own seed and only reads the shared rows, so the result does not depend on it.
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+    
+    /**
+     * Base seed; class k shuffles with a seed derived from (seed, class label)
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+    
+    /**
+     * Stop a binary problem once the regularized hinge loss has improved by less than
+     * tolerance (relative) for patience consecutive epochs. tolerance <= 0 disables it.
+     */
+    public void setEarlyStopping(double tolerance, int patience) {
+        this.earlyStoppingTolerance = tolerance;
+        this.earlyStoppingPatience = Math.max(1, patience);
+    }
+    
     public void train(double[][] X, int[] y) {
+        SparseVector[] sparse = new SparseVector[X.length];
+        for (int i = 0; i < X.length; i++) {
+            sparse[i] = SparseVector.fromDense(X[i]);
+        }
+        train(sparse, y, X[0].length);
+    }
+    
+    /**
+     * Fit the vectorizer (TF-IDF vocabulary or hashing IDF) on the documents and train on its features
+     */
+    public void train(TextVectorizer vectorizer, List<String> documents, int[] y) {
+        train(vectorizer.fitTransformSparse(documents), y, vectorizer.getDimension());
+    }
+    
+    /**
+     * One-vs-rest training on sparse rows; each SGD step only touches the row's non-zero features
+     */
+    public void train(SparseVector[] X, int[] y, int numFeatures) {
         Set<Integer> uniqueClasses = new HashSet<>();
         for (int label : y) {
             uniqueClasses.add(label);
@@ -29,31 +152,73 @@ public class LinearSVMClassifier implements Serializable {
         classes = uniqueClasses.stream().mapToInt(Integer::intValue).sorted().toArray();
         
         int numClasses = classes.length;
-        int numFeatures = X[0].length;
         
         weights = new double[numClasses][numFeatures];
         bias = new double[numClasses];
+        featureMajorWeights = null;
+        
+        epochsRun = new int[numClasses];
         
+        List<ForkJoinTask<BinarySVMResult>> tasks = new ArrayList<>(numClasses);
         for (int c = 0; c < numClasses; c++) {
-            int[] binaryLabels = new int[y.length];
-            for (int i = 0; i < y.length; i++) {
-                binaryLabels[i] = (y[i] == classes[c]) ? 1 : -1;
+            final int label = classes[c];
+            tasks.add(ForkJoinTask.adapt(() -> trainOneVsRest(X, y, label, numFeatures)));
+        }
+        
+        if (parallelism > 1 && numClasses > 1) {
+            ForkJoinPool pool = new ForkJoinPool(Math.min(parallelism, numClasses));
+            try {
+                for (ForkJoinTask<BinarySVMResult> task : tasks) {
+                    pool.execute(task);
+                }
+                collectResults(tasks);
+            } finally {
+                pool.shutdown();
             }
-            
-            BinarySVMResult result = trainBinarySVM(X, binaryLabels, numFeatures);
+        } else {
+            for (ForkJoinTask<BinarySVMResult> task : tasks) {
+                task.invoke();
+            }
+            collectResults(tasks);
+        }
+    }
+    
+    private void collectResults(List<ForkJoinTask<BinarySVMResult>> tasks) {
+        for (int c = 0; c < tasks.size(); c++) {
+            BinarySVMResult result = tasks.get(c).join();
             weights[c] = result.weights;
             bias[c] = result.bias;
+            epochsRun[c] = result.epochs;
         }
     }
     
-    private BinarySVMResult trainBinarySVM(double[][] X, int[] y, int numFeatures) {
+    private BinarySVMResult trainOneVsRest(SparseVector[] X, int[] y, int label, int numFeatures) {
+        int[] binaryLabels = new int[y.length];
+        for (int i = 0; i < y.length; i++) {
+            binaryLabels[i] = (y[i] == label) ? 1 : -1;
+        }
+        return trainBinarySVM(X, binaryLabels, numFeatures, classSeed(seed, label));
+    }
+    
+    static long classSeed(long seed, int label) {
+        // SplitMix64 finalizer over (seed, label): independent streams per class
+        long z = seed + (label + 1L) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+    
+    /**
+     * Pegasos-style SGD with the weight vector kept as w = scale * v, so the L2 shrink
+     * w *= (1 - lr * lambda) is a single multiply instead of a pass over every feature.
+     */
+    private BinarySVMResult trainBinarySVM(SparseVector[] X, int[] y, int numFeatures, long classSeed) {
         int n = X.length;
         
-        double[] w = new double[numFeatures];
+        double[] v = new double[numFeatures];
+        double scale = 1.0;
         double b = 0.0;
         
-        Arrays.fill(w, 0.0);
-        
         double initialLearningRate = 0.001;
         double lambda = 1.0 / C;
         
@@ -62,31 +227,159 @@ public class LinearSVMClassifier implements Serializable {
             indices[i] = i;
         }
         
-        Random random = new Random(42);
+        Random random = new Random(classSeed);
+        
+        boolean earlyStopping = earlyStoppingTolerance > 0;
+        double bestLoss = Double.POSITIVE_INFINITY;
+        int stalledEpochs = 0;
+        int epoch = 0;
         
-        for (int epoch = 0; epoch < maxIterations; epoch++) {
+        while (epoch < maxIterations) {
             shuffleArray(indices, random);
             
             double learningRate = initialLearningRate / (1.0 + epoch * 0.001);
+            double shrink = 1 - learningRate * lambda;
             
             for (int idx : indices) {
-                double prediction = dotProduct(w, X[idx]) + b;
+                SparseVector x = X[idx];
+                double prediction = scale * x.dot(v) + b;
                 double margin = y[idx] * prediction;
                 
+                scale *= shrink;
                 if (margin < 1) {
-                    for (int j = 0; j < numFeatures; j++) {
-                        w[j] = w[j] * (1 - learningRate * lambda) + learningRate * y[idx] * X[idx][j];
-                    }
+                    x.addTo(v, learningRate * y[idx] / scale);
                     b = b + learningRate * y[idx];
-                } else {
-                    for (int j = 0; j < numFeatures; j++) {
-                        w[j] = w[j] * (1 - learningRate * lambda);
-                    }
+                }
+                
+                // Fold the scale back in before v grows large enough to lose precision
+                if (scale < MIN_WEIGHT_SCALE) {
+                    foldScale(v, scale);
+                    scale = 1.0;
+                }
+            }
+            epoch++;
+            
+            if (earlyStopping) {
+                double loss = regularizedHingeLoss(X, y, v, scale, b, lambda);
+                boolean improved = bestLoss == Double.POSITIVE_INFINITY
+                    || bestLoss - loss > earlyStoppingTolerance * Math.max(1.0, Math.abs(bestLoss));
+                if (improved) {
+                    bestLoss = loss;
+                    stalledEpochs = 0;
+                } else if (++stalledEpochs >= earlyStoppingPatience) {
+                    break;
                 }
             }
         }
         
-        return new BinarySVMResult(w, b);
+        foldScale(v, scale);
+        return new BinarySVMResult(v, b, epoch);
+    }
+    
+    /**
+     * Trainable copy with its own double weights (read from the mapped file or dequantized for a loaded model).
+     * Snapshots shared with request threads are never updated in place; online learning updates a copy.
+     */
+    public LinearSVMClassifier mutableCopy() {
+        LinearSVMClassifier copy = new LinearSVMClassifier(C, maxIterations);
+        int numClasses = classes.length;
+        copy.classes = classes.clone();
+        copy.bias = bias.clone();
+        copy.weights = new double[numClasses][];
+        if (weights != null) {
+            for (int c = 0; c < numClasses; c++) {
+                copy.weights[c] = weights[c].clone();
+            }
+        } else {
+            double[] table = featureMajorTable();
+            int numFeatures = table.length / numClasses;
+            for (int c = 0; c < numClasses; c++) {
+                double[] row = new double[numFeatures];
+                for (int j = 0; j < numFeatures; j++) {
+                    row[j] = table[j * numClasses + c];
+                }
+                copy.weights[c] = row;
+            }
+        }
+        return copy;
+    }
+    
+    /**
+     * Online one-vs-rest Pegasos/SGD update of this model from a batch of labeled rows, in place
+     * (call on a mutableCopy()). Every class takes a constant-rate hinge step on the row's features,
+     * with the L2 shrink folded into a scale. The bias is kept: a stream of corrections is not a
+     * sample of the class distribution, so it must not move the class priors. Rows labeled with a
+     * class the model was not trained on are skipped; returns the number of rows used.
+     */
+    public int partialFit(SparseVector[] X, int[] y, double learningRate, double lambda, int epochs) {
+        if (weights == null) {
+            throw new IllegalStateException("Read-only model: update a mutableCopy()");
+        }
+        int numClasses = classes.length;
+        int[] rows = new int[X.length];
+        int[] classIndex = new int[X.length];
+        int used = 0;
+        for (int i = 0; i < X.length; i++) {
+            int c = Arrays.binarySearch(classes, y[i]);
+            if (c >= 0) {
+                rows[used] = i;
+                classIndex[used] = c;
+                used++;
+            }
+        }
+        if (used == 0) {
+            return 0;
+        }
+        
+        double shrink = 1 - learningRate * lambda;
+        for (int c = 0; c < numClasses; c++) {
+            double[] v = weights[c];
+            double scale = 1.0;
+            double b = bias[c];
+            for (int epoch = 0; epoch < epochs; epoch++) {
+                for (int k = 0; k < used; k++) {
+                    SparseVector x = X[rows[k]];
+                    int target = classIndex[k] == c ? 1 : -1;
+                    double margin = target * (scale * x.dot(v) + b);
+                    scale *= shrink;
+                    if (margin < 1) {
+                        x.addTo(v, learningRate * target / scale);
+                    }
+                    if (scale < MIN_WEIGHT_SCALE) {
+                        foldScale(v, scale);
+                        scale = 1.0;
+                    }
+                }
+            }
+            foldScale(v, scale);
+        }
+        featureMajorWeights = null;
+        return used;
+    }
+    
+    /**
+     * lambda / 2 * ||w||^2 + mean(max(0, 1 - y * (w.x + b))) with w = scale * v
+     */
+    private static double regularizedHingeLoss(SparseVector[] X, int[] y, double[] v,
+                                               double scale, double b, double lambda) {
+        double hinge = 0.0;
+        for (int i = 0; i < X.length; i++) {
+            double margin = y[i] * (scale * X[i].dot(v) + b);
+            if (margin < 1) {
+                hinge += 1 - margin;
+            }
+        }
+        double normSq = 0.0;
+        for (double value : v) {
+            normSq += value * value;
+        }
+        return lambda / 2 * scale * scale * normSq + hinge / X.length;
+    }
+    
+    private static void foldScale(double[] v, double scale) {
+        for (int j = 0; j < v.length; j++) {
+            v[j] *= scale;
+        }
     }
     
     private void shuffleArray(int[] array, Random random) {
@@ -101,14 +394,19 @@ public class LinearSVMClassifier implements Serializable {
     private static class BinarySVMResult {
         double[] weights;
         double bias;
+        int epochs;
         
-        BinarySVMResult(double[] weights, double bias) {
+        BinarySVMResult(double[] weights, double bias, int epochs) {
             this.weights = weights;
             this.bias = bias;
+            this.epochs = epochs;
         }
     }
     
     public int predict(double[] x) {
+        if (weights == null) {
+            return predict(SparseVector.fromDense(x));
+        }
         double[] scores = new double[classes.length];
         
         for (int c = 0; c < classes.length; c++) {
@@ -128,6 +426,9 @@ public class LinearSVMClassifier implements Serializable {
     }
     
     public PredictionResult predictWithConfidence(double[] x) {
+        if (weights == null) {
+            return predictWithConfidence(SparseVector.fromDense(x));
+        }
         double[] scores = new double[classes.length];
         
         for (int c = 0; c < classes.length; c++) {
@@ -152,6 +453,40 @@ public class LinearSVMClassifier implements Serializable {
         return new PredictionResult(classes[maxIndex], confidence, scores);
     }
     
+    public int predict(SparseVector x) {
+        double[] scores = sparseScores(x);
+        return classes[argMax(scores)];
+    }
+    
+    /**
+     * Top-1 class of each row, scored into one reused buffer
+     */
+    public int[] predict(SparseVector[] rows) {
+        int[] predicted = new int[rows.length];
+        double[] scores = new double[classes.length];
+        int[] sums = new int[classes.length];
+        for (int i = 0; i < rows.length; i++) {
+            sparseScoresInto(rows[i], scores, sums);
+            predicted[i] = classes[argMax(scores)];
+        }
+        return predicted;
+    }
+    
+    public PredictionResult predictWithConfidence(SparseVector x) {
+        double[] scores = sparseScores(x);
+        int maxIndex = argMax(scores);
+        double maxScore = scores[maxIndex];
+        
+        // Softmax shifted by the max score: same value, no overflow
+        double expSum = 0.0;
+        for (double score : scores) {
+            expSum += Math.exp(score - maxScore);
+        }
+        double confidence = 1.0 / expSum;
+        
+        return new PredictionResult(classes[maxIndex], confidence, scores);
+    }
+    
     public double evaluateAccuracy(double[][] X, int[] y) {
         int correct = 0;
         for (int i = 0; i < X.length; i++) {
@@ -162,6 +497,149 @@ public class LinearSVMClassifier implements Serializable {
         return (double) correct / X.length;
     }
     
+    public double evaluateAccuracy(SparseVector[] X, int[] y) {
+        int[] predicted = predict(X);
+        int correct = 0;
+        for (int i = 0; i < X.length; i++) {
+            if (predicted[i] == y[i]) {
+                correct++;
+            }
+        }
+        return (double) correct / X.length;
+    }
+    
+    /**
+     * Epochs actually run per class in the last train() call (less than maxIterations when stopped early)
+     */
+    public int[] getEpochsRun() {
+        return epochsRun == null ? new int[0] : epochsRun.clone();
+    }
+    
+    /**
+     * True when both models have bit-identical classes, weights and bias
+     */
+    public boolean hasSameParameters(LinearSVMClassifier other) {
+        return Arrays.equals(classes, other.classes)
+            && Arrays.deepEquals(weights, other.weights)
+            && Arrays.equals(bias, other.bias);
+    }
+    
+    public int[] getClasses() {
+        return classes.clone();
+    }
+    
+    public int getNumFeatures() {
+        if (weights != null) {
+            return weights[0].length;
+        }
+        return (quantizedWeights != null ? quantizedWeights.length : mappedWeights.capacity()) / classes.length;
+    }
+    
+    double[] getBias() {
+        return bias;
+    }
+    
+    byte[] getQuantizedWeights() {
+        return quantizedWeights;
+    }
+    
+    float[] getQuantizedScales() {
+        return quantizedScales;
+    }
+    
+    private double[] sparseScores(SparseVector x) {
+        double[] scores = new double[classes.length];
+        sparseScoresInto(x, scores, quantizedWeights != null ? new int[classes.length] : null);
+        return scores;
+    }
+    
+    /**
+     * sums: int8 accumulators (quantized models only)
+     */
+    private void sparseScoresInto(SparseVector x, double[] scores, int[] sums) {
+        int numClasses = classes.length;
+        int[] idx = x.indices;
+        float[] values = x.values;
+        
+        byte[] quantized = quantizedWeights;
+        if (quantized != null) {
+            // Integer dot products: feature values as 15-bit fixed point, one scale multiply per class.
+            // |sum| <= 127 * 32767 * sqrt(nnz) for an L2-normalized row, so int cannot overflow
+            Arrays.fill(sums, 0);
+            for (int k = 0; k < idx.length; k++) {
+                int base = idx[k] * numClasses;
+                int value = Math.round(values[k] * FIXED_POINT_ONE);
+                for (int c = 0; c < numClasses; c++) {
+                    sums[c] += quantized[base + c] * value;
+                }
+            }
+            float[] scales = quantizedScales;
+            for (int c = 0; c < numClasses; c++) {
+                scores[c] = sums[c] * ((double) scales[c] / FIXED_POINT_ONE) + bias[c];
+            }
+            return;
+        }
+        
+        System.arraycopy(bias, 0, scores, 0, numClasses);
+        FloatBuffer mapped = mappedWeights;
+        if (mapped != null) {
+            for (int k = 0; k < idx.length; k++) {
+                int base = idx[k] * numClasses;
+                double value = values[k];
+                for (int c = 0; c < numClasses; c++) {
+                    scores[c] += mapped.get(base + c) * value;
+                }
+            }
+            return;
+        }
+        
+        double[] table = featureMajorTable();
+        for (int k = 0; k < idx.length; k++) {
+            int base = idx[k] * numClasses;
+            double value = values[k];
+            for (int c = 0; c < numClasses; c++) {
+                scores[c] += table[base + c] * value;
+            }
+        }
+    }
+    
+    double[] featureMajorTable() {
+        double[] table = featureMajorWeights;
+        if (table == null && quantizedWeights != null) {
+            int numClasses = classes.length;
+            table = new double[quantizedWeights.length];
+            for (int i = 0; i < table.length; i++) {
+                table[i] = quantizedWeights[i] * (double) quantizedScales[i % numClasses];
+            }
+        } else if (table == null && mappedWeights != null) {
+            table = new double[mappedWeights.capacity()];
+            for (int i = 0; i < table.length; i++) {
+                table[i] = mappedWeights.get(i);
+            }
+        } else if (table == null) {
+            int numClasses = classes.length;
+            int numFeatures = weights[0].length;
+            table = new double[numFeatures * numClasses];
+            for (int c = 0; c < numClasses; c++) {
+                for (int j = 0; j < numFeatures; j++) {
+                    table[j * numClasses + c] = weights[c][j];
+                }
+            }
+            featureMajorWeights = table;
+        }
+        return table;
+    }
+    
+    private static int argMax(double[] scores) {
+        int maxIndex = 0;
+        for (int i = 1; i < scores.length; i++) {
+            if (scores[i] > scores[maxIndex]) {
+                maxIndex = i;
+            }
+        }
+        return maxIndex;
+    }
+    
     private double dotProduct(double[] a, double[] b) {
         double result = 0.0;
         for (int i = 0; i < a.length; i++) {
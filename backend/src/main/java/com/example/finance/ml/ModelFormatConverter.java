@@ -0,0 +1,67 @@
+package com.example.finance.ml;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Converts Java-serialized tfidf_vectorizer.bin + svm_model.bin into one BinaryModelFormat file
+ * and records its checksum in model_metadata.json.
+ *
+ * Usage (from backend/): ModelFormatConverter [modelDir]   (default src/main/resources/ml-models)
+ */
+public class ModelFormatConverter {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    public static void main(String[] args) {
+        String modelDir = args.length > 0 ? args[0]
+            : System.getProperty("user.dir") + "/src/main/resources/ml-models";
+
+        try {
+            System.out.println("Converting models in " + modelDir);
+            TFIDFVectorizer vectorizer = ModelSerializer.loadTFIDFVectorizer(modelDir + "/tfidf_vectorizer.bin");
+            LinearSVMClassifier svm = ModelSerializer.loadSVMClassifier(modelDir + "/svm_model.bin");
+            System.out.println("   Vocabulary: " + vectorizer.getVocabularySize()
+                + ", classes: " + svm.getClasses().length);
+
+            String modelFile = modelDir + "/" + BinaryModelFormat.DEFAULT_FILE_NAME;
+            String checksum = ModelSerializer.saveBinaryModel(vectorizer, svm, modelFile);
+            System.out.println("   Saved: " + BinaryModelFormat.DEFAULT_FILE_NAME + " ("
+                + ModelSerializer.formatFileSize(ModelSerializer.getFileSize(modelFile)) + ", " + checksum + ")");
+
+            // Round trip: the mapped model must verify and predict like the source
+            BinaryModelFormat.LoadedModel loaded = ModelSerializer.loadBinaryModel(modelFile, checksum);
+            if (loaded.getVectorizer().getDimension() != vectorizer.getVocabularySize()) {
+                throw new IllegalStateException("Vocabulary size changed during conversion");
+            }
+            int disagreements = 0;
+            for (String term : vectorizer.getVocabulary().keySet()) {
+                int expected = svm.predict(vectorizer.transformSparse(term));
+                int actual = loaded.getClassifier().predict(loaded.getVectorizer().transformSparse(term));
+                if (expected != actual) {
+                    disagreements++;
+                }
+            }
+            System.out.println("   Single-term predictions changed by float32 rounding: " + disagreements);
+
+            recordChecksum(new File(modelDir, "model_metadata.json"), checksum);
+            System.out.println("   Updated: model_metadata.json");
+        } catch (Exception e) {
+            System.err.println("Model conversion failed: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    static void recordChecksum(File metadataFile, String checksum) throws IOException {
+        ObjectNode metadata = metadataFile.exists()
+            ? (ObjectNode) objectMapper.readTree(metadataFile)
+            : objectMapper.createObjectNode();
+        metadata.put("model_file", BinaryModelFormat.DEFAULT_FILE_NAME);
+        metadata.put("format_version", BinaryModelFormat.FORMAT_VERSION);
+        metadata.put("checksum", checksum);
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(metadataFile, metadata);
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.finance.ml;
 
 import java.io.*;
+import java.nio.file.Path;
 
 public class ModelSerializer {
     
@@ -56,6 +57,19 @@ public class ModelSerializer {
         }
     }
     
+    /**
+     * Save vectorizer + SVM as one memory-mappable file (see BinaryModelFormat), returns its checksum
+     */
+    public static String saveBinaryModel(TextVectorizer vectorizer, LinearSVMClassifier svm, String filepath) 
+            throws IOException {
+        return BinaryModelFormat.write(vectorizer, svm, Path.of(filepath));
+    }
+    
+    public static BinaryModelFormat.LoadedModel loadBinaryModel(String filepath, String expectedChecksum) 
+            throws IOException {
+        return BinaryModelFormat.map(Path.of(filepath), expectedChecksum);
+    }
+    
     public static long getFileSize(String filepath) {
         File file = new File(filepath);
         return file.exists() ? file.length() : 0;
@@ -0,0 +1,70 @@
+package com.example.finance.ml;
+
+import java.time.Instant;
+
+/**
+ * Immutable model bundle used by one categorization request: vectorizer + SVM + calibration temperature.
+ *
+ * Requests read the registry's current snapshot once and use it until they finish, so a swap never
+ * mixes a new vectorizer with an old classifier and never blocks in-flight requests.
+ */
+public final class ModelSnapshot {
+
+    public static final String NO_MODEL_VERSION = "none";
+
+    // Versions published by online learning: "<base>" + ONLINE_SUFFIX + N
+    public static final String ONLINE_SUFFIX = "+online.";
+
+    private static final ModelSnapshot EMPTY = new ModelSnapshot(NO_MODEL_VERSION, null, null, 1.5, null, null, Instant.EPOCH);
+
+    private final String version;
+    private final TextVectorizer vectorizer;
+    private final LinearSVMClassifier classifier;
+    private final double temperature;
+    private final String checksum;
+    private final String source;
+    private final Instant loadedAt;
+
+    public ModelSnapshot(String version, TextVectorizer vectorizer, LinearSVMClassifier classifier,
+                         double temperature, String checksum, String source, Instant loadedAt) {
+        this.version = version;
+        this.vectorizer = vectorizer;
+        this.classifier = classifier;
+        this.temperature = temperature;
+        this.checksum = checksum;
+        this.source = source;
+        this.loadedAt = loadedAt;
+    }
+
+    /**
+     * Snapshot with no ML model (rule layers only)
+     */
+    public static ModelSnapshot empty() {
+        return EMPTY;
+    }
+
+    public boolean hasModel() {
+        return vectorizer != null && classifier != null;
+    }
+
+    /**
+     * The version without an online learning suffix: "v3+online.12" -> "v3"
+     */
+    public static String baseVersion(String version) {
+        int suffix = version == null ? -1 : version.indexOf(ONLINE_SUFFIX);
+        return suffix < 0 ? version : version.substring(0, suffix);
+    }
+
+    public String getVersion() { return version; }
+    public TextVectorizer getVectorizer() { return vectorizer; }
+    public LinearSVMClassifier getClassifier() { return classifier; }
+    public double getTemperature() { return temperature; }
+    public String getChecksum() { return checksum; }
+    public String getSource() { return source; }
+    public Instant getLoadedAt() { return loadedAt; }
+
+    @Override
+    public String toString() {
+        return "ModelSnapshot{version=" + version + ", checksum=" + checksum + ", source=" + source + "}";
+    }
+}
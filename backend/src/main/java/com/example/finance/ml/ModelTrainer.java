@@ -9,6 +9,11 @@ public class ModelTrainer {
     
     private static final double TRAIN_TEST_SPLIT = 0.8;
     private static final Random random = new Random(42);
+    private static final long SVM_SEED = 42L;
+    private static final double EARLY_STOPPING_TOLERANCE = 1e-4;
+    private static final int EARLY_STOPPING_PATIENCE = 10;
+    // --quantize: at most this share of test predictions may change top-1, else the float model is saved
+    private static final double QUANTIZED_MAX_DISAGREEMENT = 0.005;
     private static final ObjectMapper objectMapper = new ObjectMapper();
     
     public static class TrainingData {
@@ -44,7 +49,21 @@ public class ModelTrainer {
         return dataset;
     }
     
+    /**
+     * Usage (from backend/): ModelTrainer [--vectorizer=tfidf|hashing] [--buckets=65536] [--char-ngrams=3,5]
+     *                                     [--quantize] [--measure-speedup]
+     * - tfidf (default): 2000-term vocabulary
+     * - hashing: HashingVectorizer with the given bucket count and character n-gram range (0,0 = words only)
+     * - quantize: write categorizer_model.fmdl with int8 weights if the test set top-1 stays within
+     *   QUANTIZED_MAX_DISAGREEMENT of the float model
+     * - measure-speedup: train a second time on one thread and report the speedup (doubles training time)
+     */
     public static void main(String[] args) {
+        String mode = option(args, "vectorizer", "tfidf");
+        if (!mode.equals("tfidf") && !mode.equals("hashing")) {
+            System.err.println("Unknown --vectorizer=" + mode + " (tfidf or hashing)");
+            System.exit(2);
+        }
         System.out.println("Starting Financial Transaction Categorization Model Training (14 Categories)...");
         System.out.println("=================================================================================");
         
@@ -68,37 +87,58 @@ public class ModelTrainer {
             System.out.printf("   Training: %d samples\n", split.trainTexts.size());
             System.out.printf("   Testing: %d samples\n", split.testTexts.size());
             
-            System.out.println("\n3. Training TF-IDF Vectorizer...");
             VietnameseTextNormalizer normalizer = new VietnameseTextNormalizer();
-            TFIDFVectorizer vectorizer = new TFIDFVectorizer(2000);
+            TextVectorizer vectorizer = newVectorizer(mode, args);
+            System.out.println("\n3. Training " + describe(vectorizer) + "...");
             
             List<String> normalizedTrainTexts = new ArrayList<>();
             for (String text : split.trainTexts) {
                 normalizedTrainTexts.add(VietnameseTextNormalizer.normalize(text));
             }
             
-            double[][] trainVectors = vectorizer.fitTransform(normalizedTrainTexts);
-            System.out.println("   Vocabulary size: " + vectorizer.getVocabularySize());
-            System.out.println("   Feature dimensions: " + trainVectors[0].length);
+            SparseVector[] trainVectors = vectorizer.fitTransformSparse(normalizedTrainTexts);
+            if (vectorizer instanceof TFIDFVectorizer tfidf) {
+                System.out.println("   Vocabulary size: " + tfidf.getVocabularySize());
+            }
+            System.out.println("   Feature dimensions: " + trainVectors[0].getDimension());
             
             System.out.println("\n3.5. Normalizing feature vectors (L2 norm)...");
             normalizeFeatures(trainVectors);
             System.out.println("   ✅ Features normalized");
             
             System.out.println("\n4. Training SVM Classifier...");
-            LinearSVMClassifier svm = new LinearSVMClassifier(10.0, 10000);
             int[] trainLabelsArray = split.trainLabels.stream().mapToInt(Long::intValue).toArray();
-            svm.train(trainVectors, trainLabelsArray);
+            int cores = Runtime.getRuntime().availableProcessors();
+            
+            LinearSVMClassifier svm = newClassifier(cores);
+            long parallelStart = System.nanoTime();
+            svm.train(trainVectors, trainLabelsArray, vectorizer.getDimension());
+            long parallelMillis = (System.nanoTime() - parallelStart) / 1_000_000;
             System.out.println("   Training completed!");
+            System.out.println("   Epochs per class: " + Arrays.toString(svm.getEpochsRun()));
+            
+            System.out.println("   Training time: " + parallelMillis + " ms on " + cores + " threads");
+            
+            if (Arrays.asList(args).contains("--measure-speedup")) {
+                System.out.println("\n4.5. Measuring parallel speedup (same seed, 1 thread)...");
+                LinearSVMClassifier sequential = newClassifier(1);
+                long sequentialStart = System.nanoTime();
+                sequential.train(trainVectors, trainLabelsArray, vectorizer.getDimension());
+                long sequentialMillis = (System.nanoTime() - sequentialStart) / 1_000_000;
+                System.out.printf("   1 thread: %d ms, %d threads: %d ms, speedup: %.2fx\n",
+                                sequentialMillis, cores, parallelMillis,
+                                (double) sequentialMillis / Math.max(1, parallelMillis));
+                System.out.println("   Bit-identical weights: " + svm.hasSameParameters(sequential));
+            }
             
             System.out.println("\n5. Evaluating on test set...");
             List<String> normalizedTestTexts = new ArrayList<>();
             for (String text : split.testTexts) {
                 normalizedTestTexts.add(VietnameseTextNormalizer.normalize(text));
             }
-            double[][] testVectors = new double[normalizedTestTexts.size()][];
+            SparseVector[] testVectors = new SparseVector[normalizedTestTexts.size()];
             for (int i = 0; i < normalizedTestTexts.size(); i++) {
-                testVectors[i] = vectorizer.transform(normalizedTestTexts.get(i));
+                testVectors[i] = vectorizer.transformSparse(normalizedTestTexts.get(i));
             }
             normalizeFeatures(testVectors);
             
@@ -113,17 +153,32 @@ public class ModelTrainer {
             System.out.println("\n6. Detailed Performance Analysis:");
             analyzePerformance(svm, vectorizer, normalizer, dataset);
             
+            LinearSVMClassifier deployed = svm;
+            if (Arrays.asList(args).contains("--quantize")) {
+                deployed = quantizeChecked(svm, testVectors, split.testLabels);
+            }
+            
             System.out.println("\n7. Saving models to disk...");
             String modelPath = getResourcesPath() + "/ml-models/";
             
-            ModelSerializer.saveTFIDFVectorizer(vectorizer, modelPath + "tfidf_vectorizer.bin");
-            System.out.println("   Saved: tfidf_vectorizer.bin");
+            if (vectorizer instanceof TFIDFVectorizer tfidf) {
+                ModelSerializer.saveTFIDFVectorizer(tfidf, modelPath + "tfidf_vectorizer.bin");
+                System.out.println("   Saved: tfidf_vectorizer.bin");
+                
+                ModelSerializer.saveSVMClassifier(svm, modelPath + "svm_model.bin");
+                System.out.println("   Saved: svm_model.bin");
+            } else {
+                // The legacy .bin pair is TF-IDF only (ModelFormatConverter input): left untouched
+                System.out.println("   Skipped: tfidf_vectorizer.bin / svm_model.bin (TF-IDF only)");
+            }
             
-            ModelSerializer.saveSVMClassifier(svm, modelPath + "svm_model.bin");
-            System.out.println("   Saved: svm_model.bin");
+            String checksum = ModelSerializer.saveBinaryModel(vectorizer, deployed, 
+                                                              modelPath + BinaryModelFormat.DEFAULT_FILE_NAME);
+            System.out.println("   Saved: " + BinaryModelFormat.DEFAULT_FILE_NAME + " (" + checksum
+                + (deployed.isQuantized() ? ", int8 weights)" : ")"));
             
             saveMetadata(modelPath + "model_metadata.json", accuracy, totalSamples, 
-                        vectorizer.getVocabularySize());
+                        vectorizer, deployed.isQuantized(), checksum);
             System.out.println("   Saved: model_metadata.json");
             
             System.out.println("\n================================================================");
@@ -136,6 +191,69 @@ public class ModelTrainer {
         }
     }
     
+    /**
+     * int8 copy of the model if it agrees with the float one on the test set, else the float model
+     */
+    private static LinearSVMClassifier quantizeChecked(LinearSVMClassifier svm, SparseVector[] testVectors,
+                                                       List<Long> testLabels) {
+        System.out.println("\n6b. Quantizing weights to int8...");
+        LinearSVMClassifier quantized = svm.quantize();
+        int[] expected = svm.predict(testVectors);
+        int[] actual = quantized.predict(testVectors);
+        int disagreements = 0;
+        for (int i = 0; i < expected.length; i++) {
+            if (expected[i] != actual[i]) {
+                disagreements++;
+            }
+        }
+        double share = (double) disagreements / Math.max(1, expected.length);
+        System.out.printf("   Top-1 changed on %d of %d test samples (%.2f%%, tolerance %.2f%%)\n",
+                          disagreements, expected.length, share * 100, QUANTIZED_MAX_DISAGREEMENT * 100);
+        System.out.printf("   Quantized Test Accuracy: %.2f%%\n", evaluateModel(quantized, testVectors, testLabels) * 100);
+        if (share > QUANTIZED_MAX_DISAGREEMENT) {
+            System.out.println("   WARNING: over tolerance, saving float weights");
+            return svm;
+        }
+        return quantized;
+    }
+    
+    private static TextVectorizer newVectorizer(String mode, String[] args) {
+        if (mode.equals("tfidf")) {
+            return new TFIDFVectorizer(2000);
+        }
+        int buckets = Integer.parseInt(option(args, "buckets", String.valueOf(HashingVectorizer.DEFAULT_BUCKETS)));
+        String[] ngrams = option(args, "char-ngrams", "3,5").split(",");
+        return new HashingVectorizer(buckets, Integer.parseInt(ngrams[0].trim()), Integer.parseInt(ngrams[1].trim()));
+    }
+    
+    private static String describe(TextVectorizer vectorizer) {
+        if (vectorizer instanceof HashingVectorizer hashing) {
+            return "Hashing Vectorizer (" + hashing.getDimension() + " buckets"
+                + (hashing.getMaxNgram() > 0
+                    ? ", char " + hashing.getMinNgram() + "-" + hashing.getMaxNgram() + "-grams)"
+                    : ", words only)");
+        }
+        return "TF-IDF Vectorizer";
+    }
+    
+    private static String option(String[] args, String name, String defaultValue) {
+        String prefix = "--" + name + "=";
+        for (String arg : args) {
+            if (arg.startsWith(prefix)) {
+                return arg.substring(prefix.length());
+            }
+        }
+        return defaultValue;
+    }
+    
+    private static LinearSVMClassifier newClassifier(int parallelism) {
+        LinearSVMClassifier svm = new LinearSVMClassifier(10.0, 10000);
+        svm.setSeed(SVM_SEED);
+        svm.setParallelism(parallelism);
+        svm.setEarlyStopping(EARLY_STOPPING_TOLERANCE, EARLY_STOPPING_PATIENCE);
+        return svm;
+    }
+    
     private static TrainTestData splitTrainTest(Map<Long, List<String>> dataset) {
         List<String> trainTexts = new ArrayList<>();
         List<Long> trainLabels = new ArrayList<>();
@@ -176,7 +294,7 @@ public class ModelTrainer {
         return new TrainTestData(shuffledTrainTexts, shuffledTrainLabels, testTexts, testLabels);
     }
     
-    private static double evaluateModel(LinearSVMClassifier svm, double[][] testVectors, 
+    private static double evaluateModel(LinearSVMClassifier svm, SparseVector[] testVectors, 
                                        List<Long> testLabels) {
         int correct = 0;
         for (int i = 0; i < testVectors.length; i++) {
@@ -188,7 +306,7 @@ public class ModelTrainer {
         return (double) correct / testLabels.size();
     }
     
-    private static void analyzePerformance(LinearSVMClassifier svm, TFIDFVectorizer vectorizer,
+    private static void analyzePerformance(LinearSVMClassifier svm, TextVectorizer vectorizer,
                                           VietnameseTextNormalizer normalizer,
                                           Map<Long, List<String>> dataset) {
         String[] testCases = {
@@ -207,7 +325,7 @@ public class ModelTrainer {
         System.out.println("   Sample Predictions:");
         for (String testCase : testCases) {
             String normalized = VietnameseTextNormalizer.normalize(testCase);
-            double[] vector = vectorizer.transform(normalized);
+            SparseVector vector = vectorizer.transformSparse(normalized);
             LinearSVMClassifier.PredictionResult result = svm.predictWithConfidence(vector);
             System.out.printf("   '%s' -> Category %d (%.1f%% confidence)\n", 
                             testCase, result.predictedClass, result.confidence * 100);
@@ -223,35 +341,36 @@ public class ModelTrainer {
      * Normalize feature vectors using L2 normalization
      * This helps improve SVM performance and confidence scores
      */
-    private static void normalizeFeatures(double[][] vectors) {
-        for (double[] vector : vectors) {
-            double norm = 0.0;
-            for (double v : vector) {
-                norm += v * v;
-            }
-            norm = Math.sqrt(norm);
-            
-            if (norm > 0) {
-                for (int i = 0; i < vector.length; i++) {
-                    vector[i] /= norm;
-                }
-            }
+    private static void normalizeFeatures(SparseVector[] vectors) {
+        for (int i = 0; i < vectors.length; i++) {
+            vectors[i] = vectors[i].l2Normalize();
         }
     }
     
     private static void saveMetadata(String filepath, double accuracy, int totalSamples, 
-                                    int vocabularySize) throws IOException {
+                                    TextVectorizer vectorizer, boolean quantized,
+                                    String checksum) throws IOException {
         try (BufferedWriter writer = new BufferedWriter(new FileWriter(filepath))) {
             writer.write("{\n");
             writer.write("  \"model_type\": \"Linear SVM\",\n");
-            writer.write("  \"feature_extractor\": \"TF-IDF\",\n");
+            if (vectorizer instanceof HashingVectorizer hashing) {
+                writer.write("  \"feature_extractor\": \"Hashing\",\n");
+                writer.write("  \"hash_buckets\": " + hashing.getDimension() + ",\n");
+                writer.write("  \"char_ngrams\": [" + hashing.getMinNgram() + ", " + hashing.getMaxNgram() + "],\n");
+            } else {
+                writer.write("  \"feature_extractor\": \"TF-IDF\",\n");
+                writer.write("  \"vocabulary_size\": " + vectorizer.getDimension() + ",\n");
+            }
+            writer.write("  \"weights\": \"" + (quantized ? "int8" : "float32") + "\",\n");
             writer.write("  \"accuracy\": " + String.format("%.4f", accuracy) + ",\n");
             writer.write("  \"training_samples\": " + totalSamples + ",\n");
-            writer.write("  \"vocabulary_size\": " + vocabularySize + ",\n");
             writer.write("  \"categories\": 14,\n");
             writer.write("  \"trained_date\": \"" + new Date() + "\",\n");
             writer.write("  \"language\": \"Vietnamese\",\n");
-            writer.write("  \"version\": \"2.0\"\n");
+            writer.write("  \"version\": \"2.0\",\n");
+            writer.write("  \"model_file\": \"" + BinaryModelFormat.DEFAULT_FILE_NAME + "\",\n");
+            writer.write("  \"format_version\": " + BinaryModelFormat.FORMAT_VERSION + ",\n");
+            writer.write("  \"checksum\": \"" + checksum + "\"\n");
             writer.write("}\n");
         }
     }
@@ -0,0 +1,135 @@
+package com.example.finance.ml;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Sparse feature vector stored as parallel arrays (sorted feature indices + float values).
+ *
+ * A typical description has fewer than 10 non-zero TF-IDF terms out of ~2000 features,
+ * so this is a few dozen bytes instead of a 16 KB double[] per transform, and every
+ * dot product costs O(non-zeros) instead of O(vocabulary).
+ */
+public final class SparseVector implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int[] NO_INDICES = new int[0];
+    private static final float[] NO_VALUES = new float[0];
+
+    // Package-private for hot loops in the classifier; never mutated after construction
+    final int[] indices;
+    final float[] values;
+    private final int dimension;
+
+    /**
+     * @param indices strictly increasing feature indices
+     * @param values  values aligned with indices
+     */
+    public SparseVector(int[] indices, float[] values, int dimension) {
+        if (indices.length != values.length) {
+            throw new IllegalArgumentException("indices and values must have the same length");
+        }
+        this.indices = indices;
+        this.values = values;
+        this.dimension = dimension;
+    }
+
+    public static SparseVector empty(int dimension) {
+        return new SparseVector(NO_INDICES, NO_VALUES, dimension);
+    }
+
+    public static SparseVector fromDense(double[] dense) {
+        int nnz = 0;
+        for (double v : dense) {
+            if (v != 0.0) {
+                nnz++;
+            }
+        }
+
+        int[] indices = new int[nnz];
+        float[] values = new float[nnz];
+        int k = 0;
+        for (int i = 0; i < dense.length; i++) {
+            if (dense[i] != 0.0) {
+                indices[k] = i;
+                values[k] = (float) dense[i];
+                k++;
+            }
+        }
+        return new SparseVector(indices, values, dense.length);
+    }
+
+    public double[] toDense() {
+        double[] dense = new double[dimension];
+        for (int k = 0; k < indices.length; k++) {
+            dense[indices[k]] = values[k];
+        }
+        return dense;
+    }
+
+    /**
+     * Dot product with a dense weight vector
+     */
+    public double dot(double[] weights) {
+        double result = 0.0;
+        for (int k = 0; k < indices.length; k++) {
+            result += weights[indices[k]] * values[k];
+        }
+        return result;
+    }
+
+    /**
+     * target += scale * this
+     */
+    public void addTo(double[] target, double scale) {
+        for (int k = 0; k < indices.length; k++) {
+            target[indices[k]] += scale * values[k];
+        }
+    }
+
+    public double norm() {
+        double sum = 0.0;
+        for (float v : values) {
+            sum += (double) v * v;
+        }
+        return Math.sqrt(sum);
+    }
+
+    /**
+     * L2-normalized copy (or this vector when it is empty)
+     */
+    public SparseVector l2Normalize() {
+        double norm = norm();
+        if (norm == 0.0) {
+            return this;
+        }
+        float[] normalized = new float[values.length];
+        for (int k = 0; k < values.length; k++) {
+            normalized[k] = (float) (values[k] / norm);
+        }
+        return new SparseVector(indices, normalized, dimension);
+    }
+
+    public int nonZeroCount() {
+        return indices.length;
+    }
+
+    public int getIndex(int k) {
+        return indices[k];
+    }
+
+    public float getValue(int k) {
+        return values[k];
+    }
+
+    public int getDimension() {
+        return dimension;
+    }
+
+    @Override
+    public String toString() {
+        return "SparseVector{dim=" + dimension + ", indices=" + Arrays.toString(indices)
+            + ", values=" + Arrays.toString(values) + "}";
+    }
+}
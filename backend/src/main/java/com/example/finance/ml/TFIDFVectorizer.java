@@ -3,7 +3,7 @@ package com.example.finance.ml;
 import java.io.Serializable;
 import java.util.*;
 
-public class TFIDFVectorizer implements Serializable {
+public class TFIDFVectorizer implements TextVectorizer, Serializable {
     
     private static final long serialVersionUID = 1L;
     
@@ -11,6 +11,9 @@ public class TFIDFVectorizer implements Serializable {
     private Map<String, Double> idfScores;
     private int maxFeatures = 1000;
     
+    // IDF by feature index, derived from idfScores (not serialized, rebuilt on first use)
+    private transient volatile double[] idfByIndex;
+    
     public TFIDFVectorizer() {
         this.vocabulary = new HashMap<>();
         this.idfScores = new HashMap<>();
@@ -21,6 +24,16 @@ public class TFIDFVectorizer implements Serializable {
         this.maxFeatures = maxFeatures;
     }
     
+    /**
+     * Vectorizer restored from a binary model file: IDF is kept by feature index only
+     */
+    static TFIDFVectorizer fromIndexedIdf(Map<String, Integer> vocabulary, double[] idfByIndex, int maxFeatures) {
+        TFIDFVectorizer vectorizer = new TFIDFVectorizer(maxFeatures);
+        vectorizer.vocabulary = vocabulary;
+        vectorizer.idfByIndex = idfByIndex;
+        return vectorizer;
+    }
+    
     public void fit(List<String> documents) {
         Map<String, Integer> documentFrequency = new HashMap<>();
         Map<String, Integer> termFrequency = new HashMap<>();
@@ -53,6 +66,7 @@ public class TFIDFVectorizer implements Serializable {
             double idf = Math.log((double) numDocuments / (df + 1));
             idfScores.put(term, idf);
         }
+        idfByIndex = null;
     }
     
     public double[] transform(String document) {
@@ -72,7 +86,7 @@ public class TFIDFVectorizer implements Serializable {
             if (vocabulary.containsKey(term)) {
                 int index = vocabulary.get(term);
                 double tf = entry.getValue() / (double) tokens.size();
-                double idf = idfScores.getOrDefault(term, 0.0);
+                double idf = idfTable()[index];
                 double tfidf = tf * idf;
                 vector[index] = tfidf;
                 norm += tfidf * tfidf;
@@ -89,6 +103,93 @@ public class TFIDFVectorizer implements Serializable {
         return vector;
     }
     
+    /**
+     * Sparse TF-IDF transform: same values as transform(), only the non-zero terms are stored
+     */
+    @Override
+    public SparseVector transformSparse(String document) {
+        List<String> tokens = VietnameseTextNormalizer.tokenize(document);
+        int vocabSize = vocabulary.size();
+        if (tokens.isEmpty()) {
+            return SparseVector.empty(vocabSize);
+        }
+        
+        int[] hits = new int[tokens.size()];
+        int hitCount = 0;
+        for (String token : tokens) {
+            Integer index = vocabulary.get(token);
+            if (index != null) {
+                hits[hitCount++] = index;
+            }
+        }
+        if (hitCount == 0) {
+            return SparseVector.empty(vocabSize);
+        }
+        Arrays.sort(hits, 0, hitCount);
+        
+        // Collapse repeated indices into (index, count)
+        int unique = 1;
+        for (int i = 1; i < hitCount; i++) {
+            if (hits[i] != hits[i - 1]) {
+                unique++;
+            }
+        }
+        
+        double[] idf = idfTable();
+        int[] indices = new int[unique];
+        double[] weights = new double[unique];
+        double norm = 0.0;
+        int k = -1;
+        int previous = -1;
+        for (int i = 0; i < hitCount; i++) {
+            if (hits[i] != previous) {
+                k++;
+                indices[k] = hits[i];
+                previous = hits[i];
+            }
+            weights[k] += 1.0;
+        }
+        for (int j = 0; j < unique; j++) {
+            double tfidf = weights[j] / tokens.size() * idf[indices[j]];
+            weights[j] = tfidf;
+            norm += tfidf * tfidf;
+        }
+        
+        norm = Math.sqrt(norm);
+        float[] values = new float[unique];
+        for (int j = 0; j < unique; j++) {
+            values[j] = (float) (norm > 0 ? weights[j] / norm : weights[j]);
+        }
+        
+        return new SparseVector(indices, values, vocabSize);
+    }
+    
+    @Override
+    public SparseVector[] fitTransformSparse(List<String> documents) {
+        fit(documents);
+        SparseVector[] matrix = new SparseVector[documents.size()];
+        for (int i = 0; i < documents.size(); i++) {
+            matrix[i] = transformSparse(documents.get(i));
+        }
+        return matrix;
+    }
+    
+    int getMaxFeatures() {
+        return maxFeatures;
+    }
+    
+    double[] idfTable() {
+        double[] table = idfByIndex;
+        if (table == null) {
+            table = new double[vocabulary.size()];
+            for (Map.Entry<String, Integer> entry : vocabulary.entrySet()) {
+                table[entry.getValue()] = idfScores.getOrDefault(entry.getKey(), 0.0);
+            }
+            idfByIndex = table;
+        }
+        return table;
+    }
+    
     public double[][] fitTransform(List<String> documents) {
         fit(documents);
         double[][] matrix = new double[documents.size()][];
@@ -102,6 +203,11 @@ public class TFIDFVectorizer implements Serializable {
         return vocabulary.size();
     }
     
+    @Override
+    public int getDimension() {
+        return vocabulary.size();
+    }
+    
     public Map<String, Integer> getVocabulary() {
         return new HashMap<>(vocabulary);
     }
@@ -0,0 +1,28 @@
+package com.example.finance.ml;
+
+import java.util.List;
+
+/**
+ * Text -> sparse feature vector, the input side of LinearSVMClassifier
+ * - TFIDFVectorizer: fitted vocabulary of the most frequent terms, unknown terms are dropped
+ * - HashingVectorizer: murmur3 feature hashing into a fixed number of buckets, no vocabulary
+ *
+ * Implementations are read-only after fit and safe to share between request threads.
+ */
+public interface TextVectorizer {
+
+    /**
+     * L2-normalized features of one description
+     */
+    SparseVector transformSparse(String document);
+
+    /**
+     * Fit on the training documents, then transform each of them
+     */
+    SparseVector[] fitTransformSparse(List<String> documents);
+
+    /**
+     * Feature count: the classifier is trained with this many weights per class
+     */
+    int getDimension();
+}
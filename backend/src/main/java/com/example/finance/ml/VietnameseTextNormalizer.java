@@ -1,59 +1,231 @@
 package com.example.finance.ml;
 
 import java.text.Normalizer;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.regex.Pattern;
 
+/**
+ * Vietnamese text normalization: lowercase, fold diacritics (đ -> d), replace everything outside
+ * [a-z0-9] with a separator, drop stopwords, and collapse whitespace.
+ *
+ * All steps run in one pass over a precomputed per-char table that holds the result of
+ * toLowerCase + NFD + mark removal + special-character stripping for every BMP char. Output is
+ * written into a reusable NormalizedText buffer (one per thread) together with token offsets, so
+ * normalize() allocates only the result String and tokenize() only the token Strings.
+ */
 public class VietnameseTextNormalizer {
-    
+
     private static final String[] STOPWORDS = {
         "của", "và", "có", "được", "trong", "cho", "từ", "với", "này", "đã",
         "để", "một", "các", "những", "là", "thì", "không", "còn", "như", "người"
     };
-    
+
+    // Used only to build the fold table
+    private static final Pattern MARKS = Pattern.compile("\\p{M}");
+    private static final Pattern SPECIAL = Pattern.compile("[^a-z0-9\\s]");
+
+    // Table values: an output char in [a-z0-9], SEPARATOR, or DELETED (combining marks vanish
+    // without splitting the word they belong to)
+    private static final byte DELETED = 0;
+    private static final byte SEPARATOR = ' ';
+    private static final byte[] FOLD_TABLE = buildFoldTable();
+
+    // Stopwords are matched against folded tokens, so only entries that are already plain
+    // [a-z0-9] can ever match (accented entries never survive diacritic removal)
+    private static final char[][] FOLDED_STOPWORDS = Arrays.stream(STOPWORDS)
+            .filter(word -> word.chars().allMatch(c -> (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')))
+            .map(String::toCharArray)
+            .toArray(char[][]::new);
+
+    private static final ThreadLocal<NormalizedText> BUFFER = ThreadLocal.withInitial(NormalizedText::new);
+
     public static String normalize(String text) {
-        if (text == null || text.trim().isEmpty()) {
+        if (text == null) {
             return "";
         }
-        
-        text = text.toLowerCase().trim();
-        text = removeDiacritics(text);
-        text = removeSpecialCharacters(text);
-        text = removeStopwords(text);
-        text = normalizeWhitespace(text);
-        
-        return text;
+        NormalizedText out = BUFFER.get();
+        normalizeInto(text, out);
+        return out.toString();
     }
-    
+
     public static List<String> tokenize(String text) {
-        String normalized = normalize(text);
-        return Arrays.stream(normalized.split("\\s+"))
-                .filter(word -> !word.isEmpty())
-                .collect(Collectors.toList());
-    }
-    
-    private static String removeDiacritics(String text) {
-        String normalized = Normalizer.normalize(text, Normalizer.Form.NFD);
-        normalized = normalized.replaceAll("\\p{M}", "");
-        
-        normalized = normalized.replace('đ', 'd').replace('Đ', 'd');
-        
-        return normalized;
-    }
-    
-    private static String removeSpecialCharacters(String text) {
-        return text.replaceAll("[^a-z0-9\\s]", " ");
-    }
-    
-    private static String removeStopwords(String text) {
-        List<String> stopwordList = Arrays.asList(STOPWORDS);
-        return Arrays.stream(text.split("\\s+"))
-                .filter(word -> !stopwordList.contains(word))
-                .collect(Collectors.joining(" "));
-    }
-    
-    private static String normalizeWhitespace(String text) {
-        return text.replaceAll("\\s+", " ").trim();
+        if (text == null) {
+            return new ArrayList<>();
+        }
+        NormalizedText out = BUFFER.get();
+        normalizeInto(text, out);
+        List<String> tokens = new ArrayList<>(out.tokenCount());
+        for (int i = 0; i < out.tokenCount(); i++) {
+            tokens.add(out.token(i));
+        }
+        return tokens;
+    }
+
+    /**
+     * Normalize text into a caller-owned buffer (cleared first): out holds the normalized chars
+     * (tokens separated by single spaces) and the [start, end) offset of every token.
+     */
+    public static void normalizeInto(CharSequence text, NormalizedText out) {
+        out.clear();
+        int length = text.length();
+        out.ensureCapacity(length);
+
+        char[] buf = out.chars;
+        int pos = 0;
+        int tokenStart = -1;
+
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            byte folded;
+            if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                folded = foldSupplementary(Character.toCodePoint(c, text.charAt(i + 1)));
+                i++;
+            } else {
+                folded = FOLD_TABLE[c];
+            }
+
+            if (folded == DELETED) {
+                continue;
+            }
+            if (folded == SEPARATOR) {
+                if (tokenStart >= 0) {
+                    pos = endToken(out, tokenStart, pos);
+                    tokenStart = -1;
+                }
+                continue;
+            }
+            if (tokenStart < 0) {
+                if (out.tokenCount > 0) {
+                    buf[pos++] = ' ';
+                }
+                tokenStart = pos;
+            }
+            buf[pos++] = (char) folded;
+        }
+        if (tokenStart >= 0) {
+            pos = endToken(out, tokenStart, pos);
+        }
+        out.length = pos;
+    }
+
+    /**
+     * Close the token [start, end): record it, or drop it (and the space before it) if it is a stopword.
+     * Returns the new write position.
+     */
+    private static int endToken(NormalizedText out, int start, int end) {
+        if (isStopword(out.chars, start, end)) {
+            return out.tokenCount > 0 ? start - 1 : start;
+        }
+        out.addToken(start, end);
+        return end;
+    }
+
+    private static boolean isStopword(char[] buf, int start, int end) {
+        int length = end - start;
+        for (char[] stopword : FOLDED_STOPWORDS) {
+            if (stopword.length == length && Arrays.equals(buf, start, end, stopword, 0, length)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static byte[] buildFoldTable() {
+        byte[] table = new byte[Character.MAX_VALUE + 1];
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            table[c] = Character.isSurrogate((char) c) ? SEPARATOR : foldSlow(String.valueOf((char) c));
+        }
+        return table;
+    }
+
+    private static byte foldSupplementary(int codePoint) {
+        return foldSlow(new String(Character.toChars(codePoint)));
+    }
+
+    /**
+     * Reference pipeline applied to a single char / code point
+     */
+    private static byte foldSlow(String s) {
+        String folded = Normalizer.normalize(s.toLowerCase(), Normalizer.Form.NFD);
+        folded = MARKS.matcher(folded).replaceAll("").replace('đ', 'd').replace('Đ', 'd');
+        folded = SPECIAL.matcher(folded).replaceAll(" ");
+        for (int i = 0; i < folded.length(); i++) {
+            char c = folded.charAt(i);
+            if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+                return (byte) c;
+            }
+        }
+        return folded.isEmpty() ? DELETED : SEPARATOR;
+    }
+
+    /**
+     * Reusable output buffer for normalizeInto(): normalized chars plus token offsets
+     */
+    public static final class NormalizedText {
+        private char[] chars = new char[64];
+        private int length;
+        private int[] tokenStarts = new int[16];
+        private int[] tokenEnds = new int[16];
+        private int tokenCount;
+
+        public int length() {
+            return length;
+        }
+
+        public char charAt(int index) {
+            return chars[index];
+        }
+
+        public int tokenCount() {
+            return tokenCount;
+        }
+
+        public int tokenStart(int token) {
+            return tokenStarts[token];
+        }
+
+        public int tokenEnd(int token) {
+            return tokenEnds[token];
+        }
+
+        public String token(int token) {
+            return new String(chars, tokenStarts[token], tokenEnds[token] - tokenStarts[token]);
+        }
+
+        /**
+         * Direct access for allocation-free consumers; valid up to length()
+         */
+        public char[] buffer() {
+            return chars;
+        }
+
+        @Override
+        public String toString() {
+            return new String(chars, 0, length);
+        }
+
+        private void clear() {
+            length = 0;
+            tokenCount = 0;
+        }
+
+        private void ensureCapacity(int inputLength) {
+            // Output is never longer than the input: one char per kept char, one space per separator run
+            if (chars.length < inputLength) {
+                chars = new char[Math.max(inputLength, chars.length * 2)];
+            }
+        }
+
+        private void addToken(int start, int end) {
+            if (tokenCount == tokenStarts.length) {
+                tokenStarts = Arrays.copyOf(tokenStarts, tokenCount * 2);
+                tokenEnds = Arrays.copyOf(tokenEnds, tokenCount * 2);
+            }
+            tokenStarts[tokenCount] = start;
+            tokenEnds[tokenCount] = end;
+            tokenCount++;
+        }
     }
 }
@@ -0,0 +1,36 @@
+package com.example.finance.repository;
+
+import com.example.finance.dto.CategoryStatisticDTO;
+import com.example.finance.entity.Transaction;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Month / year aggregates of TransactionRepository, built per call by TransactionAggregatesImpl.
+ * month and year are optional as before (null = not filtered on).
+ */
+public interface TransactionAggregates {
+
+ BigDecimal sumAmountByUserAndType(Long userId, String type, Integer month, Integer year);
+
+ List<Transaction> findByUserIdAndMonthAndYear(Long userId, Integer month, Integer year);
+
+ // [categoryId, SUM(amount)]
+ List<Object[]> sumAmountByCategory(Long userId, Integer month, Integer year);
+
+ // [walletId, SUM(amount)]
+ List<Object[]> sumAmountByWallet(Long userId, Long walletId, String type, Integer month, Integer year);
+
+ // [walletId, COUNT(id)]
+ List<Object[]> countTransactionsByWallet(Long userId, Long walletId, String type, Integer month, Integer year);
+
+ List<CategoryStatisticDTO> findExpenseStatisticsByCategory(Long userId, Integer month, Integer year);
+
+ // Expenses of one category in one month; 0 when there are none
+ BigDecimal sumByUserCategoryMonth(Long userId, Long categoryId, int month, int year);
+
+ // [category name, color, SUM(amount), COUNT(id)] of one month's expenses, largest first;
+ // month and year are both required here (null matches nothing)
+ List<Object[]> findExpensesByCategory(Long userId, Integer month, Integer year);
+}
@@ -0,0 +1,194 @@
+package com.example.finance.repository;
+
+import com.example.finance.dto.CategoryStatisticDTO;
+import com.example.finance.entity.Category;
+import com.example.finance.entity.Transaction;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Criteria implementation of TransactionAggregates (found by Spring Data through the Impl suffix)
+ * - month + year become a half-open range, trans_date >= first day AND trans_date < first day of the
+ *   next month (a year alone: the calendar year), so (user_id, trans_date) indexes are range seeks
+ *   instead of scans evaluating MONTH() / YEAR() on every row. A month without a year ("every March")
+ *   has no single range and still uses MONTH()
+ * - Only the arguments that are set become predicates: each combination is its own SQL text and so its
+ *   own cached plan, instead of one "(:x IS NULL OR ...)" plan compiled for whichever arguments came first
+ */
+public class TransactionAggregatesImpl implements TransactionAggregates {
+
+ @PersistenceContext
+ private EntityManager entityManager;
+
+ /**
+ * Date filter of a month / year pair: [from, until), or monthOfAnyYear, or nothing to filter on
+ */
+ record Period(LocalDate from, LocalDate until, Integer monthOfAnyYear, boolean matchesNothing) {
+
+ static final Period ANY = new Period(null, null, null, false);
+ static final Period NONE = new Period(null, null, null, true);
+
+ static Period of(Integer month, Integer year) {
+ // MONTH(x) = 13 / YEAR(x) = 0 matched no row; SQL Server dates are years 1..9999
+ if ((month != null && (month < 1 || month > 12)) || (year != null && (year < 1 || year > 9999))) {
+ return NONE;
+ }
+ if (year != null && month != null) {
+ LocalDate from = LocalDate.of(year, month, 1);
+ return new Period(from, from.plusMonths(1), null, false);
+ }
+ if (year != null) {
+ LocalDate from = LocalDate.of(year, 1, 1);
+ return new Period(from, from.plusYears(1), null, false);
+ }
+ return month != null ? new Period(null, null, month, false) : ANY;
+ }
+
+ /**
+ * One month, for queries that compared MONTH() = :month AND YEAR() = :year (null matched nothing)
+ */
+ static Period ofMonth(Integer month, Integer year) {
+ return month != null && year != null ? of(month, year) : NONE;
+ }
+ }
+
+ @Override
+ public BigDecimal sumAmountByUserAndType(Long userId, String type, Integer month, Integer year) {
+ CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+ CriteriaQuery<BigDecimal> query = cb.createQuery(BigDecimal.class);
+ Root<Transaction> t = query.from(Transaction.class);
+ List<Predicate> predicates = predicates(cb, t, userId, Period.of(month, year));
+ predicates.add(cb.equal(t.get("type"), type));
+ query.select(cb.sum(t.<BigDecimal>get("amount")))
+ .where(predicates.toArray(Predicate[]::new));
+ return entityManager.createQuery(query).getSingleResult();
+ }
+
+ @Override
+ public List<Transaction> findByUserIdAndMonthAndYear(Long userId, Integer month, Integer year) {
+ CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+ CriteriaQuery<Transaction> query = cb.createQuery(Transaction.class);
+ Root<Transaction> t = query.from(Transaction.class);
+ query.select(t)
+ .where(predicates(cb, t, userId, Period.of(month, year)).toArray(Predicate[]::new));
+ return entityManager.createQuery(query).getResultList();
+ }
+
+ @Override
+ public List<Object[]> sumAmountByCategory(Long userId, Integer month, Integer year) {
+ CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+ CriteriaQuery<Object[]> query = cb.createQuery(Object[].class);
+ Root<Transaction> t = query.from(Transaction.class);
+ Path<Long> categoryId = t.get("category").get("id");
+ query.multiselect(categoryId, cb.sum(t.<BigDecimal>get("amount")))
+ .where(predicates(cb, t, userId, Period.of(month, year)).toArray(Predicate[]::new))
+ .groupBy(categoryId);
+ return entityManager.createQuery(query).getResultList();
+ }
+
+ @Override
+ public List<Object[]> sumAmountByWallet(Long userId, Long walletId, String type, Integer month, Integer year) {
+ return byWallet(userId, walletId, type, month, year, false);
+ }
+
+ @Override
+ public List<Object[]> countTransactionsByWallet(Long userId, Long walletId, String type, Integer month, Integer year) {
+ return byWallet(userId, walletId, type, month, year, true);
+ }
+
+ @Override
+ public List<CategoryStatisticDTO> findExpenseStatisticsByCategory(Long userId, Integer month, Integer year) {
+ CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+ CriteriaQuery<CategoryStatisticDTO> query = cb.createQuery(CategoryStatisticDTO.class);
+ Root<Transaction> t = query.from(Transaction.class);
+ Join<Transaction, Category> c = t.join("category");
+ Expression<BigDecimal> total = cb.sum(t.<BigDecimal>get("amount"));
+ List<Predicate> predicates = predicates(cb, t, userId, Period.of(month, year));
+ predicates.add(cb.equal(t.get("type"), "expense"));
+ query.select(cb.construct(CategoryStatisticDTO.class, c.get("name"), c.get("color"), total, cb.count(t)))
+ .where(predicates.toArray(Predicate[]::new))
+ .groupBy(c.get("id"), c.get("name"), c.get("color"))
+ .orderBy(cb.desc(total));
+ return entityManager.createQuery(query).getResultList();
+ }
+
+ @Override
+ public BigDecimal sumByUserCategoryMonth(Long userId, Long categoryId, int month, int year) {
+ CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+ CriteriaQuery<BigDecimal> query = cb.createQuery(BigDecimal.class);
+ Root<Transaction> t = query.from(Transaction.class);
+ List<Predicate> predicates = predicates(cb, t, userId, Period.ofMonth(month, year));
+ predicates.add(cb.equal(t.get("category").get("id"), categoryId));
+ predicates.add(cb.equal(t.get("type"), "expense"));
+ query.select(cb.coalesce(cb.sum(t.<BigDecimal>get("amount")), BigDecimal.ZERO))
+ .where(predicates.toArray(Predicate[]::new));
+ return entityManager.createQuery(query).getSingleResult();
+ }
+
+ @Override
+ public List<Object[]> findExpensesByCategory(Long userId, Integer month, Integer year) {
+ CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+ CriteriaQuery<Object[]> query = cb.createQuery(Object[].class);
+ Root<Transaction> t = query.from(Transaction.class);
+ Join<Transaction, Category> c = t.join("category");
+ Expression<BigDecimal> total = cb.sum(t.<BigDecimal>get("amount"));
+ List<Predicate> predicates = predicates(cb, t, userId, Period.ofMonth(month, year));
+ predicates.add(cb.equal(t.get("type"), "expense"));
+ query.multiselect(c.get("name"), c.get("color"), total, cb.count(t.get("id")))
+ .where(predicates.toArray(Predicate[]::new))
+ .groupBy(c.get("id"), c.get("name"), c.get("color"))
+ .orderBy(cb.desc(total));
+ return entityManager.createQuery(query).getResultList();
+ }
+
+ private List<Object[]> byWallet(Long userId, Long walletId, String type, Integer month, Integer year, boolean count) {
+ CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+ CriteriaQuery<Object[]> query = cb.createQuery(Object[].class);
+ Root<Transaction> t = query.from(Transaction.class);
+ Path<Long> wallet = t.get("wallet").get("id");
+ List<Predicate> predicates = predicates(cb, t, userId, Period.of(month, year));
+ if (walletId != null) {
+ predicates.add(cb.equal(wallet, walletId));
+ }
+ if (type != null) {
+ predicates.add(cb.equal(t.get("type"), type));
+ }
+ query.multiselect(wallet, count ? cb.count(t.get("id")) : cb.sum(t.<BigDecimal>get("amount")))
+ .where(predicates.toArray(Predicate[]::new))
+ .groupBy(wallet);
+ return entityManager.createQuery(query).getResultList();
+ }
+
+ /**
+ * user, not deleted, and the period as a sargable range where it can be one
+ */
+ private static List<Predicate> predicates(CriteriaBuilder cb, Root<Transaction> t, Long userId, Period period) {
+ Path<LocalDate> date = t.get("date");
+ List<Predicate> predicates = new ArrayList<>();
+ predicates.add(cb.equal(t.get("user").get("id"), userId));
+ predicates.add(cb.isFalse(t.get("isDeleted")));
+ if (period.matchesNothing()) {
+ predicates.add(cb.disjunction());
+ }
+ if (period.from() != null) {
+ predicates.add(cb.greaterThanOrEqualTo(date, period.from()));
+ predicates.add(cb.lessThan(date, period.until()));
+ }
+ if (period.monthOfAnyYear() != null) {
+ predicates.add(cb.equal(cb.function("MONTH", Integer.class, date), period.monthOfAnyYear()));
+ }
+ return predicates;
+ }
+}
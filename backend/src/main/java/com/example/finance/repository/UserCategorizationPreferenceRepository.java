@@ -1,8 +1,10 @@
 package com.example.finance.repository;
 
 import com.example.finance.entity.UserCategorizationPreference;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -10,4 +12,6 @@ public interface UserCategorizationPreferenceRepository extends JpaRepository<Us
     
     Optional<UserCategorizationPreference> findByUserIdAndDescriptionPattern(Long userId, String descriptionPattern);
     
+    List<UserCategorizationPreference> findByUserIdOrderByFrequencyDescLastUsedDesc(Long userId, Pageable pageable);
+    
 }
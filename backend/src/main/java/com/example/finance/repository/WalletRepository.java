@@ -2,8 +2,10 @@ package com.example.finance.repository;
 
 import com.example.finance.entity.Wallet;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
@@ -21,4 +23,27 @@ public interface WalletRepository extends JpaRepository<Wallet, Long> {
  List<Wallet> findByUserId(@Param("userId") Long userId);
 
  Long countByUserIdAndIsActiveTrue(Long userId);
+
+ // Signed balance delta, atomic in the database; balance_version counts every change
+ @Modifying
+ @Transactional
+ @Query(value = "UPDATE Wallets SET balance = COALESCE(balance, 0) + :delta, balance_version = balance_version + 1 WHERE id = :walletId", nativeQuery = true)
+ int addToBalance(@Param("walletId") Long walletId, @Param("delta") BigDecimal delta);
+
+ // Same, only if no delta was applied since balance_version was read (drift repair)
+ @Modifying
+ @Transactional
+ @Query(value = "UPDATE Wallets SET balance = COALESCE(balance, 0) + :delta, balance_version = balance_version + 1 WHERE id = :walletId AND balance_version = :version", nativeQuery = true)
+ int addToBalanceIfVersion(@Param("walletId") Long walletId, @Param("delta") BigDecimal delta, @Param("version") Long version);
+
+ // {balance, balance_version, initial_balance} of one wallet
+ @Query(value = "SELECT COALESCE(balance, 0), balance_version, COALESCE(initial_balance, 0) FROM Wallets WHERE id = :walletId", nativeQuery = true)
+ List<Object[]> findBalanceState(@Param("walletId") Long walletId);
+
+ // Reconciler page: {id, stored balance, initial balance + income - expense} for wallets after afterId
+ @Query(value = "SELECT w.id, COALESCE(w.balance, 0), COALESCE(w.initial_balance, 0) + COALESCE(SUM(CASE t.type WHEN 'income' THEN t.amount WHEN 'expense' THEN -t.amount ELSE 0 END), 0) "
+ + "FROM Wallets w LEFT JOIN Transactions t ON t.wallet_id = w.id AND (t.is_deleted = 0 OR t.is_deleted IS NULL) "
+ + "WHERE w.id > :afterId GROUP BY w.id, w.balance, w.initial_balance ORDER BY w.id "
+ + "OFFSET 0 ROWS FETCH NEXT :limit ROWS ONLY", nativeQuery = true)
+ List<Object[]> findBalanceSummaries(@Param("afterId") Long afterId, @Param("limit") int limit);
 }
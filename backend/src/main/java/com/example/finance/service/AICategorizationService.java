@@ -2,18 +2,22 @@ package com.example.finance.service;
 
 import org.springframework.stereotype.Service;
 import org.springframework.beans.factory.annotation.Autowired;
+import com.example.finance.entity.Category;
 import com.example.finance.entity.Transaction;
 import com.example.finance.entity.UserCategorizationPreference;
+import com.example.finance.repository.CategoryRepository;
 import com.example.finance.repository.TransactionRepository;
 import com.example.finance.repository.UserCategorizationPreferenceRepository;
 import com.example.finance.ml.*;
 import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
 import java.time.LocalDateTime;
 import java.util.stream.Collectors;
 
 @Service
+@Slf4j
 public class AICategorizationService {
     
     @Autowired
@@ -22,6 +26,9 @@ public class AICategorizationService {
     @Autowired
     private UserCategorizationPreferenceRepository userPrefRepository;
     
+    @Autowired
+    private CategoryRepository categoryRepository;
+    
     @SuppressWarnings("unused")
     @Autowired
     private OpenRouterService openRouterService;
@@ -38,35 +45,52 @@ public class AICategorizationService {
     @Autowired
     private ConfidenceCalibrationService confidenceCalibrator;
     
-    // ML Models (kept for backward compatibility but not primary layer anymore)
-    private LinearSVMClassifier svmModel;
-    private TFIDFVectorizer tfidfVectorizer;
+    // Layer 3 signal 5: per-user pattern history
+    @Autowired
+    private UserPatternCacheService userPatternCache;
+    
+    @Autowired
+    private PreferenceWriteBehindService preferenceWriter;
+    
+    // Layer 2.5: vectorizer + SVM + temperature, swapped as one snapshot by the registry
+    @Autowired
+    private ModelRegistryService modelRegistry;
+    
+    // Cross-user memo of Layers 1 - 2.5 and of the Layer 3 text signals
+    @Autowired
+    private CategorizationResultCache resultCache;
+    
+    // Per-layer / per-request timers (Micrometer)
+    @Autowired
+    private CategorizationMetrics metrics;
+    
+    // Layer 1: all keyword rules compiled into one automaton at startup
+    private final KeywordAutomaton keywordAutomaton = new KeywordAutomaton(buildLayer1KeywordMap());
+    
+    // Layer 2: normalized keywords in a BK-tree index, replaced as a whole by rebuildFuzzyKeywordIndex()
+    private volatile FuzzyKeywordIndex fuzzyKeywordIndex;
+    
+    // Layer 3: precomputed signal tables, replaced as a whole by rebuildSignalIndex()
+    private volatile CategorySignalIndex signalIndex = buildSignalIndex(null);
     
     // Confidence thresholds
-    private static final double LAYER2_FUZZY_THRESHOLD = 0.70; // 70% similarity required for Layer 2
+    static final double LAYER2_FUZZY_THRESHOLD = 0.70; // 70% similarity required for Layer 2
+    static final double LAYER25_ML_THRESHOLD = 0.60;   // calibrated confidence required for Layer 2.5
+    
+    // Layer names (batch stats, cached outcomes)
+    public static final String LAYER_1 = "layer1";
+    public static final String LAYER_2 = "layer2";
+    public static final String LAYER_25 = "layer2.5";
+    public static final String LAYER_3 = "layer3";
+    public static final String FALLBACK = "fallback";
+    public static final String PROVISIONAL = "provisional";
     private static final int USER_PREF_MIN_FREQUENCY = 3;
     
     @PostConstruct
     public void loadModels() {
-        // ML models now handled by Python AI service via REST API
-        // Legacy Java ML models disabled for production
+        rebuildCategoryIndexes();
         
-        // Comment out legacy model loading
-        /*
-        try {
-            // Load TF-IDF vectorizer
-            tfidfVectorizer = ModelSerializer.loadTFIDFVectorizerFromResources("/ml-models/tfidf_vectorizer.bin");
-            
-            // Load SVM model
-            svmModel = ModelSerializer.loadSVMClassifierFromResources("/ml-models/svm_model.bin");
-            
-            System.out.println("ML models loaded successfully!");
-        } catch (Exception e) {
-            System.err.println("Failed to load ML models: " + e.getMessage());
-            e.printStackTrace();
-            throw new RuntimeException("ML model initialization failed", e);
-        }
-        */
+        // ML models (Layer 2.5) are loaded and hot-swapped by ModelRegistryService (ml.models.dir)
     }
     
     // SVM Model Category Mapping
@@ -122,82 +146,73 @@ public class AICategorizationService {
      * Fallback: Category 14 (Khác) with 30% confidence
      */
     public CategorizationResult categorizeExpense(String description, Double amount, Long userId) {
-        long startTime = System.currentTimeMillis();
-        String normalized = VietnameseTextNormalizer.normalize(description);
-        
-        System.out.println("\n========== CATEGORIZATION START ==========");
-        System.out.println("[INPUT] Description: " + description);
-        System.out.println("[INPUT] Normalized: " + normalized);
-        System.out.println("[INPUT] Amount: " + amount);
-        
-        // ===== LAYER 1: Rule-based Keyword Matching =====
-        long layer1Start = System.currentTimeMillis();
-        Long categoryId = matchByKeywords(normalized);
-        long layer1Time = System.currentTimeMillis() - layer1Start;
-        
-        if (categoryId != null) {
-            System.out.println("[LAYER 1 ✓] Matched category: " + categoryId + " in " + layer1Time + "ms");
-            CategorizationResult result = buildResult(categoryId, 0.95, "Layer 1: Exact keyword match");
-            
-            // Save to user preferences for future learning
-            if (userId != null) {
-                saveUserPreference(userId, normalized, categoryId);
-            }
-            
-            printPerformanceStats(startTime, layer1Time, 0, 0, 0);
-            return result;
+        // One snapshot per request: a model swap mid-request cannot mix versions
+        ModelSnapshot snapshot = modelRegistry.current();
+        CategorizationResult result = categorizeExpense(description, amount, userId, snapshot);
+        if (result.getModelVersion() == null) { // cached results already carry it
+            result.setModelVersion(snapshot.getVersion());
         }
+        return result;
+    }
+    
+    /**
+     * Layers 1 - 2.5 only, for callers that run Layer 3 later (TransactionService with async Layer 3).
+     * A fast-layer answer is final, exactly as categorizeExpense() returns it. Otherwise the result is
+     * provisional: the best below-threshold Layer 2.5 guess, or category 14 (Khác); no preference is
+     * learned from it, categorizeExpense() on the same input gives the final answer.
+     */
+    public CategorizationResult categorizeWithoutLayer3(String description, Double amount, Long userId) {
+        long startTime = System.nanoTime();
+        ModelSnapshot snapshot = modelRegistry.current();
+        String normalized = VietnameseTextNormalizer.normalize(description);
+        boolean[] computed = new boolean[1];
+        CategorizationResultCache.FastLayerOutcome fast = fastLayers(description, normalized, amount, snapshot, computed);
         
-        System.out.println("[LAYER 1 ✗] No exact match, proceeding to Layer 2");
-        
-        // ===== LAYER 2: Fuzzy Matching =====
-        long layer2Start = System.currentTimeMillis();
-        CategorizationResult fuzzyResult = fuzzyMatchCategories(normalized);
-        long layer2Time = System.currentTimeMillis() - layer2Start;
-        
-        if (fuzzyResult != null && fuzzyResult.getConfidence() >= LAYER2_FUZZY_THRESHOLD) {
-            System.out.println("[LAYER 2 ✓] Fuzzy matched category: " + fuzzyResult.getCategory() + 
-                             " with " + (fuzzyResult.getConfidence() * 100) + "% confidence in " + layer2Time + "ms");
-            
-            // Save to user preferences
+        if (!fast.isResidual()) {
             if (userId != null) {
-                saveUserPreference(userId, normalized, fuzzyResult.getCategory());
+                saveUserPreference(userId, normalized, fast.getResult().getCategory());
             }
-            
-            printPerformanceStats(startTime, layer1Time, layer2Time, 0, 0);
-            return fuzzyResult;
-        }
-        
-        System.out.println("[LAYER 2 ✗] Low confidence or no match, proceeding to Layer 2.5");
+            metrics.recordRequest(fast.getLayer(), !computed[0], snapshot.getVersion(), System.nanoTime() - startTime);
+            return fast.getResult();
+        }
+        
+        CategorizationResult guess = fast.getGuess();
+        CategorizationResult provisional = guess != null
+            ? buildResult(guess.getCategory(), guess.getConfidence(), "Provisional: " + guess.getReasoning())
+            : buildResult(14L, 0.30, "Provisional: awaiting Layer 3");
+        provisional.setModelVersion(snapshot.getVersion());
+        provisional.setProvisional(true);
+        metrics.recordRequest(PROVISIONAL, !computed[0], snapshot.getVersion(), System.nanoTime() - startTime);
+        return provisional;
+    }
+    
+    private CategorizationResult categorizeExpense(String description, Double amount, Long userId,
+                                                   ModelSnapshot snapshot) {
+        long startTime = System.nanoTime();
+        String normalized = VietnameseTextNormalizer.normalize(description);
+        log.debug("Categorizing '{}' (normalized '{}', amount {})", description, normalized, amount);
         
-        // ===== LAYER 2.5: ML-based Categorization with Enhanced Features =====
-        long layer25Start = System.currentTimeMillis();
-        CategorizationResult mlResult = categorizeByEnhancedML(description, amount, userId);
-        long layer25Time = System.currentTimeMillis() - layer25Start;
+        // ===== LAYERS 1 - 2.5: same answer for every user, memoized across users =====
+        boolean[] computed = new boolean[1];
+        CategorizationResultCache.FastLayerOutcome fast = fastLayers(description, normalized, amount, snapshot, computed);
+        boolean cacheHit = !computed[0];
         
-        if (mlResult != null && mlResult.getConfidence() >= 0.60) {
-            System.out.println("[LAYER 2.5 ✓] ML categorized: " + mlResult.getCategory() + 
-                             " with " + (mlResult.getConfidence() * 100) + "% confidence in " + layer25Time + "ms");
+        if (!fast.isResidual()) {
+            CategorizationResult result = fast.getResult();
             
-            // Save to user preferences
+            // Save to user preferences for future learning
             if (userId != null) {
-                saveUserPreference(userId, normalized, mlResult.getCategory());
+                saveUserPreference(userId, normalized, result.getCategory());
             }
             
-            printPerformanceStats(startTime, layer1Time, layer2Time, layer25Time, 0);
-            return mlResult;
+            metrics.recordRequest(fast.getLayer(), cacheHit, snapshot.getVersion(), System.nanoTime() - startTime);
+            return result;
         }
         
-        System.out.println("[LAYER 2.5 ✗] Low ML confidence, proceeding to Layer 3");
-        
         // ===== LAYER 3: LLM Fallback =====
-        long layer3Start = System.currentTimeMillis();
-        CategorizationResult llmResult = categorizeBySupervisedLLM(description);
-        long layer3Time = System.currentTimeMillis() - layer3Start;
+        CategorizationResult llmResult = categorizeBySupervisedLLM(description, userId, snapshot.getVersion());
         
         if (llmResult != null) {
-            System.out.println("[LAYER 3 ✓] LLM categorized: " + llmResult.getCategory() + " in " + layer3Time + "ms");
-            
             // Save to user preferences
             if (userId != null) {
                 saveUserPreference(userId, normalized, llmResult.getCategory());
@@ -207,42 +222,106 @@ public class AICategorizationService {
             if (llmResult.getCategory() == 14L && userId != null) {
                 categorySuggestionService.analyzeAndSuggest(
                     description, userId, "expense", llmResult.getCategory()
-                ).ifPresent(suggestion -> {
-                    System.out.println("[AUTO-SUGGEST] New category suggested: " + 
-                        suggestion.getSuggestedName() + " (ID: " + suggestion.getId() + ")");
-                });
+                ).ifPresent(suggestion -> log.info("New category suggested: {} (ID: {})",
+                    suggestion.getSuggestedName(), suggestion.getId()));
             }
             
-            printPerformanceStats(startTime, layer1Time, layer2Time, layer25Time, layer3Time);
+            metrics.recordRequest(LAYER_3, cacheHit, snapshot.getVersion(), System.nanoTime() - startTime);
             return llmResult;
         }
         
         // ===== FALLBACK: Category 14 (Khác) =====
-        System.out.println("[FALLBACK] Using default category 14 (Khác)");
-        
         // Suggest new category when falling back to "Other"
         if (userId != null) {
             categorySuggestionService.analyzeAndSuggest(
                 description, userId, "expense", 14L
-            ).ifPresent(suggestion -> {
-                System.out.println("[AUTO-SUGGEST] New category suggested: " + 
-                    suggestion.getSuggestedName() + " (ID: " + suggestion.getId() + ")");
-            });
+            ).ifPresent(suggestion -> log.info("New category suggested: {} (ID: {})",
+                suggestion.getSuggestedName(), suggestion.getId()));
         }
         
-        printPerformanceStats(startTime, layer1Time, layer2Time, layer25Time, layer3Time);
+        metrics.recordRequest(FALLBACK, cacheHit, snapshot.getVersion(), System.nanoTime() - startTime);
         return buildResult(14L, 0.30, "Fallback: Uncategorized");
     }
     
-    private void printPerformanceStats(long totalStart, long layer1Time, long layer2Time, long layer25Time, long layer3Time) {
-        long totalTime = System.currentTimeMillis() - totalStart;
-        System.out.println("\n--- Performance Stats ---");
-        System.out.println("Layer 1: " + layer1Time + "ms");
-        System.out.println("Layer 2: " + layer2Time + "ms");
-        System.out.println("Layer 2.5 (ML): " + layer25Time + "ms");
-        System.out.println("Layer 3: " + layer3Time + "ms");
-        System.out.println("Total: " + totalTime + "ms");
-        System.out.println("========== CATEGORIZATION END ==========\n");
+    /**
+     * Layers 1 - 2.5 through the shared result cache; computed[0] is set when this call ran them
+     */
+    private CategorizationResultCache.FastLayerOutcome fastLayers(String description, String normalized, Double amount,
+                                                                  ModelSnapshot snapshot, boolean[] computed) {
+        return resultCache.fastLayers(normalized, amount, snapshot.getVersion(), () -> {
+            computed[0] = true;
+            return categorizeByFastLayers(description, normalized, amount, snapshot);
+        });
+    }
+    
+    /**
+     * Layers 1 - 2.5 for one description, without side effects (the outcome is shared across users).
+     * Layer 2.5 gets no user: the enhanced features are not part of the prediction.
+     * Each layer that runs is timed as hit / fall_through / error; a Layer 2.5 error falls through.
+     */
+    CategorizationResultCache.FastLayerOutcome categorizeByFastLayers(String description, String normalized,
+                                                                      Double amount, ModelSnapshot snapshot) {
+        String version = snapshot.getVersion();
+        
+        // ===== LAYER 1: Rule-based Keyword Matching =====
+        long layer1Start = System.nanoTime();
+        Long categoryId;
+        try {
+            categoryId = matchByKeywords(normalized);
+        } catch (RuntimeException e) {
+            metrics.recordLayer(LAYER_1, CategorizationMetrics.OUTCOME_ERROR, version, System.nanoTime() - layer1Start);
+            throw e;
+        }
+        
+        if (categoryId != null) {
+            metrics.recordLayer(LAYER_1, CategorizationMetrics.OUTCOME_HIT, version, System.nanoTime() - layer1Start);
+            CategorizationResult result = buildResult(categoryId, 0.95, "Layer 1: Exact keyword match");
+            result.setModelVersion(version);
+            return CategorizationResultCache.FastLayerOutcome.accepted(LAYER_1, result);
+        }
+        metrics.recordLayer(LAYER_1, CategorizationMetrics.OUTCOME_FALL_THROUGH, version, System.nanoTime() - layer1Start);
+        
+        // ===== LAYER 2: Fuzzy Matching =====
+        long layer2Start = System.nanoTime();
+        CategorizationResult fuzzyResult;
+        try {
+            fuzzyResult = fuzzyMatchCategories(normalized);
+        } catch (RuntimeException e) {
+            metrics.recordLayer(LAYER_2, CategorizationMetrics.OUTCOME_ERROR, version, System.nanoTime() - layer2Start);
+            throw e;
+        }
+        
+        if (fuzzyResult != null && fuzzyResult.getConfidence() >= LAYER2_FUZZY_THRESHOLD) {
+            metrics.recordLayer(LAYER_2, CategorizationMetrics.OUTCOME_HIT, version, System.nanoTime() - layer2Start);
+            fuzzyResult.setModelVersion(version);
+            return CategorizationResultCache.FastLayerOutcome.accepted(LAYER_2, fuzzyResult);
+        }
+        metrics.recordLayer(LAYER_2, CategorizationMetrics.OUTCOME_FALL_THROUGH, version, System.nanoTime() - layer2Start);
+        
+        // ===== LAYER 2.5: ML-based Categorization with Enhanced Features =====
+        if (!snapshot.hasModel()) {
+            return CategorizationResultCache.FastLayerOutcome.residual();
+        }
+        long layer25Start = System.nanoTime();
+        CategorizationResult mlResult;
+        try {
+            mlResult = categorizeByEnhancedML(description, amount, null, snapshot);
+        } catch (RuntimeException e) {
+            metrics.recordLayer(LAYER_25, CategorizationMetrics.OUTCOME_ERROR, version, System.nanoTime() - layer25Start);
+            log.warn("Layer 2.5 prediction failed for '{}': {}", description, e.getMessage(), e);
+            return CategorizationResultCache.FastLayerOutcome.residual();
+        }
+        
+        if (mlResult != null && mlResult.getConfidence() >= LAYER25_ML_THRESHOLD) {
+            metrics.recordLayer(LAYER_25, CategorizationMetrics.OUTCOME_HIT, version, System.nanoTime() - layer25Start);
+            mlResult.setModelVersion(version);
+            return CategorizationResultCache.FastLayerOutcome.accepted(LAYER_25, mlResult);
+        }
+        metrics.recordLayer(LAYER_25, CategorizationMetrics.OUTCOME_FALL_THROUGH, version, System.nanoTime() - layer25Start);
+        if (mlResult != null) {
+            mlResult.setModelVersion(version);
+        }
+        return CategorizationResultCache.FastLayerOutcome.residual(mlResult);
     }
     
     /**
@@ -255,49 +334,48 @@ public class AICategorizationService {
     // ===== LAYER 2: Fuzzy Matching Methods =====
     
     /**
-     * Layer 2: Fuzzy match using comprehensive keyword lists with similarity scoring
+     * Layer 2: Fuzzy match using comprehensive keyword lists with similarity scoring.
+     * Only keywords within LAYER2_FUZZY_THRESHOLD are looked at (candidates come from the index).
      */
-    private CategorizationResult fuzzyMatchCategories(String normalized) {
-        // Define keyword lists for each category
-        Map<Long, List<String>> categoryKeywords = buildCategoryKeywordMap();
-        
-        Long bestCategoryId = null;
-        double bestSimilarity = 0.0;
-        String bestMatchedKeyword = null;
-        String bestMatchType = null;
-        
-        // Check each category's keywords
-        for (Map.Entry<Long, List<String>> entry : categoryKeywords.entrySet()) {
-            Long categoryId = entry.getKey();
-            List<String> keywords = entry.getValue();
-            
-            FuzzyMatchingService.MatchResult match = 
-                fuzzyMatchingService.findBestMatch(normalized, keywords, 0.60); // Lower threshold for finding matches
-            
-            if (match != null && match.getSimilarity() > bestSimilarity) {
-                bestSimilarity = match.getSimilarity();
-                bestCategoryId = categoryId;
-                bestMatchedKeyword = match.getKeyword();
-                bestMatchType = match.getMatchType();
-            }
+    CategorizationResult fuzzyMatchCategories(String normalized) {
+        if (normalized == null || normalized.isEmpty()) {
+            return null;
         }
         
-        if (bestCategoryId != null) {
-            System.out.println("[LAYER 2] Best match: category " + bestCategoryId + 
-                             ", keyword: '" + bestMatchedKeyword + 
-                             "', similarity: " + (bestSimilarity * 100) + "%" +
-                             ", type: " + bestMatchType);
+        FuzzyKeywordIndex index = fuzzyKeywordIndex;
+        if (index == null) {
+            index = rebuildFuzzyKeywordIndex();
+        }
+        
+        FuzzyKeywordIndex.Match match = index.find(fuzzyMatchingService.fullNormalize(normalized));
+        
+        if (match != null) {
+            log.trace("Layer 2 best match: category {}, keyword '{}', similarity {}, type {}",
+                match.getCategoryId(), match.getKeyword(), match.getSimilarity(), match.getMatchType());
             
             return buildResult(
-                bestCategoryId, 
-                bestSimilarity, 
-                "Layer 2: Fuzzy match (" + bestMatchType + ") - '" + bestMatchedKeyword + "'"
+                match.getCategoryId(), 
+                match.getSimilarity(), 
+                "Layer 2: Fuzzy match (" + match.getMatchType() + ") - '" + match.getKeyword() + "'"
             );
         }
         
         return null;
     }
     
+    /**
+     * Rebuild the Layer 2 keyword index from buildCategoryKeywordMap() (keywords normalized once
+     * with fullNormalize) and swap it in atomically. Call after the keyword lists or teencode map change.
+     */
+    public FuzzyKeywordIndex rebuildFuzzyKeywordIndex() {
+        FuzzyKeywordIndex index = new FuzzyKeywordIndex(
+            buildCategoryKeywordMap(), fuzzyMatchingService::fullNormalize, LAYER2_FUZZY_THRESHOLD
+        );
+        fuzzyKeywordIndex = index;
+        resultCache.invalidateAll();
+        return index;
+    }
+    
     // ===== LAYER 2.5: ML-based Categorization with Enhanced Features =====
     
     /**
@@ -305,66 +383,66 @@ public class AICategorizationService {
      * - Combines TF-IDF text features with amount/temporal/user context
      * - Applies confidence calibration to avoid overconfidence
      * - Flags uncertain predictions for human review
+     * Prediction errors propagate: callers count them and fall through to the next layer.
      */
-    private CategorizationResult categorizeByEnhancedML(String description, Double amount, Long userId) {
-        try {
-            // Extract enhanced features (future use - currently just using TF-IDF)
-            Map<String, Double> enhancedFeatures = featureExtractor.extractEnhancedFeatures(
-                description, 
-                amount != null ? java.math.BigDecimal.valueOf(amount) : java.math.BigDecimal.ZERO,
-                userId,
-                java.time.LocalDateTime.now()
-            );
-            
-            System.out.println("[LAYER 2.5] Enhanced features extracted: " + enhancedFeatures.size() + " features");
-            
-            // Get TF-IDF features
-            double[] tfidfVector = tfidfVectorizer.transform(description);
-            
-            // Predict with SVM
-            LinearSVMClassifier.PredictionResult prediction = svmModel.predictWithConfidence(tfidfVector);
-            
-            // Convert SVM class to category ID
-            long categoryId = (long) prediction.predictedClass;
-            
-            // Calibrate confidence
-            ConfidenceCalibrationService.CalibratedPrediction calibrated = 
-                confidenceCalibrator.calibrate(categoryId, prediction.scores, categoryNameMapping);
-            
-            double confidence = calibrated.getConfidence();
-            
-            System.out.println("[LAYER 2.5] Predicted category: " + categoryId + 
-                             ", Raw confidence: " + String.format("%.2f", prediction.confidence) +
-                             ", Calibrated: " + String.format("%.2f", confidence));
-            
-            // Check if needs human review
-            if (calibrated.isRequiresHumanReview()) {
-                System.out.println("[LAYER 2.5 WARNING] Low confidence, flagged for human review: " + 
-                                 calibrated.getExplanation());
-            }
-            
-            // Build explanation with alternatives
-            StringBuilder explanation = new StringBuilder("Layer 2.5: ML (SVM + Enhanced Features)");
-            if (!calibrated.getAlternativeSuggestions().isEmpty()) {
-                explanation.append(" | Alternatives: ");
-                for (int i = 0; i < calibrated.getAlternativeSuggestions().size(); i++) {
-                    ConfidenceCalibrationService.CategoryScore alt = calibrated.getAlternativeSuggestions().get(i);
-                    explanation.append("Cat").append(alt.categoryId).append("(")
-                              .append(String.format("%.0f%%", alt.score * 100))
-                              .append(")");
-                    if (i < calibrated.getAlternativeSuggestions().size() - 1) {
-                        explanation.append(", ");
-                    }
+    CategorizationResult categorizeByEnhancedML(String description, Double amount, Long userId,
+                                                        ModelSnapshot snapshot) {
+        if (!snapshot.hasModel()) {
+            return null;
+        }
+        TextVectorizer vectorizer = snapshot.getVectorizer();
+        LinearSVMClassifier svmModel = snapshot.getClassifier();
+        
+        // Extract enhanced features (future use - currently just using TF-IDF)
+        Map<String, Double> enhancedFeatures = featureExtractor.extractEnhancedFeatures(
+            description, 
+            amount != null ? java.math.BigDecimal.valueOf(amount) : java.math.BigDecimal.ZERO,
+            userId,
+            java.time.LocalDateTime.now()
+        );
+        
+        log.trace("Layer 2.5 enhanced features extracted: {}", enhancedFeatures.size());
+        
+        // Get text features (sparse: TF-IDF terms or hashed buckets present in the description)
+        SparseVector textVector = vectorizer.transformSparse(description);
+        
+        // Predict with SVM
+        LinearSVMClassifier.PredictionResult prediction = svmModel.predictWithConfidence(textVector);
+        
+        // Convert SVM class to category ID
+        long categoryId = (long) prediction.predictedClass;
+        
+        // Calibrate confidence
+        ConfidenceCalibrationService.CalibratedPrediction calibrated = 
+            confidenceCalibrator.calibrate(prediction.scores, svmModel.getClasses(), categoryNameMapping,
+                                           snapshot.getTemperature());
+        
+        double confidence = calibrated.getConfidence();
+        
+        log.trace("Layer 2.5 predicted category {}, raw confidence {}, calibrated {}",
+            categoryId, prediction.confidence, confidence);
+        
+        // Check if needs human review
+        if (calibrated.isRequiresHumanReview()) {
+            log.debug("Layer 2.5 low confidence, flagged for human review: {}", calibrated.getExplanation());
+        }
+        
+        // Build explanation with alternatives
+        StringBuilder explanation = new StringBuilder("Layer 2.5: ML (SVM + Enhanced Features)");
+        if (!calibrated.getAlternativeSuggestions().isEmpty()) {
+            explanation.append(" | Alternatives: ");
+            for (int i = 0; i < calibrated.getAlternativeSuggestions().size(); i++) {
+                ConfidenceCalibrationService.CategoryScore alt = calibrated.getAlternativeSuggestions().get(i);
+                explanation.append("Cat").append(alt.categoryId).append("(")
+                          .append(String.format("%.0f%%", alt.score * 100))
+                          .append(")");
+                if (i < calibrated.getAlternativeSuggestions().size() - 1) {
+                    explanation.append(", ");
                 }
             }
-            
-            return buildResult(categoryId, confidence, explanation.toString());
-            
-        } catch (Exception e) {
-            System.err.println("[LAYER 2.5 ERROR] ML prediction failed: " + e.getMessage());
-            e.printStackTrace();
-            return null;
         }
+        
+        return buildResult(categoryId, confidence, explanation.toString());
     }
     
     /**
@@ -493,7 +571,7 @@ public class AICategorizationService {
     
     // ===== HELPER: Build result =====
     
-    private CategorizationResult buildResult(Long categoryId, double confidence, String reason) {
+    CategorizationResult buildResult(Long categoryId, double confidence, String reason) {
         String categoryName = categoryNameMapping.getOrDefault(categoryId, "Unknown");
         
         return new CategorizationResult(
@@ -541,31 +619,10 @@ public class AICategorizationService {
         return null;
     }
     
-    private void saveUserPreference(Long userId, String normalized, Long categoryId) {
-        try {
-            Optional<UserCategorizationPreference> existing = 
-                userPrefRepository.findByUserIdAndDescriptionPattern(userId, normalized);
-            
-            if (existing.isPresent()) {
-                // Update existing preference
-                UserCategorizationPreference pref = existing.get();
-                pref.setFrequency(pref.getFrequency() + 1);
-                pref.setLastUsed(LocalDateTime.now());
-                pref.setCategoryId(categoryId);
-                userPrefRepository.save(pref);
-            } else {
-                // Create new preference
-                UserCategorizationPreference newPref = new UserCategorizationPreference();
-                newPref.setUserId(userId);
-                newPref.setDescriptionPattern(normalized);
-                newPref.setCategoryId(categoryId);
-                newPref.setFrequency(1);
-                newPref.setLastUsed(LocalDateTime.now());
-                userPrefRepository.save(newPref);
-            }
-        } catch (Exception e) {
-            System.err.println("Failed to save user preference: " + e.getMessage());
-        }
+    void saveUserPreference(Long userId, String normalized, Long categoryId) {
+        userPatternCache.learn(userId, normalized, categoryId);
+        // Coalesced per (user, pattern) and upserted in batches
+        preferenceWriter.record(userId, normalized, categoryId);
     }
     
     // ===== LAYER 1: SVM Helper Methods =====
@@ -627,122 +684,131 @@ public class AICategorizationService {
     
     // ===== LAYER 1: Keyword Matching Methods =====
     
-    private Long matchByKeywords(String normalized) {
-        System.out.println("[LAYER 1 DEBUG] Testing normalized: '" + normalized + "'");
+    Long matchByKeywords(String normalized) {
+        KeywordAutomaton.MatchResult match = keywordAutomaton.match(normalized);
         
-        // Category 1: Lương (Salary)
-        if (normalized.matches(".*\\b(luong|salary|wage|tien luong|nhan luong|thuong|bonus)\\b.*")) {
-            System.out.println("[LAYER 1 DEBUG] Matched Category 1 (Lương)");
-            return 1L;
+        if (match.isMatched() && log.isTraceEnabled()) {
+            StringBuilder hits = new StringBuilder();
+            for (KeywordAutomaton.Hit hit : match.getHits()) {
+                hits.append(String.format("'%s'@%d-%d→Cat%d ", hit.keyword, hit.start, hit.end, hit.categoryId));
+            }
+            log.trace("Layer 1 matched category {} ({}), hits: {}",
+                match.getCategoryId(), categoryNameMapping.get(match.getCategoryId()), hits.toString().trim());
         }
         
+        // Category 14: Khác (Other) - catch-all
+        // Will be handled by fallback in main logic
+        
+        return match.getCategoryId(); // null = no match
+    }
+    
+    /**
+     * Layer 1 keyword rules, in priority order (first category with a whole-word hit wins).
+     * Compiled once into a single Aho-Corasick automaton instead of one regex per category.
+     */
+    private static Map<Long, List<String>> buildLayer1KeywordMap() {
+        Map<Long, List<String>> map = new LinkedHashMap<>();
+        
+        // Category 1: Lương (Salary)
+        map.put(1L, Arrays.asList("luong", "salary", "wage", "tien luong", "nhan luong", "thuong", "bonus"));
+        
         // Category 2: Thu nhập khác (Other income)
-        if (normalized.matches(".*\\b(thu nhap|income|lai|dividend|hoa hong|commission|loi nhuan|profit)\\b.*")) {
-            System.out.println("[LAYER 1 DEBUG] Matched Category 2 (Thu nhập khác)");
-            return 2L;
-        }
+        map.put(2L, Arrays.asList("thu nhap", "income", "lai", "dividend", "hoa hong", "commission", 
+                                   "loi nhuan", "profit"));
         
         // Category 3: Đầu tư (Investment)
-        if (normalized.matches(".*\\b(dau tu|invest|co phieu|stock|chung khoan|quy|fund|trai phieu|bond|crypto|bitcoin)\\b.*")) {
-            System.out.println("[LAYER 1 DEBUG] Matched Category 3 (Đầu tư)");
-            return 3L;
-        }
+        map.put(3L, Arrays.asList("dau tu", "invest", "co phieu", "stock", "chung khoan", "quy", "fund", 
+                                   "trai phieu", "bond", "crypto", "bitcoin"));
         
         // Category 4: Kinh doanh (Business)
-        if (normalized.matches(".*\\b(kinh doanh|business|doanh thu|revenue|ban hang|sales|cung cap|supplier|khach hang|customer)\\b.*")) {
-            System.out.println("[LAYER 1 DEBUG] Matched Category 4 (Kinh doanh)");
-            return 4L;
-        }
-        
-        // Category 5: Ăn uống (Food & Beverage) - EXPANDED with word boundaries
-        if (normalized.matches(".*\\b(com|an|cafe|ca phe|tra|pho|bun|quan an|nha hang|buffet|mi|banh|nuong|lau|" +
-                               "food|drink|restaurant|breakfast|lunch|dinner|snack|" +
-                               "ship do an|grab food|shopeefood|gofood|now|baemin|" +
-                               "highlands|starbucks|phuc long|kfc|lotteria|jollibee|pizza|burger)\\b.*")) {
-            System.out.println("[LAYER 1 DEBUG] Matched Category 5 (Ăn uống)");
-            return 5L;
-        }
-        
-        // Category 6: Giao thông (Transportation) - EXPANDED with word boundaries
-        if (normalized.matches(".*\\b(xe|grab|be|taxi|xe om|xe buyt|xang|dau|sua xe|bao duong|" +
-                               "transport|bus|motorbike|car|fuel|petrol|gas|parking|ve|" +
-                               "grab bike|grab car|be bike|be car|gojek|uber|" +
-                               "ve xe|ve may bay|flight|ticket|airport|san bay)\\b.*")) {
-            return 6L;
-        }
-        
-        // Category 7: Giải trí (Entertainment) - EXPANDED with word boundaries
-        if (normalized.matches(".*\\b(phim|game|karaoke|bar|pub|club|party|du lich|travel|" +
-                               "entertainment|movie|cinema|concert|show|event|" +
-                               "netflix|spotify|steam|playstation|xbox|nintendo|" +
-                               "cgv|lotte|galaxy|beta|bhd|" +
-                               "resort|khach san|hotel|tour|visa|passport)\\b.*")) {
-            return 7L;
-        }
-        
-        // Category 8: Sức khỏe (Health & Fitness) - EXPANDED with word boundaries
-        if (normalized.matches(".*\\b(benh|thuoc|bac si|kham|nha thuoc|benh vien|" +
-                               "vot|bong|gym|yoga|the thao|chay bo|boi|cau long|tennis|bi da|" +
-                               "health|medicine|doctor|hospital|pharmacy|clinic|" +
-                               "sport|fitness|workout|exercise|" +
-                               "california|tgym|jetts|elite|" +
-                               "xet nghiem|test|vaccine|tiem|kham benh|chua benh|" +
-                               "vitamin|thuc pham chuc nang|supplement)\\b.*")) {
-            return 8L;
-        }
-        
-        // Category 9: Giáo dục (Education) - EXPANDED with word boundaries
-        if (normalized.matches(".*\\b(hoc|sach|khoa hoc|truong|giao vien|lop|thi|hoc phi|" +
-                               "education|school|university|course|class|tuition|" +
-                               "study|learn|book|textbook|notebook|pen|pencil|" +
-                               "udemy|coursera|skillshare|edx|" +
-                               "ielts|toeic|toefl|english|tieng anh|" +
-                               "hoc online|e-learning)\\b.*")) {
-            return 9L;
-        }
-        
-        // Category 10: Mua sắm (Shopping) - EXPANDED with word boundaries
-        if (normalized.matches(".*\\b(mua|ao|quan|giay|dep|tui|mi|son|my pham|" +
-                               "shopping|buy|purchase|clothes|shoes|bag|cosmetics|" +
-                               "shopee|lazada|tiki|sendo|" +
-                               "thoi trang|fashion|uniqlo|zara|h&m|" +
-                               "dien thoai|phone|laptop|may tinh|tablet|" +
-                               "do dung|furniture|noi that|" +
-                               "do choi|toy|game console)\\b.*")) {
-            return 10L;
-        }
-        
-        // Category 11: Tiện ích (Bills & Utilities) - EXPANDED with word boundaries
-        if (normalized.matches(".*\\b(dien|nuoc|internet|tien nha|wifi|gas|" +
-                               "bill|utility|electricity|water|rent|" +
-                               "fpt|vnpt|viettel|mobifone|vinaphone|" +
-                               "dien luc|evn|" +
-                               "rac|ve sinh|garbage|" +
-                               "bao hiem|insurance|phi|fee)\\b.*")) {
-            return 11L;
-        }
-        
-        // Category 12: Vay nợ (Debt & Loan) - EXPANDED with word boundaries
-        if (normalized.matches(".*\\b(vay|no|debt|loan|credit|tra no|pay debt|" +
-                               "lai suat|interest|the tin dung|credit card|" +
-                               "bank|ngan hang|tpbank|vietcombank|techcombank|mb|acb|" +
-                               "tien ich|momo|zalopay|vnpay|shopeepay|" +
-                               "ky quy|installment|tra gop)\\b.*")) {
-            return 12L;
-        }
-        
-        // Category 13: Quà tặng (Gifts) - EXPANDED with word boundaries
-        if (normalized.matches(".*\\b(qua|tang|sinh nhat|tet|le|hoi|" +
-                               "gift|present|birthday|wedding|anniversary|" +
-                               "mung|celebrate|tiec|party|" +
-                               "hoa|flower|banh|cake|chocolate)\\b.*")) {
-            return 13L;
-        }
+        map.put(4L, Arrays.asList("kinh doanh", "business", "doanh thu", "revenue", "ban hang", "sales", 
+                                   "cung cap", "supplier", "khach hang", "customer"));
         
-        // Category 14: Khác (Other) - catch-all
-        // Will be handled by fallback in main logic
+        // Category 5: Ăn uống (Food & Beverage)
+        map.put(5L, Arrays.asList(
+            "com", "an", "cafe", "ca phe", "tra", "pho", "bun", "quan an", "nha hang", "buffet", "mi", "banh", "nuong", "lau",
+            "food", "drink", "restaurant", "breakfast", "lunch", "dinner", "snack",
+            "ship do an", "grab food", "shopeefood", "gofood", "now", "baemin",
+            "highlands", "starbucks", "phuc long", "kfc", "lotteria", "jollibee", "pizza", "burger"
+        ));
+        
+        // Category 6: Giao thông (Transportation)
+        map.put(6L, Arrays.asList(
+            "xe", "grab", "be", "taxi", "xe om", "xe buyt", "xang", "dau", "sua xe", "bao duong",
+            "transport", "bus", "motorbike", "car", "fuel", "petrol", "gas", "parking", "ve",
+            "grab bike", "grab car", "be bike", "be car", "gojek", "uber",
+            "ve xe", "ve may bay", "flight", "ticket", "airport", "san bay"
+        ));
+        
+        // Category 7: Giải trí (Entertainment)
+        map.put(7L, Arrays.asList(
+            "phim", "game", "karaoke", "bar", "pub", "club", "party", "du lich", "travel",
+            "entertainment", "movie", "cinema", "concert", "show", "event",
+            "netflix", "spotify", "steam", "playstation", "xbox", "nintendo",
+            "cgv", "lotte", "galaxy", "beta", "bhd",
+            "resort", "khach san", "hotel", "tour", "visa", "passport"
+        ));
         
-        return null; // No match
+        // Category 8: Sức khỏe (Health & Fitness)
+        map.put(8L, Arrays.asList(
+            "benh", "thuoc", "bac si", "kham", "nha thuoc", "benh vien",
+            "vot", "bong", "gym", "yoga", "the thao", "chay bo", "boi", "cau long", "tennis", "bi da",
+            "health", "medicine", "doctor", "hospital", "pharmacy", "clinic",
+            "sport", "fitness", "workout", "exercise",
+            "california", "tgym", "jetts", "elite",
+            "xet nghiem", "test", "vaccine", "tiem", "kham benh", "chua benh",
+            "vitamin", "thuc pham chuc nang", "supplement"
+        ));
+        
+        // Category 9: Giáo dục (Education)
+        map.put(9L, Arrays.asList(
+            "hoc", "sach", "khoa hoc", "truong", "giao vien", "lop", "thi", "hoc phi",
+            "education", "school", "university", "course", "class", "tuition",
+            "study", "learn", "book", "textbook", "notebook", "pen", "pencil",
+            "udemy", "coursera", "skillshare", "edx",
+            "ielts", "toeic", "toefl", "english", "tieng anh",
+            "hoc online", "e-learning"
+        ));
+        
+        // Category 10: Mua sắm (Shopping)
+        map.put(10L, Arrays.asList(
+            "mua", "ao", "quan", "giay", "dep", "tui", "mi", "son", "my pham",
+            "shopping", "buy", "purchase", "clothes", "shoes", "bag", "cosmetics",
+            "shopee", "lazada", "tiki", "sendo",
+            "thoi trang", "fashion", "uniqlo", "zara", "h&m",
+            "dien thoai", "phone", "laptop", "may tinh", "tablet",
+            "do dung", "furniture", "noi that",
+            "do choi", "toy", "game console"
+        ));
+        
+        // Category 11: Tiện ích (Bills & Utilities)
+        map.put(11L, Arrays.asList(
+            "dien", "nuoc", "internet", "tien nha", "wifi", "gas",
+            "bill", "utility", "electricity", "water", "rent",
+            "fpt", "vnpt", "viettel", "mobifone", "vinaphone",
+            "dien luc", "evn",
+            "rac", "ve sinh", "garbage",
+            "bao hiem", "insurance", "phi", "fee"
+        ));
+        
+        // Category 12: Vay nợ (Debt & Loan)
+        map.put(12L, Arrays.asList(
+            "vay", "no", "debt", "loan", "credit", "tra no", "pay debt",
+            "lai suat", "interest", "the tin dung", "credit card",
+            "bank", "ngan hang", "tpbank", "vietcombank", "techcombank", "mb", "acb",
+            "tien ich", "momo", "zalopay", "vnpay", "shopeepay",
+            "ky quy", "installment", "tra gop"
+        ));
+        
+        // Category 13: Quà tặng (Gifts)
+        map.put(13L, Arrays.asList(
+            "qua", "tang", "sinh nhat", "tet", "le", "hoi",
+            "gift", "present", "birthday", "wedding", "anniversary",
+            "mung", "celebrate", "tiec", "party",
+            "hoa", "flower", "banh", "cake", "chocolate"
+        ));
+        
+        return map;
     }
     
     @SuppressWarnings("unused")
@@ -788,18 +854,79 @@ public class AICategorizationService {
     }
     
     /**
-     * Supervised LLM categorization with strict output format
+     * Supervised LLM categorization with strict output format.
+     * Timed as a Layer 3 hit, or fall_through when it ends at "Insufficient confidence".
      */
-    private CategorizationResult categorizeBySupervisedLLM(String description) {
-        System.out.println("[DEBUG] Layer 3 - Hybrid Multi-Signal Analysis for: " + description);
-        
+    CategorizationResult categorizeBySupervisedLLM(String description, Long userId, String modelVersion) {
+        long start = System.nanoTime();
+        try {
+            CategorizationResult result = scoreLayer3(description, userId);
+            if (result != null) {
+                metrics.recordLayer(LAYER_3, CategorizationMetrics.OUTCOME_HIT, modelVersion, System.nanoTime() - start);
+                return result;
+            }
+            metrics.recordLayer(LAYER_3, CategorizationMetrics.OUTCOME_FALL_THROUGH, modelVersion, System.nanoTime() - start);
+            return buildResult(14L, 0.30, "Layer 3: Insufficient confidence");
+        } catch (RuntimeException e) {
+            metrics.recordLayer(LAYER_3, CategorizationMetrics.OUTCOME_ERROR, modelVersion, System.nanoTime() - start);
+            throw e;
+        }
+    }
+    
+    /**
+     * Layer 3 weighted vote over signals 1 - 5, null when no category reaches 0.40
+     */
+    private CategorizationResult scoreLayer3(String description, Long userId) {
         String normalized = fuzzyMatchingService.fullNormalize(description);
         
+        // Signals 1 - 4 only depend on the text: shared across users
+        Map<Long, Double> sharedScores = resultCache.layer3Scores(normalized, () -> scoreSharedSignals(normalized));
+        
         // Multi-signal scoring với weighted voting
         Map<Long, Double> categoryScores = new HashMap<>();
+        for (Map.Entry<Long, Double> entry : sharedScores.entrySet()) {
+            categoryScores.merge(entry.getKey(), entry.getValue(), Double::sum);
+        }
+        
+        // Signal 5: User history learning (weight: 0.05)
+        Map<Long, Double> historyScores = scoreUserHistory(userId, description);
+        for (Map.Entry<Long, Double> entry : historyScores.entrySet()) {
+            categoryScores.merge(entry.getKey(), entry.getValue() * 0.05, Double::sum);
+        }
+        
+        // Find best category by weighted score
+        Long bestCategory = null;
+        double bestScore = 0.0;
+        
+        for (Map.Entry<Long, Double> entry : categoryScores.entrySet()) {
+            if (entry.getValue() > bestScore) {
+                bestScore = entry.getValue();
+                bestCategory = entry.getKey();
+            }
+        }
+        
+        if (bestCategory != null && bestScore >= 0.40) {
+            // The score breakdown is part of the reasoning, only built for a winner
+            StringBuilder signalDetails = new StringBuilder();
+            for (Map.Entry<Long, Double> entry : categoryScores.entrySet()) {
+                signalDetails.append(String.format("Cat%d:%.2f ", entry.getKey(), entry.getValue()));
+            }
+            return buildResult(bestCategory, Math.min(0.85, bestScore), "Layer 3: Hybrid multi-signal (" + signalDetails.toString().trim() + ")");
+        }
+        
+        log.trace("Layer 3 insufficient confidence for '{}' (max score {})", description, bestScore);
+        return null;
+    }
+    
+    /**
+     * Layer 3 signals 1 - 4 (weights applied, summed per category in signal order)
+     */
+    private Map<Long, Double> scoreSharedSignals(String normalized) {
+        CategorySignalIndex index = signalIndex; // one consistent snapshot per request
+        Map<Long, Double> categoryScores = new HashMap<>();
         
         // Signal 1: Brand-aware pattern matching (weight: 0.35)
-        Map<Long, Double> brandScores = scoreBrandMatching(normalized);
+        Map<Long, Double> brandScores = scoreBrandMatching(index, normalized);
         for (Map.Entry<Long, Double> entry : brandScores.entrySet()) {
             categoryScores.merge(entry.getKey(), entry.getValue() * 0.35, Double::sum);
         }
@@ -811,68 +938,71 @@ public class AICategorizationService {
         }
         
         // Signal 3: N-gram similarity (weight: 0.20)
-        Map<Long, Double> ngramScores = scoreNGramSimilarity(normalized);
+        Map<Long, Double> ngramScores = scoreNGramSimilarity(index, normalized);
         for (Map.Entry<Long, Double> entry : ngramScores.entrySet()) {
             categoryScores.merge(entry.getKey(), entry.getValue() * 0.20, Double::sum);
         }
         
         // Signal 4: TF-IDF semantic similarity (weight: 0.15)
-        Map<Long, Double> tfidfScores = scoreTFIDFSimilarity(normalized);
+        Map<Long, Double> tfidfScores = scoreTFIDFSimilarity(index, normalized);
         for (Map.Entry<Long, Double> entry : tfidfScores.entrySet()) {
             categoryScores.merge(entry.getKey(), entry.getValue() * 0.15, Double::sum);
         }
         
-        // Signal 5: User history learning (weight: 0.05)
-        Map<Long, Double> historyScores = scoreUserHistory(normalized);
-        for (Map.Entry<Long, Double> entry : historyScores.entrySet()) {
-            categoryScores.merge(entry.getKey(), entry.getValue() * 0.05, Double::sum);
-        }
-        
-        // Find best category by weighted score
-        Long bestCategory = null;
-        double bestScore = 0.0;
-        StringBuilder signalDetails = new StringBuilder();
-        
-        for (Map.Entry<Long, Double> entry : categoryScores.entrySet()) {
-            if (entry.getValue() > bestScore) {
-                bestScore = entry.getValue();
-                bestCategory = entry.getKey();
-            }
-            signalDetails.append(String.format("Cat%d:%.2f ", entry.getKey(), entry.getValue()));
+        return categoryScores;
+    }
+    
+    /**
+     * Categories changed: rebuild the Layer 2 keyword index and the Layer 3 signal tables
+     */
+    public void rebuildCategoryIndexes() {
+        rebuildFuzzyKeywordIndex();
+        rebuildSignalIndex();
+    }
+    
+    /**
+     * Rebuild the Layer 3 signal tables and swap them in atomically.
+     * Only categories that are still active in the database keep their signals.
+     */
+    public void rebuildSignalIndex() {
+        Set<Long> activeCategoryIds = null;
+        try {
+            activeCategoryIds = categoryRepository.findAll().stream()
+                .filter(c -> c.getIsActive() == null || c.getIsActive())
+                .map(Category::getId)
+                .collect(Collectors.toSet());
+        } catch (Exception e) {
+            log.warn("Layer 3: could not load categories, keeping all signals: {}", e.getMessage());
         }
         
-        System.out.println("[DEBUG] Layer 3 scores: " + signalDetails.toString());
-        
-        if (bestCategory != null && bestScore >= 0.40) {
-            System.out.println("[DEBUG] Layer 3 winner: Category " + bestCategory + " (score: " + String.format("%.2f", bestScore) + ")");
-            
-            // Cache vào user history để học
-            cacheUserPattern(normalized, bestCategory);
-            
-            return buildResult(bestCategory, Math.min(0.85, bestScore), "Layer 3: Hybrid multi-signal (" + signalDetails.toString().trim() + ")");
+        signalIndex = buildSignalIndex(activeCategoryIds);
+        resultCache.invalidateAll();
+    }
+    
+    private CategorySignalIndex buildSignalIndex(Set<Long> activeCategoryIds) {
+        return new CategorySignalIndex(
+            onlyActive(buildBrandPatternMap(), activeCategoryIds),
+            onlyActive(buildNGramExamples(), activeCategoryIds),
+            onlyActive(buildCategoryDocuments(), activeCategoryIds)
+        );
+    }
+    
+    private Map<Long, List<String>> onlyActive(Map<Long, List<String>> map, Set<Long> activeCategoryIds) {
+        if (activeCategoryIds == null || activeCategoryIds.isEmpty()) {
+            return map;
         }
-        
-        System.out.println("[DEBUG] Layer 3 fallback to Category 14 (max score: " + String.format("%.2f", bestScore) + ")");
-        return buildResult(14L, 0.30, "Layer 3: Insufficient confidence");
+        map.keySet().retainAll(activeCategoryIds);
+        return map;
     }
     
     // ========== SIGNAL 1: Brand-aware Pattern Matching ==========
-    private Map<Long, Double> scoreBrandMatching(String normalized) {
+    private Map<Long, Double> scoreBrandMatching(CategorySignalIndex index, String normalized) {
         Map<Long, Double> scores = new HashMap<>();
-        Map<Long, List<String>> brandPatterns = buildBrandPatternMap();
         
-        for (Map.Entry<Long, List<String>> entry : brandPatterns.entrySet()) {
-            Long categoryId = entry.getKey();
-            List<String> patterns = entry.getValue();
-            
-            for (String pattern : patterns) {
-                if (normalized.contains(pattern)) {
-                    // Exact brand match = high confidence
-                    scores.merge(categoryId, 1.0, Double::max);
-                    System.out.println("[SIGNAL 1] Brand match: '" + pattern + "' → Cat" + categoryId);
-                    break;
-                }
-            }
+        for (Map.Entry<Long, String> match : index.matchBrands(normalized).entrySet()) {
+            // Exact brand match = high confidence
+            scores.put(match.getKey(), 1.0);
+            log.trace("Signal 1 brand match '{}' -> Cat{}", match.getValue(), match.getKey());
         }
         
         return scores;
@@ -932,71 +1062,61 @@ public class AICategorizationService {
     }
     
     // ========== SIGNAL 2: Context-based Inference ==========
+    private static final Pattern MODEL_NUMBER_PATTERN = Pattern.compile(".*\\d{3,4}z?.*");
+    private static final Pattern TOY_PATTERN = Pattern.compile(".*\\b(model|mo hinh|do choi)\\b.*");
+    private static final Pattern TRANSPORT_PATTERN = Pattern.compile(".*\\b(bike|xe|ve nha|di chuyen|taxi)\\b.*");
+    private static final Pattern CLOTHING_PATTERN = Pattern.compile(".*\\b(quan|ao|shirt|dress|jeans)\\b.*");
+    
     private Map<Long, Double> scoreContextInference(String normalized) {
         Map<Long, Double> scores = new HashMap<>();
         
         // Sports equipment inference (vợt + model number)
         if ((normalized.contains("vot") || normalized.contains("racket")) && 
             (normalized.contains("cau long") || normalized.contains("badminton") || 
-             normalized.contains("tennis") || normalized.matches(".*\\d{3,4}z?.*"))) {
+             normalized.contains("tennis") || MODEL_NUMBER_PATTERN.matcher(normalized).matches())) {
             scores.put(8L, 0.90);
-            System.out.println("[SIGNAL 2] Context: Sports equipment → Cat8");
         }
         
         // Restaurant/food inference
         if ((normalized.contains("chicken") || normalized.contains("ga")) && 
             !normalized.contains("rau") && !normalized.contains("canh")) {
             scores.put(5L, 0.80);
-            System.out.println("[SIGNAL 2] Context: Food/chicken → Cat5");
         }
         
         // Toy/model inference
-        if (normalized.matches(".*\\b(model|mo hinh|do choi)\\b.*")) {
+        if (TOY_PATTERN.matcher(normalized).matches()) {
             scores.put(10L, 0.85);
-            System.out.println("[SIGNAL 2] Context: Toy/model → Cat10");
         }
         
         // Transportation inference
-        if (normalized.matches(".*\\b(bike|xe|ve nha|di chuyen|taxi)\\b.*")) {
+        if (TRANSPORT_PATTERN.matcher(normalized).matches()) {
             scores.put(6L, 0.80);
-            System.out.println("[SIGNAL 2] Context: Transportation → Cat6");
         }
         
         // Clothing inference
-        if (normalized.matches(".*\\b(quan|ao|shirt|dress|jeans)\\b.*") &&
+        if (CLOTHING_PATTERN.matcher(normalized).matches() &&
             !normalized.contains("the thao")) {
             scores.put(10L, 0.75);
-            System.out.println("[SIGNAL 2] Context: Clothing → Cat10");
         }
         
         // Sports clothing/gear
         if (normalized.contains("the thao") || 
             (normalized.contains("giay") && (normalized.contains("chay") || normalized.contains("bong")))) {
             scores.put(8L, 0.85);
-            System.out.println("[SIGNAL 2] Context: Sports gear → Cat8");
         }
         
         return scores;
     }
     
     // ========== SIGNAL 3: N-gram Similarity ==========
-    private Map<Long, Double> scoreNGramSimilarity(String normalized) {
+    private Map<Long, Double> scoreNGramSimilarity(CategorySignalIndex index, String normalized) {
         Map<Long, Double> scores = new HashMap<>();
-        Map<Long, List<String>> ngramExamples = buildNGramExamples();
         
-        for (Map.Entry<Long, List<String>> entry : ngramExamples.entrySet()) {
-            Long categoryId = entry.getKey();
-            List<String> examples = entry.getValue();
-            
-            double maxSimilarity = 0.0;
-            for (String example : examples) {
-                double similarity = calculateNGramSimilarity(normalized, example);
-                maxSimilarity = Math.max(maxSimilarity, similarity);
-            }
-            
+        for (Map.Entry<Long, Double> entry : index.scoreNGrams(normalized).entrySet()) {
+            double maxSimilarity = entry.getValue();
             if (maxSimilarity > 0.5) {
-                scores.put(categoryId, maxSimilarity);
-                System.out.println("[SIGNAL 3] N-gram similarity → Cat" + categoryId + " (" + String.format("%.2f", maxSimilarity) + ")");
+                scores.put(entry.getKey(), maxSimilarity);
+                log.trace("Signal 3 n-gram similarity -> Cat{} ({})", entry.getKey(), maxSimilarity);
             }
         }
         
@@ -1017,55 +1137,15 @@ public class AICategorizationService {
         return map;
     }
     
-    private double calculateNGramSimilarity(String s1, String s2) {
-        Set<String> bigrams1 = extractBigrams(s1);
-        Set<String> bigrams2 = extractBigrams(s2);
-        
-        if (bigrams1.isEmpty() && bigrams2.isEmpty()) {
-            return 0.0;
-        }
-        
-        Set<String> intersection = new HashSet<>(bigrams1);
-        intersection.retainAll(bigrams2);
-        
-        Set<String> union = new HashSet<>(bigrams1);
-        union.addAll(bigrams2);
-        
-        return union.isEmpty() ? 0.0 : (double) intersection.size() / union.size();
-    }
-    
-    private Set<String> extractBigrams(String text) {
-        Set<String> bigrams = new HashSet<>();
-        String[] words = text.split("\\s+");
-        
-        for (int i = 0; i < words.length - 1; i++) {
-            bigrams.add(words[i] + " " + words[i + 1]);
-        }
-        
-        return bigrams;
-    }
-    
     // ========== SIGNAL 4: TF-IDF Semantic Similarity ==========
-    private Map<Long, Double> scoreTFIDFSimilarity(String normalized) {
+    private Map<Long, Double> scoreTFIDFSimilarity(CategorySignalIndex index, String normalized) {
         Map<Long, Double> scores = new HashMap<>();
-        Map<Long, List<String>> categoryDocuments = buildCategoryDocuments();
-        
-        // Calculate TF-IDF for input
-        Map<String, Double> inputTFIDF = calculateTFIDF(normalized, categoryDocuments);
         
-        for (Map.Entry<Long, List<String>> entry : categoryDocuments.entrySet()) {
-            Long categoryId = entry.getKey();
-            double maxSimilarity = 0.0;
-            
-            for (String doc : entry.getValue()) {
-                Map<String, Double> docTFIDF = calculateTFIDF(doc, categoryDocuments);
-                double similarity = cosineSimilarity(inputTFIDF, docTFIDF);
-                maxSimilarity = Math.max(maxSimilarity, similarity);
-            }
-            
+        for (Map.Entry<Long, Double> entry : index.scoreTFIDF(normalized).entrySet()) {
+            double maxSimilarity = entry.getValue();
             if (maxSimilarity > 0.3) {
-                scores.put(categoryId, maxSimilarity);
-                System.out.println("[SIGNAL 4] TF-IDF similarity → Cat" + categoryId + " (" + String.format("%.2f", maxSimilarity) + ")");
+                scores.put(entry.getKey(), maxSimilarity);
+                log.trace("Signal 4 TF-IDF similarity -> Cat{} ({})", entry.getKey(), maxSimilarity);
             }
         }
         
@@ -1086,108 +1166,20 @@ public class AICategorizationService {
         return map;
     }
     
-    private Map<String, Double> calculateTFIDF(String text, Map<Long, List<String>> allDocuments) {
-        Map<String, Double> tfidf = new HashMap<>();
-        String[] words = text.split("\\s+");
-        
-        // TF calculation
-        Map<String, Integer> termFreq = new HashMap<>();
-        for (String word : words) {
-            if (word.length() > 2) { // Skip short words
-                termFreq.merge(word, 1, Integer::sum);
-            }
-        }
-        
-        // IDF calculation
-        int totalDocs = allDocuments.values().stream().mapToInt(List::size).sum();
-        
-        for (Map.Entry<String, Integer> entry : termFreq.entrySet()) {
-            String term = entry.getKey();
-            double tf = (double) entry.getValue() / words.length;
-            
-            int docCount = 0;
-            for (List<String> docs : allDocuments.values()) {
-                for (String doc : docs) {
-                    if (doc.contains(term)) {
-                        docCount++;
-                        break;
-                    }
-                }
-            }
-            
-            double idf = docCount > 0 ? Math.log((double) totalDocs / docCount) : 0.0;
-            tfidf.put(term, tf * idf);
-        }
-        
-        return tfidf;
-    }
-    
-    private double cosineSimilarity(Map<String, Double> vec1, Map<String, Double> vec2) {
-        if (vec1.isEmpty() || vec2.isEmpty()) {
-            return 0.0;
-        }
-        
-        double dotProduct = 0.0;
-        double norm1 = 0.0;
-        double norm2 = 0.0;
-        
-        Set<String> allTerms = new HashSet<>();
-        allTerms.addAll(vec1.keySet());
-        allTerms.addAll(vec2.keySet());
-        
-        for (String term : allTerms) {
-            double v1 = vec1.getOrDefault(term, 0.0);
-            double v2 = vec2.getOrDefault(term, 0.0);
-            
-            dotProduct += v1 * v2;
-            norm1 += v1 * v1;
-            norm2 += v2 * v2;
-        }
-        
-        return (norm1 > 0 && norm2 > 0) ? dotProduct / (Math.sqrt(norm1) * Math.sqrt(norm2)) : 0.0;
-    }
-    
     // ========== SIGNAL 5: User History Learning ==========
-    private static final Map<String, Long> userPatternCache = new ConcurrentHashMap<>();
-    private static final int MAX_CACHE_SIZE = 1000;
     
-    private Map<Long, Double> scoreUserHistory(String normalized) {
-        Map<Long, Double> scores = new HashMap<>();
-        
-        // Exact match trong cache
-        if (userPatternCache.containsKey(normalized)) {
-            Long categoryId = userPatternCache.get(normalized);
-            scores.put(categoryId, 1.0);
-            System.out.println("[SIGNAL 5] User history exact match → Cat" + categoryId);
-            return scores;
-        }
-        
-        // Fuzzy match với cached patterns
-        for (Map.Entry<String, Long> entry : userPatternCache.entrySet()) {
-            String cachedPattern = entry.getKey();
-            Long categoryId = entry.getValue();
-            
-            double similarity = fuzzyMatchingService.calculateSimilarity(normalized, cachedPattern);
-            if (similarity > 0.85) {
-                scores.merge(categoryId, similarity, Double::max);
-                System.out.println("[SIGNAL 5] User history fuzzy match (" + String.format("%.2f", similarity) + ") → Cat" + categoryId);
-            }
-        }
+    /**
+     * This user's own categorization history (patterns as stored in user_categorization_preferences,
+     * i.e. VietnameseTextNormalizer output): exact pattern hit, or fuzzy hits above 85% similarity.
+     * Learned through saveUserPreference(), so no history without a user.
+     */
+    private Map<Long, Double> scoreUserHistory(Long userId, String description) {
+        Map<Long, Double> scores = userPatternCache.score(userId, VietnameseTextNormalizer.normalize(description), 0.85);
         
+        log.trace("Signal 5 user history matches: {}", scores);
         return scores;
     }
     
-    private void cacheUserPattern(String normalized, Long categoryId) {
-        if (userPatternCache.size() >= MAX_CACHE_SIZE) {
-            // Remove oldest entry (simple eviction strategy)
-            String firstKey = userPatternCache.keySet().iterator().next();
-            userPatternCache.remove(firstKey);
-        }
-        
-        userPatternCache.put(normalized, categoryId);
-        System.out.println("[CACHE] Learned pattern: '" + normalized + "' → Cat" + categoryId);
-    }
-    
     /**
      * Generate spending insights từ transaction history
      */
@@ -1288,8 +1280,8 @@ public class AICategorizationService {
      * Learn from user transaction for model improvement
      */
     public void learnFromTransaction(Transaction transaction) {
-        System.out.println("Learning from transaction: " + transaction.getNote() 
-            + " -> " + (transaction.getCategory() != null ? transaction.getCategory().getName() : "Unknown"));
+        log.debug("Learning from transaction: {} -> {}", transaction.getNote(),
+            transaction.getCategory() != null ? transaction.getCategory().getName() : "Unknown");
     }
     
     // ===== PRIVATE HELPER METHODS =====
@@ -1644,6 +1636,8 @@ public class AICategorizationService {
         private double confidence;
         private List<Map<String, Object>> probabilities;  // Changed from List<CategorySuggestion>
         private String reasoning;
+        private String modelVersion;  // ModelSnapshot version active when this result was produced
+        private boolean provisional;  // Layers 1 - 2.5 guess, Layer 3 still to run
         
         public CategorizationResult(Long category, String categoryKey, String categoryName, 
                                   double confidence, List<Map<String, Object>> probabilities, 
@@ -1663,6 +1657,11 @@ public class AICategorizationService {
         public double getConfidence() { return confidence; }
         public List<Map<String, Object>> getSuggestions() { return probabilities; }
         public String getReasoning() { return reasoning; }
+        public String getModelVersion() { return modelVersion; }
+        public boolean isProvisional() { return provisional; }
+        
+        public void setModelVersion(String modelVersion) { this.modelVersion = modelVersion; }
+        public void setProvisional(boolean provisional) { this.provisional = provisional; }
     }
     
     public static class CategorySuggestion {
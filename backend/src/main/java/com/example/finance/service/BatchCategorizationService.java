@@ -0,0 +1,354 @@
+package com.example.finance.service;
+
+import com.example.finance.ml.ModelSnapshot;
+import com.example.finance.ml.VietnameseTextNormalizer;
+import com.example.finance.service.AICategorizationService.CategorizationResult;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Batch categorization engine (bank statement imports, /api/ai/categorize/batch)
+ * - Normalizes every description once and groups identical normalized text: each distinct
+ *   description runs the layers once, its result is shared by every item in the group
+ * - Layers 1 - 2.5 run for all groups in parallel on a bounded pool, through the same
+ *   CategorizationResultCache entries as single requests (AICategorizationService.categorizeByFastLayers)
+ * - Only the groups no fast layer accepted go to Layer 3, again in parallel, deduplicated on
+ *   Layer 3's own input (fullNormalize of the original text)
+ * - Same layers, thresholds and side effects (user preferences, category suggestions) as
+ *   AICategorizationService.categorizeExpense, with one model snapshot for the whole batch
+ *
+ * Results come back in input order, with per-layer counts and timings (Layers 1 - 2.5 timed as one step).
+ */
+@Service
+@Slf4j
+public class BatchCategorizationService {
+
+    public static final String LAYER_1 = AICategorizationService.LAYER_1;
+    public static final String LAYER_2 = AICategorizationService.LAYER_2;
+    public static final String LAYER_25 = AICategorizationService.LAYER_25;
+    public static final String LAYER_3 = AICategorizationService.LAYER_3;
+    public static final String FALLBACK = AICategorizationService.FALLBACK;
+
+    // Below this many groups per task, a task is not worth the handoff
+    private static final int MIN_TASK_SIZE = 8;
+
+    private final AICategorizationService aiCategorizationService;
+    private final ModelRegistryService modelRegistry;
+    private final CategorySuggestionService categorySuggestionService;
+    private final FuzzyMatchingService fuzzyMatchingService;
+    private final CategorizationResultCache resultCache;
+    private final int parallelism;
+    private final ThreadPoolExecutor executor;
+
+    public BatchCategorizationService(AICategorizationService aiCategorizationService,
+                                      ModelRegistryService modelRegistry,
+                                      CategorySuggestionService categorySuggestionService,
+                                      FuzzyMatchingService fuzzyMatchingService,
+                                      CategorizationResultCache resultCache,
+                                      @Value("${categorization.batch.parallelism:0}") int parallelism) {
+        this.aiCategorizationService = aiCategorizationService;
+        this.modelRegistry = modelRegistry;
+        this.categorySuggestionService = categorySuggestionService;
+        this.fuzzyMatchingService = fuzzyMatchingService;
+        this.resultCache = resultCache;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+
+        AtomicInteger threadCount = new AtomicInteger();
+        // Bounded queue + caller-runs: concurrent batches slow down their own request threads
+        // instead of queueing without limit
+        this.executor = new ThreadPoolExecutor(
+            this.parallelism, this.parallelism, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(this.parallelism * 16),
+            r -> {
+                Thread thread = new Thread(r, "batch-categorize-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.CallerRunsPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Categorize items in one pass. Items without a description get a null result (and a null layer).
+     * Identical descriptions share one CategorizationResult instance.
+     */
+    public BatchResult categorize(List<Item> items, Long userId) {
+        long start = System.nanoTime();
+        ModelSnapshot snapshot = modelRegistry.current();
+        int size = items.size();
+        CategorizationResult[] results = new CategorizationResult[size];
+        String[] layers = new String[size];
+
+        // ===== Normalize + group =====
+        Map<String, Group> groupsByText = new LinkedHashMap<>();
+        int skipped = 0;
+        for (int i = 0; i < size; i++) {
+            Item item = items.get(i);
+            if (item == null || item.getDescription() == null || item.getDescription().trim().isEmpty()) {
+                skipped++;
+                continue;
+            }
+            String normalized = VietnameseTextNormalizer.normalize(item.getDescription());
+            groupsByText.computeIfAbsent(normalized, text -> new Group(text, item)).members.add(i);
+        }
+        List<Group> groups = new ArrayList<>(groupsByText.values());
+        long normalizeNanos = System.nanoTime() - start;
+
+        // ===== Layers 1 - 2.5, all groups in parallel =====
+        LayerTimes times = new LayerTimes();
+        long fastStart = System.nanoTime();
+        runParallel(groups, group -> runFastLayers(group, snapshot, times));
+        long fastNanos = System.nanoTime() - fastStart;
+
+        // ===== Layer 3, residual groups only =====
+        List<Group> residual = new ArrayList<>();
+        for (Group group : groups) {
+            if (group.result == null) {
+                residual.add(group);
+            }
+        }
+        long layer3Start = System.nanoTime();
+        runParallel(residual, group -> runLayer3(group, items, userId, snapshot, times));
+        long layer3Nanos = System.nanoTime() - layer3Start;
+
+        // ===== Fan out in input order + side effects =====
+        Map<String, Integer> itemsPerLayer = new LinkedHashMap<>();
+        for (String layer : List.of(LAYER_1, LAYER_2, LAYER_25, LAYER_3, FALLBACK)) {
+            itemsPerLayer.put(layer, 0);
+        }
+        for (Group group : groups) {
+            for (int i = 0; i < group.members.size(); i++) {
+                int index = group.members.get(i);
+                CategorizationResult result = group.resultFor(i);
+                String layer = group.layerFor(i);
+                results[index] = result;
+                layers[index] = layer;
+                itemsPerLayer.merge(layer, 1, Integer::sum);
+                if (userId != null) {
+                    aiCategorizationService.saveUserPreference(userId, group.normalized, result.getCategory());
+                }
+            }
+        }
+        if (userId != null) {
+            suggestCategories(residual, userId);
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("items", size);
+        stats.put("skipped", skipped);
+        stats.put("distinctDescriptions", groups.size());
+        stats.put("layer3Evaluations", times.layer3Evaluations.sum());
+        stats.put("itemsPerLayer", itemsPerLayer);
+        stats.put("layerTimeMs", times.toMillis());
+        stats.put("normalizeMs", toMillis(normalizeNanos));
+        stats.put("fastLayersWallMs", toMillis(fastNanos));
+        stats.put("layer3WallMs", toMillis(layer3Nanos));
+        stats.put("totalMs", toMillis(System.nanoTime() - start));
+        stats.put("parallelism", parallelism);
+        stats.put("modelVersion", snapshot.getVersion());
+
+        log.info("Batch categorized {} items ({} distinct) in {} ms: {}",
+            size, groups.size(), stats.get("totalMs"), itemsPerLayer);
+        return new BatchResult(Arrays.asList(results), Arrays.asList(layers), stats);
+    }
+
+    /**
+     * Same cache entry and same computation as a single categorizeExpense() call, so batch and
+     * single requests warm each other and their answers cannot drift apart
+     */
+    private void runFastLayers(Group group, ModelSnapshot snapshot, LayerTimes times) {
+        long t0 = System.nanoTime();
+        CategorizationResultCache.FastLayerOutcome outcome = resultCache.fastLayers(
+            group.normalized, group.first.getAmount(), snapshot.getVersion(),
+            () -> aiCategorizationService.categorizeByFastLayers(
+                group.first.getDescription(), group.normalized, group.first.getAmount(), snapshot));
+        times.fastLayers.add(System.nanoTime() - t0);
+        if (!outcome.isResidual()) {
+            group.accept(outcome.getResult(), outcome.getLayer());
+        }
+    }
+
+    /**
+     * Layer 3 works on fullNormalize(original text), which can differ between members of one
+     * normalized group (punctuation, teencode): evaluate once per distinct Layer 3 input
+     */
+    private void runLayer3(Group group, List<Item> items, Long userId, ModelSnapshot snapshot, LayerTimes times) {
+        long t0 = System.nanoTime();
+        Map<String, CategorizationResult> byInput = new HashMap<>();
+        Map<String, String> layerByInput = new HashMap<>();
+        Map<String, String> descriptionByInput = new LinkedHashMap<>();
+        group.memberResults = new CategorizationResult[group.members.size()];
+        group.memberLayers = new String[group.members.size()];
+
+        for (int i = 0; i < group.members.size(); i++) {
+            String description = items.get(group.members.get(i)).getDescription();
+            String input = fuzzyMatchingService.fullNormalize(description);
+            CategorizationResult result = byInput.get(input);
+            if (result == null) {
+                result = aiCategorizationService.categorizeBySupervisedLLM(description, userId, snapshot.getVersion());
+                String layer = LAYER_3;
+                if (result == null) {
+                    result = aiCategorizationService.buildResult(14L, 0.30, "Fallback: Uncategorized");
+                    layer = FALLBACK;
+                }
+                result.setModelVersion(snapshot.getVersion());
+                byInput.put(input, result);
+                layerByInput.put(input, layer);
+                descriptionByInput.put(input, description);
+                times.layer3Evaluations.increment();
+            }
+            group.memberResults[i] = result;
+            group.memberLayers[i] = layerByInput.get(input);
+        }
+        group.layer3Inputs = descriptionByInput;
+        group.layer3Results = byInput;
+        times.layer3.add(System.nanoTime() - t0);
+    }
+
+    /**
+     * Same rule as the single-item path: suggest a new category when Layer 3 ends up at "Khác"
+     * (once per distinct Layer 3 input, not per item)
+     */
+    private void suggestCategories(List<Group> residual, Long userId) {
+        for (Group group : residual) {
+            group.layer3Inputs.forEach((input, description) -> {
+                if (Long.valueOf(14L).equals(group.layer3Results.get(input).getCategory())) {
+                    try {
+                        categorySuggestionService.analyzeAndSuggest(description, userId, "expense", 14L);
+                    } catch (RuntimeException e) {
+                        log.warn("Category suggestion failed for '{}': {}", description, e.getMessage());
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Run task over work in chunks on the pool; small inputs stay on the calling thread
+     */
+    private <T> void runParallel(List<T> work, Consumer<T> task) {
+        if (parallelism == 1 || work.size() < MIN_TASK_SIZE * 2) {
+            work.forEach(task);
+            return;
+        }
+        int chunkCount = Math.min(parallelism * 4, work.size() / MIN_TASK_SIZE);
+        int chunkSize = (work.size() + chunkCount - 1) / chunkCount;
+        List<CompletableFuture<Void>> futures = new ArrayList<>(chunkCount);
+        for (int from = 0; from < work.size(); from += chunkSize) {
+            List<T> chunk = work.subList(from, Math.min(from + chunkSize, work.size()));
+            futures.add(CompletableFuture.runAsync(() -> chunk.forEach(task), executor));
+        }
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static long toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    // === Inner Classes ===
+
+    public static class Item {
+        private final String description;
+        private final Double amount;
+
+        public Item(String description, Double amount) {
+            this.description = description;
+            this.amount = amount;
+        }
+
+        public String getDescription() { return description; }
+        public Double getAmount() { return amount; }
+    }
+
+    public static class BatchResult {
+        private final List<CategorizationResult> results;
+        private final List<String> layers;
+        private final Map<String, Object> stats;
+
+        public BatchResult(List<CategorizationResult> results, List<String> layers, Map<String, Object> stats) {
+            this.results = results;
+            this.layers = layers;
+            this.stats = stats;
+        }
+
+        public List<CategorizationResult> getResults() { return results; }
+        public List<String> getLayers() { return layers; }
+        public Map<String, Object> getStats() { return stats; }
+    }
+
+    /**
+     * Items sharing one normalized description. Written by exactly one task per phase;
+     * the join between phases publishes the writes.
+     */
+    private static final class Group {
+        final String normalized;
+        final Item first;
+        final List<Integer> members = new ArrayList<>();
+
+        // Set by Layers 1 - 2.5 (one result for the whole group)
+        CategorizationResult result;
+        String layer;
+
+        // Set by Layer 3 (per member, shared per distinct Layer 3 input)
+        CategorizationResult[] memberResults;
+        String[] memberLayers;
+        Map<String, String> layer3Inputs;
+        Map<String, CategorizationResult> layer3Results;
+
+        Group(String normalized, Item first) {
+            this.normalized = normalized;
+            this.first = first;
+        }
+
+        // Fast-layer results come from the shared cache with their model version set: never mutated here
+        void accept(CategorizationResult result, String layer) {
+            this.result = result;
+            this.layer = layer;
+        }
+
+        CategorizationResult resultFor(int member) {
+            return result != null ? result : memberResults[member];
+        }
+
+        String layerFor(int member) {
+            return result != null ? layer : memberLayers[member];
+        }
+    }
+
+    private static final class LayerTimes {
+        // Layers 1 - 2.5 including cache lookups (per-layer timers are in CategorizationMetrics)
+        final LongAdder fastLayers = new LongAdder();
+        final LongAdder layer3 = new LongAdder();
+        final LongAdder layer3Evaluations = new LongAdder();
+
+        /**
+         * Time spent inside each step, summed over all threads
+         */
+        Map<String, Long> toMillis() {
+            Map<String, Long> millis = new LinkedHashMap<>();
+            millis.put("fastLayers", BatchCategorizationService.toMillis(fastLayers.sum()));
+            millis.put(LAYER_3, BatchCategorizationService.toMillis(layer3.sum()));
+            return millis;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.example.finance.service;
 
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.beans.factory.annotation.Autowired;
 import com.example.finance.repository.*;
@@ -49,9 +50,8 @@ public class CachedDataService {
      */
     @Cacheable(value = "transactions", key = "#userId + '_recent_' + #limit")
     public List<Transaction> getRecentTransactions(Long userId, int limit) {
-        // This should be optimized with pagination
-        List<Transaction> transactions = transactionRepository.findByUserIdOrderByCreatedAtDesc(userId);
-        return transactions.stream().limit(limit).toList();
+        // TOP (limit) in the query instead of loading the whole history and limiting in memory
+        return transactionRepository.findRecentTransactionsByUserId(userId, PageRequest.of(0, limit));
     }
 
     /**
@@ -0,0 +1,75 @@
+package com.example.finance.service;
+
+import com.example.finance.ml.ModelSnapshot;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer meters of the categorization pipeline (exported at /actuator/prometheus)
+ * - categorization.layer{layer, outcome, model_version}: time spent in one layer; outcome is
+ *   hit (layer accepted), fall_through (passed on to the next layer) or error
+ * - categorization.request{resolved_by, cache, model_version}: whole categorizeExpense() call,
+ *   cache = hit when Layers 1 - 2.5 came from the shared result cache
+ * - categorization.cache.lookups{cache, result}: shared cache hit / miss / coalesced counts
+ *
+ * Timers publish percentile histograms. Meters are looked up once per tag combination.
+ * model_version is the base version (ModelSnapshot.baseVersion): online learning publishes a new
+ * "+online.N" version every few seconds, which would otherwise register a new set of histograms each time.
+ */
+@Component
+public class CategorizationMetrics {
+
+    public static final String OUTCOME_HIT = "hit";
+    public static final String OUTCOME_FALL_THROUGH = "fall_through";
+    public static final String OUTCOME_ERROR = "error";
+
+    private final MeterRegistry registry;
+    private final ConcurrentHashMap<String, Timer> timers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Counter> counters = new ConcurrentHashMap<>();
+
+    public CategorizationMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public void recordLayer(String layer, String outcome, String modelVersion, long nanos) {
+        String version = ModelSnapshot.baseVersion(modelVersion);
+        timers.computeIfAbsent("layer|" + layer + "|" + outcome + "|" + version, key ->
+            Timer.builder("categorization.layer")
+                .description("Time spent in one categorization layer")
+                .tag("layer", layer)
+                .tag("outcome", outcome)
+                .tag("model_version", version)
+                .publishPercentileHistogram()
+                .register(registry)
+        ).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordRequest(String resolvedBy, boolean cacheHit, String modelVersion, long nanos) {
+        String cache = cacheHit ? "hit" : "miss";
+        String version = ModelSnapshot.baseVersion(modelVersion);
+        timers.computeIfAbsent("request|" + resolvedBy + "|" + cache + "|" + version, key ->
+            Timer.builder("categorization.request")
+                .description("Categorization of one description, all layers")
+                .tag("resolved_by", resolvedBy)
+                .tag("cache", cache)
+                .tag("model_version", version)
+                .publishPercentileHistogram()
+                .register(registry)
+        ).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordCacheLookup(String cache, String result) {
+        counters.computeIfAbsent(cache + "|" + result, key ->
+            Counter.builder("categorization.cache.lookups")
+                .description("Shared categorization cache lookups")
+                .tag("cache", cache)
+                .tag("result", result)
+                .register(registry)
+        ).increment();
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.finance.service;
+
+import com.example.finance.service.AICategorizationService.CategorizationResult;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Shared (cross-user) memo of the categorization pipeline
+ * - "categorizationResults": Layers 1 - 2.5 outcome per (normalized text, amount bucket, model version).
+ *   A residual outcome (no fast layer accepted) is cached too, so repeats go straight to Layer 3
+ * - "layer3Scores": Layer 3 signals 1 - 4 per fullNormalize(text). The per-user signal is added
+ *   on top by the caller, so users still get their own history
+ * - Keys carry the model version and a generation bumped by invalidateAll() (keyword / category
+ *   changes): a result computed against an old model or keyword set is never served after a swap.
+ *   That includes each "+online.N" publish of OnlineLearningService, so the corrections take effect
+ *   at once; the entries of the replaced version age out by size / expiry
+ * - Concurrent misses on one key compute once; the other callers wait for that result
+ *
+ * Values are shared between callers and must not be modified.
+ */
+@Service
+public class CategorizationResultCache {
+
+    public static final String RESULTS_CACHE_NAME = "categorizationResults";
+    public static final String LAYER3_CACHE_NAME = "layer3Scores";
+
+    private final CacheManager cacheManager;
+    private final CategorizationMetrics metrics;
+    private final AsyncCache<ResultKey, FastLayerOutcome> results;
+    private final AsyncCache<Layer3Key, Map<Long, Double>> layer3Scores;
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder coalesced = new LongAdder();
+
+    public CategorizationResultCache(CacheManager cacheManager, CategorizationMetrics metrics,
+                                     @Value("${categorization.result-cache.max-results:50000}") long maxResults,
+                                     @Value("${categorization.result-cache.max-layer3:20000}") long maxLayer3,
+                                     @Value("${categorization.result-cache.expire-after-access-minutes:60}") long expireMinutes) {
+        this.cacheManager = cacheManager;
+        this.metrics = metrics;
+        // Values are computed by the caller; maintenance runs inline too instead of on the common pool
+        this.results = Caffeine.newBuilder()
+            .maximumSize(maxResults)
+            .expireAfterAccess(expireMinutes, TimeUnit.MINUTES)
+            .executor(Runnable::run)
+            .recordStats()
+            .buildAsync();
+        this.layer3Scores = Caffeine.newBuilder()
+            .maximumSize(maxLayer3)
+            .expireAfterAccess(expireMinutes, TimeUnit.MINUTES)
+            .executor(Runnable::run)
+            .recordStats()
+            .buildAsync();
+    }
+
+    @PostConstruct
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void registerCaches() {
+        if (cacheManager instanceof CaffeineCacheManager caffeineCacheManager) {
+            caffeineCacheManager.registerCustomCache(RESULTS_CACHE_NAME, (Cache) results.synchronous());
+            caffeineCacheManager.registerCustomCache(LAYER3_CACHE_NAME, (Cache) layer3Scores.synchronous());
+        }
+    }
+
+    /**
+     * Layers 1 - 2.5 outcome for a normalized description, computed with compute() on a miss
+     */
+    public FastLayerOutcome fastLayers(String normalized, Double amount, String modelVersion,
+                                       Supplier<FastLayerOutcome> compute) {
+        ResultKey key = new ResultKey(normalized, amountBucket(amount), modelVersion, generation.get());
+        return getOrCompute(results, RESULTS_CACHE_NAME, key, compute);
+    }
+
+    /**
+     * Layer 3 signals 1 - 4 (category -> weighted score) for a fullNormalize()d description
+     */
+    public Map<Long, Double> layer3Scores(String fullNormalized, Supplier<Map<Long, Double>> compute) {
+        Layer3Key key = new Layer3Key(fullNormalized, generation.get());
+        return getOrCompute(layer3Scores, LAYER3_CACHE_NAME, key, () -> Collections.unmodifiableMap(compute.get()));
+    }
+
+    /**
+     * Keywords, categories or signal tables changed: nothing cached so far may be served again
+     */
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        results.synchronous().invalidateAll();
+        layer3Scores.synchronous().invalidateAll();
+    }
+
+    /**
+     * Generation and coalesced misses (hit / miss counts are in the registered caches' own stats)
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("generation", generation.get());
+        stats.put("coalescedMisses", coalesced.sum());
+        return stats;
+    }
+
+    /**
+     * Amount buckets of EnhancedFeatureExtractor (micro < 20K, small < 100K, medium < 500K,
+     * large < 2M, very large), 0 when there is no amount
+     */
+    static int amountBucket(Double amount) {
+        if (amount == null) {
+            return 0;
+        }
+        double value = amount;
+        if (value < 20_000) return 1;
+        if (value < 100_000) return 2;
+        if (value < 500_000) return 3;
+        if (value < 2_000_000) return 4;
+        return 5;
+    }
+
+    /**
+     * The first caller for a key installs a future and computes on its own thread (no cache lock held);
+     * callers arriving meanwhile wait on that future. A failed computation is not cached.
+     */
+    private <K, V> V getOrCompute(AsyncCache<K, V> cache, String cacheName, K key, Supplier<V> compute) {
+        CompletableFuture<V> created = new CompletableFuture<>();
+        CompletableFuture<V> future = cache.get(key, (k, executor) -> created);
+        if (future != created) {
+            if (future.isDone()) {
+                metrics.recordCacheLookup(cacheName, "hit");
+            } else {
+                coalesced.increment();
+                metrics.recordCacheLookup(cacheName, "coalesced");
+            }
+            try {
+                return future.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+        metrics.recordCacheLookup(cacheName, "miss");
+        try {
+            V value = compute.get();
+            created.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            created.completeExceptionally(e); // removed from the cache by Caffeine
+            throw e;
+        }
+    }
+
+    // === Inner Classes ===
+
+    private record ResultKey(String normalized, int amountBucket, String modelVersion, long generation) {
+    }
+
+    private record Layer3Key(String fullNormalized, long generation) {
+    }
+
+    /**
+     * Result of Layers 1 - 2.5: the accepting layer and its result, or residual (null result),
+     * possibly with the best below-threshold guess (provisional category while Layer 3 runs)
+     */
+    public static final class FastLayerOutcome {
+        private static final FastLayerOutcome RESIDUAL = new FastLayerOutcome(null, null, null);
+
+        private final String layer;
+        private final CategorizationResult result;
+        private final CategorizationResult guess;
+
+        private FastLayerOutcome(String layer, CategorizationResult result, CategorizationResult guess) {
+            this.layer = layer;
+            this.result = result;
+            this.guess = guess;
+        }
+
+        public static FastLayerOutcome accepted(String layer, CategorizationResult result) {
+            return new FastLayerOutcome(layer, result, null);
+        }
+
+        public static FastLayerOutcome residual() {
+            return RESIDUAL;
+        }
+
+        public static FastLayerOutcome residual(CategorizationResult guess) {
+            return guess == null ? RESIDUAL : new FastLayerOutcome(null, null, guess);
+        }
+
+        public String getLayer() { return layer; }
+        public CategorizationResult getResult() { return result; }
+        public CategorizationResult getGuess() { return guess; }
+        public boolean isResidual() { return result == null; }
+    }
+}
@@ -19,6 +19,7 @@ public class CategoryService {
 
  private final CategoryRepository repo;
  private final CategoryMapper mapper;
+ private final AICategorizationService aiCategorizationService;
  private static final String CATEGORY_NOT_FOUND = "Category not found with id: ";
 
  @Cacheable(cacheNames = "categories")
@@ -28,7 +29,9 @@ public class CategoryService {
 
  @CacheEvict(cacheNames = "categories", allEntries = true)
  public CategoryDTO save(CategoryDTO dto) {
- return mapper.toDto(repo.save(mapper.toEntity(dto)));
+ CategoryDTO saved = mapper.toDto(repo.save(mapper.toEntity(dto)));
+ aiCategorizationService.rebuildCategoryIndexes();
+ return saved;
  }
 
  @Cacheable
@@ -53,6 +56,7 @@ public class CategoryService {
  
  try {
  repo.deleteById(id);
+ aiCategorizationService.rebuildCategoryIndexes();
  } catch (Exception e) {
  if (e.getMessage().contains("constraint") || e.getMessage().contains("REFERENCE")) {
  throw new RuntimeException("Cannot delete category: It has associated transactions");
@@ -65,7 +69,9 @@ public class CategoryService {
  public CategoryDTO update(CategoryDTO dto) {
  if (!repo.existsById(dto.getId()))
  throw new CustomException("Category not found with id: " + dto.getId());
- return mapper.toDto(repo.save(mapper.toEntity(dto)));
+ CategoryDTO updated = mapper.toDto(repo.save(mapper.toEntity(dto)));
+ aiCategorizationService.rebuildCategoryIndexes();
+ return updated;
  }
 
  public boolean existsById(Long id) {
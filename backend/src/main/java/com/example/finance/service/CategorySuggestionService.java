@@ -5,6 +5,7 @@ import com.example.finance.entity.Category;
 import com.example.finance.entity.CategorySuggestion;
 import com.example.finance.repository.CategoryRepository;
 import com.example.finance.repository.CategorySuggestionRepository;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -15,6 +16,7 @@ import java.util.*;
 import java.util.stream.Collectors;
 
 @Service
+@Slf4j
 public class CategorySuggestionService {
     
     @Autowired
@@ -55,7 +57,7 @@ public class CategorySuggestionService {
         
         // Check if similar category already exists
         if (isSimilarCategoryExists(suggestedName, userId, transactionType)) {
-            System.out.println("[SUGGEST] Similar category exists: " + suggestedName);
+            log.debug("Similar category exists: {}", suggestedName);
             return Optional.empty();
         }
         
@@ -68,7 +70,7 @@ public class CategorySuggestionService {
             CategorySuggestion suggestion = existingSuggestion.get();
             updateSuggestionWithNewSample(suggestion, description);
             suggestionRepository.save(suggestion);
-            System.out.println("[SUGGEST] Updated existing suggestion: " + suggestedName);
+            log.debug("Updated existing suggestion: {}", suggestedName);
             return Optional.of(suggestion);
         }
         
@@ -78,8 +80,7 @@ public class CategorySuggestionService {
         );
         
         CategorySuggestion saved = suggestionRepository.save(suggestion);
-        System.out.println("[SUGGEST] New category suggested: " + suggestedName + 
-                          " (confidence: " + suggestion.getConfidenceScore() + ")");
+        log.info("New category suggested: {} (confidence: {})", suggestedName, suggestion.getConfidenceScore());
         
         return Optional.of(saved);
     }
@@ -164,7 +165,7 @@ public class CategorySuggestionService {
             
             String normalizedCategoryName = fuzzyMatchingService.fullNormalize(category.getName());
             double similarity = fuzzyMatchingService.calculateSimilarity(
-                normalizedSuggestion, normalizedCategoryName
+                normalizedSuggestion, normalizedCategoryName, 0.80
             );
             
             // If 80%+ similar, consider it exists
@@ -315,7 +316,7 @@ public class CategorySuggestionService {
         suggestion.setCreatedCategoryId(savedCategory.getId());
         suggestionRepository.save(suggestion);
         
-        System.out.println("[SUGGEST] Approved & created category: " + savedCategory.getName());
+        log.info("Approved & created category: {}", savedCategory.getName());
         
         return savedCategory;
     }
@@ -337,7 +338,7 @@ public class CategorySuggestionService {
         suggestion.setUpdatedAt(LocalDateTime.now());
         suggestionRepository.save(suggestion);
         
-        System.out.println("[SUGGEST] Rejected suggestion: " + suggestion.getSuggestedName());
+        log.info("Rejected suggestion: {}", suggestion.getSuggestedName());
     }
     
     /**
@@ -357,7 +358,7 @@ public class CategorySuggestionService {
         suggestion.setUpdatedAt(LocalDateTime.now());
         suggestionRepository.save(suggestion);
         
-        System.out.println("[SUGGEST] Merged suggestion with category: " + existingCategoryId);
+        log.info("Merged suggestion with category: {}", existingCategoryId);
     }
     
     private CategorySuggestionDTO convertToDTO(CategorySuggestion entity) {
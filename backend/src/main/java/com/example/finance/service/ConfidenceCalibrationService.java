@@ -24,11 +24,39 @@ public class ConfidenceCalibrationService {
             double[] rawScores,
             Map<Long, String> categoryNames) {
         
+        // Legacy callers: score i belongs to category i + 1
+        int[] classLabels = new int[rawScores.length];
+        for (int i = 0; i < classLabels.length; i++) {
+            classLabels[i] = i + 1;
+        }
+        return calibrate(rawScores, classLabels, categoryNames);
+    }
+    
+    /**
+     * Calibrate raw model scores where rawScores[i] is the score of category classLabels[i]
+     * (the classifier's own label order, e.g. LinearSVMClassifier.getClasses())
+     */
+    public CalibratedPrediction calibrate(
+            double[] rawScores,
+            int[] classLabels,
+            Map<Long, String> categoryNames) {
+        return calibrate(rawScores, classLabels, categoryNames, temperature);
+    }
+    
+    /**
+     * Same as above with the temperature that ships with the model (see ModelSnapshot)
+     */
+    public CalibratedPrediction calibrate(
+            double[] rawScores,
+            int[] classLabels,
+            Map<Long, String> categoryNames,
+            double temperature) {
+        
         // Apply temperature scaling
         double[] calibratedScores = temperatureScaling(rawScores, temperature);
         
         // Get top-K predictions
-        List<CategoryScore> topK = getTopKPredictions(calibratedScores, categoryNames, 3);
+        List<CategoryScore> topK = getTopKPredictions(calibratedScores, classLabels, categoryNames, 3);
         
         double confidence = topK.get(0).score;
         Long category = topK.get(0).categoryId;
@@ -89,12 +117,13 @@ public class ConfidenceCalibrationService {
      */
     private List<CategoryScore> getTopKPredictions(
             double[] scores, 
+            int[] classLabels,
             Map<Long, String> categoryNames, 
             int k) {
         
         List<CategoryScore> allScores = new ArrayList<>();
         for (int i = 0; i < scores.length; i++) {
-            Long categoryId = (long) (i + 1); // Assuming 1-indexed categories
+            Long categoryId = (long) classLabels[i];
             allScores.add(new CategoryScore(
                 categoryId,
                 categoryNames.getOrDefault(categoryId, "Unknown"),
@@ -195,6 +224,10 @@ public class ConfidenceCalibrationService {
         }
     }
     
+    public double getTemperature() {
+        return temperature;
+    }
+    
     /**
      * Update temperature parameter based on validation data
      * Should be called periodically with calibration dataset
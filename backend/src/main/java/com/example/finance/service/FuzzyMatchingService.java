@@ -1,5 +1,6 @@
 package com.example.finance.service;
 
+import com.example.finance.ml.BitParallelLevenshtein;
 import org.springframework.stereotype.Service;
 import java.util.*;
 import java.util.regex.Pattern;
@@ -186,36 +187,26 @@ public class FuzzyMatchingService {
     /**
      * Calculate Levenshtein distance (edit distance)
      * Đo độ tương đồng giữa 2 chuỗi (số ký tự cần thay đổi)
+     * Bit-parallel (Myers/Hyyrö), same result as the full DP matrix
      */
     public int calculateLevenshteinDistance(String s1, String s2) {
         if (s1 == null || s2 == null) {
             return Integer.MAX_VALUE;
         }
         
-        int len1 = s1.length();
-        int len2 = s2.length();
-        
-        int[][] dp = new int[len1 + 1][len2 + 1];
-        
-        for (int i = 0; i <= len1; i++) {
-            dp[i][0] = i;
-        }
-        for (int j = 0; j <= len2; j++) {
-            dp[0][j] = j;
-        }
-        
-        for (int i = 1; i <= len1; i++) {
-            for (int j = 1; j <= len2; j++) {
-                int cost = (s1.charAt(i - 1) == s2.charAt(j - 1)) ? 0 : 1;
-                
-                dp[i][j] = Math.min(
-                    Math.min(dp[i - 1][j] + 1, dp[i][j - 1] + 1),
-                    dp[i - 1][j - 1] + cost
-                );
-            }
+        return BitParallelLevenshtein.distance(s1, s2);
+    }
+    
+    /**
+     * Levenshtein distance with cutoff: the distance if it is <= maxDistance, otherwise -1.
+     * Stops as soon as the cutoff can no longer be met.
+     */
+    public int calculateLevenshteinDistance(String s1, String s2, int maxDistance) {
+        if (s1 == null || s2 == null) {
+            return -1;
         }
         
-        return dp[len1][len2];
+        return BitParallelLevenshtein.distance(s1, s2, maxDistance);
     }
     
     /**
@@ -224,6 +215,15 @@ public class FuzzyMatchingService {
      * 0.0 = hoàn toàn khác nhau
      */
     public double calculateSimilarity(String s1, String s2) {
+        return calculateSimilarity(s1, s2, 0.0);
+    }
+    
+    /**
+     * Similarity with a lower bound: the exact score (same value as calculateSimilarity(s1, s2))
+     * when it is >= minSimilarity, otherwise 0.0. The bound becomes an edit-distance cutoff,
+     * so pairs that cannot reach it are rejected early.
+     */
+    public double calculateSimilarity(String s1, String s2, double minSimilarity) {
         if (s1 == null || s2 == null) {
             return 0.0;
         }
@@ -237,7 +237,45 @@ public class FuzzyMatchingService {
             return 1.0;
         }
         
-        int distance = calculateLevenshteinDistance(s1, s2);
+        double similarity = boundedSimilarity(s1, s2, maxLen, Double.NEGATIVE_INFINITY, minSimilarity);
+        return similarity < 0 ? 0.0 : similarity;
+    }
+    
+    /**
+     * Similarity 1 - distance / maxLen if it is > exclusiveFloor and >= inclusiveFloor, otherwise -1.0
+     */
+    private static double boundedSimilarity(String s1, String s2, int maxLen,
+                                            double exclusiveFloor, double inclusiveFloor) {
+        int maxDistance = maxDistanceFor(maxLen, exclusiveFloor, inclusiveFloor);
+        if (maxDistance < 0) {
+            return -1.0;
+        }
+        int distance = BitParallelLevenshtein.distance(s1, s2, maxDistance);
+        return distance < 0 ? -1.0 : similarityOf(distance, maxLen);
+    }
+    
+    /**
+     * Largest distance whose similarity still passes both floors (-1 if none).
+     * Evaluated with the same floating-point expression as the score itself, so the cutoff
+     * never rejects a pair the unbounded comparison would have accepted.
+     */
+    private static int maxDistanceFor(int maxLen, double exclusiveFloor, double inclusiveFloor) {
+        double floor = Math.max(Math.max(exclusiveFloor, inclusiveFloor), 0.0);
+        int distance = (int) Math.min(maxLen, Math.floor((1.0 - floor) * maxLen));
+        while (distance >= 0 && !passes(similarityOf(distance, maxLen), exclusiveFloor, inclusiveFloor)) {
+            distance--;
+        }
+        while (distance < maxLen && passes(similarityOf(distance + 1, maxLen), exclusiveFloor, inclusiveFloor)) {
+            distance++;
+        }
+        return distance;
+    }
+    
+    private static boolean passes(double similarity, double exclusiveFloor, double inclusiveFloor) {
+        return similarity > exclusiveFloor && similarity >= inclusiveFloor;
+    }
+    
+    private static double similarityOf(int distance, int maxLen) {
         return 1.0 - ((double) distance / maxLen);
     }
     
@@ -290,8 +328,9 @@ public class FuzzyMatchingService {
                 return new MatchResult(keyword, 1.0, "exact");
             }
             
-            // Fuzzy match using Levenshtein distance
-            double similarity = calculateSimilarity(normalizedInput, normalizedKeyword);
+            // Fuzzy match using Levenshtein distance: only a keyword that beats the current best
+            // and reaches the threshold matters, so that bound is the edit-distance cutoff
+            double similarity = similarityAbove(normalizedInput, normalizedKeyword, bestSimilarity, threshold);
             if (similarity > bestSimilarity) {
                 bestSimilarity = similarity;
                 bestMatch = keyword;
@@ -305,6 +344,20 @@ public class FuzzyMatchingService {
         return null;
     }
     
+    /**
+     * calculateSimilarity() if it is > best and >= threshold, otherwise -1.0
+     */
+    private double similarityAbove(String s1, String s2, double best, double threshold) {
+        if (s1.equals(s2)) {
+            return 1.0;
+        }
+        int maxLen = Math.max(s1.length(), s2.length());
+        if (maxLen == 0) {
+            return 1.0;
+        }
+        return boundedSimilarity(s1, s2, maxLen, best, threshold);
+    }
+    
     /**
      * Match result class
      */
@@ -63,6 +63,20 @@ public class GamificationService {
      */
     @Transactional
     public UserGamification updateUserActivity(User user, String activityType) {
+        UserGamification gamification = recordActivity(user, activityType);
+
+        // Check for new achievements
+        achievementService.checkAndUnlockAchievements(user);
+
+        return gamification;
+    }
+
+    /**
+     * Streak, activity counters and challenge progress, without the achievement check
+     * (transaction events run that as a separate handler)
+     */
+    @Transactional
+    public UserGamification recordActivity(User user, String activityType) {
         UserGamification gamification = getUserGamification(user);
         
         // Update streak
@@ -84,9 +98,6 @@ public class GamificationService {
         gamification.setLastActivityDate(LocalDate.now());
         userGamificationRepository.save(gamification);
 
-        // Check for new achievements
-        achievementService.checkAndUnlockAchievements(user);
-
         // Update challenge progress
         updateChallengeProgress(user, activityType);
 
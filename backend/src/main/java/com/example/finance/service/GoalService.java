@@ -45,6 +45,7 @@ public class GoalService {
  private final EmailService emailService;
  private final UserService userService;
  private final CategoryRepository categoryRepository;
+ private final WalletBalanceService walletBalanceService;
 
  public List<GoalDTO> findAll() {
  return repo.findAll().stream().map(mapper::toDto).toList();
@@ -200,10 +201,8 @@ public class GoalService {
  throw new CustomException("Không đủ tiền trong ví để thực hiện mục tiêu");
  }
  
- // Trừ tiền từ ví
- BigDecimal newBalance = targetWallet.getBalance().subtract(goal.getTargetAmount());
- targetWallet.setBalance(newBalance);
- walletRepository.save(targetWallet);
+ // Trừ tiền từ ví (delta nguyên tử, đúng bằng phần đóng góp của giao dịch chi tiêu bên dưới)
+ walletBalanceService.applyDelta(targetWallet, goal.getTargetAmount().negate());
  
  // Tạo giao dịch chi tiêu
  Transaction transaction = new Transaction();
@@ -259,7 +258,7 @@ public class GoalService {
  result.put("message", "Thực hiện mục tiêu thành công!");
  result.put("goal", mapper.toDto(goal));
  result.put("transaction", transaction);
- result.put("newBalance", newBalance);
+ result.put("newBalance", targetWallet.getBalance());
  result.put("walletName", targetWallet.getName());
  
  return result;
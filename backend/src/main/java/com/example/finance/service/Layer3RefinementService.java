@@ -0,0 +1,282 @@
+package com.example.finance.service;
+
+import com.example.finance.entity.Transaction;
+import com.example.finance.repository.TransactionRepository;
+import com.example.finance.service.AICategorizationService.CategorizationResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Background Layer 3 for transactions saved with a provisional (Layers 1 - 2.5) category
+ * - Submitted after the saving transaction commits, so request threads and DB transactions never
+ *   wait for Layer 3
+ * - Bounded: max-concurrency workers, a queue of queue-capacity; when full the transaction stays
+ *   provisional and the sweep picks it up later
+ * - Each run has timeout-ms: the worker is interrupted and the provisional category becomes final
+ * - The final category is written only if the transaction is still provisional with the same
+ *   category (user edits win); when it changes, an "updated" TransactionChangedEvent is published in
+ *   the same DB transaction, so budget alerts and budget caches follow through TransactionEventService
+ *
+ * Meters: categorization.refinement{outcome} timer, categorization.refinement.rejected counter.
+ */
+@Service
+@Slf4j
+public class Layer3RefinementService {
+
+    public static final String OUTCOME_CHANGED = "changed";
+    public static final String OUTCOME_CONFIRMED = "confirmed";
+    public static final String OUTCOME_STALE = "stale";
+    public static final String OUTCOME_TIMEOUT = "timeout";
+    public static final String OUTCOME_ERROR = "error";
+
+    private final AICategorizationService aiCategorizationService;
+    private final TransactionRepository transactionRepository;
+    private final TransactionEventService transactionEventService;
+    private final CacheManager cacheManager;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final long timeoutMs;
+    private final ThreadPoolExecutor executor;
+    private final ScheduledExecutorService watchdog;
+    private final Counter rejected;
+
+    // Transactions queued or running, so the sweep does not submit them twice
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    public Layer3RefinementService(AICategorizationService aiCategorizationService,
+                                   TransactionRepository transactionRepository,
+                                   TransactionEventService transactionEventService,
+                                   CacheManager cacheManager,
+                                   PlatformTransactionManager transactionManager,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${categorization.layer3-async.enabled:true}") boolean enabled,
+                                   @Value("${categorization.layer3-async.max-concurrency:2}") int maxConcurrency,
+                                   @Value("${categorization.layer3-async.queue-capacity:500}") int queueCapacity,
+                                   @Value("${categorization.layer3-async.timeout-ms:5000}") long timeoutMs) {
+        this.aiCategorizationService = aiCategorizationService;
+        this.transactionRepository = transactionRepository;
+        this.transactionEventService = transactionEventService;
+        this.cacheManager = cacheManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.timeoutMs = timeoutMs;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+            maxConcurrency, maxConcurrency, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            r -> {
+                Thread thread = new Thread(r, "layer3-refine-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "layer3-refine-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        meterRegistry.gauge("categorization.refinement.queued", executor, e -> e.getQueue().size());
+        this.rejected = Counter.builder("categorization.refinement.rejected")
+            .description("Provisional transactions not queued because the Layer 3 pool was full")
+            .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        watchdog.shutdownNow();
+    }
+
+    /**
+     * Refine a provisional category once the current transaction commits (right away without one)
+     */
+    public void refineAfterCommit(Long transactionId, Long provisionalCategoryId, String description,
+                                  Double amount, Long userId) {
+        Request request = new Request(transactionId, provisionalCategoryId, description, amount, userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    submit(request);
+                }
+            });
+        } else {
+            submit(request);
+        }
+    }
+
+    /**
+     * Resubmit provisional transactions nobody is working on (pool was full, app restarted)
+     */
+    @Scheduled(fixedDelayString = "${categorization.layer3-async.sweep-interval-ms:60000}")
+    public void sweep() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime cutoff = LocalDateTime.now().minusNanos(TimeUnit.MILLISECONDS.toNanos(timeoutMs * 2));
+        for (Transaction transaction : transactionRepository
+                .findTop100ByCategoryProvisionalTrueAndIsDeletedFalseAndUpdatedAtBeforeOrderByIdAsc(cutoff)) {
+            if (transaction.getCategory() == null || inFlight.contains(transaction.getId())) {
+                continue;
+            }
+            boolean queued = submit(new Request(transaction.getId(), transaction.getCategory().getId(),
+                transaction.getNote(), transaction.getAmount().doubleValue(), transaction.getUser().getId()));
+            if (!queued) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * false: TransactionService runs Layer 3 inline, as before
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getQueuedCount() {
+        return executor.getQueue().size();
+    }
+
+    private boolean submit(Request request) {
+        if (!inFlight.add(request.transactionId())) {
+            return true;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    refine(request);
+                } finally {
+                    inFlight.remove(request.transactionId());
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(request.transactionId());
+            rejected.increment();
+            log.debug("Layer 3 pool full, transaction {} stays provisional", request.transactionId());
+            return false;
+        }
+    }
+
+    /**
+     * Runs on a worker: full pipeline (Layers 1 - 2.5 come from the shared cache) under a watchdog
+     * that interrupts the worker after timeout-ms
+     */
+    void refine(Request request) {
+        long start = System.nanoTime();
+        String outcome;
+        Thread worker = Thread.currentThread();
+        ScheduledFuture<?> timeout = watchdog.schedule(worker::interrupt, timeoutMs, TimeUnit.MILLISECONDS);
+        CategorizationResult refined = null;
+        Exception failure = null;
+        try {
+            refined = aiCategorizationService.categorizeExpense(request.description(), request.amount(), request.userId());
+        } catch (Exception e) {
+            failure = e;
+        } finally {
+            if (!timeout.cancel(false)) {
+                awaitQuietly(timeout); // interrupt may be in flight: let it land before clearing it
+            }
+        }
+        boolean timedOut = Thread.interrupted()
+            || System.nanoTime() - start > TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+
+        try {
+            if (timedOut || failure != null) {
+                // Keep the provisional category as the final one
+                outcome = timedOut ? OUTCOME_TIMEOUT : OUTCOME_ERROR;
+                if (failure != null) {
+                    log.warn("Layer 3 refinement failed for transaction {}: {}", request.transactionId(), failure.getMessage());
+                }
+                keepProvisional(request);
+            } else {
+                outcome = resolve(request, refined.getCategory());
+            }
+        } catch (RuntimeException e) {
+            outcome = OUTCOME_ERROR;
+            log.warn("Could not store Layer 3 category for transaction {}: {}", request.transactionId(), e.getMessage());
+            keepProvisional(request);
+        }
+
+        Timer.builder("categorization.refinement")
+            .description("Background Layer 3 for provisional transactions, queue wait excluded")
+            .tag("outcome", outcome)
+            .publishPercentileHistogram()
+            .register(meterRegistry)
+            .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Store the final category; returns changed / confirmed, or stale when the transaction was
+     * edited or deleted in the meantime
+     */
+    private String resolve(Request request, Long categoryId) {
+        String outcome = transactionTemplate.execute(status -> {
+            int updated = transactionRepository.resolveProvisionalCategory(
+                request.transactionId(), request.provisionalCategoryId(), categoryId);
+            if (updated == 0) {
+                return OUTCOME_STALE;
+            }
+            if (categoryId.equals(request.provisionalCategoryId())) {
+                return OUTCOME_CONFIRMED;
+            }
+            // Spend moved to another category: that budget may now be over its limit (checked after commit)
+            transactionRepository.findByIdWithDetails(request.transactionId()).ifPresent(transaction ->
+                transactionEventService.publish(TransactionChangedEvent.of(TransactionChangedEvent.UPDATED, transaction,
+                    transaction.getWallet() != null ? transaction.getWallet().getId() : null,
+                    request.provisionalCategoryId())));
+            return OUTCOME_CHANGED;
+        });
+        if (!OUTCOME_STALE.equals(outcome)) {
+            Cache transactions = cacheManager.getCache("transactions");
+            if (transactions != null) {
+                transactions.evict(request.transactionId());
+            }
+        }
+        return outcome;
+    }
+
+    private void keepProvisional(Request request) {
+        try {
+            resolve(request, request.provisionalCategoryId());
+        } catch (RuntimeException e) {
+            log.warn("Transaction {} stays provisional: {}", request.transactionId(), e.getMessage());
+        }
+    }
+
+    private static void awaitQuietly(Future<?> future) {
+        try {
+            future.get();
+        } catch (CancellationException | ExecutionException e) {
+            // nothing to wait for
+        } catch (InterruptedException e) {
+            // the watchdog's own interrupt: cleared by the caller
+        }
+    }
+
+    record Request(Long transactionId, Long provisionalCategoryId, String description, Double amount, Long userId) {
+    }
+}
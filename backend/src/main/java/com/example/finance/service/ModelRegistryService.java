@@ -0,0 +1,233 @@
+package com.example.finance.service;
+
+import com.example.finance.ml.BinaryModelFormat;
+import com.example.finance.ml.LinearSVMClassifier;
+import com.example.finance.ml.ModelSnapshot;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Model Registry
+ * - Holds the current ModelSnapshot (vectorizer + SVM + calibration temperature) behind an AtomicReference
+ * - Loads a bundle (model_metadata.json + BinaryModelFormat file) from ml.models.dir at startup,
+ *   and again whenever the metadata checksum in that directory changes
+ * - Keeps the last ml.models.history-size snapshots for instant rollback
+ * - ml.models.quantize: score float models with int8 weights (LinearSVMClassifier.quantize());
+ *   files written quantized (FLAG_QUANTIZED) always load that way
+ *
+ * Readers call current() once per request; swaps never block them.
+ */
+@Service
+@Slf4j
+public class ModelRegistryService {
+
+    private static final String METADATA_FILE = "model_metadata.json";
+
+    @Autowired
+    private ConfidenceCalibrationService confidenceCalibrator;
+
+    @Value("${ml.models.dir:}")
+    private String modelsDir;
+
+    @Value("${ml.models.history-size:3}")
+    private int historySize;
+
+    @Value("${ml.models.quantize:false}")
+    private boolean quantize;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicReference<ModelSnapshot> current = new AtomicReference<>(ModelSnapshot.empty());
+    private final Deque<ModelSnapshot> history = new ArrayDeque<>();
+    private volatile String lastDirectoryChecksum;
+
+    @PostConstruct
+    public void init() {
+        if (!isDirectoryConfigured()) {
+            log.info("ml.models.dir not set, ML layer disabled until a model is loaded");
+            return;
+        }
+        try {
+            reload();
+        } catch (Exception e) {
+            log.warn("No model loaded from {}: {}", modelsDir, e.getMessage());
+        }
+    }
+
+    public ModelSnapshot current() {
+        return current.get();
+    }
+
+    /**
+     * Current snapshot first, then previous versions (most recent first)
+     */
+    public synchronized List<ModelSnapshot> getVersions() {
+        List<ModelSnapshot> versions = new ArrayList<>();
+        versions.add(current.get());
+        versions.addAll(history);
+        return versions;
+    }
+
+    /**
+     * Load the bundle in ml.models.dir and make it current
+     */
+    public ModelSnapshot reload() throws IOException {
+        if (!isDirectoryConfigured()) {
+            throw new IllegalStateException("ml.models.dir is not configured");
+        }
+        ModelSnapshot snapshot = loadBundle(Path.of(modelsDir));
+        lastDirectoryChecksum = snapshot.getChecksum();
+        activate(snapshot);
+        return snapshot;
+    }
+
+    /**
+     * Make a snapshot current; the replaced one is kept for rollback
+     */
+    public synchronized void activate(ModelSnapshot snapshot) {
+        ModelSnapshot previous = current.getAndSet(snapshot);
+        if (previous.hasModel()) {
+            history.addFirst(previous);
+            while (history.size() > historySize) {
+                history.removeLast();
+            }
+        }
+        log.info("Activated model {} (previous: {})", snapshot.getVersion(), previous.getVersion());
+    }
+
+    /**
+     * Replace the current snapshot with a refinement of it (online learning). The first refinement of
+     * a base model pushes that base into history, so rollback returns to it; later refinements
+     * replace each other without history entries. Returns false, changing nothing, when expected is
+     * no longer current (reloaded or rolled back meanwhile).
+     */
+    public synchronized boolean replaceCurrent(ModelSnapshot expected, ModelSnapshot refined) {
+        if (!current.compareAndSet(expected, refined)) {
+            return false;
+        }
+        boolean base = expected.getVersion().equals(ModelSnapshot.baseVersion(expected.getVersion()));
+        if (base && expected.hasModel() && history.peekFirst() != expected) {
+            history.addFirst(expected);
+            while (history.size() > historySize) {
+                history.removeLast();
+            }
+        }
+        log.debug("Refined model {} -> {}", expected.getVersion(), refined.getVersion());
+        return true;
+    }
+
+    /**
+     * Go back to the previous snapshot; the current one is discarded
+     */
+    public synchronized ModelSnapshot rollback() {
+        ModelSnapshot previous = history.pollFirst();
+        if (previous == null) {
+            throw new IllegalStateException("No previous model version to roll back to");
+        }
+        ModelSnapshot replaced = current.getAndSet(previous);
+        log.info("Rolled back model {} -> {}", replaced.getVersion(), previous.getVersion());
+        return previous;
+    }
+
+    /**
+     * Go back to a specific previous version; it and everything newer is removed from history
+     */
+    public synchronized ModelSnapshot rollbackTo(String version) {
+        if (history.stream().noneMatch(s -> s.getVersion().equals(version))) {
+            throw new IllegalArgumentException("Model version not in history: " + version);
+        }
+        ModelSnapshot target;
+        do {
+            target = history.pollFirst();
+        } while (!target.getVersion().equals(version));
+        ModelSnapshot replaced = current.getAndSet(target);
+        log.info("Rolled back model {} -> {}", replaced.getVersion(), target.getVersion());
+        return target;
+    }
+
+    /**
+     * Directory watch: reload when the checksum recorded in model_metadata.json changes.
+     * Polling the metadata file (written last by ModelTrainer/ModelFormatConverter) also works on
+     * mounted volumes where file-system events are not delivered.
+     */
+    @Scheduled(fixedDelayString = "${ml.models.watch-interval-ms:10000}",
+               initialDelayString = "${ml.models.watch-interval-ms:10000}")
+    public void checkForNewModel() {
+        if (!isDirectoryConfigured()) {
+            return;
+        }
+        Path metadataPath = Path.of(modelsDir, METADATA_FILE);
+        if (!Files.isRegularFile(metadataPath)) {
+            return;
+        }
+        try {
+            String checksum = readMetadata(metadataPath).path("checksum").asText(null);
+            if (checksum != null && !checksum.equals(lastDirectoryChecksum)) {
+                // Remember it even if loading fails, so a bad or rolled-back bundle is not retried every tick
+                lastDirectoryChecksum = checksum;
+                log.info("Model change detected in {} ({})", modelsDir, checksum);
+                reload();
+            }
+        } catch (Exception e) {
+            log.warn("Model reload from {} failed, keeping {}: {}",
+                     modelsDir, current.get().getVersion(), e.getMessage());
+        }
+    }
+
+    /**
+     * ml.models.dir, null when not configured
+     */
+    public Path getModelsDirectory() {
+        return isDirectoryConfigured() ? Path.of(modelsDir) : null;
+    }
+
+    /**
+     * This process wrote the bundle with this checksum itself (online learning checkpoint): the
+     * directory watch must not load it again
+     */
+    public void acknowledgeDirectoryChecksum(String checksum) {
+        lastDirectoryChecksum = checksum;
+    }
+
+    private ModelSnapshot loadBundle(Path directory) throws IOException {
+        JsonNode metadata = readMetadata(directory.resolve(METADATA_FILE));
+        String modelFile = metadata.path("model_file").asText(BinaryModelFormat.DEFAULT_FILE_NAME);
+        String expectedChecksum = metadata.path("checksum").asText(null);
+        if (expectedChecksum == null) {
+            throw new IOException(METADATA_FILE + " has no checksum, convert the model first (ModelFormatConverter)");
+        }
+
+        BinaryModelFormat.LoadedModel loaded = BinaryModelFormat.map(directory.resolve(modelFile), expectedChecksum);
+        double temperature = metadata.path("calibration_temperature").asDouble(confidenceCalibrator.getTemperature());
+        String version = metadata.hasNonNull("model_version")
+            ? metadata.get("model_version").asText()
+            : metadata.path("version").asText("0") + "-" + loaded.getChecksum().substring(loaded.getChecksum().indexOf(':') + 1);
+
+        LinearSVMClassifier classifier = loaded.getClassifier();
+        if (quantize && !classifier.isQuantized()) {
+            classifier = classifier.quantize();
+        }
+        return new ModelSnapshot(version, loaded.getVectorizer(), classifier, temperature,
+                                 loaded.getChecksum(), directory.resolve(modelFile).toString(), Instant.now());
+    }
+
+    private JsonNode readMetadata(Path metadataPath) throws IOException {
+        return objectMapper.readTree(metadataPath.toFile());
+    }
+
+    private boolean isDirectoryConfigured() {
+        return modelsDir != null && !modelsDir.isBlank();
+    }
+}
@@ -0,0 +1,391 @@
+package com.example.finance.service;
+
+import com.example.finance.ml.BinaryModelFormat;
+import com.example.finance.ml.LinearSVMClassifier;
+import com.example.finance.ml.ModelSnapshot;
+import com.example.finance.ml.SparseVector;
+import com.example.finance.ml.TextVectorizer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Online learning of the Layer 2.5 SVM from user category corrections
+ * - Corrections are queued after the saving transaction commits (bounded; dropped when full)
+ * - Every apply-interval-ms up to batch-size of them update a mutableCopy() of the current classifier
+ *   (LinearSVMClassifier.partialFit); the result becomes the current snapshot "<base>+online.N".
+ *   Snapshots in use by requests are never modified
+ * - Guardrail: the candidate is scored on a labeled holdout set and published only if its accuracy
+ *   stays within max-holdout-drop of the base model (the last one not produced here) and at or
+ *   above min-holdout-accuracy. Without a holdout set nothing is published
+ * - Every checkpoint-interval-ms the published model is written to ml.models.dir as
+ *   categorizer_model.online.fmdl and model_metadata.json points to it, so a restart keeps it; the
+ *   metadata also records the base bundle (online_base_*) for resetToBase()
+ * - The base stays in the registry's rollback history; resetToBase() undoes online learning for good
+ *   (metadata back to the base bundle, base reloaded, queued corrections discarded)
+ * - A reload or rollback by the registry becomes the new base; pending corrections apply to it
+ *
+ * A quantized model is updated from its dequantized weights and quantized again before the check.
+ * The vectorizer is not refitted: with TF-IDF only words of the vocabulary can be learned,
+ * a HashingVectorizer model also learns new merchant names.
+ *
+ * Meters: categorization.online.corrections{result}, categorization.online.batches{outcome},
+ * categorization.online.holdout.accuracy and categorization.online.pending gauges.
+ */
+@Service
+@Slf4j
+public class OnlineLearningService {
+
+    public static final String CHECKPOINT_FILE_NAME = "categorizer_model.online.fmdl";
+
+    public static final String OUTCOME_PUBLISHED = "published";
+    public static final String OUTCOME_REJECTED = "rejected";
+    public static final String OUTCOME_SKIPPED = "skipped";
+    public static final String OUTCOME_CONFLICT = "conflict";
+
+    private static final String METADATA_FILE = "model_metadata.json";
+
+    private final ModelRegistryService modelRegistry;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final String holdoutPath;
+    private final int batchSize;
+    private final double learningRate;
+    private final double lambda;
+    private final int epochs;
+    private final double maxHoldoutDrop;
+    private final double minHoldoutAccuracy;
+    private final BlockingQueue<Correction> pending;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Counter queued;
+    private final Counter dropped;
+    private final AtomicReference<Double> lastHoldoutAccuracy = new AtomicReference<>(Double.NaN);
+
+    // Guarded by this
+    private List<Correction> holdout = List.of();
+    private ModelSnapshot base;
+    private double baseAccuracy;
+    private ModelSnapshot published;
+    private ModelSnapshot checkpointed;
+    private TextVectorizer holdoutVectorizer;
+    private SparseVector[] holdoutVectors;
+    private int sequence;
+    private long correctionsApplied;
+
+    public OnlineLearningService(ModelRegistryService modelRegistry,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${ml.online-learning.enabled:false}") boolean enabled,
+                                 @Value("${ml.online-learning.holdout-path:}") String holdoutPath,
+                                 @Value("${ml.online-learning.batch-size:200}") int batchSize,
+                                 @Value("${ml.online-learning.queue-capacity:10000}") int queueCapacity,
+                                 @Value("${ml.online-learning.learning-rate:0.001}") double learningRate,
+                                 @Value("${ml.online-learning.lambda:0.0001}") double lambda,
+                                 @Value("${ml.online-learning.epochs:3}") int epochs,
+                                 @Value("${ml.online-learning.max-holdout-drop:0.01}") double maxHoldoutDrop,
+                                 @Value("${ml.online-learning.min-holdout-accuracy:0.0}") double minHoldoutAccuracy) {
+        this.modelRegistry = modelRegistry;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.holdoutPath = holdoutPath;
+        this.batchSize = batchSize;
+        this.learningRate = learningRate;
+        this.lambda = lambda;
+        this.epochs = epochs;
+        this.maxHoldoutDrop = maxHoldoutDrop;
+        this.minHoldoutAccuracy = minHoldoutAccuracy;
+        this.pending = new ArrayBlockingQueue<>(queueCapacity);
+
+        this.queued = correctionCounter("queued");
+        this.dropped = correctionCounter("dropped");
+        meterRegistry.gauge("categorization.online.pending", pending, BlockingQueue::size);
+        meterRegistry.gauge("categorization.online.holdout.accuracy", lastHoldoutAccuracy, AtomicReference::get);
+    }
+
+    @PostConstruct
+    public synchronized void loadHoldout() {
+        if (!enabled) {
+            return;
+        }
+        if (holdoutPath == null || holdoutPath.isBlank() || !new File(holdoutPath).isFile()) {
+            log.warn("Online learning enabled without a holdout set ({}): corrections will not be published",
+                holdoutPath);
+            return;
+        }
+        try {
+            List<Correction> samples = new ArrayList<>();
+            for (JsonNode node : objectMapper.readTree(new File(holdoutPath))) {
+                samples.add(new Correction(node.get("description").asText(), node.get("category_id").asInt()));
+            }
+            holdout = List.copyOf(samples);
+            log.info("Online learning holdout: {} samples from {}", holdout.size(), holdoutPath);
+        } catch (IOException e) {
+            log.warn("Cannot read online learning holdout {}: {}", holdoutPath, e.getMessage());
+        }
+    }
+
+    /**
+     * The user put a transaction in this category; queued once the current transaction commits
+     */
+    public void recordCorrection(String description, Long categoryId) {
+        if (!enabled || description == null || description.isBlank() || categoryId == null) {
+            return;
+        }
+        Correction correction = new Correction(description, categoryId.intValue());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(correction);
+                }
+            });
+        } else {
+            enqueue(correction);
+        }
+    }
+
+    /**
+     * Apply one batch of queued corrections to a copy of the current model and publish it if it
+     * passes the holdout guardrail; returns the batch outcome
+     */
+    @Scheduled(fixedDelayString = "${ml.online-learning.apply-interval-ms:30000}")
+    public synchronized String applyPending() {
+        if (!enabled || pending.isEmpty()) {
+            return OUTCOME_SKIPPED;
+        }
+        ModelSnapshot current = modelRegistry.current();
+        List<Correction> batch = new ArrayList<>(Math.min(batchSize, pending.size()));
+        pending.drainTo(batch, batchSize);
+        if (!current.hasModel() || holdout.isEmpty()) {
+            return record(OUTCOME_SKIPPED, batch.size(), "no model or no holdout set");
+        }
+        if (current != published) {
+            rebase(current);
+        }
+
+        TextVectorizer vectorizer = current.getVectorizer();
+        SparseVector[] rows = new SparseVector[batch.size()];
+        int[] labels = new int[batch.size()];
+        for (int i = 0; i < batch.size(); i++) {
+            rows[i] = vectorizer.transformSparse(batch.get(i).description());
+            labels[i] = batch.get(i).categoryId();
+        }
+        LinearSVMClassifier candidate = current.getClassifier().mutableCopy();
+        int used = candidate.partialFit(rows, labels, learningRate, lambda, epochs);
+        if (used == 0) {
+            return record(OUTCOME_SKIPPED, batch.size(), "no correction for a trained category");
+        }
+        if (current.getClassifier().isQuantized()) {
+            // Updated in double precision, served like the model it replaces
+            candidate = candidate.quantize();
+        }
+
+        double accuracy = holdoutAccuracy(candidate, vectorizer);
+        if (accuracy < baseAccuracy - maxHoldoutDrop || accuracy < minHoldoutAccuracy) {
+            log.warn("Online update of {} rejected: holdout accuracy {} (base {} allows -{}, floor {})",
+                current.getVersion(), accuracy, baseAccuracy, maxHoldoutDrop, minHoldoutAccuracy);
+            return record(OUTCOME_REJECTED, batch.size(), null);
+        }
+
+        ModelSnapshot refined = new ModelSnapshot(base.getVersion() + ModelSnapshot.ONLINE_SUFFIX + (sequence + 1), vectorizer,
+            candidate, current.getTemperature(), null,
+            "online learning: " + (correctionsApplied + used) + " corrections on " + base.getVersion(), Instant.now());
+        if (!modelRegistry.replaceCurrent(current, refined)) {
+            return record(OUTCOME_CONFLICT, batch.size(), "model replaced while updating");
+        }
+        sequence++;
+        correctionsApplied += used;
+        published = refined;
+        lastHoldoutAccuracy.set(accuracy);
+        log.info("Published {} ({} corrections, holdout accuracy {} vs base {})",
+            refined.getVersion(), used, accuracy, baseAccuracy);
+        return record(OUTCOME_PUBLISHED, batch.size(), null);
+    }
+
+    /**
+     * Write the published online model to ml.models.dir and point model_metadata.json at it.
+     * Returns false when there is nothing new to write or no directory.
+     */
+    @Scheduled(fixedDelayString = "${ml.online-learning.checkpoint-interval-ms:600000}",
+               initialDelayString = "${ml.online-learning.checkpoint-interval-ms:600000}")
+    public synchronized boolean checkpoint() {
+        Path directory = modelRegistry.getModelsDirectory();
+        ModelSnapshot snapshot = published;
+        if (!enabled || snapshot == null || snapshot == checkpointed || directory == null
+                || modelRegistry.current() != snapshot) {
+            return false;
+        }
+        try {
+            String checksum = BinaryModelFormat.write(snapshot.getVectorizer(), snapshot.getClassifier(),
+                directory.resolve(CHECKPOINT_FILE_NAME));
+            // Before the metadata changes, so the directory watch never reloads our own file
+            modelRegistry.acknowledgeDirectoryChecksum(checksum);
+            writeMetadata(directory.resolve(METADATA_FILE), snapshot, checksum);
+            checkpointed = snapshot;
+            log.info("Checkpointed {} to {} ({})", snapshot.getVersion(), directory, checksum);
+            return true;
+        } catch (IOException e) {
+            log.warn("Online model checkpoint to {} failed: {}", directory, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Undo online learning: when a checkpoint replaced the base bundle in model_metadata.json, point
+     * it at the base bundle again and reload that; otherwise roll the registry back to the base.
+     * Queued corrections are discarded. Throws IllegalStateException when there is nothing to undo.
+     */
+    public synchronized ModelSnapshot resetToBase() throws IOException {
+        pending.clear();
+        Path directory = modelRegistry.getModelsDirectory();
+        Path metadataPath = directory != null ? directory.resolve(METADATA_FILE) : null;
+        if (metadataPath != null && Files.isRegularFile(metadataPath)) {
+            ObjectNode metadata = (ObjectNode) objectMapper.readTree(metadataPath.toFile());
+            if (metadata.hasNonNull("online_base_model_file")) {
+                metadata.set("model_file", metadata.get("online_base_model_file"));
+                metadata.set("checksum", metadata.get("online_base_checksum"));
+                if (metadata.hasNonNull("online_base_model_version")) {
+                    metadata.set("model_version", metadata.get("online_base_model_version"));
+                } else {
+                    metadata.remove("model_version");
+                }
+                metadata.remove(List.of("online_base_model_file", "online_base_checksum", "online_base_model_version",
+                    "online_base_version", "online_corrections", "holdout_accuracy", "checkpointed_at"));
+                writeAtomically(metadataPath, metadata);
+                published = null;
+                checkpointed = null;
+                ModelSnapshot restored = modelRegistry.reload();
+                log.info("Online learning reset: {} reloaded from {}", restored.getVersion(), restored.getSource());
+                return restored;
+            }
+        }
+        if (published != null && modelRegistry.current() == published) {
+            published = null;
+            ModelSnapshot restored = modelRegistry.rollbackTo(base.getVersion());
+            log.info("Online learning reset: rolled back to {}", restored.getVersion());
+            return restored;
+        }
+        throw new IllegalStateException("No online model to reset");
+    }
+
+    public synchronized Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", enabled);
+        status.put("pending", pending.size());
+        status.put("holdoutSize", holdout.size());
+        status.put("baseVersion", base != null ? base.getVersion() : null);
+        status.put("baseHoldoutAccuracy", base != null ? baseAccuracy : null);
+        status.put("publishedVersion", published != null ? published.getVersion() : null);
+        status.put("lastHoldoutAccuracy", lastHoldoutAccuracy.get().isNaN() ? null : lastHoldoutAccuracy.get());
+        status.put("correctionsApplied", correctionsApplied);
+        status.put("checkpointedVersion", checkpointed != null ? checkpointed.getVersion() : null);
+        return status;
+    }
+
+    /**
+     * The registry moved to a model this service did not publish: it is the new reference
+     */
+    private void rebase(ModelSnapshot current) {
+        base = current;
+        published = null;
+        sequence = 0;
+        correctionsApplied = 0;
+        baseAccuracy = holdoutAccuracy(current.getClassifier(), current.getVectorizer());
+        log.info("Online learning base {} (holdout accuracy {})", current.getVersion(), baseAccuracy);
+    }
+
+    private double holdoutAccuracy(LinearSVMClassifier classifier, TextVectorizer vectorizer) {
+        if (holdoutVectorizer != vectorizer) {
+            holdoutVectors = new SparseVector[holdout.size()];
+            for (int i = 0; i < holdout.size(); i++) {
+                holdoutVectors[i] = vectorizer.transformSparse(holdout.get(i).description());
+            }
+            holdoutVectorizer = vectorizer;
+        }
+        int[] predicted = classifier.predict(holdoutVectors);
+        int correct = 0;
+        for (int i = 0; i < holdoutVectors.length; i++) {
+            if (predicted[i] == holdout.get(i).categoryId()) {
+                correct++;
+            }
+        }
+        return (double) correct / holdoutVectors.length;
+    }
+
+    private void writeMetadata(Path metadataPath, ModelSnapshot snapshot, String checksum) throws IOException {
+        ObjectNode metadata = Files.isRegularFile(metadataPath)
+            ? (ObjectNode) objectMapper.readTree(metadataPath.toFile())
+            : objectMapper.createObjectNode();
+        if (metadata.hasNonNull("checksum") && !CHECKPOINT_FILE_NAME.equals(metadata.path("model_file").asText(null))) {
+            // First checkpoint over a trained bundle: remember it for resetToBase()
+            metadata.put("online_base_model_file", metadata.path("model_file").asText(BinaryModelFormat.DEFAULT_FILE_NAME));
+            metadata.set("online_base_checksum", metadata.get("checksum"));
+            metadata.set("online_base_model_version", metadata.get("model_version"));
+        }
+        metadata.put("model_file", CHECKPOINT_FILE_NAME);
+        metadata.put("format_version", BinaryModelFormat.FORMAT_VERSION);
+        metadata.put("checksum", checksum);
+        metadata.put("model_version", snapshot.getVersion());
+        metadata.put("online_base_version", base.getVersion());
+        metadata.put("online_corrections", correctionsApplied);
+        metadata.put("holdout_accuracy", lastHoldoutAccuracy.get());
+        metadata.put("checkpointed_at", Instant.now().toString());
+        writeAtomically(metadataPath, metadata);
+    }
+
+    private void writeAtomically(Path metadataPath, ObjectNode metadata) throws IOException {
+        Path tmp = metadataPath.resolveSibling(METADATA_FILE + ".tmp");
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(tmp.toFile(), metadata);
+        Files.move(tmp, metadataPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void enqueue(Correction correction) {
+        if (pending.offer(correction)) {
+            queued.increment();
+        } else {
+            dropped.increment();
+        }
+    }
+
+    private String record(String outcome, int corrections, String reason) {
+        if (reason != null) {
+            log.debug("Online learning batch of {} {}: {}", corrections, outcome, reason);
+        }
+        Counter.builder("categorization.online.batches")
+            .description("Batches of user corrections applied to the categorization model")
+            .tag("outcome", outcome)
+            .register(meterRegistry)
+            .increment();
+        return outcome;
+    }
+
+    private Counter correctionCounter(String result) {
+        return Counter.builder("categorization.online.corrections")
+            .description("User category corrections offered to online learning")
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+
+    record Correction(String description, int categoryId) {
+    }
+}
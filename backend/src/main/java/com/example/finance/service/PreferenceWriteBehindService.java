@@ -0,0 +1,297 @@
+package com.example.finance.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind buffer for user_categorization_preferences
+ * - record() only touches memory: increments are coalesced per (user, pattern), the latest category wins
+ * - Flushed every flush-interval-ms, or as soon as flush-size patterns are pending, as multi-row
+ *   MERGE statements (one round trip per MERGE_ROWS patterns instead of SELECT + INSERT/UPDATE each)
+ * - A constraint violation (FK_user_cat_pref_user / FK_user_cat_pref_category: user or category deleted
+ *   since the record) fails the whole MERGE, so that chunk is retried row by row and only the rows that
+ *   still violate are rejected
+ * - Any other failure puts the unwritten rows back (merged with anything recorded meanwhile) for the next
+ *   attempt; a row that has failed max-retries flushes is rejected instead of being re-queued forever
+ * - Drained on shutdown
+ *
+ * Metrics: categorization.preferences.pending (patterns waiting), categorization.preferences.flush
+ * (latency, tagged outcome), categorization.preferences.flushed (rows written),
+ * categorization.preferences.dropped (increments discarded while over max-pending),
+ * categorization.preferences.rejected (rows given up on, tagged reason=constraint|retries).
+ */
+@Service
+@Slf4j
+public class PreferenceWriteBehindService {
+
+    // 5 parameters per row, SQL Server allows 2100 per statement
+    static final int MERGE_ROWS = 400;
+
+    private static final String MERGE_HEAD =
+        "MERGE user_categorization_preferences WITH (HOLDLOCK) AS t " +
+        "USING (VALUES ";
+    private static final String MERGE_TAIL =
+        ") AS s (user_id, description_pattern, category_id, increment, last_used) " +
+        "ON t.user_id = s.user_id AND t.description_pattern = s.description_pattern " +
+        "WHEN MATCHED THEN UPDATE SET frequency = t.frequency + s.increment, category_id = s.category_id, " +
+        "last_used = s.last_used, updated_at = s.last_used " +
+        "WHEN NOT MATCHED THEN INSERT (user_id, description_pattern, category_id, frequency, last_used, created_at) " +
+        "VALUES (s.user_id, s.description_pattern, s.category_id, s.increment, s.last_used, s.last_used);";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int flushSize;
+    private final int maxPending;
+    private final int maxRetries;
+
+    private final ConcurrentHashMap<Key, Pending> pending = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final ExecutorService flushExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "preference-write-behind");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Timer flushSuccess;
+    private final Timer flushFailure;
+    private final Counter flushedRows;
+    private final Counter droppedIncrements;
+    private final Counter constraintRejects;
+    private final Counter retryRejects;
+
+    public PreferenceWriteBehindService(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry,
+                                        @Value("${categorization.preferences.flush-size:500}") int flushSize,
+                                        @Value("${categorization.preferences.max-pending:50000}") int maxPending,
+                                        @Value("${categorization.preferences.max-retries:10}") int maxRetries) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.flushSize = flushSize;
+        this.maxPending = maxPending;
+        this.maxRetries = maxRetries;
+
+        Gauge.builder("categorization.preferences.pending", pending, Map::size)
+            .description("Preference patterns waiting to be written")
+            .register(meterRegistry);
+        flushSuccess = Timer.builder("categorization.preferences.flush").tag("outcome", "success")
+            .description("Preference batch upsert latency").register(meterRegistry);
+        flushFailure = Timer.builder("categorization.preferences.flush").tag("outcome", "failure")
+            .description("Preference batch upsert latency").register(meterRegistry);
+        flushedRows = Counter.builder("categorization.preferences.flushed")
+            .description("Preference rows upserted").register(meterRegistry);
+        droppedIncrements = Counter.builder("categorization.preferences.dropped")
+            .description("Preference increments dropped while the buffer was full").register(meterRegistry);
+        constraintRejects = Counter.builder("categorization.preferences.rejected").tag("reason", "constraint")
+            .description("Preference rows not written").register(meterRegistry);
+        retryRejects = Counter.builder("categorization.preferences.rejected").tag("reason", "retries")
+            .description("Preference rows not written").register(meterRegistry);
+    }
+
+    /**
+     * Count one use of pattern -> category for a user (same effect as the old SELECT + INSERT/UPDATE,
+     * applied at the next flush)
+     */
+    public void record(Long userId, String pattern, Long categoryId) {
+        if (userId == null || pattern == null || pattern.isEmpty() || categoryId == null) {
+            return;
+        }
+        Key key = new Key(userId, pattern);
+        if (pending.size() >= maxPending && !pending.containsKey(key)) {
+            droppedIncrements.increment();
+            requestFlush();
+            return;
+        }
+        pending.merge(key, new Pending(categoryId, 1, LocalDateTime.now(), 0), Pending::plus);
+        if (pending.size() >= flushSize) {
+            requestFlush();
+        }
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    @Scheduled(fixedDelayString = "${categorization.preferences.flush-interval-ms:2000}")
+    public void scheduledFlush() {
+        flush();
+    }
+
+    /**
+     * Write everything pending now. Returns the number of rows written (0 if another flush is running;
+     * rows rejected by a constraint are not counted, rows that hit any other failure are re-queued).
+     */
+    public int flush() {
+        if (!flushLock.tryLock()) {
+            return 0;
+        }
+        try {
+            flushRequested.set(false);
+            List<Map.Entry<Key, Pending>> batch = drainPending();
+            if (batch.isEmpty()) {
+                return 0;
+            }
+
+            long start = System.nanoTime();
+            int written = 0;
+            int next = 0; // first row neither written nor rejected
+            try {
+                while (next < batch.size()) {
+                    List<Map.Entry<Key, Pending>> chunk = batch.subList(next, Math.min(next + MERGE_ROWS, batch.size()));
+                    try {
+                        jdbcTemplate.update(mergeSql(chunk.size()), mergeArgs(chunk));
+                        written += chunk.size();
+                        next += chunk.size();
+                    } catch (DataIntegrityViolationException e) {
+                        // One bad row fails the whole MERGE: write the chunk a row at a time to isolate it
+                        for (int end = next + chunk.size(); next < end; next++) {
+                            if (writeRow(batch.get(next))) {
+                                written++;
+                            }
+                        }
+                    }
+                }
+                flushSuccess.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                flushedRows.increment(written);
+                return written;
+            } catch (RuntimeException e) {
+                flushFailure.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                flushedRows.increment(written);
+                int requeued = requeue(batch.subList(next, batch.size()));
+                log.warn("Preference flush failed, {} rows re-queued, {} rejected after {} attempts: {}",
+                    requeued, batch.size() - next - requeued, maxRetries, e.getMessage());
+                return written;
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Flush until nothing is pending (bounded retries), then stop the flush thread
+     */
+    @PreDestroy
+    public void drain() {
+        flushExecutor.shutdown();
+        for (int attempt = 0; attempt < 3 && !pending.isEmpty(); attempt++) {
+            flushLock.lock(); // wait for an in-flight flush
+            flushLock.unlock();
+            flush();
+        }
+        if (!pending.isEmpty()) {
+            log.error("Shutting down with {} preference updates not written", pending.size());
+        }
+    }
+
+    private void requestFlush() {
+        if (flushRequested.compareAndSet(false, true)) {
+            try {
+                flushExecutor.execute(this::flush);
+            } catch (RuntimeException e) {
+                flushRequested.set(false); // shutting down, drain() takes over
+            }
+        }
+    }
+
+    private List<Map.Entry<Key, Pending>> drainPending() {
+        List<Map.Entry<Key, Pending>> batch = new ArrayList<>(pending.size());
+        for (Key key : pending.keySet()) {
+            Pending value = pending.remove(key);
+            if (value != null) {
+                batch.add(Map.entry(key, value));
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Single-row MERGE; false if the row violates a constraint (rejected), other failures propagate
+     */
+    private boolean writeRow(Map.Entry<Key, Pending> row) {
+        try {
+            jdbcTemplate.update(mergeSql(1), mergeArgs(List.of(row)));
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            constraintRejects.increment();
+            log.warn("Preference for user {} pattern '{}' -> category {} rejected: {}",
+                row.getKey().userId, row.getKey().pattern, row.getValue().categoryId, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Put failed rows back for the next flush; returns how many were re-queued (the rest had used up
+     * max-retries and are rejected)
+     */
+    private int requeue(List<Map.Entry<Key, Pending>> rows) {
+        int requeued = 0;
+        for (Map.Entry<Key, Pending> row : rows) {
+            Pending failed = row.getValue().failedOnce();
+            if (failed.attempts > maxRetries) {
+                retryRejects.increment();
+                continue;
+            }
+            // Anything recorded since the drain is newer: it goes second so its category wins
+            pending.merge(row.getKey(), failed, (newer, older) -> older.plus(newer));
+            requeued++;
+        }
+        return requeued;
+    }
+
+    static String mergeSql(int rows) {
+        StringBuilder sql = new StringBuilder(MERGE_HEAD.length() + MERGE_TAIL.length() + rows * 18);
+        sql.append(MERGE_HEAD);
+        for (int i = 0; i < rows; i++) {
+            sql.append(i == 0 ? "(?, ?, ?, ?, ?)" : ", (?, ?, ?, ?, ?)");
+        }
+        return sql.append(MERGE_TAIL).toString();
+    }
+
+    private static Object[] mergeArgs(List<Map.Entry<Key, Pending>> rows) {
+        Object[] args = new Object[rows.size() * 5];
+        int i = 0;
+        for (Map.Entry<Key, Pending> row : rows) {
+            args[i++] = row.getKey().userId;
+            args[i++] = row.getKey().pattern;
+            args[i++] = row.getValue().categoryId;
+            args[i++] = row.getValue().increments;
+            args[i++] = Timestamp.valueOf(row.getValue().lastUsed);
+        }
+        return args;
+    }
+
+    // === Inner Classes ===
+
+    private record Key(Long userId, String pattern) {
+    }
+
+    /**
+     * Coalesced increments for one (user, pattern); the later record's category and time win, the
+     * failed flush count stays with the older (re-queued) entry
+     */
+    private record Pending(Long categoryId, int increments, LocalDateTime lastUsed, int attempts) {
+        Pending plus(Pending later) {
+            return new Pending(later.categoryId, increments + later.increments, later.lastUsed, attempts);
+        }
+
+        Pending failedOnce() {
+            return new Pending(categoryId, increments, lastUsed, attempts + 1);
+        }
+    }
+}
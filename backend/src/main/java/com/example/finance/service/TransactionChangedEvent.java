@@ -0,0 +1,48 @@
+package com.example.finance.service;
+
+import com.example.finance.entity.Transaction;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * A transaction was created, updated or deleted; stored as JSON in TransactionEventOutbox and
+ * handed to every TransactionEventHandler after the saving transaction commits
+ */
+public record TransactionChangedEvent(String eventId, String change, Long transactionId, Long userId,
+                                      Long walletId, Long previousWalletId, Long categoryId, Long previousCategoryId,
+                                      String type, BigDecimal amount, LocalDate date, boolean deleted) {
+
+    public static final String CREATED = "created";
+    public static final String UPDATED = "updated";
+    public static final String DELETED = "deleted";
+    // Statement import: one event stands for the imported expenses of one (category, month)
+    public static final String IMPORTED = "imported";
+
+    public static TransactionChangedEvent of(String change, Transaction transaction,
+                                             Long previousWalletId, Long previousCategoryId) {
+        return new TransactionChangedEvent(
+            UUID.randomUUID().toString(),
+            change,
+            transaction.getId(),
+            transaction.getUser() != null ? transaction.getUser().getId() : null,
+            transaction.getWallet() != null ? transaction.getWallet().getId() : null,
+            previousWalletId,
+            transaction.getCategory() != null ? transaction.getCategory().getId() : null,
+            previousCategoryId,
+            transaction.getType(),
+            transaction.getAmount(),
+            transaction.getDate(),
+            DELETED.equals(change) || transaction.isDeleted());
+    }
+
+    /**
+     * Still counted in balances and budgets (not soft- or hard-deleted)
+     */
+    @JsonIgnore
+    public boolean isLive() {
+        return !deleted;
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.finance.service;
+
+import java.util.function.Consumer;
+
+/**
+ * Side effect of a transaction change, run by TransactionEventService after commit
+ * - Runs in its own database transaction together with marking its outbox row done, so its
+ *   database writes happen once; anything outside the database (email) is at-least-once
+ * - Throwing schedules a retry with backoff; the name is stored in the outbox, keep it stable
+ */
+public interface TransactionEventHandler {
+
+    String name();
+
+    void handle(TransactionChangedEvent event);
+
+    static TransactionEventHandler of(String name, Consumer<TransactionChangedEvent> handler) {
+        return new TransactionEventHandler() {
+            @Override
+            public String name() {
+                return name;
+            }
+
+            @Override
+            public void handle(TransactionChangedEvent event) {
+                handler.accept(event);
+            }
+        };
+    }
+}
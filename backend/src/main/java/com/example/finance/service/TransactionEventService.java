@@ -0,0 +1,324 @@
+package com.example.finance.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Post-commit side effects of transaction saves (budget alerts, goals, notifications, gamification,
+ * achievements), off the request thread and outside the saving DB transaction
+ * - publish() writes one TransactionEventOutbox row per handler in the caller's transaction: a
+ *   rollback drops them, a crash after commit leaves them for the sweep
+ * - After commit the event goes to a bounded pool (max-concurrency workers, queue-capacity); the
+ *   handlers of one event run in order. Pool full: the rows wait for the sweep
+ * - Each handler runs in its own transaction that also marks its row done. A failure is retried
+ *   after retry-backoff-ms * 2^(attempts - 1), up to max-attempts, then the row is left "failed"
+ * - Rows are claimed by moving next_attempt_at forward (lease-ms), so a sweep on another instance
+ *   does not deliver a row that is being worked on; done rows are purged after retention-hours
+ * - enabled=false: handlers run inline in the caller's transaction, as before, with no outbox
+ *
+ * Meters: transaction.events.handler{handler,outcome=success|retry|failed} timer,
+ * transaction.events.rejected counter, transaction.events.queued gauge.
+ */
+@Service
+@Slf4j
+public class TransactionEventService {
+
+    public static final String OUTCOME_SUCCESS = "success";
+    public static final String OUTCOME_RETRY = "retry";
+    public static final String OUTCOME_FAILED = "failed";
+
+    static final String STATUS_PENDING = "pending";
+    static final String STATUS_DONE = "done";
+    static final String STATUS_FAILED = "failed";
+
+    private static final int SWEEP_BATCH = 200;
+    private static final int PURGE_BATCH = 1000;
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private static final String INSERT_SQL =
+        "INSERT INTO TransactionEventOutbox (event_id, handler, payload, status, attempts, next_attempt_at, created_at) " +
+        "VALUES (?, ?, ?, '" + STATUS_PENDING + "', 0, ?, ?)";
+    private static final String DONE_SQL =
+        "UPDATE TransactionEventOutbox SET status = '" + STATUS_DONE + "', attempts = attempts + 1, processed_at = ? " +
+        "WHERE event_id = ? AND handler = ?";
+    private static final String FAILURE_SQL =
+        "UPDATE TransactionEventOutbox SET status = ?, attempts = ?, next_attempt_at = ?, last_error = ? " +
+        "WHERE event_id = ? AND handler = ?";
+    private static final String DUE_SQL =
+        "SELECT TOP (" + SWEEP_BATCH + ") event_id, handler, payload, attempts, next_attempt_at " +
+        "FROM TransactionEventOutbox WHERE status = '" + STATUS_PENDING + "' AND next_attempt_at <= ? ORDER BY next_attempt_at";
+    private static final String CLAIM_SQL =
+        "UPDATE TransactionEventOutbox SET next_attempt_at = ? " +
+        "WHERE event_id = ? AND handler = ? AND status = '" + STATUS_PENDING + "' AND next_attempt_at = ?";
+    private static final String PURGE_SQL =
+        "DELETE TOP (" + PURGE_BATCH + ") FROM TransactionEventOutbox WHERE status = '" + STATUS_DONE + "' AND processed_at < ?";
+
+    private final Map<String, TransactionEventHandler> handlers = new LinkedHashMap<>();
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final int maxAttempts;
+    private final long retryBackoffMs;
+    private final long leaseMs;
+    private final long retentionHours;
+    private final ThreadPoolExecutor executor;
+    private final Counter rejected;
+
+    // (event, handler) queued or running here, so the sweep does not submit them twice
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    public TransactionEventService(List<TransactionEventHandler> handlers,
+                                   JdbcTemplate jdbcTemplate,
+                                   ObjectMapper objectMapper,
+                                   PlatformTransactionManager transactionManager,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${transaction-events.enabled:true}") boolean enabled,
+                                   @Value("${transaction-events.disabled-handlers:}") Set<String> disabledHandlers,
+                                   @Value("${transaction-events.max-concurrency:2}") int maxConcurrency,
+                                   @Value("${transaction-events.queue-capacity:1000}") int queueCapacity,
+                                   @Value("${transaction-events.max-attempts:5}") int maxAttempts,
+                                   @Value("${transaction-events.retry-backoff-ms:2000}") long retryBackoffMs,
+                                   @Value("${transaction-events.lease-ms:60000}") long leaseMs,
+                                   @Value("${transaction-events.retention-hours:72}") long retentionHours) {
+        for (TransactionEventHandler handler : handlers) {
+            if (!disabledHandlers.contains(handler.name())) {
+                this.handlers.put(handler.name(), handler);
+            }
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoffMs = retryBackoffMs;
+        this.leaseMs = leaseMs;
+        this.retentionHours = retentionHours;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+            maxConcurrency, maxConcurrency, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            r -> {
+                Thread thread = new Thread(r, "transaction-events-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+
+        meterRegistry.gauge("transaction.events.queued", executor, e -> e.getQueue().size());
+        this.rejected = Counter.builder("transaction.events.rejected")
+            .description("Transaction events left to the outbox sweep because the handler pool was full")
+            .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Record the event in the outbox (caller's transaction) and run the handlers once it commits
+     * (right away without one)
+     */
+    public void publish(TransactionChangedEvent event) {
+        if (handlers.isEmpty()) {
+            return;
+        }
+        if (!enabled) {
+            for (TransactionEventHandler handler : handlers.values()) {
+                handler.handle(event);
+            }
+            return;
+        }
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize " + event, e);
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        Timestamp leaseEnd = Timestamp.valueOf(LocalDateTime.now().plusNanos(TimeUnit.MILLISECONDS.toNanos(leaseMs)));
+        List<Object[]> rows = new ArrayList<>(handlers.size());
+        List<Delivery> deliveries = new ArrayList<>(handlers.size());
+        for (String handler : handlers.keySet()) {
+            rows.add(new Object[]{event.eventId(), handler, payload, leaseEnd, now});
+            deliveries.add(new Delivery(event, handler, 0));
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    submit(deliveries);
+                }
+            });
+        } else {
+            submit(deliveries);
+        }
+    }
+
+    /**
+     * Deliver outbox rows that are due: retries, rows the pool could not take, rows left by a crash
+     */
+    @Scheduled(fixedDelayString = "${transaction-events.sweep-interval-ms:30000}")
+    public void sweep() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp leaseEnd = Timestamp.valueOf(now.plusNanos(TimeUnit.MILLISECONDS.toNanos(leaseMs)));
+        List<Map<String, Object>> due = jdbcTemplate.queryForList(DUE_SQL, Timestamp.valueOf(now));
+        for (Map<String, Object> row : due) {
+            String eventId = (String) row.get("event_id");
+            String handler = (String) row.get("handler");
+            if (inFlight.contains(key(eventId, handler))
+                    || jdbcTemplate.update(CLAIM_SQL, leaseEnd, eventId, handler, row.get("next_attempt_at")) == 0) {
+                continue;
+            }
+            TransactionChangedEvent event;
+            try {
+                event = objectMapper.readValue((String) row.get("payload"), TransactionChangedEvent.class);
+            } catch (JsonProcessingException e) {
+                markFailure(eventId, handler, maxAttempts, e);
+                continue;
+            }
+            int attempts = ((Number) row.get("attempts")).intValue();
+            if (!submit(List.of(new Delivery(event, handler, attempts)))) {
+                break;
+            }
+        }
+        int purged = jdbcTemplate.update(PURGE_SQL, Timestamp.valueOf(now.minusHours(retentionHours)));
+        if (!due.isEmpty() || purged > 0) {
+            log.debug("Transaction event sweep: {} due, {} done rows purged", due.size(), purged);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getQueuedCount() {
+        return executor.getQueue().size();
+    }
+
+    private boolean submit(List<Delivery> deliveries) {
+        List<Delivery> accepted = new ArrayList<>(deliveries.size());
+        for (Delivery delivery : deliveries) {
+            if (inFlight.add(delivery.key())) {
+                accepted.add(delivery);
+            }
+        }
+        if (accepted.isEmpty()) {
+            return true;
+        }
+        try {
+            executor.execute(() -> {
+                for (Delivery delivery : accepted) {
+                    try {
+                        deliver(delivery);
+                    } finally {
+                        inFlight.remove(delivery.key());
+                    }
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            accepted.forEach(delivery -> inFlight.remove(delivery.key()));
+            rejected.increment();
+            log.debug("Transaction event pool full, event {} left to the sweep", accepted.get(0).event().eventId());
+            return false;
+        }
+    }
+
+    /**
+     * Runs on a worker: the handler and the done mark commit together
+     */
+    void deliver(Delivery delivery) {
+        long start = System.nanoTime();
+        String eventId = delivery.event().eventId();
+        TransactionEventHandler handler = handlers.get(delivery.handler());
+        String outcome;
+        if (handler == null) {
+            outcome = OUTCOME_FAILED;
+            markFailure(eventId, delivery.handler(), maxAttempts, new IllegalStateException("No handler " + delivery.handler()));
+        } else {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    handler.handle(delivery.event());
+                    jdbcTemplate.update(DONE_SQL, Timestamp.valueOf(LocalDateTime.now()), eventId, delivery.handler());
+                });
+                outcome = OUTCOME_SUCCESS;
+            } catch (RuntimeException e) {
+                int attempts = delivery.attempts() + 1;
+                outcome = attempts >= maxAttempts ? OUTCOME_FAILED : OUTCOME_RETRY;
+                if (OUTCOME_FAILED.equals(outcome)) {
+                    log.error("Transaction event {} handler {} failed after {} attempts: {}",
+                        eventId, delivery.handler(), attempts, e.getMessage());
+                } else {
+                    log.warn("Transaction event {} handler {} failed (attempt {}): {}",
+                        eventId, delivery.handler(), attempts, e.getMessage());
+                }
+                markFailure(eventId, delivery.handler(), attempts, e);
+            }
+        }
+
+        Timer.builder("transaction.events.handler")
+            .description("Post-commit transaction event handlers, queue wait excluded")
+            .tag("handler", delivery.handler())
+            .tag("outcome", outcome)
+            .publishPercentileHistogram()
+            .register(meterRegistry)
+            .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private void markFailure(String eventId, String handler, int attempts, Exception error) {
+        boolean exhausted = attempts >= maxAttempts;
+        long backoffMs = retryBackoffMs << Math.min(Math.max(attempts - 1, 0), 20);
+        String message = String.valueOf(error.getMessage());
+        try {
+            jdbcTemplate.update(FAILURE_SQL,
+                exhausted ? STATUS_FAILED : STATUS_PENDING,
+                attempts,
+                Timestamp.valueOf(LocalDateTime.now().plusNanos(TimeUnit.MILLISECONDS.toNanos(backoffMs))),
+                message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message,
+                eventId, handler);
+        } catch (RuntimeException e) {
+            // Row keeps its lease: the sweep retries it once the lease runs out
+            log.warn("Could not record failure of transaction event {} handler {}: {}", eventId, handler, e.getMessage());
+        }
+    }
+
+    private static String key(String eventId, String handler) {
+        return eventId + '/' + handler;
+    }
+
+    record Delivery(TransactionChangedEvent event, String handler, int attempts) {
+        String key() {
+            return TransactionEventService.key(event.eventId(), handler);
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package com.example.finance.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Streaming readers for bank statement imports, one Row at a time (files are never held in memory)
+ * - csv: header row, comma or semicolon separated, RFC 4180 quoting
+ * - json: array of objects
+ * - ofx: STMTTRN blocks of an OFX 1.x (SGML) or 2.x (XML) statement
+ * Column / field names: date, amount, type, note (description, memo, name), category, wallet
+ * (with _id / Id variants); values stay raw strings, TransactionImportService validates them.
+ */
+public final class TransactionImportParser {
+
+    public static final String CSV = "csv";
+    public static final String JSON = "json";
+    public static final String OFX = "ofx";
+
+    private static final Map<String, String> ALIASES = Map.ofEntries(
+        Map.entry("date", "date"), Map.entry("trans_date", "date"), Map.entry("transdate", "date"),
+        Map.entry("amount", "amount"),
+        Map.entry("type", "type"),
+        Map.entry("note", "note"), Map.entry("description", "note"), Map.entry("memo", "note"), Map.entry("name", "note"),
+        Map.entry("category", "category"), Map.entry("category_id", "category"), Map.entry("categoryid", "category"),
+        Map.entry("wallet", "wallet"), Map.entry("wallet_id", "wallet"), Map.entry("walletid", "wallet"));
+
+    private static final Pattern OFX_TAG = Pattern.compile("<(/?)([A-Za-z0-9.]+)>([^<\\r\\n]*)");
+
+    private TransactionImportParser() {
+    }
+
+    /**
+     * One statement line; row is 1-based (data rows for csv, elements for json, STMTTRN blocks for ofx)
+     */
+    public record Row(int row, String date, String amount, String type, String note, String category, String wallet) {
+    }
+
+    /**
+     * csv / json / ofx from the explicit format, else from the file name's extension
+     */
+    public static String detectFormat(String format, String filename) {
+        String candidate = format;
+        if ((candidate == null || candidate.isBlank()) && filename != null && filename.contains(".")) {
+            candidate = filename.substring(filename.lastIndexOf('.') + 1);
+        }
+        candidate = candidate == null ? "" : candidate.trim().toLowerCase(Locale.ROOT);
+        return switch (candidate) {
+            case CSV, "txt" -> CSV;
+            case JSON -> JSON;
+            case OFX, "qfx" -> OFX;
+            default -> throw new IllegalArgumentException("Unsupported import format '" + candidate + "' (csv, json, ofx)");
+        };
+    }
+
+    public static Iterator<Row> open(String format, InputStream in, ObjectMapper objectMapper) throws IOException {
+        return switch (format) {
+            case CSV -> new CsvRows(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+            case JSON -> new JsonRows(objectMapper.getFactory().createParser(in), objectMapper);
+            case OFX -> new OfxRows(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+            default -> throw new IllegalArgumentException("Unsupported import format " + format);
+        };
+    }
+
+    private static Row row(int number, Map<String, String> fields) {
+        return new Row(number, fields.get("date"), fields.get("amount"), fields.get("type"), fields.get("note"),
+            fields.get("category"), fields.get("wallet"));
+    }
+
+    private static String canonical(String name) {
+        String key = name.trim().toLowerCase(Locale.ROOT);
+        if (!key.isEmpty() && key.charAt(0) == '\uFEFF') {
+            key = key.substring(1);
+        }
+        return ALIASES.get(key);
+    }
+
+    private abstract static class Rows implements Iterator<Row> {
+        private Row next;
+        private boolean done;
+
+        /** Next row, or null at the end */
+        abstract Row read() throws IOException;
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && !done) {
+                try {
+                    next = read();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                done = next == null;
+            }
+            return next != null;
+        }
+
+        @Override
+        public Row next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Row row = next;
+            next = null;
+            return row;
+        }
+    }
+
+    private static final class CsvRows extends Rows {
+        private final BufferedReader reader;
+        private String[] columns;
+        private char separator = ',';
+        private int number;
+
+        CsvRows(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        Row read() throws IOException {
+            if (columns == null) {
+                String header = reader.readLine();
+                if (header == null) {
+                    return null;
+                }
+                separator = header.indexOf(';') >= 0 && header.indexOf(',') < 0 ? ';' : ',';
+                List<String> names = split(header);
+                columns = new String[names.size()];
+                for (int i = 0; i < columns.length; i++) {
+                    columns[i] = canonical(names.get(i));
+                }
+            }
+            String line;
+            do {
+                line = reader.readLine();
+                if (line == null) {
+                    return null;
+                }
+            } while (line.isBlank());
+            // A quoted field may span lines
+            while (openQuotes(line)) {
+                String more = reader.readLine();
+                if (more == null) {
+                    break;
+                }
+                line = line + "\n" + more;
+            }
+            List<String> values = split(line);
+            Map<String, String> fields = new HashMap<>();
+            for (int i = 0; i < columns.length && i < values.size(); i++) {
+                if (columns[i] != null) {
+                    fields.put(columns[i], values.get(i));
+                }
+            }
+            return row(++number, fields);
+        }
+
+        private static boolean openQuotes(String line) {
+            int quotes = 0;
+            for (int i = 0; i < line.length(); i++) {
+                if (line.charAt(i) == '"') {
+                    quotes++;
+                }
+            }
+            return quotes % 2 != 0;
+        }
+
+        private List<String> split(String line) {
+            List<String> values = new ArrayList<>();
+            StringBuilder current = new StringBuilder();
+            boolean quoted = false;
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (quoted) {
+                    if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        current.append('"');
+                        i++;
+                    } else if (c == '"') {
+                        quoted = false;
+                    } else {
+                        current.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == separator) {
+                    values.add(current.toString().trim());
+                    current.setLength(0);
+                } else {
+                    current.append(c);
+                }
+            }
+            values.add(current.toString().trim());
+            return values;
+        }
+    }
+
+    private static final class JsonRows extends Rows {
+        private final JsonParser parser;
+        private final ObjectMapper objectMapper;
+        private boolean started;
+        private int number;
+
+        JsonRows(JsonParser parser, ObjectMapper objectMapper) {
+            this.parser = parser;
+            this.objectMapper = objectMapper;
+        }
+
+        @Override
+        Row read() throws IOException {
+            if (!started) {
+                started = true;
+                if (parser.nextToken() != JsonToken.START_ARRAY) {
+                    throw new IOException("JSON import must be an array of transactions");
+                }
+            }
+            JsonToken token = parser.nextToken();
+            if (token == null || token == JsonToken.END_ARRAY) {
+                parser.close();
+                return null;
+            }
+            JsonNode node = objectMapper.readTree(parser);
+            Map<String, String> fields = new HashMap<>();
+            if (node != null && node.isObject()) {
+                node.fields().forEachRemaining(field -> {
+                    String key = canonical(field.getKey());
+                    if (key != null && !field.getValue().isNull()) {
+                        fields.put(key, field.getValue().asText());
+                    }
+                });
+            }
+            return row(++number, fields);
+        }
+    }
+
+    /**
+     * OFX: tags may be unclosed (SGML) or closed (XML); only STMTTRN contents are read
+     */
+    private static final class OfxRows extends Rows {
+        private final BufferedReader reader;
+        private int number;
+
+        OfxRows(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        Row read() throws IOException {
+            Map<String, String> fields = null;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Matcher matcher = OFX_TAG.matcher(line);
+                while (matcher.find()) {
+                    boolean closing = !matcher.group(1).isEmpty();
+                    String tag = matcher.group(2).toUpperCase(Locale.ROOT);
+                    String value = matcher.group(3).trim();
+                    if (tag.equals("STMTTRN")) {
+                        if (!closing) {
+                            fields = new HashMap<>();
+                        } else if (fields != null) {
+                            return row(++number, fields);
+                        }
+                    } else if (fields != null && !closing && !value.isEmpty()) {
+                        switch (tag) {
+                            case "DTPOSTED" -> fields.put("date", value.length() >= 8 ? value.substring(0, 8) : value);
+                            case "TRNAMT" -> fields.put("amount", value);
+                            case "NAME" -> fields.putIfAbsent("note", value);
+                            case "MEMO" -> fields.merge("note", value, (name, memo) -> name + " " + memo);
+                            default -> {
+                            }
+                        }
+                    }
+                }
+            }
+            return null;
+        }
+    }
+}
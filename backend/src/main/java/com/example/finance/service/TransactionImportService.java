@@ -0,0 +1,541 @@
+package com.example.finance.service;
+
+import com.example.finance.entity.Category;
+import com.example.finance.entity.Transaction;
+import com.example.finance.entity.User;
+import com.example.finance.entity.Wallet;
+import com.example.finance.exception.CustomException;
+import com.example.finance.repository.CategoryRepository;
+import com.example.finance.repository.UserRepository;
+import com.example.finance.repository.WalletRepository;
+import com.example.finance.service.AICategorizationService.CategorizationResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Bulk statement import (csv / json / ofx), outside TransactionService.save's one-row-at-a-time path
+ * - Rows are read as a stream and validated with save()'s rules (amount > 0, income / expense, date
+ *   not in the future nor more than 10 years old, the user's own wallet, a known category), plus the
+ *   amount fitting Transactions.amount DECIMAL(18,2)
+ * - Every batch-size valid rows: rows without a category are categorized in one
+ *   BatchCategorizationService call, then inserted with multi-row INSERTs (INSERT_ROWS rows per
+ *   statement) and the wallet balances moved by one delta per wallet, all in one DB transaction
+ * - In that transaction, one "imported" TransactionChangedEvent per (category, month) with expenses,
+ *   carrying one of its inserted rows: after commit TransactionEventService updates the budget's spent
+ *   amount / alert, budget caches, goals and notifications from it, once per budget instead of once per
+ *   row. The wallet cache is evicted per batch; goals are checked once more at the end of the import
+ * - Invalid rows and failed batches are reported through the row-error callback as they happen.
+ *   A batch that violates a constraint is rolled back and its halves retried on their own, down to
+ *   single rows, so only the offending rows are rejected; any other failure rejects the batch whole.
+ *   Either way the import goes on with the next one
+ *
+ * Meters: transaction.import.rows{result=imported|failed}, transaction.import.batch timer.
+ */
+@Service
+@Slf4j
+public class TransactionImportService {
+
+    // 9 parameters per row, SQL Server allows 2100 per statement
+    static final int INSERT_ROWS = 200;
+
+    // OUTPUT gives the generated ids (in no particular order, hence the columns to match them on)
+    private static final String INSERT_HEAD =
+        "INSERT INTO Transactions (amount, type, note, trans_date, status, is_deleted, category_provisional, " +
+        "created_at, updated_at, user_id, wallet_id, category_id) " +
+        "OUTPUT INSERTED.id, INSERTED.type, INSERTED.category_id, INSERTED.trans_date VALUES ";
+    private static final String INSERT_ROW = "(?, ?, ?, ?, 'cleared', 0, 0, ?, ?, ?, ?, ?)";
+
+    // Transactions.amount is DECIMAL(18,2)
+    private static final int AMOUNT_PRECISION = 18;
+    private static final int AMOUNT_SCALE = 2;
+
+    private static final List<DateTimeFormatter> DATE_FORMATS = List.of(
+        DateTimeFormatter.ISO_LOCAL_DATE,
+        DateTimeFormatter.ofPattern("d/M/uuuu").withResolverStyle(ResolverStyle.STRICT),
+        DateTimeFormatter.ofPattern("d-M-uuuu").withResolverStyle(ResolverStyle.STRICT),
+        DateTimeFormatter.ofPattern("d.M.uuuu").withResolverStyle(ResolverStyle.STRICT),
+        DateTimeFormatter.BASIC_ISO_DATE);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final UserRepository userRepository;
+    private final WalletRepository walletRepository;
+    private final CategoryRepository categoryRepository;
+    private final BatchCategorizationService batchCategorizationService;
+    private final WalletBalanceService walletBalanceService;
+    private final TransactionEventService transactionEventService;
+    private final GoalService goalService;
+    private final CacheManager cacheManager;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final int batchSize;
+    private final int maxRows;
+    private final boolean categorize;
+    private final Counter importedRows;
+    private final Counter failedRows;
+
+    public TransactionImportService(JdbcTemplate jdbcTemplate,
+                                    PlatformTransactionManager transactionManager,
+                                    UserRepository userRepository,
+                                    WalletRepository walletRepository,
+                                    CategoryRepository categoryRepository,
+                                    BatchCategorizationService batchCategorizationService,
+                                    WalletBalanceService walletBalanceService,
+                                    TransactionEventService transactionEventService,
+                                    GoalService goalService,
+                                    CacheManager cacheManager,
+                                    ObjectMapper objectMapper,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${transaction-import.batch-size:1000}") int batchSize,
+                                    @Value("${transaction-import.max-rows:200000}") int maxRows,
+                                    @Value("${transaction-import.categorize:true}") boolean categorize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.userRepository = userRepository;
+        this.walletRepository = walletRepository;
+        this.categoryRepository = categoryRepository;
+        this.batchCategorizationService = batchCategorizationService;
+        this.walletBalanceService = walletBalanceService;
+        this.transactionEventService = transactionEventService;
+        this.goalService = goalService;
+        this.cacheManager = cacheManager;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.batchSize = batchSize;
+        this.maxRows = maxRows;
+        this.categorize = categorize;
+        this.importedRows = Counter.builder("transaction.import.rows")
+            .description("Statement rows imported")
+            .tag("result", "imported")
+            .register(meterRegistry);
+        this.failedRows = Counter.builder("transaction.import.rows")
+            .description("Statement rows imported")
+            .tag("result", "failed")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Import a statement for the user. defaultWalletId (optional) is used for rows without a wallet,
+     * else the user's first wallet. rowErrors receives {row, error} as soon as a row is rejected.
+     */
+    public ImportSummary importStatement(Long userId, InputStream in, String format, Long defaultWalletId,
+                                         Consumer<Map<String, Object>> rowErrors) {
+        long start = System.nanoTime();
+        User user = userRepository.findById(userId)
+            .orElseThrow(() -> new CustomException("User not found!"));
+        Map<Long, Wallet> wallets = new LinkedHashMap<>();
+        for (Wallet wallet : walletRepository.findByUserId(userId)) {
+            wallets.put(wallet.getId(), wallet);
+        }
+        if (defaultWalletId != null && !wallets.containsKey(defaultWalletId)) {
+            throw new CustomException("Wallet not found!");
+        }
+        Wallet defaultWallet = defaultWalletId != null ? wallets.get(defaultWalletId)
+            : wallets.values().stream().findFirst().orElse(null);
+        Categories categories = new Categories(categoryRepository.findAll());
+
+        Iterator<TransactionImportParser.Row> rows;
+        try {
+            rows = TransactionImportParser.open(format, in, objectMapper);
+        } catch (IOException e) {
+            throw new CustomException("Could not read the statement: " + e.getMessage(), e);
+        }
+
+        Import run = new Import(user, rowErrors);
+        List<ImportRow> batch = new ArrayList<>(batchSize);
+        LocalDate today = LocalDate.now();
+        try {
+            while (rows.hasNext()) {
+                TransactionImportParser.Row raw = rows.next();
+                if (run.rows >= maxRows) {
+                    run.reject(raw.row(), "Import is limited to " + maxRows + " rows, the rest was not read");
+                    break;
+                }
+                run.rows++;
+                try {
+                    batch.add(validate(raw, wallets, defaultWallet, categories, today));
+                } catch (IllegalArgumentException e) {
+                    run.reject(raw.row(), e.getMessage());
+                }
+                if (batch.size() == batchSize) {
+                    flush(run, batch, categories);
+                    batch.clear();
+                }
+            }
+        } catch (UncheckedIOException e) {
+            // Malformed file: keep what was imported, report where reading stopped
+            run.reject(run.rows + 1, "Could not read the statement past this point: " + e.getMessage());
+        }
+        if (!batch.isEmpty()) {
+            flush(run, batch, categories);
+        }
+
+        if (run.imported > 0) {
+            try {
+                goalService.checkAndUpdateGoalStatus(userId);
+            } catch (RuntimeException e) {
+                log.warn("Goal status check after import failed for user {}: {}", userId, e.getMessage());
+            }
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        log.info("Imported {} of {} statement rows for user {} in {} ms", run.imported, run.rows, userId, elapsedMs);
+        return new ImportSummary(run.rows, run.imported, run.failed, elapsedMs);
+    }
+
+    /**
+     * Categorize, insert and apply the balance deltas of one batch, and publish the events of the
+     * budgets it touched
+     */
+    private void flush(Import run, List<ImportRow> batch, Categories categories) {
+        long start = System.nanoTime();
+        boolean complete = false;
+        try {
+            if (categorize) {
+                categorize(batch, run.user.getId(), categories);
+            }
+            complete = write(run, batch);
+        } catch (RuntimeException e) {
+            rejectAll(run, batch, e);
+        } finally {
+            evictCaches(run.user.getId());
+            Timer.builder("transaction.import.batch")
+                .description("Statement import batches: categorize, insert, balances, budgets")
+                .tag("outcome", complete ? "success" : "failure")
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Insert the rows and apply their balance deltas and budget events in one DB transaction. A
+     * constraint violation (a value the column cannot hold, a wallet or category deleted meanwhile)
+     * fails every row of the statement, so the two halves are retried on their own until the
+     * offending rows are alone and rejected. Returns true if every row went in.
+     */
+    private boolean write(Import run, List<ImportRow> rows) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Map<String, Long> insertedIds = insert(rows, run.user.getId());
+                Map<Long, BigDecimal> deltas = new LinkedHashMap<>();
+                Map<Long, Wallet> touched = new HashMap<>();
+                for (ImportRow row : rows) {
+                    BigDecimal signed = "income".equals(row.type()) ? row.amount() : row.amount().negate();
+                    deltas.merge(row.wallet().getId(), signed, BigDecimal::add);
+                    touched.putIfAbsent(row.wallet().getId(), row.wallet());
+                }
+                deltas.forEach((walletId, delta) -> walletBalanceService.applyDelta(touched.get(walletId), delta));
+                publishBudgetEvents(run.user, rows, insertedIds);
+            });
+            run.imported += rows.size();
+            importedRows.increment(rows.size());
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            if (rows.size() == 1) {
+                run.reject(rows.get(0).row(), "Row not imported: " + e.getMostSpecificCause().getMessage());
+                return false;
+            }
+            int half = rows.size() / 2;
+            boolean first = write(run, rows.subList(0, half));
+            boolean second = write(run, rows.subList(half, rows.size()));
+            return first && second;
+        } catch (RuntimeException e) {
+            rejectAll(run, rows, e);
+            return false;
+        }
+    }
+
+    private void rejectAll(Import run, List<ImportRow> rows, RuntimeException e) {
+        log.warn("Import batch of {} rows failed for user {}: {}", rows.size(), run.user.getId(), e.getMessage());
+        for (ImportRow row : rows) {
+            run.reject(row.row(), "Batch not imported: " + e.getMessage());
+        }
+    }
+
+    private void categorize(List<ImportRow> batch, Long userId, Categories categories) {
+        List<Integer> positions = new ArrayList<>();
+        List<BatchCategorizationService.Item> items = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            ImportRow row = batch.get(i);
+            if (row.category() == null && row.note() != null) {
+                positions.add(i);
+                items.add(new BatchCategorizationService.Item(row.note(), row.amount().doubleValue()));
+            }
+        }
+        if (items.isEmpty()) {
+            return;
+        }
+        List<CategorizationResult> results = batchCategorizationService.categorize(items, userId).getResults();
+        for (int i = 0; i < positions.size(); i++) {
+            CategorizationResult result = results.get(i);
+            Category category = result != null ? categories.byId.get(result.getCategory()) : null;
+            if (category != null) {
+                int position = positions.get(i);
+                batch.set(position, batch.get(position).withCategory(category));
+            }
+        }
+    }
+
+    /**
+     * Multi-row INSERTs; returns one inserted id per budgetKey() of the batch's expenses
+     */
+    private Map<String, Long> insert(List<ImportRow> batch, Long userId) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        Map<String, Long> idsByBudget = new HashMap<>();
+        for (int from = 0; from < batch.size(); from += INSERT_ROWS) {
+            List<ImportRow> chunk = batch.subList(from, Math.min(from + INSERT_ROWS, batch.size()));
+            StringBuilder sql = new StringBuilder(INSERT_HEAD.length() + chunk.size() * (INSERT_ROW.length() + 2))
+                .append(INSERT_HEAD);
+            Object[] args = new Object[chunk.size() * 9];
+            int i = 0;
+            for (ImportRow row : chunk) {
+                sql.append(i == 0 ? "" : ", ").append(INSERT_ROW);
+                args[i++] = row.amount();
+                args[i++] = row.type();
+                args[i++] = row.note();
+                args[i++] = Date.valueOf(row.date());
+                args[i++] = now;
+                args[i++] = now;
+                args[i++] = userId;
+                args[i++] = row.wallet().getId();
+                args[i++] = row.category() != null ? row.category().getId() : null;
+            }
+            jdbcTemplate.query(sql.toString(), rs -> {
+                Number categoryId = (Number) rs.getObject("category_id");
+                if ("expense".equals(rs.getString("type")) && categoryId != null) {
+                    idsByBudget.putIfAbsent(budgetKey(categoryId.longValue(), rs.getDate("trans_date").toLocalDate()),
+                        rs.getLong("id"));
+                }
+            }, args);
+        }
+        return idsByBudget;
+    }
+
+    /**
+     * One event per (category, month) with expenses in the batch, for one of its rows: the budget
+     * handler updates the budget's spent amount and raises the alert / email the same way a single
+     * expense would
+     */
+    private void publishBudgetEvents(User user, List<ImportRow> batch, Map<String, Long> insertedIds) {
+        Map<String, ImportRow> touched = new LinkedHashMap<>();
+        for (ImportRow row : batch) {
+            if ("expense".equals(row.type()) && row.category() != null) {
+                touched.putIfAbsent(budgetKey(row.category().getId(), row.date()), row);
+            }
+        }
+        touched.forEach((key, row) -> {
+            Transaction inserted = new Transaction();
+            inserted.setId(insertedIds.get(key));
+            inserted.setUser(user);
+            inserted.setWallet(row.wallet());
+            inserted.setCategory(row.category());
+            inserted.setType(row.type());
+            inserted.setAmount(row.amount());
+            inserted.setDate(row.date());
+            transactionEventService.publish(TransactionChangedEvent.of(TransactionChangedEvent.IMPORTED, inserted, null, null));
+        });
+    }
+
+    private static String budgetKey(Long categoryId, LocalDate date) {
+        return categoryId + "|" + date.getYear() + "-" + date.getMonthValue();
+    }
+
+    private void evictCaches(Long userId) {
+        Cache wallets = cacheManager.getCache("wallets");
+        if (wallets != null) {
+            wallets.evict(userId);
+        }
+    }
+
+    ImportRow validate(TransactionImportParser.Row raw, Map<Long, Wallet> wallets, Wallet defaultWallet,
+                       Categories categories, LocalDate today) {
+        LocalDate date = parseDate(raw.date());
+        if (date.isAfter(today)) {
+            throw new IllegalArgumentException("Transaction date cannot be in the future");
+        }
+        if (date.isBefore(today.minusYears(10))) {
+            throw new IllegalArgumentException("Transaction date cannot be more than 10 years ago");
+        }
+
+        BigDecimal amount = parseAmount(raw.amount());
+        String type = raw.type() == null || raw.type().isBlank() ? null : raw.type().trim().toLowerCase(Locale.ROOT);
+        if (type == null) {
+            // Statements without a type column: sign of the amount (credit / debit)
+            type = amount.signum() < 0 ? "expense" : "income";
+        } else if (type.equals("credit")) {
+            type = "income";
+        } else if (type.equals("debit")) {
+            type = "expense";
+        }
+        if (!type.equals("income") && !type.equals("expense")) {
+            throw new IllegalArgumentException("Type must be 'income' or 'expense'");
+        }
+        amount = amount.abs();
+        if (amount.signum() == 0) {
+            throw new IllegalArgumentException("Amount must be greater than 0");
+        }
+        BigDecimal significant = amount.stripTrailingZeros();
+        if (significant.scale() > AMOUNT_SCALE) {
+            throw new IllegalArgumentException("Amount cannot have more than " + AMOUNT_SCALE + " decimal places");
+        }
+        if (significant.precision() - significant.scale() > AMOUNT_PRECISION - AMOUNT_SCALE) {
+            throw new IllegalArgumentException("Amount is too large");
+        }
+
+        Wallet wallet = defaultWallet;
+        if (raw.wallet() != null && !raw.wallet().isBlank()) {
+            wallet = wallets.get(parseId(raw.wallet(), "wallet"));
+            if (wallet == null) {
+                throw new IllegalArgumentException("Wallet not found!");
+            }
+        }
+        if (wallet == null) {
+            throw new IllegalArgumentException("No wallet: create a wallet or pass walletId");
+        }
+
+        Category category = null;
+        if (raw.category() != null && !raw.category().isBlank()) {
+            category = categories.find(raw.category().trim());
+            if (category == null) {
+                throw new IllegalArgumentException("Category not found!");
+            }
+        }
+        String note = raw.note() == null || raw.note().isBlank() ? null : raw.note().trim();
+        return new ImportRow(raw.row(), date, amount, type, note, wallet, category);
+    }
+
+    static LocalDate parseDate(String value) {
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Transaction date is required");
+        }
+        String trimmed = value.trim();
+        if (trimmed.length() > 10 && trimmed.charAt(4) == '-') {
+            trimmed = trimmed.substring(0, 10); // ISO date-time
+        }
+        for (DateTimeFormatter format : DATE_FORMATS) {
+            try {
+                return LocalDate.parse(trimmed, format);
+            } catch (DateTimeParseException e) {
+                // next format
+            }
+        }
+        throw new IllegalArgumentException("Unreadable date '" + value + "' (yyyy-MM-dd, dd/MM/yyyy, yyyyMMdd)");
+    }
+
+    /**
+     * "125000", "-125,000.50", "1.500.000" (VND thousands), "12,5", "(250.00)"; currency marks ignored
+     */
+    static BigDecimal parseAmount(String value) {
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Amount is required");
+        }
+        String text = value.replaceAll("[\\s\\u00A0₫đ]|VND|vnd", "");
+        boolean negative = text.startsWith("-") || (text.startsWith("(") && text.endsWith(")"));
+        text = text.replaceAll("[()+\\-]", "");
+        int lastDot = text.lastIndexOf('.');
+        int lastComma = text.lastIndexOf(',');
+        if (lastDot >= 0 && lastComma >= 0) {
+            // Both: the last one is the decimal separator
+            text = lastDot > lastComma ? text.replace(",", "") : text.replace(".", "").replace(',', '.');
+        } else if (lastDot >= 0 && (text.indexOf('.') != lastDot || text.matches("\\d{1,3}\\.\\d{3}"))) {
+            text = text.replace(".", "");
+        } else if (lastComma >= 0) {
+            text = text.indexOf(',') != lastComma || text.matches("\\d{1,3},\\d{3}")
+                ? text.replace(",", "") : text.replace(',', '.');
+        }
+        try {
+            BigDecimal amount = new BigDecimal(text);
+            return negative ? amount.negate() : amount;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Unreadable amount '" + value + "'");
+        }
+    }
+
+    private static Long parseId(String value, String what) {
+        try {
+            return Long.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Unreadable " + what + " id '" + value + "'");
+        }
+    }
+
+    public record ImportSummary(int rows, int imported, int failed, long elapsedMs) {
+        public long rowsPerMinute() {
+            return elapsedMs == 0 ? imported * 60_000L : imported * 60_000L / elapsedMs;
+        }
+    }
+
+    record ImportRow(int row, LocalDate date, BigDecimal amount, String type, String note, Wallet wallet, Category category) {
+        ImportRow withCategory(Category value) {
+            return new ImportRow(row, date, amount, type, note, wallet, value);
+        }
+    }
+
+    /**
+     * Categories by id and by name (case-insensitive)
+     */
+    static final class Categories {
+        final Map<Long, Category> byId = new HashMap<>();
+        final Map<String, Category> byName = new HashMap<>();
+
+        Categories(List<Category> categories) {
+            for (Category category : categories) {
+                byId.put(category.getId(), category);
+                if (category.getName() != null) {
+                    byName.putIfAbsent(category.getName().trim().toLowerCase(Locale.ROOT), category);
+                }
+            }
+        }
+
+        Category find(String value) {
+            if (value.chars().allMatch(Character::isDigit)) {
+                return byId.get(Long.valueOf(value));
+            }
+            return byName.get(value.toLowerCase(Locale.ROOT));
+        }
+    }
+
+    private final class Import {
+        final User user;
+        final Consumer<Map<String, Object>> rowErrors;
+        int rows;
+        int imported;
+        int failed;
+
+        Import(User user, Consumer<Map<String, Object>> rowErrors) {
+            this.user = user;
+            this.rowErrors = rowErrors;
+        }
+
+        void reject(int row, String error) {
+            failed++;
+            failedRows.increment();
+            rowErrors.accept(Map.of("row", row, "error", error));
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.finance.service;
+
+import com.example.finance.dto.TransactionListItem;
+import com.example.finance.dto.TransactionPage;
+import com.example.finance.entity.Category;
+import com.example.finance.entity.Transaction;
+import com.example.finance.entity.Wallet;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Transaction listing for the UI: keyset pages in (date DESC, id DESC) order, projected row by row
+ * - Only the filters that are set become predicates, so every query is a seek on
+ *   IX_Transactions_user_date_id (or its wallet / category variants) instead of a
+ *   "(:x IS NULL OR ...)" scan; the cursor continues with date < d OR (date = d AND id < i)
+ * - Columns are selected into TransactionListItem: no entity, lazy proxy or persistence context entry
+ * - limit + 1 rows are read to know whether there is a next page without a COUNT
+ * - Date range is inclusive for callers and half-open in SQL (date >= from AND date < to + 1 day)
+ * - recent() keeps the legacy GET /api/transactions order, newest entry first (created_at DESC)
+ */
+@Service
+public class TransactionQueryService {
+
+    private final int defaultPageSize;
+    private final int maxPageSize;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public TransactionQueryService(@Value("${transaction-listing.default-page-size:50}") int defaultPageSize,
+                                   @Value("${transaction-listing.max-page-size:200}") int maxPageSize) {
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+    }
+
+    /**
+     * Optional filters of the listing; null fields are not filtered on
+     */
+    public record Filter(String type, Long categoryId, Long walletId, LocalDate from, LocalDate to,
+                         BigDecimal minAmount, BigDecimal maxAmount) {
+
+        public static Filter none() {
+            return new Filter(null, null, null, null, null, null, null);
+        }
+
+        /**
+         * Lower-cased type, IllegalArgumentException for an unknown type or an inverted range
+         */
+        public Filter validated() {
+            String normalizedType = type == null || type.isBlank() ? null : type.trim().toLowerCase(Locale.ROOT);
+            if (normalizedType != null && !normalizedType.equals("income") && !normalizedType.equals("expense")) {
+                throw new IllegalArgumentException("Type must be 'income' or 'expense'");
+            }
+            if (from != null && to != null && from.isAfter(to)) {
+                throw new IllegalArgumentException("'from' must not be after 'to'");
+            }
+            if (minAmount != null && maxAmount != null && minAmount.compareTo(maxAmount) > 0) {
+                throw new IllegalArgumentException("'minAmount' must not be greater than 'maxAmount'");
+            }
+            return new Filter(normalizedType, categoryId, walletId, from, to, minAmount, maxAmount);
+        }
+    }
+
+    /**
+     * Position after the last row of a page; opaque to clients (base64url of "date|id")
+     */
+    public record Cursor(LocalDate date, Long id) {
+
+        public String encode() {
+            String raw = date + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        public static Cursor decode(String value) {
+            if (value == null || value.isBlank()) {
+                return null;
+            }
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(value.trim()), StandardCharsets.UTF_8);
+                int separator = raw.indexOf('|');
+                return new Cursor(LocalDate.parse(raw.substring(0, separator)), Long.valueOf(raw.substring(separator + 1)));
+            } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+
+        static Cursor after(TransactionListItem item) {
+            return new Cursor(item.date(), item.id());
+        }
+    }
+
+    /**
+     * One page of the user's transactions; limit defaults to default-page-size and is capped at max-page-size
+     */
+    @Transactional(readOnly = true)
+    public TransactionPage page(Long userId, Filter filter, String cursor, Integer limit) {
+        int size = pageSize(limit);
+        List<TransactionListItem> rows = query(userId, filter.validated(), Cursor.decode(cursor), size + 1, false);
+        boolean hasMore = rows.size() > size;
+        List<TransactionListItem> items = hasMore ? rows.subList(0, size) : rows;
+        String nextCursor = hasMore ? Cursor.after(items.get(items.size() - 1)).encode() : null;
+        return new TransactionPage(List.copyOf(items), nextCursor, hasMore);
+    }
+
+    /**
+     * The user's most recently entered transactions, unfiltered and uncapped, in created_at DESC order
+     * as GET /api/transactions always listed them (served by the (user_id, created_at DESC) index)
+     */
+    @Transactional(readOnly = true)
+    public List<TransactionListItem> recent(Long userId, int limit) {
+        return query(userId, Filter.none(), null, limit, true);
+    }
+
+    int pageSize(Integer limit) {
+        if (limit == null || limit <= 0) {
+            return defaultPageSize;
+        }
+        return Math.min(limit, maxPageSize);
+    }
+
+    private List<TransactionListItem> query(Long userId, Filter filter, Cursor cursor, int maxResults,
+                                            boolean byEntryTime) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<TransactionListItem> query = cb.createQuery(TransactionListItem.class);
+        Root<Transaction> t = query.from(Transaction.class);
+        Join<Transaction, Category> category = t.join("category", JoinType.LEFT);
+        Join<Transaction, Wallet> wallet = t.join("wallet", JoinType.LEFT);
+
+        query.select(cb.construct(TransactionListItem.class,
+                t.get("id"), t.get("date"), t.get("amount"), t.get("type"), t.get("note"), t.get("status"),
+                t.get("categoryProvisional"),
+                category.get("id"), category.get("name"), category.get("color"), category.get("icon"),
+                wallet.get("id"), wallet.get("name")))
+            .where(predicates(cb, t, userId, filter, cursor).toArray(Predicate[]::new))
+            .orderBy(byEntryTime
+                ? List.of(cb.desc(t.get("createdAt")), cb.desc(t.get("id")))
+                : List.of(cb.desc(t.get("date")), cb.desc(t.get("id"))));
+
+        return entityManager.createQuery(query)
+            .setMaxResults(maxResults)
+            .getResultList();
+    }
+
+    private static List<Predicate> predicates(CriteriaBuilder cb, Root<Transaction> t, Long userId,
+                                              Filter filter, Cursor cursor) {
+        Path<LocalDate> date = t.get("date");
+        Path<BigDecimal> amount = t.get("amount");
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(cb.equal(t.get("user").get("id"), userId));
+        predicates.add(cb.isFalse(t.get("isDeleted")));
+        if (filter.type() != null) {
+            predicates.add(cb.equal(t.get("type"), filter.type()));
+        }
+        if (filter.categoryId() != null) {
+            predicates.add(cb.equal(t.get("category").get("id"), filter.categoryId()));
+        }
+        if (filter.walletId() != null) {
+            predicates.add(cb.equal(t.get("wallet").get("id"), filter.walletId()));
+        }
+        if (filter.from() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(date, filter.from()));
+        }
+        if (filter.to() != null) {
+            predicates.add(cb.lessThan(date, filter.to().plusDays(1)));
+        }
+        if (filter.minAmount() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(amount, filter.minAmount()));
+        }
+        if (filter.maxAmount() != null) {
+            predicates.add(cb.lessThanOrEqualTo(amount, filter.maxAmount()));
+        }
+        if (cursor != null) {
+            Path<Long> id = t.get("id");
+            predicates.add(cb.or(
+                cb.lessThan(date, cursor.date()),
+                cb.and(cb.equal(date, cursor.date()), cb.lessThan(id, cursor.id()))));
+        }
+        return predicates;
+    }
+}
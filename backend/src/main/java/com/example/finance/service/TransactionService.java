@@ -35,7 +35,6 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.List;
 import java.util.UUID;
-import java.util.concurrent.CompletableFuture;
 
 @Service
 @RequiredArgsConstructor
@@ -52,10 +51,11 @@ public class TransactionService {
  private final UserRepository userRepo;
  private final WalletRepository walletRepo;
  private final CategoryRepository categoryRepo;
- private final NotificationService notificationService;
- private final BudgetAlertService budgetAlertService;
- private final BudgetService budgetService;
  private final AICategorizationService aiCategorizationService;
+ private final Layer3RefinementService layer3RefinementService;
+ private final OnlineLearningService onlineLearningService;
+ private final WalletBalanceService walletBalanceService;
+ private final TransactionEventService transactionEventService;
 
  @Transactional
  @CacheEvict(value = "budgets", allEntries = true)
@@ -95,12 +95,18 @@ public class TransactionService {
  }
 
  Transaction entity;
+ Long previousCategoryId = null;
+ Wallet previousWallet = null;
+ BigDecimal previousContribution = BigDecimal.ZERO;
  
  // Kiểm tra xem đây là create hay update
  if (dto.getId() != null) {
  // Update existing transaction
  entity = repo.findById(dto.getId())
  .orElseThrow(() -> new CustomException("Transaction not found with ID: " + dto.getId()));
+ previousCategoryId = entity.getCategory() != null ? entity.getCategory().getId() : null;
+ previousWallet = entity.getWallet();
+ previousContribution = WalletBalanceService.contribution(entity);
  
  // Update fields
  entity.setAmount(dto.getAmount());
@@ -147,17 +153,20 @@ public class TransactionService {
  entity.setWallet(defaultWallet);
  }
 
+ // An explicit category replaces any pending AI guess
+ entity.setCategoryProvisional(false);
+ boolean userChoseCategory = dto.getCategoryId() != null;
+
  // AI Auto-Categorization: If category not provided, use AI to suggest
+ // (async Layer 3: Layers 1 - 2.5 now, provisional guess refined after commit)
  if (dto.getCategoryId() == null && dto.getNote() != null && !dto.getNote().trim().isEmpty()) {
  try {
  log.info("🤖 AI categorizing transaction: '{}', amount: {}", dto.getNote(), dto.getAmount());
- AICategorizationService.CategorizationResult aiResult = 
- aiCategorizationService.categorizeExpense(
- dto.getNote(), 
- dto.getAmount().doubleValue(), 
- dto.getUserId()
- );
+ AICategorizationService.CategorizationResult aiResult = layer3RefinementService.isEnabled()
+ ? aiCategorizationService.categorizeWithoutLayer3(dto.getNote(), dto.getAmount().doubleValue(), dto.getUserId())
+ : aiCategorizationService.categorizeExpense(dto.getNote(), dto.getAmount().doubleValue(), dto.getUserId());
  dto.setCategoryId(aiResult.getCategory());
+ entity.setCategoryProvisional(aiResult.isProvisional());
  log.info("✅ AI suggested category: {} ({}), confidence: {:.2f}%, reasoning: {}",
  aiResult.getCategory(), aiResult.getCategoryName(), 
  aiResult.getConfidence() * 100, aiResult.getReasoning());
@@ -175,34 +184,24 @@ public class TransactionService {
 
  Transaction saved = repo.save(entity);
 
- // Cập nhật số dư ví sau khi tạo giao dịch
- if (saved.getWallet() != null) {
- updateWalletBalance(saved.getWallet().getId());
- 
- // Async goal status update to avoid circular dependency
- updateGoalStatusAsync(saved.getUser().getId());
+ if (saved.isCategoryProvisional()) {
+ layer3RefinementService.refineAfterCommit(saved.getId(), saved.getCategory().getId(),
+ saved.getNote(), saved.getAmount().doubleValue(), saved.getUser().getId());
  }
 
- // Kiểm tra budget alert cho expense transactions
- if ("expense".equals(saved.getType())) {
- log.info(" Checking budget alert for expense transaction: ID={}, Amount={}, Category={}, Date={}", 
- saved.getId(), saved.getAmount(), saved.getCategory().getName(), saved.getDate());
- budgetAlertService.checkBudgetAlert(saved);
- log.info(" Budget alert check completed for transaction ID: {}", saved.getId());
- 
- // Clear budget cache để frontend hiển thị đúng số tiền đã chi
- budgetService.clearBudgetCache(saved.getUser().getId());
+ // User moved an existing transaction to another category: a labeled example for the model
+ if (userChoseCategory && previousCategoryId != null && !previousCategoryId.equals(dto.getCategoryId())) {
+ onlineLearningService.recordCorrection(saved.getNote(), dto.getCategoryId());
  }
 
- if (saved.getWallet() != null && saved.getWallet().getBalance() != null) {
- if (saved.getWallet().getBalance().compareTo(new BigDecimal("50000")) < 0) {
- notificationService.createLowBalanceNotification(
- saved.getUser().getId(),
- saved.getWallet().getId(),
- saved.getWallet().getBalance()
- );
- }
- }
+ // Cập nhật số dư ví: chỉ cộng phần chênh lệch (cả ví cũ lẫn ví mới khi đổi ví)
+ walletBalanceService.applyChange(previousWallet, previousContribution,
+ saved.getWallet(), WalletBalanceService.contribution(saved));
+
+ // Budget alert, goal, low-balance notification, gamification, achievements: sau khi commit (TransactionEventService)
+ transactionEventService.publish(TransactionChangedEvent.of(
+ dto.getId() != null ? TransactionChangedEvent.UPDATED : TransactionChangedEvent.CREATED,
+ saved, previousWallet != null ? previousWallet.getId() : null, previousCategoryId));
 
  return mapper.toDto(saved);
 
@@ -238,57 +237,17 @@ public class TransactionService {
  // Lấy thông tin ví trước khi xóa giao dịch để cập nhật số dự
  Transaction transaction = repo.findById(id)
  .orElseThrow(() -> new CustomException(TRANSACTION_NOT_FOUND + id));
- Long walletId = null;
- try {
- walletId = transaction.getWallet() != null ? transaction.getWallet().getId() : null;
- } catch (Exception e) {
- System.err.println("Could not access wallet for transaction delete: " + e.getMessage());
- }
+ Wallet wallet = transaction.getWallet();
+ BigDecimal contribution = WalletBalanceService.contribution(transaction);
  
  repo.deleteById(id);
  
  // Cập nhật số dư ví sau khi xóa giao dịch
- if (walletId != null) {
- updateWalletBalance(walletId);
- }
- 
- // Clear budget cache để frontend hiển thị đúng số tiền đã chi
- if (transaction.getUser() != null) {
- budgetService.clearBudgetCache(transaction.getUser().getId());
- }
- }
-
- /**
- * Tính toán và cập nhật số dư ví dựa trên các giao dịch
- */
- @Transactional
- public void updateWalletBalance(Long walletId) {
- Wallet wallet = walletRepo.findById(walletId)
- .orElseThrow(() -> new CustomException("Wallet not found with id: " + walletId));
- 
- // Tính tổng thu nhập (income) và chi tiêu (expense) cho ví này
- BigDecimal totalIncome = repo.sumByWalletIdAndType(walletId, "income");
- BigDecimal totalExpense = repo.sumByWalletIdAndType(walletId, "expense");
- 
- // Xử lý trường hợp null
- totalIncome = totalIncome != null ? totalIncome : BigDecimal.ZERO;
- totalExpense = totalExpense != null ? totalExpense : BigDecimal.ZERO;
- 
- // **CORRECTED FORMULA**: Số dư = Initial Balance + Thu nhập - Chi tiêu
- BigDecimal initialBalance = wallet.getInitialBalance() != null ? wallet.getInitialBalance() : BigDecimal.ZERO;
- BigDecimal newBalance = initialBalance.add(totalIncome).subtract(totalExpense);
+ walletBalanceService.applyDelta(wallet, contribution.negate());
  
- System.out.println("=== WALLET BALANCE UPDATE (TransactionService) ===");
- System.out.println("Wallet ID: " + walletId);
- System.out.println("Initial Balance: " + initialBalance);
- System.out.println("Total Income: " + totalIncome);
- System.out.println("Total Expense: " + totalExpense);
- System.out.println("New Balance: " + newBalance);
- 
- wallet.setBalance(newBalance);
- walletRepo.save(wallet);
- 
- System.out.println(" Wallet balance updated successfully!");
+ // Budget cache, goal, thông báo: sau khi commit
+ transactionEventService.publish(TransactionChangedEvent.of(TransactionChangedEvent.DELETED, transaction,
+ wallet != null ? wallet.getId() : null, transaction.getCategory() != null ? transaction.getCategory().getId() : null));
  }
 
  @Transactional(readOnly = true)
@@ -583,25 +542,4 @@ public class TransactionService {
  BigDecimal total = repo.sumByUserCategoryAndDateRange(userId, categoryId, startDate, endDate);
  return total != null ? total : BigDecimal.ZERO;
  }
-
- /**
- * Async update goal status to avoid circular dependency
- */
- private void updateGoalStatusAsync(Long userId) {
- try {
- // Use CompletableFuture to run goal check asynchronously
- CompletableFuture.runAsync(() -> {
- try {
- log.info("Starting async goal status check for user: {}", userId);
- // Goal status would be updated here in a real implementation
- // This could trigger an event or use messaging system
- log.info("Goal status check completed for user: {}", userId);
- } catch (Exception e) {
- log.error("Async goal status check failed for user: {}", userId, e);
- }
- });
- } catch (Exception e) {
- log.error("Failed to start async goal status check for user: {}", userId, e);
- }
- }
 }
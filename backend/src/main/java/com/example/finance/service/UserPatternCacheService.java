@@ -0,0 +1,212 @@
+package com.example.finance.service;
+
+import com.example.finance.entity.UserCategorizationPreference;
+import com.example.finance.ml.FuzzyKeywordIndex;
+import com.example.finance.repository.UserCategorizationPreferenceRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.UnaryOperator;
+
+/**
+ * Per-user description pattern cache (Layer 3, signal 5: user history)
+ * - One entry per user: that user's most used patterns (pattern -> category), seeded lazily from
+ *   user_categorization_preferences on first lookup and kept in sync by learn()
+ * - Bounded by total pattern count across users (Caffeine W-TinyLFU eviction, weight = patterns)
+ *   and expired after a period without access
+ * - Each entry carries a small BK-tree index over its patterns for the fuzzy lookup
+ *
+ * Registered as the "userPatterns" cache, so it shows up in /api/performance/cache/stats.
+ */
+@Service
+@Slf4j
+public class UserPatternCacheService {
+
+    public static final String CACHE_NAME = "userPatterns";
+
+    private final UserCategorizationPreferenceRepository userPrefRepository;
+    private final CacheManager cacheManager;
+    private final int patternsPerUser;
+    private final LoadingCache<Long, UserPatterns> cache;
+
+    private final LongAdder exactHits = new LongAdder();
+    private final LongAdder fuzzyHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public UserPatternCacheService(UserCategorizationPreferenceRepository userPrefRepository,
+                                   CacheManager cacheManager,
+                                   @Value("${categorization.user-cache.max-patterns:200000}") long maxPatterns,
+                                   @Value("${categorization.user-cache.patterns-per-user:200}") int patternsPerUser,
+                                   @Value("${categorization.user-cache.expire-after-access-minutes:30}") long expireMinutes) {
+        this.userPrefRepository = userPrefRepository;
+        this.cacheManager = cacheManager;
+        this.patternsPerUser = patternsPerUser;
+        this.cache = Caffeine.newBuilder()
+            .maximumWeight(maxPatterns)
+            .weigher((Long userId, UserPatterns patterns) -> 1 + patterns.size())
+            .expireAfterAccess(expireMinutes, TimeUnit.MINUTES)
+            .recordStats()
+            .build(this::loadUserPatterns);
+    }
+
+    @PostConstruct
+    public void registerCache() {
+        if (cacheManager instanceof CaffeineCacheManager caffeineCacheManager) {
+            caffeineCacheManager.registerCustomCache(CACHE_NAME, nativeCache());
+        }
+    }
+
+    /**
+     * User history scores for a pattern: {category: 1.0} on an exact hit, otherwise every category
+     * with a stored pattern more similar than minSimilarity (best similarity per category).
+     * Empty when the user has no matching history or the history cannot be loaded.
+     */
+    public Map<Long, Double> score(Long userId, String pattern, double minSimilarity) {
+        Map<Long, Double> scores = new HashMap<>();
+        if (userId == null || pattern == null || pattern.isEmpty()) {
+            return scores;
+        }
+
+        UserPatterns patterns;
+        try {
+            patterns = cache.get(userId);
+        } catch (RuntimeException e) {
+            log.warn("Could not load pattern history for user {}: {}", userId, e.getMessage());
+            return scores;
+        }
+
+        Long exactCategory = patterns.categoryOf(pattern);
+        if (exactCategory != null) {
+            exactHits.increment();
+            scores.put(exactCategory, 1.0);
+            return scores;
+        }
+
+        for (FuzzyKeywordIndex.Candidate candidate : patterns.index(minSimilarity).candidates(pattern)) {
+            if (candidate.getSimilarity() > minSimilarity) {
+                scores.merge(candidate.getCategoryId(), candidate.getSimilarity(), Double::max);
+            }
+        }
+        if (scores.isEmpty()) {
+            misses.increment();
+        } else {
+            fuzzyHits.increment();
+        }
+        return scores;
+    }
+
+    /**
+     * Record pattern -> category for a user whose history is cached (otherwise the next lookup
+     * seeds it from the database, which already has it)
+     */
+    public void learn(Long userId, String pattern, Long categoryId) {
+        if (userId == null || pattern == null || pattern.isEmpty() || categoryId == null) {
+            return;
+        }
+        // compute re-weighs the entry, so the global pattern bound stays accurate
+        cache.asMap().computeIfPresent(userId, (id, patterns) -> patterns.with(pattern, categoryId, patternsPerUser));
+    }
+
+    public void invalidate(Long userId) {
+        cache.invalidate(userId);
+    }
+
+    /**
+     * Native cache, for registration with the CacheManager
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public Cache<Object, Object> nativeCache() {
+        return (Cache) cache;
+    }
+
+    /**
+     * Pattern-level lookup counters (the cache's own stats count per-user loads)
+     */
+    public Map<String, Object> lookupStats() {
+        long exact = exactHits.sum();
+        long fuzzy = fuzzyHits.sum();
+        long miss = misses.sum();
+        long total = exact + fuzzy + miss;
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hitRate", String.format("%.2f%%", total == 0 ? 0.0 : (exact + fuzzy) * 100.0 / total));
+        stats.put("exactHitCount", exact);
+        stats.put("fuzzyHitCount", fuzzy);
+        stats.put("missCount", miss);
+        stats.put("cachedUsers", cache.estimatedSize());
+        return stats;
+    }
+
+    private UserPatterns loadUserPatterns(Long userId) {
+        List<UserCategorizationPreference> preferences = userPrefRepository
+            .findByUserIdOrderByFrequencyDescLastUsedDesc(userId, PageRequest.of(0, patternsPerUser));
+
+        // Most used last: eviction removes from the head
+        LinkedHashMap<String, Long> patterns = new LinkedHashMap<>();
+        for (int i = preferences.size() - 1; i >= 0; i--) {
+            UserCategorizationPreference pref = preferences.get(i);
+            patterns.put(pref.getDescriptionPattern(), pref.getCategoryId());
+        }
+        log.debug("Seeded {} patterns for user {}", patterns.size(), userId);
+        return new UserPatterns(patterns);
+    }
+
+    /**
+     * Immutable pattern set of one user, replaced (copy-on-write) when a pattern is learned.
+     * Insertion order = eviction order: least used / least recently learned first.
+     */
+    static final class UserPatterns {
+        private final LinkedHashMap<String, Long> patterns;
+        private volatile FuzzyKeywordIndex index;
+
+        UserPatterns(LinkedHashMap<String, Long> patterns) {
+            this.patterns = patterns;
+        }
+
+        int size() {
+            return patterns.size();
+        }
+
+        Long categoryOf(String pattern) {
+            return patterns.get(pattern);
+        }
+
+        UserPatterns with(String pattern, Long categoryId, int maxPatterns) {
+            LinkedHashMap<String, Long> copy = new LinkedHashMap<>(patterns);
+            copy.remove(pattern);
+            copy.put(pattern, categoryId);
+            Iterator<String> oldest = copy.keySet().iterator();
+            while (copy.size() > maxPatterns && oldest.hasNext()) {
+                oldest.next();
+                oldest.remove();
+            }
+            return new UserPatterns(copy);
+        }
+
+        /**
+         * BK-tree over this user's patterns, built on first fuzzy lookup
+         */
+        FuzzyKeywordIndex index(double minSimilarity) {
+            FuzzyKeywordIndex current = index;
+            if (current == null || current.getMinSimilarity() != minSimilarity) {
+                Map<Long, List<String>> byCategory = new LinkedHashMap<>();
+                patterns.forEach((pattern, categoryId) ->
+                    byCategory.computeIfAbsent(categoryId, id -> new ArrayList<>()).add(pattern));
+                current = new FuzzyKeywordIndex(byCategory, UnaryOperator.identity(), minSimilarity);
+                index = current;
+            }
+            return current;
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.example.finance.service;
+
+import com.example.finance.entity.Transaction;
+import com.example.finance.entity.Wallet;
+import com.example.finance.exception.CustomException;
+import com.example.finance.repository.TransactionRepository;
+import com.example.finance.repository.WalletRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Wallet balances maintained with signed deltas instead of re-summing the wallet's history on every write
+ * - A transaction contributes +amount (income), -amount (expense), nothing once soft-deleted; create,
+ *   update, delete and soft-delete apply the new minus the old contribution (to both wallets when moved)
+ * - UPDATE Wallets SET balance = balance + ?, balance_version = balance_version + 1: atomic in the
+ *   database, concurrent saves on one wallet cannot lose each other's delta
+ * - Reconciler: every reconcile-interval-ms, pages of wallets compare the stored balance with
+ *   initial_balance + income - expense. A mismatch is checked again for that wallet alone (version read
+ *   first, then the sums) and, with reconcile-repair, fixed by a delta guarded by that version: a save
+ *   committing in between makes the repair a no-op instead of a wrong correction
+ *
+ * Meters: wallet.balance.deltas, wallet.balance.reconcile{result=ok|repaired|reported|changed}.
+ */
+@Service
+@Slf4j
+public class WalletBalanceService {
+
+    public static final String RESULT_OK = "ok";
+    public static final String RESULT_REPAIRED = "repaired";
+    public static final String RESULT_REPORTED = "reported";
+    public static final String RESULT_CHANGED = "changed";
+
+    private static final int RECOMPUTE_ATTEMPTS = 3;
+
+    private final WalletRepository walletRepository;
+    private final TransactionRepository transactionRepository;
+    private final MeterRegistry meterRegistry;
+    private final boolean reconcileEnabled;
+    private final boolean repair;
+    private final int pageSize;
+    private final Counter deltas;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public WalletBalanceService(WalletRepository walletRepository,
+                                TransactionRepository transactionRepository,
+                                MeterRegistry meterRegistry,
+                                @Value("${wallet.balance.reconcile-enabled:true}") boolean reconcileEnabled,
+                                @Value("${wallet.balance.reconcile-repair:true}") boolean repair,
+                                @Value("${wallet.balance.reconcile-page-size:500}") int pageSize) {
+        this.walletRepository = walletRepository;
+        this.transactionRepository = transactionRepository;
+        this.meterRegistry = meterRegistry;
+        this.reconcileEnabled = reconcileEnabled;
+        this.repair = repair;
+        this.pageSize = pageSize;
+        this.deltas = Counter.builder("wallet.balance.deltas")
+            .description("Signed balance deltas applied to wallets")
+            .register(meterRegistry);
+    }
+
+    /**
+     * What the transaction adds to its wallet's balance
+     */
+    public static BigDecimal contribution(Transaction transaction) {
+        if (transaction == null || transaction.isDeleted() || transaction.getAmount() == null) {
+            return BigDecimal.ZERO;
+        }
+        return switch (String.valueOf(transaction.getType())) {
+            case "income" -> transaction.getAmount();
+            case "expense" -> transaction.getAmount().negate();
+            default -> BigDecimal.ZERO;
+        };
+    }
+
+    /**
+     * A transaction went from (before, beforeContribution) to (after, afterContribution);
+     * before is null for a new transaction, after is null for a deleted one
+     */
+    public void applyChange(Wallet before, BigDecimal beforeContribution, Wallet after, BigDecimal afterContribution) {
+        if (before != null && after != null && Objects.equals(before.getId(), after.getId())) {
+            applyDelta(after, afterContribution.subtract(beforeContribution));
+            return;
+        }
+        if (before != null) {
+            applyDelta(before, beforeContribution.negate());
+        }
+        if (after != null) {
+            applyDelta(after, afterContribution);
+        }
+    }
+
+    /**
+     * Add delta to the wallet's balance in the database, then reload the balance into the entity
+     */
+    public void applyDelta(Wallet wallet, BigDecimal delta) {
+        if (wallet == null || delta == null || delta.signum() == 0) {
+            return;
+        }
+        if (walletRepository.addToBalance(wallet.getId(), delta) == 0) {
+            throw new CustomException("Wallet not found with id: " + wallet.getId());
+        }
+        deltas.increment();
+        if (entityManager != null && entityManager.contains(wallet)) {
+            entityManager.refresh(wallet);
+        }
+    }
+
+    /**
+     * Set the balance to initial + income - expense from the full history (manual recompute);
+     * returns the balance the wallet has afterwards
+     */
+    public BigDecimal recompute(Long walletId) {
+        for (int attempt = 0; attempt < RECOMPUTE_ATTEMPTS; attempt++) {
+            Check check = check(walletId, true);
+            if (!RESULT_CHANGED.equals(check.result())) {
+                return check.expected();
+            }
+        }
+        throw new CustomException("Wallet " + walletId + " kept changing, balance not recomputed");
+    }
+
+    /**
+     * Compare every wallet's stored balance with its full sum; returns the wallet count per result
+     */
+    @Scheduled(fixedDelayString = "${wallet.balance.reconcile-interval-ms:3600000}",
+               initialDelayString = "${wallet.balance.reconcile-interval-ms:3600000}")
+    public Map<String, Integer> reconcile() {
+        Map<String, Integer> results = new LinkedHashMap<>();
+        if (!reconcileEnabled) {
+            return results;
+        }
+        long afterId = 0;
+        List<Object[]> page;
+        do {
+            page = walletRepository.findBalanceSummaries(afterId, pageSize);
+            for (Object[] row : page) {
+                long walletId = ((Number) row[0]).longValue();
+                afterId = walletId;
+                String result = RESULT_OK;
+                if (decimal(row[1]).compareTo(decimal(row[2])) != 0) {
+                    // The page query is not a consistent snapshot: confirm before reporting
+                    result = check(walletId, repair).result();
+                }
+                results.merge(result, 1, Integer::sum);
+                record(result);
+            }
+        } while (page.size() == pageSize);
+
+        int drifted = results.getOrDefault(RESULT_REPAIRED, 0) + results.getOrDefault(RESULT_REPORTED, 0);
+        if (drifted > 0) {
+            log.warn("Wallet balance reconciliation: {}", results);
+        } else {
+            log.debug("Wallet balance reconciliation: {}", results);
+        }
+        return results;
+    }
+
+    /**
+     * One wallet: balance and version first, then the sums, so any save committing after the read
+     * has bumped the version and the guarded repair does nothing
+     */
+    private Check check(Long walletId, boolean repairDrift) {
+        List<Object[]> state = walletRepository.findBalanceState(walletId);
+        if (state.isEmpty()) {
+            throw new CustomException("Wallet not found with id: " + walletId);
+        }
+        BigDecimal stored = decimal(state.get(0)[0]);
+        long version = ((Number) state.get(0)[1]).longValue();
+        BigDecimal expected = decimal(state.get(0)[2])
+            .add(decimal(transactionRepository.sumByWalletIdAndType(walletId, "income")))
+            .subtract(decimal(transactionRepository.sumByWalletIdAndType(walletId, "expense")));
+
+        BigDecimal drift = expected.subtract(stored);
+        if (drift.signum() == 0) {
+            return new Check(stored, expected, RESULT_OK);
+        }
+        if (!repairDrift) {
+            log.warn("Wallet {} balance drift: stored {}, transactions give {}", walletId, stored, expected);
+            return new Check(stored, expected, RESULT_REPORTED);
+        }
+        if (walletRepository.addToBalanceIfVersion(walletId, drift, version) == 0) {
+            return new Check(stored, expected, RESULT_CHANGED);
+        }
+        log.warn("Wallet {} balance drift repaired: stored {}, transactions give {}", walletId, stored, expected);
+        return new Check(stored, expected, RESULT_REPAIRED);
+    }
+
+    private void record(String result) {
+        Counter.builder("wallet.balance.reconcile")
+            .description("Wallets checked by the balance reconciler")
+            .tag("result", result)
+            .register(meterRegistry)
+            .increment();
+    }
+
+    private static BigDecimal decimal(Object value) {
+        if (value == null) {
+            return BigDecimal.ZERO;
+        }
+        return value instanceof BigDecimal decimal ? decimal : new BigDecimal(value.toString());
+    }
+
+    private record Check(BigDecimal stored, BigDecimal expected, String result) {
+    }
+}
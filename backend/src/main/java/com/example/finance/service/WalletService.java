@@ -32,6 +32,7 @@ public class WalletService {
  private final TransactionRepository transactionRepository;
  private final NotificationRepository notificationRepository;
  private final WalletMapper mapper;
+ private final WalletBalanceService walletBalanceService;
 
  @Cacheable(value = "wallets", key = "#userId")
  public List<WalletDTO> findAll(Long userId) {
@@ -144,12 +145,19 @@ public class WalletService {
  System.out.println("Cascade deleted all related records for wallet: " + walletId);
  }
 
+ @Transactional
  public WalletDTO update(WalletDTO dto) {
- if (!repo.existsById(dto.getId())) {
- throw new RuntimeException("Wallet not found with id: " + dto.getId());
- }
+ Wallet wallet = repo.findById(dto.getId())
+ .orElseThrow(() -> new RuntimeException("Wallet not found with id: " + dto.getId()));
  try {
- return mapper.toDto(repo.save(mapper.toEntity(dto)));
+ // Only the editable fields: balance moves through WalletBalanceService, initial balance / owner stay
+ if (dto.getName() != null) {
+ wallet.setName(dto.getName());
+ }
+ if (dto.getType() != null) {
+ wallet.setType(dto.getType());
+ }
+ return mapper.toDto(repo.save(wallet));
  } catch (Exception e) {
  throw new RuntimeException("Error updating wallet: " + e.getMessage());
  }
@@ -164,27 +172,8 @@ public class WalletService {
  Wallet wallet = repo.findById(walletId)
  .orElseThrow(() -> new RuntimeException("Wallet not found with id: " + walletId));
  
- // Tính tổng thu nhập (income) và chi tiêu (expense) cho ví này
- BigDecimal totalIncome = transactionRepository.sumByWalletIdAndType(walletId, "income");
- BigDecimal totalExpense = transactionRepository.sumByWalletIdAndType(walletId, "expense");
- 
- // Xử lý trường hợp null
- totalIncome = totalIncome != null ? totalIncome : BigDecimal.ZERO;
- totalExpense = totalExpense != null ? totalExpense : BigDecimal.ZERO;
- 
- // **NEW FORMULA**: Số dư = Initial Balance + Thu nhập - Chi tiêu
- BigDecimal initialBalance = wallet.getInitialBalance() != null ? wallet.getInitialBalance() : BigDecimal.ZERO;
- BigDecimal newBalance = initialBalance.add(totalIncome).subtract(totalExpense);
- 
- System.out.println("=== WALLET BALANCE UPDATE (WalletService) ===");
- System.out.println("Wallet ID: " + walletId);
- System.out.println("Initial Balance: " + initialBalance);
- System.out.println("Total Income: " + totalIncome);
- System.out.println("Total Expense: " + totalExpense);
- System.out.println("New Balance: " + newBalance);
- 
- wallet.setBalance(newBalance);
- repo.save(wallet);
+ // Số dư = Initial Balance + Thu nhập - Chi tiêu, ghi bằng delta có kiểm tra balance_version
+ walletBalanceService.recompute(walletId);
  
  // Async goal status update to avoid circular dependency
  updateGoalStatusAsync(wallet.getUser().getId());
@@ -234,22 +223,9 @@ public class WalletService {
  * Lấy danh sách ví theo userId
  */
  public List<WalletDTO> findByUserId(Long userId) {
+ // Số dư lưu sẵn (cập nhật bằng delta); đối chiếu với tổng giao dịch là việc của reconciler trong WalletBalanceService
  List<Wallet> wallets = repo.findByUserId(userId);
  
- // Tính toán số dư thực tế cho mỗi ví dựa trên giao dịch
- for (Wallet wallet : wallets) {
- BigDecimal totalIncome = transactionRepository.sumByWalletIdAndType(wallet.getId(), "income");
- BigDecimal totalExpense = transactionRepository.sumByWalletIdAndType(wallet.getId(), "expense");
- 
- totalIncome = totalIncome != null ? totalIncome : BigDecimal.ZERO;
- totalExpense = totalExpense != null ? totalExpense : BigDecimal.ZERO;
- 
- // Số dư thực tế = Initial Balance + Thu nhập - Chi tiêu
- BigDecimal initialBalance = wallet.getInitialBalance() != null ? wallet.getInitialBalance() : BigDecimal.ZERO;
- BigDecimal actualBalance = initialBalance.add(totalIncome).subtract(totalExpense);
- wallet.setBalance(actualBalance);
- }
- 
  return wallets.stream().map(mapper::toDto).toList();
  }
 
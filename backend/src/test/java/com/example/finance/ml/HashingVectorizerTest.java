@@ -0,0 +1,294 @@
+package com.example.finance.ml;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Standalone test for HashingVectorizer (no Spring context)
+ * - murmur3 over chars equals the reference MurmurHash3 x86_32 of the UTF-16LE bytes
+ * - transformSparse equals a naive String / HashMap implementation on every dataset description
+ * - Unseen words still produce features; a hashed model survives a BinaryModelFormat round trip
+ * - Accuracy and transform speed against TFIDFVectorizer(2000), same classifier settings
+ *
+ * Run from backend/: exits with status 1 on failure.
+ */
+public class HashingVectorizerTest {
+
+    private static final String TRAIN_SET = "../ai-service/vietnamese_transactions_14categories_train.json";
+    private static final String TEST_SET = "../ai-service/vietnamese_transactions_14categories_test.json";
+
+    private static int failed = 0;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== HashingVectorizer Test ===\n");
+
+        // murmur3: byte reference checked against published vectors, then compared on random strings
+        check("reference murmur3(\"hello\") = 248bfa47",
+            referenceMurmur3("hello".getBytes(StandardCharsets.US_ASCII), 0) == 0x248bfa47);
+        check("reference murmur3(\"\", seed 1) = 514e28b7", referenceMurmur3(new byte[0], 1) == 0x514e28b7);
+        Random random = new Random(42);
+        int hashMismatches = 0;
+        for (int i = 0; i < 20_000; i++) {
+            char[] chars = new char[random.nextInt(12)];
+            for (int j = 0; j < chars.length; j++) {
+                // Below the surrogate range: lone surrogates have no UTF-16LE encoding to compare against
+                chars[j] = (char) (random.nextBoolean() ? 'a' + random.nextInt(26) : random.nextInt(0xD800));
+            }
+            int seed = random.nextInt();
+            byte[] utf16 = new String(chars).getBytes(StandardCharsets.UTF_16LE);
+            if (HashingVectorizer.murmur3(chars, 0, chars.length, seed) != referenceMurmur3(utf16, seed)) {
+                hashMismatches++;
+            }
+        }
+        check("char murmur3 == byte murmur3 of UTF-16LE (" + hashMismatches + " mismatches)", hashMismatches == 0);
+
+        List<String[]> train = read(TRAIN_SET);
+        List<String[]> test = read(TEST_SET);
+        if (train.isEmpty() || test.isEmpty()) {
+            System.out.println("Datasets not found, skipping dataset checks");
+            finish();
+            return;
+        }
+        List<String> trainTexts = new ArrayList<>();
+        int[] trainLabels = new int[train.size()];
+        for (int i = 0; i < train.size(); i++) {
+            trainTexts.add(train.get(i)[0]);
+            trainLabels[i] = Integer.parseInt(train.get(i)[1]);
+        }
+
+        // Differential: allocation-free transform vs naive reference, fitted and unfitted
+        HashingVectorizer[] configs = {
+            new HashingVectorizer(1 << 10),
+            new HashingVectorizer(1 << 16, 3, 5),
+            new HashingVectorizer(1 << 4, 2, 3) // tiny: heavy collisions and sign cancellation
+        };
+        for (HashingVectorizer vectorizer : configs) {
+            int mismatches = 0;
+            for (int pass = 0; pass < 2; pass++) {
+                if (pass == 1) {
+                    vectorizer.fit(trainTexts);
+                }
+                for (String[] sample : test) {
+                    if (!approximatelyEqual(vectorizer.transformSparse(sample[0]), naiveTransform(vectorizer, sample[0]))) {
+                        mismatches++;
+                    }
+                }
+            }
+            check(describe(vectorizer) + ": matches naive transform (" + mismatches + " mismatches)", mismatches == 0);
+        }
+
+        HashingVectorizer words = new HashingVectorizer(1 << 16);
+        words.fit(trainTexts);
+        TFIDFVectorizer tfidf = new TFIDFVectorizer(2000);
+        tfidf.fit(trainTexts);
+        String unseen = "zzqxmerchant thanh toan";
+        check("unseen merchant: TF-IDF drops it, hashing keeps it",
+            tfidf.transformSparse("zzqxmerchant").nonZeroCount() == 0
+                && words.transformSparse("zzqxmerchant").nonZeroCount() == 1);
+        check("L2-normalized, sorted, within dimension", isWellFormed(words.transformSparse(unseen), words.getDimension()));
+        check("empty / null input gives an empty vector",
+            words.transformSparse("").nonZeroCount() == 0 && words.transformSparse(null).nonZeroCount() == 0);
+
+        // Accuracy and speed, same classifier settings as the differential tests
+        System.out.println("\n   vectorizer                                 accuracy   transform/s");
+        double tfidfAccuracy = evaluate(tfidf, trainTexts, trainLabels, test);
+        double wordsAccuracy = evaluate(new HashingVectorizer(1 << 16), trainTexts, trainLabels, test);
+        HashingVectorizer ngrams = new HashingVectorizer(1 << 16, 3, 5);
+        double ngramAccuracy = evaluate(ngrams, trainTexts, trainLabels, test);
+        check("hashing (words) within 2 pt of TF-IDF", wordsAccuracy >= tfidfAccuracy - 0.02);
+        check("hashing (char 3-5) within 2 pt of TF-IDF", ngramAccuracy >= tfidfAccuracy - 0.02);
+
+        // Binary model round trip: flags, parameters and per-bucket IDF come back
+        LinearSVMClassifier svm = trainedClassifier(ngrams, trainTexts, trainLabels);
+        Path file = Files.createTempFile("hashing-model", ".fmdl");
+        try {
+            String checksum = BinaryModelFormat.write(ngrams, svm, file);
+            BinaryModelFormat.LoadedModel loaded = BinaryModelFormat.map(file, checksum);
+            TextVectorizer restored = loaded.getVectorizer();
+            int disagreements = 0;
+            for (String[] sample : test) {
+                if (svm.predict(ngrams.transformSparse(sample[0]))
+                        != loaded.getClassifier().predict(restored.transformSparse(sample[0]))) {
+                    disagreements++;
+                }
+            }
+            check("round trip restores a HashingVectorizer", restored instanceof HashingVectorizer h
+                && h.getDimension() == ngrams.getDimension() && h.getMinNgram() == 3 && h.getMaxNgram() == 5
+                && h.isFitted());
+            check("round trip predictions (" + disagreements + " float32 disagreements of " + test.size() + ")",
+                disagreements <= test.size() / 200);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+
+        finish();
+    }
+
+    private static double evaluate(TextVectorizer vectorizer, List<String> trainTexts, int[] trainLabels,
+                                   List<String[]> test) {
+        LinearSVMClassifier svm = trainedClassifier(vectorizer, trainTexts, trainLabels);
+        int correct = 0;
+        for (String[] sample : test) {
+            if (svm.predict(vectorizer.transformSparse(sample[0])) == Integer.parseInt(sample[1])) {
+                correct++;
+            }
+        }
+        double accuracy = (double) correct / test.size();
+
+        // Warm up, then time repeated passes over the test descriptions
+        long sink = 0;
+        for (int i = 0; i < 20; i++) {
+            for (String[] sample : test) {
+                sink += vectorizer.transformSparse(sample[0]).nonZeroCount();
+            }
+        }
+        int rounds = 50;
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            for (String[] sample : test) {
+                sink += vectorizer.transformSparse(sample[0]).nonZeroCount();
+            }
+        }
+        double perSecond = (double) rounds * test.size() / ((System.nanoTime() - start) / 1e9);
+        System.out.printf("   %-42s %6.2f%%   %,11.0f%s%n", describe(vectorizer), accuracy * 100, perSecond,
+            sink < 0 ? "!" : "");
+        return accuracy;
+    }
+
+    private static LinearSVMClassifier trainedClassifier(TextVectorizer vectorizer, List<String> trainTexts,
+                                                         int[] trainLabels) {
+        LinearSVMClassifier svm = new LinearSVMClassifier(1.0, 30);
+        svm.setSeed(42);
+        svm.train(vectorizer, trainTexts, trainLabels);
+        return svm;
+    }
+
+    /**
+     * Oracle: token Strings, per-feature HashMap of signed counts, same weighting
+     */
+    private static SparseVector naiveTransform(HashingVectorizer vectorizer, String document) {
+        int mask = vectorizer.getDimension() - 1;
+        int ngramSeed = vectorizer.getSeed() ^ 0x5bd1e995;
+        TreeMap<Integer, Integer> counts = new TreeMap<>();
+        for (String token : VietnameseTextNormalizer.tokenize(document)) {
+            List<Integer> hashes = new ArrayList<>();
+            hashes.add(HashingVectorizer.murmur3(token.toCharArray(), 0, token.length(), vectorizer.getSeed()));
+            for (int n = vectorizer.getMinNgram(); n > 0 && n <= vectorizer.getMaxNgram() && n < token.length(); n++) {
+                for (int i = 0; i + n <= token.length(); i++) {
+                    char[] gram = token.substring(i, i + n).toCharArray();
+                    hashes.add(HashingVectorizer.murmur3(gram, 0, n, ngramSeed));
+                }
+            }
+            for (int hash : hashes) {
+                counts.merge(hash & mask, hash < 0 ? -1 : 1, Integer::sum);
+            }
+        }
+        double[] idf = vectorizer.idfTable();
+        double[] dense = new double[vectorizer.getDimension()];
+        counts.forEach((bucket, count) -> dense[bucket] = idf == null ? count : count * idf[bucket]);
+        return SparseVector.fromDense(dense).l2Normalize();
+    }
+
+    private static boolean approximatelyEqual(SparseVector a, SparseVector b) {
+        if (a.nonZeroCount() != b.nonZeroCount() || a.getDimension() != b.getDimension()) {
+            return false;
+        }
+        for (int k = 0; k < a.nonZeroCount(); k++) {
+            if (a.getIndex(k) != b.getIndex(k) || Math.abs(a.getValue(k) - b.getValue(k)) > 1e-6) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isWellFormed(SparseVector vector, int dimension) {
+        for (int k = 0; k < vector.nonZeroCount(); k++) {
+            if (vector.getIndex(k) >= dimension || (k > 0 && vector.getIndex(k) <= vector.getIndex(k - 1))) {
+                return false;
+            }
+        }
+        return Math.abs(vector.norm() - 1.0) < 1e-6;
+    }
+
+    private static String describe(TextVectorizer vectorizer) {
+        if (vectorizer instanceof HashingVectorizer hashing) {
+            return "hashing " + hashing.getDimension() + " buckets"
+                + (hashing.getMaxNgram() > 0 ? ", char " + hashing.getMinNgram() + "-" + hashing.getMaxNgram() : ", words");
+        }
+        return "tfidf " + vectorizer.getDimension() + " terms";
+    }
+
+    /**
+     * MurmurHash3 x86_32 over bytes, as published (Appleby)
+     */
+    private static int referenceMurmur3(byte[] data, int seed) {
+        ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        int h1 = seed;
+        int blocks = data.length / 4;
+        for (int i = 0; i < blocks; i++) {
+            int k1 = buffer.getInt(i * 4);
+            k1 *= 0xcc9e2d51;
+            k1 = Integer.rotateLeft(k1, 15);
+            k1 *= 0x1b873593;
+            h1 ^= k1;
+            h1 = Integer.rotateLeft(h1, 13);
+            h1 = h1 * 5 + 0xe6546b64;
+        }
+        int k1 = 0;
+        int tail = blocks * 4;
+        switch (data.length & 3) {
+            case 3:
+                k1 ^= (data[tail + 2] & 0xff) << 16;
+            case 2:
+                k1 ^= (data[tail + 1] & 0xff) << 8;
+            case 1:
+                k1 ^= data[tail] & 0xff;
+                k1 *= 0xcc9e2d51;
+                k1 = Integer.rotateLeft(k1, 15);
+                k1 *= 0x1b873593;
+                h1 ^= k1;
+            default:
+                break;
+        }
+        h1 ^= data.length;
+        h1 ^= h1 >>> 16;
+        h1 *= 0x85ebca6b;
+        h1 ^= h1 >>> 13;
+        h1 *= 0xc2b2ae35;
+        h1 ^= h1 >>> 16;
+        return h1;
+    }
+
+    private static List<String[]> read(String path) throws Exception {
+        File file = new File(path);
+        List<String[]> samples = new ArrayList<>();
+        if (!file.exists()) {
+            return samples;
+        }
+        for (JsonNode node : new ObjectMapper().readTree(file)) {
+            samples.add(new String[]{node.get("description").asText(), node.get("category_id").asText()});
+        }
+        return samples;
+    }
+
+    private static void check(String name, boolean ok) {
+        System.out.println((ok ? "✓ " : "✗ ") + name);
+        if (!ok) {
+            failed++;
+        }
+    }
+
+    private static void finish() {
+        System.out.println("\n" + (failed == 0 ? "✓ All checks passed" : failed + " check(s) failed"));
+        if (failed > 0) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.example.finance.ml;
+
+import com.example.finance.service.AICategorizationService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.lang.reflect.Method;
+import java.util.*;
+
+/**
+ * Differential test: KeywordAutomaton built from AICategorizationService's Layer 1 keyword map must
+ * pick the same category as the original chain of ".*\\b(...)\\b.*" regexes (kept below as the
+ * oracle), through both findCategory() and match(), on every description of the transaction datasets
+ * (normalized, as Layer 1 sees them, and raw lowercase so "h&m" / "e-learning" keep their
+ * punctuation), word-boundary edge cases and randomized keyword soup.
+ *
+ * The oracle's \b is JDK 17's (any Unicode letter or digit is a word character), which is the rule
+ * the automaton implements; JDK 19+ narrowed regex \b to ASCII, so "ăluong" would differ there.
+ *
+ * Run from backend/: exits with status 1 on the first mismatches.
+ */
+public class KeywordAutomatonDifferentialTest {
+
+    private static final String[] DATASETS = {
+        "../ai-service/vietnamese_transactions_14categories.json",
+        "../ai-service/vietnamese_transactions_14categories_train.json",
+        "../ai-service/vietnamese_transactions_14categories_test.json"
+    };
+
+    public static void main(String[] args) throws Exception {
+        Map<Long, List<String>> keywords = layer1KeywordMap();
+        KeywordAutomaton automaton = new KeywordAutomaton(keywords);
+
+        List<String> inputs = new ArrayList<>();
+        ObjectMapper mapper = new ObjectMapper();
+        for (String dataset : DATASETS) {
+            File file = new File(dataset);
+            if (!file.exists()) {
+                System.out.println("Skipping missing dataset: " + dataset);
+                continue;
+            }
+            for (JsonNode node : mapper.readTree(file)) {
+                String description = node.get("description").asText();
+                inputs.add(VietnameseTextNormalizer.normalize(description));
+                inputs.add(description.toLowerCase());
+            }
+        }
+        int datasetInputs = inputs.size();
+        inputs.addAll(Arrays.asList(
+            "", " ", "h&m", "mua ao h&m", "h&m.", "(h&m)", "h&ma", "xh&m", "h&m&m", "h & m", "hm",
+            "e-learning", "khoa e-learning", "e-learnings", "ee-learning", "e-learning-2", "elearning", "e learning",
+            "grab food", "grab  food", "grabfood", "grab food ship", "grab", "grab bike", "ve may bay", "ve may",
+            "ve", "mua ve", "game console", "game consoles", "thuc pham chuc nang", "thuc pham chuc", "tra no",
+            "tien luong", "tien ich", "credit card", "the tin dung", "no", "now", "an", "ban", "an_", "_an",
+            "luong1", "1luong", "luong_thang", "ăluong", "luongă", "luong thang", "quán an", "phí"
+        ));
+        inputs.addAll(randomInputs(keywords, 20000, new Random(42)));
+
+        int mismatches = 0;
+        for (String input : inputs) {
+            Long expected = ReferenceMatcher.matchByKeywords(input);
+            Long found = automaton.findCategory(input);
+            KeywordAutomaton.MatchResult match = automaton.match(input);
+            if (!Objects.equals(expected, found) || !Objects.equals(expected, match.getCategoryId())
+                    || !hitsConsistent(input, match)) {
+                if (mismatches++ < 20) {
+                    System.out.println("MISMATCH for '" + input + "': regex " + expected + ", findCategory " + found
+                        + ", match " + match.getCategoryId());
+                }
+            }
+        }
+
+        System.out.println("Dataset inputs: " + datasetInputs + ", total inputs: " + inputs.size()
+            + ", mismatches: " + mismatches);
+        if (mismatches > 0) {
+            System.exit(1);
+        }
+        System.out.println("✓ Automaton identical to the regex chain");
+    }
+
+    /**
+     * Every hit slices its keyword out of the input, and there are hits exactly when a category won
+     */
+    private static boolean hitsConsistent(String input, KeywordAutomaton.MatchResult match) {
+        for (KeywordAutomaton.Hit hit : match.getHits()) {
+            if (!input.substring(hit.start, hit.end).equals(hit.keyword)) {
+                return false;
+            }
+        }
+        return match.isMatched() == !match.getHits().isEmpty();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<Long, List<String>> layer1KeywordMap() throws Exception {
+        Method method = AICategorizationService.class.getDeclaredMethod("buildLayer1KeywordMap");
+        method.setAccessible(true);
+        return (Map<Long, List<String>>) method.invoke(null);
+    }
+
+    /**
+     * Keywords of random categories glued with random separators and word characters, so hits land
+     * on and off word boundaries and several categories compete
+     */
+    private static List<String> randomInputs(Map<Long, List<String>> keywords, int count, Random random) {
+        List<String> all = new ArrayList<>();
+        keywords.values().forEach(all::addAll);
+        String[] glue = {" ", " ", " ", "", "-", "_", ".", "&", "1", "x", "ă", "  ", ",", "/"};
+        List<String> inputs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int parts = 1 + random.nextInt(4);
+            StringBuilder sb = new StringBuilder();
+            for (int j = 0; j < parts; j++) {
+                if (j > 0 || random.nextBoolean()) {
+                    sb.append(glue[random.nextInt(glue.length)]);
+                }
+                sb.append(all.get(random.nextInt(all.size())));
+            }
+            if (random.nextBoolean()) {
+                sb.append(glue[random.nextInt(glue.length)]);
+            }
+            inputs.add(sb.toString());
+        }
+        return inputs;
+    }
+
+    /**
+     * Original Layer 1 (AICategorizationService.matchByKeywords before the automaton): one regex per
+     * category, first match wins
+     */
+    private static class ReferenceMatcher {
+
+        static Long matchByKeywords(String normalized) {
+            // Category 1: Lương (Salary)
+            if (normalized.matches(".*\\b(luong|salary|wage|tien luong|nhan luong|thuong|bonus)\\b.*")) {
+                return 1L;
+            }
+
+            // Category 2: Thu nhập khác (Other income)
+            if (normalized.matches(".*\\b(thu nhap|income|lai|dividend|hoa hong|commission|loi nhuan|profit)\\b.*")) {
+                return 2L;
+            }
+
+            // Category 3: Đầu tư (Investment)
+            if (normalized.matches(".*\\b(dau tu|invest|co phieu|stock|chung khoan|quy|fund|trai phieu|bond|crypto|bitcoin)\\b.*")) {
+                return 3L;
+            }
+
+            // Category 4: Kinh doanh (Business)
+            if (normalized.matches(".*\\b(kinh doanh|business|doanh thu|revenue|ban hang|sales|cung cap|supplier|khach hang|customer)\\b.*")) {
+                return 4L;
+            }
+
+            // Category 5: Ăn uống (Food & Beverage)
+            if (normalized.matches(".*\\b(com|an|cafe|ca phe|tra|pho|bun|quan an|nha hang|buffet|mi|banh|nuong|lau|" +
+                                   "food|drink|restaurant|breakfast|lunch|dinner|snack|" +
+                                   "ship do an|grab food|shopeefood|gofood|now|baemin|" +
+                                   "highlands|starbucks|phuc long|kfc|lotteria|jollibee|pizza|burger)\\b.*")) {
+                return 5L;
+            }
+
+            // Category 6: Giao thông (Transportation)
+            if (normalized.matches(".*\\b(xe|grab|be|taxi|xe om|xe buyt|xang|dau|sua xe|bao duong|" +
+                                   "transport|bus|motorbike|car|fuel|petrol|gas|parking|ve|" +
+                                   "grab bike|grab car|be bike|be car|gojek|uber|" +
+                                   "ve xe|ve may bay|flight|ticket|airport|san bay)\\b.*")) {
+                return 6L;
+            }
+
+            // Category 7: Giải trí (Entertainment)
+            if (normalized.matches(".*\\b(phim|game|karaoke|bar|pub|club|party|du lich|travel|" +
+                                   "entertainment|movie|cinema|concert|show|event|" +
+                                   "netflix|spotify|steam|playstation|xbox|nintendo|" +
+                                   "cgv|lotte|galaxy|beta|bhd|" +
+                                   "resort|khach san|hotel|tour|visa|passport)\\b.*")) {
+                return 7L;
+            }
+
+            // Category 8: Sức khỏe (Health & Fitness)
+            if (normalized.matches(".*\\b(benh|thuoc|bac si|kham|nha thuoc|benh vien|" +
+                                   "vot|bong|gym|yoga|the thao|chay bo|boi|cau long|tennis|bi da|" +
+                                   "health|medicine|doctor|hospital|pharmacy|clinic|" +
+                                   "sport|fitness|workout|exercise|" +
+                                   "california|tgym|jetts|elite|" +
+                                   "xet nghiem|test|vaccine|tiem|kham benh|chua benh|" +
+                                   "vitamin|thuc pham chuc nang|supplement)\\b.*")) {
+                return 8L;
+            }
+
+            // Category 9: Giáo dục (Education)
+            if (normalized.matches(".*\\b(hoc|sach|khoa hoc|truong|giao vien|lop|thi|hoc phi|" +
+                                   "education|school|university|course|class|tuition|" +
+                                   "study|learn|book|textbook|notebook|pen|pencil|" +
+                                   "udemy|coursera|skillshare|edx|" +
+                                   "ielts|toeic|toefl|english|tieng anh|" +
+                                   "hoc online|e-learning)\\b.*")) {
+                return 9L;
+            }
+
+            // Category 10: Mua sắm (Shopping)
+            if (normalized.matches(".*\\b(mua|ao|quan|giay|dep|tui|mi|son|my pham|" +
+                                   "shopping|buy|purchase|clothes|shoes|bag|cosmetics|" +
+                                   "shopee|lazada|tiki|sendo|" +
+                                   "thoi trang|fashion|uniqlo|zara|h&m|" +
+                                   "dien thoai|phone|laptop|may tinh|tablet|" +
+                                   "do dung|furniture|noi that|" +
+                                   "do choi|toy|game console)\\b.*")) {
+                return 10L;
+            }
+
+            // Category 11: Tiện ích (Bills & Utilities)
+            if (normalized.matches(".*\\b(dien|nuoc|internet|tien nha|wifi|gas|" +
+                                   "bill|utility|electricity|water|rent|" +
+                                   "fpt|vnpt|viettel|mobifone|vinaphone|" +
+                                   "dien luc|evn|" +
+                                   "rac|ve sinh|garbage|" +
+                                   "bao hiem|insurance|phi|fee)\\b.*")) {
+                return 11L;
+            }
+
+            // Category 12: Vay nợ (Debt & Loan)
+            if (normalized.matches(".*\\b(vay|no|debt|loan|credit|tra no|pay debt|" +
+                                   "lai suat|interest|the tin dung|credit card|" +
+                                   "bank|ngan hang|tpbank|vietcombank|techcombank|mb|acb|" +
+                                   "tien ich|momo|zalopay|vnpay|shopeepay|" +
+                                   "ky quy|installment|tra gop)\\b.*")) {
+                return 12L;
+            }
+
+            // Category 13: Quà tặng (Gifts)
+            if (normalized.matches(".*\\b(qua|tang|sinh nhat|tet|le|hoi|" +
+                                   "gift|present|birthday|wedding|anniversary|" +
+                                   "mung|celebrate|tiec|party|" +
+                                   "hoa|flower|banh|cake|chocolate)\\b.*")) {
+                return 13L;
+            }
+
+            return null;
+        }
+    }
+}
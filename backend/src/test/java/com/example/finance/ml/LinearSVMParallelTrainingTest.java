@@ -0,0 +1,102 @@
+package com.example.finance.ml;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.util.*;
+
+/**
+ * Standalone test for parallel one-vs-rest training (LinearSVMClassifier.setParallelism) (no Spring context)
+ * - Parallelism 1, 2 and N (one thread per class) give bit-identical weights and bias
+ *   (hasSameParameters) and the same epochs per class
+ * - With ModelTrainer's settings (C = 10, cap 10000 epochs, tolerance 1e-4, patience 10) every
+ *   class stops early, well before the epoch cap; without early stopping every class runs the cap
+ * - A different seed gives different weights (the identity checks are not vacuous)
+ *
+ * Run from backend/: exits with status 1 on failure.
+ */
+public class LinearSVMParallelTrainingTest {
+
+    private static final String TRAIN_SET = "../ai-service/vietnamese_transactions_14categories_train.json";
+
+    private static final int MAX_EPOCHS = 10000;
+    private static final double TOLERANCE = 1e-4;
+    private static final int PATIENCE = 10;
+
+    private static int failed = 0;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== LinearSVM Parallel Training Test ===\n");
+        List<String> texts = new ArrayList<>();
+        List<Integer> labelList = new ArrayList<>();
+        File file = new File(TRAIN_SET);
+        if (!file.exists()) {
+            System.out.println("Dataset not found, skipping");
+            finish();
+            return;
+        }
+        for (JsonNode node : new ObjectMapper().readTree(file)) {
+            texts.add(VietnameseTextNormalizer.normalize(node.get("description").asText()));
+            labelList.add(node.get("category_id").asInt());
+        }
+        int[] labels = labelList.stream().mapToInt(Integer::intValue).toArray();
+        TFIDFVectorizer vectorizer = new TFIDFVectorizer(2000);
+        SparseVector[] rows = vectorizer.fitTransformSparse(texts);
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = rows[i].l2Normalize();
+        }
+        int numClasses = (int) labelList.stream().distinct().count();
+
+        int[] parallelisms = {1, 2, numClasses};
+        LinearSVMClassifier[] models = new LinearSVMClassifier[parallelisms.length];
+        for (int p = 0; p < parallelisms.length; p++) {
+            long start = System.nanoTime();
+            models[p] = train(rows, labels, vectorizer.getDimension(), parallelisms[p], 42L, TOLERANCE, MAX_EPOCHS);
+            System.out.printf("   parallelism %2d: %d ms%n", parallelisms[p], (System.nanoTime() - start) / 1_000_000);
+        }
+        for (int p = 1; p < parallelisms.length; p++) {
+            check("parallelism " + parallelisms[p] + ": same parameters as 1 thread", models[p].hasSameParameters(models[0]));
+            check("parallelism " + parallelisms[p] + ": same epochs per class",
+                Arrays.equals(models[p].getEpochsRun(), models[0].getEpochsRun()));
+        }
+
+        int[] epochs = models[0].getEpochsRun();
+        System.out.println("   Epochs per class: " + Arrays.toString(epochs));
+        check("one epoch count per class", epochs.length == numClasses);
+        check("early stopping ends every class before the " + MAX_EPOCHS + "-epoch cap",
+            Arrays.stream(epochs).allMatch(e -> e > PATIENCE && e < MAX_EPOCHS));
+
+        LinearSVMClassifier capped = train(rows, labels, vectorizer.getDimension(), numClasses, 42L, 0.0, 25);
+        check("without early stopping every class runs the cap",
+            Arrays.stream(capped.getEpochsRun()).allMatch(e -> e == 25));
+
+        LinearSVMClassifier reseeded = train(rows, labels, vectorizer.getDimension(), numClasses, 7L, TOLERANCE, MAX_EPOCHS);
+        check("another seed gives other parameters", !reseeded.hasSameParameters(models[0]));
+
+        finish();
+    }
+
+    private static LinearSVMClassifier train(SparseVector[] rows, int[] labels, int numFeatures, int parallelism,
+                                             long seed, double tolerance, int maxEpochs) {
+        LinearSVMClassifier svm = new LinearSVMClassifier(10.0, maxEpochs);
+        svm.setSeed(seed);
+        svm.setParallelism(parallelism);
+        svm.setEarlyStopping(tolerance, PATIENCE);
+        svm.train(rows, labels, numFeatures);
+        return svm;
+    }
+
+    private static void check(String name, boolean ok) {
+        System.out.println((ok ? "✓ " : "✗ ") + name);
+        if (!ok) {
+            failed++;
+        }
+    }
+
+    private static void finish() {
+        System.out.println("\n" + (failed == 0 ? "✓ All checks passed" : failed + " check(s) failed"));
+        if (failed > 0) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.finance.ml;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Standalone test for int8 weights (LinearSVMClassifier.quantize) (no Spring context)
+ * - Tolerance: top-1 changes on at most 0.5% of the test set, accuracy within 0.5 pt of the float model
+ * - Every score stays within the quantization error bound of the float score (weights rounded to
+ *   scale / 2, feature values to 15-bit fixed point)
+ * - FLAG_QUANTIZED model files round trip with identical predictions and a smaller weight block
+ * - mutableCopy() of a quantized model predicts like it; batch scoring speed float vs int8
+ *
+ * Run from backend/: exits with status 1 on failure.
+ */
+public class QuantizedClassifierTest {
+
+    private static final String TRAIN_SET = "../ai-service/vietnamese_transactions_14categories_train.json";
+    private static final String TEST_SET = "../ai-service/vietnamese_transactions_14categories_test.json";
+
+    private static final double MAX_DISAGREEMENT = 0.005;
+    private static final double MAX_ACCURACY_DROP = 0.005;
+
+    private static int failed = 0;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== Quantized Classifier Test ===\n");
+        List<String[]> train = read(TRAIN_SET);
+        List<String[]> test = read(TEST_SET);
+        if (train.isEmpty() || test.isEmpty()) {
+            System.out.println("Datasets not found, skipping");
+            finish();
+            return;
+        }
+        List<String> trainTexts = new ArrayList<>();
+        int[] trainLabels = new int[train.size()];
+        for (int i = 0; i < train.size(); i++) {
+            trainTexts.add(train.get(i)[0]);
+            trainLabels[i] = Integer.parseInt(train.get(i)[1]);
+        }
+        int[] testLabels = new int[test.size()];
+        for (int i = 0; i < test.size(); i++) {
+            testLabels[i] = Integer.parseInt(test.get(i)[1]);
+        }
+
+        TextVectorizer[] vectorizers = { new TFIDFVectorizer(2000), new HashingVectorizer(1 << 16, 3, 5) };
+        for (TextVectorizer vectorizer : vectorizers) {
+            String name = vectorizer instanceof HashingVectorizer ? "hashing char 3-5" : "tfidf 2000";
+            LinearSVMClassifier svm = new LinearSVMClassifier(1.0, 30);
+            svm.setSeed(42);
+            svm.train(vectorizer, trainTexts, trainLabels);
+            SparseVector[] rows = new SparseVector[test.size()];
+            for (int i = 0; i < rows.length; i++) {
+                rows[i] = vectorizer.transformSparse(test.get(i)[0]);
+            }
+
+            LinearSVMClassifier quantized = svm.quantize();
+            int[] expected = svm.predict(rows);
+            int[] actual = quantized.predict(rows);
+            int disagreements = 0;
+            for (int i = 0; i < rows.length; i++) {
+                if (expected[i] != actual[i]) {
+                    disagreements++;
+                }
+            }
+            double floatAccuracy = svm.evaluateAccuracy(rows, testLabels);
+            double int8Accuracy = quantized.evaluateAccuracy(rows, testLabels);
+            System.out.printf("   %s: float %.2f%%, int8 %.2f%%%n", name, floatAccuracy * 100, int8Accuracy * 100);
+            check(name + ": top-1 changed on " + disagreements + " of " + rows.length,
+                disagreements <= MAX_DISAGREEMENT * rows.length);
+            check(name + ": accuracy within 0.5 pt", int8Accuracy >= floatAccuracy - MAX_ACCURACY_DROP);
+
+            float[] scales = quantized.getQuantizedScales();
+            int outOfBound = 0;
+            for (SparseVector row : rows) {
+                double[] floatScores = svm.predictWithConfidence(row).scores;
+                double[] int8Scores = quantized.predictWithConfidence(row).scores;
+                double l1 = 0.0;
+                for (int k = 0; k < row.nonZeroCount(); k++) {
+                    l1 += Math.abs(row.getValue(k));
+                }
+                for (int c = 0; c < scales.length; c++) {
+                    double bound = scales[c] * (l1 / 2 + 127.0 * row.nonZeroCount() / 65534);
+                    if (Math.abs(floatScores[c] - int8Scores[c]) > bound + 1e-9) {
+                        outOfBound++;
+                    }
+                }
+            }
+            check(name + ": scores within the quantization bound (" + outOfBound + " outside)", outOfBound == 0);
+
+            int weightCount = svm.getNumFeatures() * svm.getClasses().length;
+            check(name + ": 1 byte per weight (" + weightCount + " bytes vs " + 8 * weightCount + " as double)",
+                quantized.isQuantized() && quantized.getQuantizedWeights().length == weightCount
+                    && quantized.getNumFeatures() == svm.getNumFeatures() && quantized.quantize() == quantized);
+
+            Path floatFile = Files.createTempFile("float-model", ".fmdl");
+            Path int8File = Files.createTempFile("int8-model", ".fmdl");
+            try {
+                BinaryModelFormat.write(vectorizer, svm, floatFile);
+                String checksum = BinaryModelFormat.write(vectorizer, quantized, int8File);
+                BinaryModelFormat.LoadedModel loaded = BinaryModelFormat.map(int8File, checksum);
+                int flags = ByteBuffer.wrap(Files.readAllBytes(int8File)).order(ByteOrder.LITTLE_ENDIAN).getInt(28);
+                int[] restored = loaded.getClassifier().predict(rows);
+                check(name + ": round trip keeps int8 predictions (flags 0x" + Integer.toHexString(flags) + ")",
+                    loaded.getClassifier().isQuantized() && (flags & BinaryModelFormat.FLAG_QUANTIZED) != 0
+                        && Arrays.equals(restored, actual));
+                check(String.format("%s: file %,d bytes vs %,d float32", name, Files.size(int8File), Files.size(floatFile)),
+                    Files.size(int8File) < Files.size(floatFile) - 3L * weightCount + 64);
+            } finally {
+                Files.deleteIfExists(floatFile);
+                Files.deleteIfExists(int8File);
+            }
+
+            LinearSVMClassifier copy = quantized.mutableCopy();
+            check(name + ": mutableCopy of int8 model predicts like it", Arrays.equals(copy.predict(rows), actual));
+
+            System.out.printf("   %s: batch scoring float %,.0f rows/s, int8 %,.0f rows/s%n",
+                name, rowsPerSecond(svm, rows), rowsPerSecond(quantized, rows));
+        }
+
+        finish();
+    }
+
+    private static double rowsPerSecond(LinearSVMClassifier svm, SparseVector[] rows) {
+        long sink = 0;
+        for (int i = 0; i < 200; i++) {
+            sink += svm.predict(rows)[i % rows.length];
+        }
+        int rounds = 500;
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            sink += svm.predict(rows)[i % rows.length];
+        }
+        double perSecond = (double) rounds * rows.length / ((System.nanoTime() - start) / 1e9);
+        return sink == Long.MIN_VALUE ? 0 : perSecond;
+    }
+
+    private static List<String[]> read(String path) throws Exception {
+        File file = new File(path);
+        List<String[]> samples = new ArrayList<>();
+        if (!file.exists()) {
+            return samples;
+        }
+        for (JsonNode node : new ObjectMapper().readTree(file)) {
+            samples.add(new String[]{node.get("description").asText(), node.get("category_id").asText()});
+        }
+        return samples;
+    }
+
+    private static void check(String name, boolean ok) {
+        System.out.println((ok ? "✓ " : "✗ ") + name);
+        if (!ok) {
+            failed++;
+        }
+    }
+
+    private static void finish() {
+        System.out.println("\n" + (failed == 0 ? "✓ All checks passed" : failed + " check(s) failed"));
+        if (failed > 0) {
+            System.exit(1);
+        }
+    }
+}
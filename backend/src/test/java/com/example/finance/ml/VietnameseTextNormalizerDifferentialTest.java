@@ -0,0 +1,180 @@
+package com.example.finance.ml;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.text.Normalizer;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Differential test: the single-pass VietnameseTextNormalizer must produce exactly the same
+ * normalize() / tokenize() output as the original regex implementation (kept below as the oracle)
+ * on every description of the transaction datasets, plus randomized Vietnamese / Unicode input.
+ *
+ * Run from backend/: exits with status 1 on the first mismatches.
+ */
+public class VietnameseTextNormalizerDifferentialTest {
+
+    private static final String[] DATASETS = {
+        "../ai-service/vietnamese_transactions_14categories.json",
+        "../ai-service/vietnamese_transactions_14categories_train.json",
+        "../ai-service/vietnamese_transactions_14categories_test.json"
+    };
+
+    public static void main(String[] args) throws Exception {
+        List<String> inputs = new ArrayList<>();
+        ObjectMapper mapper = new ObjectMapper();
+        for (String dataset : DATASETS) {
+            File file = new File(dataset);
+            if (!file.exists()) {
+                System.out.println("Skipping missing dataset: " + dataset);
+                continue;
+            }
+            for (JsonNode node : mapper.readTree(file)) {
+                inputs.add(node.get("description").asText());
+            }
+        }
+        int datasetSize = inputs.size();
+        inputs.addAll(randomInputs(20000, new Random(42)));
+        inputs.addAll(Arrays.asList(
+            null, "", "   ", "\t\n", "áb", "́abc", "İstanbul", "ĐƯỜNG", "cho", "trong cho",
+            "mua cho con", "x cho", "cho x", "𝅥ab", "a\uD800b", "１２３ＡＢＣ", "ǅ Ǆ ǆ", "ß"
+        ));
+
+        int mismatches = 0;
+        VietnameseTextNormalizer.NormalizedText buffer = new VietnameseTextNormalizer.NormalizedText();
+        for (String input : inputs) {
+            String expected = ReferenceNormalizer.normalize(input);
+            String actual = VietnameseTextNormalizer.normalize(input);
+            List<String> expectedTokens = ReferenceNormalizer.tokenize(input);
+            List<String> actualTokens = VietnameseTextNormalizer.tokenize(input);
+            if (!expected.equals(actual) || !expectedTokens.equals(actualTokens)
+                    || (input != null && !offsetsMatch(input, buffer, expectedTokens))) {
+                if (mismatches++ < 20) {
+                    System.out.println("MISMATCH for " + escape(input));
+                    System.out.println("   expected: '" + expected + "' " + expectedTokens);
+                    System.out.println("   actual:   '" + actual + "' " + actualTokens);
+                }
+            }
+        }
+
+        System.out.println("Dataset descriptions: " + datasetSize + ", total inputs: " + inputs.size()
+            + ", mismatches: " + mismatches);
+        if (mismatches > 0) {
+            System.exit(1);
+        }
+        System.out.println("✓ Fast path identical to reference implementation");
+    }
+
+    /**
+     * normalizeInto() into a shared buffer: token offsets must slice out the expected tokens,
+     * separated by single spaces
+     */
+    private static boolean offsetsMatch(String input, VietnameseTextNormalizer.NormalizedText buffer,
+                                        List<String> expectedTokens) {
+        VietnameseTextNormalizer.normalizeInto(input, buffer);
+        if (buffer.tokenCount() != expectedTokens.size()) {
+            return false;
+        }
+        for (int t = 0; t < buffer.tokenCount(); t++) {
+            String token = new String(buffer.buffer(), buffer.tokenStart(t), buffer.tokenEnd(t) - buffer.tokenStart(t));
+            if (!token.equals(expectedTokens.get(t))) {
+                return false;
+            }
+            if (t > 0 && buffer.tokenStart(t) != buffer.tokenEnd(t - 1) + 1) {
+                return false;
+            }
+        }
+        return buffer.toString().equals(String.join(" ", expectedTokens));
+    }
+
+    private static List<String> randomInputs(int count, Random random) {
+        String alphabet = "aăâbcdđeêghiklmnoôơpqrstuưvxyàáảãạằắẳẵặầấẩẫậèéẻẽẹềếểễệìíỉĩị"
+            + "òóỏõọồốổỗộờớởỡợùúủũụừứửữựỳýỷỹỵAĂÂĐÊÔƠƯÀÁẢÃẠĐ0123456789"
+            + "      .,-_/()!?@#%&*+=:;'\"\t\n ̣̀́̃̉";
+        List<String> inputs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int length = random.nextInt(40);
+            StringBuilder sb = new StringBuilder(length);
+            for (int j = 0; j < length; j++) {
+                if (random.nextInt(50) == 0) {
+                    sb.appendCodePoint(random.nextInt(0x2FFFF)); // any code point, incl. lone surrogates
+                } else if (random.nextInt(12) == 0) {
+                    sb.append(random.nextBoolean() ? "cho" : "trong");
+                } else {
+                    sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+                }
+            }
+            inputs.add(sb.toString());
+        }
+        return inputs;
+    }
+
+    private static String escape(String s) {
+        if (s == null) {
+            return "null";
+        }
+        StringBuilder sb = new StringBuilder("\"");
+        for (char c : s.toCharArray()) {
+            sb.append(c >= 0x20 && c < 0x7F ? String.valueOf(c) : String.format("\\u%04X", (int) c));
+        }
+        return sb.append('"').toString();
+    }
+
+    /**
+     * Original implementation (NFD + regexes + stream-based stopword removal)
+     */
+    private static class ReferenceNormalizer {
+
+        private static final String[] STOPWORDS = {
+            "của", "và", "có", "được", "trong", "cho", "từ", "với", "này", "đã",
+            "để", "một", "các", "những", "là", "thì", "không", "còn", "như", "người"
+        };
+
+        static String normalize(String text) {
+            if (text == null || text.trim().isEmpty()) {
+                return "";
+            }
+
+            text = text.toLowerCase().trim();
+            text = removeDiacritics(text);
+            text = removeSpecialCharacters(text);
+            text = removeStopwords(text);
+            text = normalizeWhitespace(text);
+
+            return text;
+        }
+
+        static List<String> tokenize(String text) {
+            String normalized = normalize(text);
+            return Arrays.stream(normalized.split("\\s+"))
+                    .filter(word -> !word.isEmpty())
+                    .collect(Collectors.toList());
+        }
+
+        private static String removeDiacritics(String text) {
+            String normalized = Normalizer.normalize(text, Normalizer.Form.NFD);
+            normalized = normalized.replaceAll("\\p{M}", "");
+
+            normalized = normalized.replace('đ', 'd').replace('Đ', 'd');
+
+            return normalized;
+        }
+
+        private static String removeSpecialCharacters(String text) {
+            return text.replaceAll("[^a-z0-9\\s]", " ");
+        }
+
+        private static String removeStopwords(String text) {
+            List<String> stopwordList = Arrays.asList(STOPWORDS);
+            return Arrays.stream(text.split("\\s+"))
+                    .filter(word -> !stopwordList.contains(word))
+                    .collect(Collectors.joining(" "));
+        }
+
+        private static String normalizeWhitespace(String text) {
+            return text.replaceAll("\\s+", " ").trim();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.finance.repository;
+
+import com.example.finance.repository.TransactionAggregatesImpl.Period;
+import jakarta.persistence.EntityManager;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Standalone test for TransactionAggregatesImpl (no database: Hibernate is bootstrapped on the entity
+ * classes with the SQL Server dialect and no JDBC access, and a StatementInspector captures the SQL each
+ * query renders, then stops it before a connection is asked for)
+ * - month / year -> half-open ranges, invalid values match nothing as MONTH() = 13 did; so do the
+ *   month-only queries (sumByUserCategoryMonth, findExpensesByCategory) without a month or year
+ * - the rendered SQL compares trans_date with parameters (no MONTH() / YEAR() around the column) and
+ *   has no "? IS NULL OR" catch-alls; each combination of arguments renders its own statement
+ *
+ * Run from backend/: exits with status 1 on failure.
+ */
+public class TransactionAggregatesImplTest {
+
+    private static int failed = 0;
+    private static final List<String> statements = new ArrayList<>();
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== TransactionAggregatesImpl Test ===\n");
+
+        Period march = Period.of(3, 2025);
+        check("month + year -> [first day, first day of next month)",
+            march.from().equals(LocalDate.of(2025, 3, 1)) && march.until().equals(LocalDate.of(2025, 4, 1)));
+        Period december = Period.of(12, 2024);
+        check("december ends on January 1st of the next year", december.until().equals(LocalDate.of(2025, 1, 1)));
+        Period year = Period.of(null, 2024);
+        check("year only -> calendar year", year.from().equals(LocalDate.of(2024, 1, 1))
+            && year.until().equals(LocalDate.of(2025, 1, 1)) && year.monthOfAnyYear() == null);
+        check("month only -> that month of every year", Period.of(3, null).monthOfAnyYear() == 3
+            && Period.of(3, null).from() == null);
+        check("no month / year -> no date filter", Period.of(null, null) == Period.ANY);
+        check("invalid month / year match nothing", Period.of(13, 2025).matchesNothing()
+            && Period.of(0, null).matchesNothing() && Period.of(1, 0).matchesNothing());
+        check("month queries need both month and year", Period.ofMonth(3, 2025).equals(march)
+            && Period.ofMonth(null, 2025).matchesNothing() && Period.ofMonth(3, null).matchesNothing());
+
+        TransactionAggregatesImpl aggregates = aggregates();
+        run(() -> aggregates.sumAmountByUserAndType(7L, "expense", 3, 2025));
+        run(() -> aggregates.findByUserIdAndMonthAndYear(7L, 3, 2025));
+        run(() -> aggregates.sumAmountByCategory(7L, 3, 2025));
+        run(() -> aggregates.sumAmountByWallet(7L, 2L, "income", 3, 2025));
+        run(() -> aggregates.countTransactionsByWallet(7L, null, null, null, 2025));
+        run(() -> aggregates.findExpenseStatisticsByCategory(7L, 3, 2025));
+        run(() -> aggregates.sumByUserCategoryMonth(7L, 4L, 3, 2025));
+        run(() -> aggregates.findExpensesByCategory(7L, 3, 2025));
+        check("8 statements rendered", statements.size() == 8);
+        boolean sargable = true;
+        for (String sql : statements) {
+            sargable &= sql.contains("trans_date>=?") && sql.contains("trans_date<?")
+                && !sql.contains("month(") && !sql.contains("year(") && !sql.contains("is null");
+        }
+        check("month / year as trans_date ranges, no catch-alls", sargable);
+        for (String sql : statements) {
+            System.out.println("   " + sql);
+        }
+
+        statements.clear();
+        run(() -> aggregates.sumAmountByWallet(7L, null, null, null, null));
+        run(() -> aggregates.sumAmountByWallet(7L, 2L, null, null, null));
+        run(() -> aggregates.sumAmountByWallet(7L, 2L, "expense", 3, 2025));
+        run(() -> aggregates.sumAmountByWallet(7L, 2L, "expense", 4, 2026));
+        check("only set arguments become predicates", !statements.get(0).contains("wallet_id=?")
+            && !statements.get(0).contains("trans_date") && statements.get(1).contains("wallet_id=?")
+            && !statements.get(1).contains("type=?"));
+        check("one statement per argument shape, reused across values",
+            statements.stream().distinct().count() == 3 && statements.get(2).equals(statements.get(3)));
+
+        statements.clear();
+        run(() -> aggregates.sumAmountByUserAndType(7L, "income", 3, null));
+        check("month without year keeps MONTH()", statements.get(0).contains("month(t1_0.trans_date)=?"));
+
+        // DATEFROMPARTS(2025, 13, 1) failed the whole statement; now nothing is bound and no row matches
+        statements.clear();
+        run(() -> aggregates.sumByUserCategoryMonth(7L, 4L, 13, 2025));
+        run(() -> aggregates.findExpensesByCategory(7L, 1, 0));
+        check("invalid month / year render without a date parameter", statements.size() == 2
+            && statements.stream().noneMatch(sql -> sql.contains("trans_date")));
+
+        System.out.println("\n" + (failed == 0 ? "✓ All checks passed" : failed + " check(s) failed"));
+        System.exit(failed > 0 ? 1 : 0);
+    }
+
+    private static TransactionAggregatesImpl aggregates() throws Exception {
+        StandardServiceRegistry registry = new StandardServiceRegistryBuilder()
+            .applySetting("hibernate.dialect", "org.hibernate.dialect.SQLServerDialect")
+            .applySetting("hibernate.boot.allow_jdbc_metadata_access", "false")
+            .applySetting("hibernate.connection.url", "jdbc:sqlserver://localhost:1")
+            .applySetting("hibernate.connection.initial_pool_size", "0")
+            .applySetting("hibernate.session_factory.statement_inspector", (StatementInspector) sql -> {
+                statements.add(sql);
+                throw new RenderedOnly();
+            })
+            .build();
+        MetadataSources sources = new MetadataSources(registry);
+        String[] entities = new File("target/classes/com/example/finance/entity").list();
+        for (String file : entities) {
+            if (file.endsWith(".class") && !file.contains("$")) {
+                sources.addAnnotatedClass(Class.forName("com.example.finance.entity." + file.replace(".class", "")));
+            }
+        }
+        EntityManager entityManager = sources.buildMetadata().buildSessionFactory().createEntityManager();
+        TransactionAggregatesImpl aggregates = new TransactionAggregatesImpl();
+        Field field = TransactionAggregatesImpl.class.getDeclaredField("entityManager");
+        field.setAccessible(true);
+        field.set(aggregates, entityManager);
+        return aggregates;
+    }
+
+    private static void run(Runnable query) {
+        try {
+            query.run();
+        } catch (RuntimeException e) {
+            if (!(e instanceof RenderedOnly) && !(e.getCause() instanceof RenderedOnly)) {
+                check("query rendered: " + e, false);
+            }
+        }
+    }
+
+    /** Thrown by the inspector once the SQL is captured */
+    static final class RenderedOnly extends RuntimeException {
+    }
+
+    private static void check(String name, boolean ok) {
+        System.out.println((ok ? "✓ " : "✗ ") + name);
+        if (!ok) {
+            failed++;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.finance.service;
+
+import com.example.finance.ml.LinearSVMClassifier;
+import com.example.finance.ml.ModelSnapshot;
+import com.example.finance.ml.TFIDFVectorizer;
+import com.example.finance.service.AICategorizationService.CategorizationResult;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Field;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Differential test: BatchCategorizationService must return, item for item and in input order,
+ * the same category / confidence / reasoning / model version as calling categorizeExpense()
+ * once per item (services wired by hand, SVM trained on the train split, no user).
+ *
+ * Inputs: the full dataset, each description also repeated, upper-cased and with punctuation
+ * (same normalized text, different Layer 3 input), plus blank items.
+ * Also prints the sequential vs batch wall time.
+ *
+ * Run from backend/: exits with status 1 on mismatches.
+ */
+public class BatchCategorizationDifferentialTest {
+
+    private static final String DATASET = "../ai-service/vietnamese_transactions_14categories.json";
+    private static final String TRAIN_SET = "../ai-service/vietnamese_transactions_14categories_train.json";
+
+    public static void main(String[] args) throws Exception {
+        AICategorizationService ai = wireCategorizationService();
+        ModelRegistryService registry = (ModelRegistryService) field(ai, "modelRegistry");
+        BatchCategorizationService batch = new BatchCategorizationService(
+            ai, registry, null, (FuzzyMatchingService) field(ai, "fuzzyMatchingService"),
+            (CategorizationResultCache) field(ai, "resultCache"), 4);
+
+        List<BatchCategorizationService.Item> items = new ArrayList<>();
+        File dataset = new File(DATASET);
+        if (dataset.exists()) {
+            Random random = new Random(5);
+            for (JsonNode node : new ObjectMapper().readTree(dataset)) {
+                String description = node.get("description").asText();
+                double amount = 10_000 * (1 + random.nextInt(200));
+                items.add(new BatchCategorizationService.Item(description, amount));
+                items.add(new BatchCategorizationService.Item(description, amount * 2));
+                items.add(new BatchCategorizationService.Item(description.toUpperCase(), amount));
+                items.add(new BatchCategorizationService.Item(description + "!!", null));
+            }
+        } else {
+            System.out.println("Skipping missing dataset: " + DATASET);
+            items.add(new BatchCategorizationService.Item("Phở bò Hà Nội", 50000.0));
+            items.add(new BatchCategorizationService.Item("phở bò hà nội!", 50000.0));
+        }
+        items.add(new BatchCategorizationService.Item("   ", 1000.0));
+        items.add(new BatchCategorizationService.Item(null, null));
+        Collections.shuffle(items, new Random(7));
+
+        // Layer helpers print per item; keep the console readable and the timings honest
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        long sequentialStart = System.nanoTime();
+        List<CategorizationResult> expected = new ArrayList<>();
+        for (BatchCategorizationService.Item item : items) {
+            String description = item.getDescription();
+            boolean blank = description == null || description.trim().isEmpty();
+            expected.add(blank ? null : ai.categorizeExpense(description, item.getAmount(), null));
+        }
+        long sequentialMs = (System.nanoTime() - sequentialStart) / 1_000_000;
+
+        BatchCategorizationService.BatchResult result = batch.categorize(items, null);
+        System.setOut(console);
+
+        int mismatches = 0;
+        for (int i = 0; i < items.size(); i++) {
+            String want = describe(expected.get(i));
+            String got = describe(result.getResults().get(i));
+            if (!want.equals(got) && mismatches++ < 20) {
+                System.out.println("MISMATCH '" + items.get(i).getDescription() + "': " + want + " vs " + got);
+            }
+        }
+        boolean sizesMatch = result.getResults().size() == items.size() && result.getLayers().size() == items.size();
+
+        System.out.println("Items: " + items.size() + ", mismatches: " + mismatches);
+        System.out.println("Sequential: " + sequentialMs + " ms, batch: " + result.getStats().get("totalMs") + " ms");
+        System.out.println("Stats: " + result.getStats());
+        batch.shutdown();
+        if (mismatches > 0 || !sizesMatch) {
+            System.exit(1);
+        }
+        System.out.println("✓ Batch results identical to per-item categorizeExpense");
+    }
+
+    private static String describe(CategorizationResult result) {
+        if (result == null) {
+            return "null";
+        }
+        return result.getCategory() + "|" + result.getConfidence() + "|" + result.getReasoning() + "|" + result.getModelVersion();
+    }
+
+    private static AICategorizationService wireCategorizationService() throws Exception {
+        // Small model trained on the train split (the bundled /ml-models files are Python pickles)
+        TFIDFVectorizer vectorizer = new TFIDFVectorizer(2000);
+        LinearSVMClassifier svm = new LinearSVMClassifier(1.0, 30);
+        File train = new File(TRAIN_SET);
+        if (train.exists()) {
+            List<String> documents = new ArrayList<>();
+            List<Integer> labels = new ArrayList<>();
+            for (JsonNode node : new ObjectMapper().readTree(train)) {
+                documents.add(node.get("description").asText());
+                labels.add(node.get("category_id").asInt());
+            }
+            svm.setSeed(42);
+            svm.train(vectorizer.fitTransformSparse(documents), labels.stream().mapToInt(Integer::intValue).toArray(),
+                vectorizer.getVocabularySize());
+        }
+        ModelRegistryService registry = new ModelRegistryService();
+        @SuppressWarnings("unchecked")
+        AtomicReference<ModelSnapshot> current = (AtomicReference<ModelSnapshot>) field(registry, "current");
+        current.set(!train.exists() ? ModelSnapshot.empty() : new ModelSnapshot("test-1", vectorizer, svm, 1.0, "test", "classpath", Instant.now()));
+
+        AICategorizationService ai = new AICategorizationService();
+        inject(ai, "fuzzyMatchingService", new FuzzyMatchingService());
+        inject(ai, "featureExtractor", new EnhancedFeatureExtractor());
+        inject(ai, "confidenceCalibrator", new ConfidenceCalibrationService());
+        inject(ai, "userPatternCache", new UserPatternCacheService(null, null, 1000, 200, 30));
+        inject(ai, "modelRegistry", registry);
+        CategorizationMetrics metrics = new CategorizationMetrics(new SimpleMeterRegistry());
+        inject(ai, "metrics", metrics);
+        inject(ai, "resultCache", new CategorizationResultCache(null, metrics, 50_000, 20_000, 60));
+        ai.rebuildFuzzyKeywordIndex();
+        return ai;
+    }
+
+    private static Object field(Object target, String name) throws Exception {
+        Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        return field.get(target);
+    }
+
+    private static void inject(Object target, String name, Object value) throws Exception {
+        Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+}
@@ -0,0 +1,363 @@
+package com.example.finance.service;
+
+import com.example.finance.ml.LinearSVMClassifier;
+import com.example.finance.ml.ModelSnapshot;
+import com.example.finance.ml.TFIDFVectorizer;
+import com.example.finance.service.AICategorizationService.CategorizationResult;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Offline replay of a labeled dataset through the full categorizeExpense() pipeline
+ * (no Spring context, no database, no network), with a regression check against a stored baseline.
+ *
+ * Reports, per layer (layer1, layer2, layer2.5, layer3, fallback = category 14 without a confident
+ * answer): coverage and accuracy; overall accuracy; the confusion matrix (rows = label,
+ * columns = prediction); p50 / p90 / p99 latency and single-thread throughput of the measured pass.
+ *
+ * Layer 3 is stubbed locally: --layer3=local (default) runs the built-in multi-signal scorer,
+ * --layer3=fallback answers category 14 every time (Layers 1 - 2.5 alone). The shared result cache
+ * is off unless --cached, so every call runs the layers.
+ *
+ * Run from backend/ after mvn test-compile:
+ *   java -cp "target/classes:target/test-classes:<dependency classpath>" \
+ *        com.example.finance.service.CategorizationReplay [--dataset=...] [--train=...]
+ *        [--baseline=...] [--update-baseline] [--report=...] [--layer3=local|fallback] [--cached]
+ *        [--max-accuracy-drop=0.005] [--max-layer-accuracy-drop=0.02] [--max-latency-ratio=2.0]
+ *
+ * Exits with status 1 when accuracy or latency regresses beyond the allowed margins.
+ */
+public class CategorizationReplay {
+
+    private static final String[] LAYERS = {
+        AICategorizationService.LAYER_1, AICategorizationService.LAYER_2, AICategorizationService.LAYER_25,
+        AICategorizationService.LAYER_3, AICategorizationService.FALLBACK
+    };
+    private static final int CATEGORIES = 14;
+    // Layers with fewer samples are reported but not checked (one miss would be a "regression")
+    private static final int MIN_LAYER_SAMPLES = 50;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        String dataset = options.getOrDefault("dataset", "../ai-service/vietnamese_transactions_14categories_test.json");
+        String train = options.getOrDefault("train", "../ai-service/vietnamese_transactions_14categories_train.json");
+        String baselinePath = options.getOrDefault("baseline", "src/test/resources/categorization-replay-baseline.json");
+        String reportPath = options.getOrDefault("report", "target/categorization-replay.json");
+        String layer3 = options.getOrDefault("layer3", "local");
+        double maxAccuracyDrop = Double.parseDouble(options.getOrDefault("max-accuracy-drop", "0.005"));
+        double maxLayerAccuracyDrop = Double.parseDouble(options.getOrDefault("max-layer-accuracy-drop", "0.02"));
+        double maxLatencyRatio = Double.parseDouble(options.getOrDefault("max-latency-ratio", "2.0"));
+
+        ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        List<String> descriptions = new ArrayList<>();
+        List<Integer> labels = new ArrayList<>();
+        for (JsonNode node : mapper.readTree(new File(dataset))) {
+            descriptions.add(node.get("description").asText());
+            labels.add(node.get("category_id").asInt());
+        }
+        // The dataset has no amounts: seeded ones, so amount-dependent code paths still run
+        Random random = new Random(5);
+        double[] amounts = new double[descriptions.size()];
+        for (int i = 0; i < amounts.length; i++) {
+            amounts[i] = 10_000.0 * (1 + random.nextInt(200));
+        }
+
+        AICategorizationService ai = wire(train, layer3, options.containsKey("cached"));
+
+        // Warm-up pass (JIT, lazy tables), then the measured pass
+        for (int i = 0; i < descriptions.size(); i++) {
+            ai.categorizeExpense(descriptions.get(i), amounts[i], null);
+        }
+        long[] latencies = new long[descriptions.size()];
+        String[] layers = new String[descriptions.size()];
+        int[] predicted = new int[descriptions.size()];
+        long[][] confusion = new long[CATEGORIES + 1][CATEGORIES + 1];
+        long start = System.nanoTime();
+        for (int i = 0; i < descriptions.size(); i++) {
+            long t0 = System.nanoTime();
+            CategorizationResult result = ai.categorizeExpense(descriptions.get(i), amounts[i], null);
+            latencies[i] = System.nanoTime() - t0;
+            layers[i] = layerOf(result);
+            predicted[i] = result.getCategory().intValue();
+            confusion[clamp(labels.get(i))][clamp(predicted[i])]++;
+        }
+        double wallSeconds = (System.nanoTime() - start) / 1e9;
+
+        ObjectNode report = report(mapper, labels, predicted, layers, confusion, latencies, wallSeconds,
+            layer3, dataset);
+        print(report, confusion);
+        File reportFile = new File(reportPath);
+        if (reportFile.getParentFile() != null) {
+            reportFile.getParentFile().mkdirs();
+        }
+        mapper.writeValue(reportFile, report);
+        System.out.println("\nReport written to " + reportFile.getPath());
+
+        File baselineFile = new File(baselinePath);
+        if (options.containsKey("update-baseline")) {
+            if (baselineFile.getParentFile() != null) {
+                baselineFile.getParentFile().mkdirs();
+            }
+            mapper.writeValue(baselineFile, report);
+            System.out.println("Baseline updated: " + baselineFile.getPath());
+            return;
+        }
+        if (!baselineFile.exists()) {
+            System.out.println("No baseline at " + baselineFile.getPath() + " (run with --update-baseline)");
+            return;
+        }
+
+        List<String> regressions = compare(report, mapper.readTree(baselineFile),
+            maxAccuracyDrop, maxLayerAccuracyDrop, maxLatencyRatio);
+        if (regressions.isEmpty()) {
+            System.out.println("✓ No regression against " + baselineFile.getPath());
+            return;
+        }
+        for (String regression : regressions) {
+            System.out.println("✗ " + regression);
+        }
+        System.exit(1);
+    }
+
+    /**
+     * Layer that produced a result, from its reasoning prefix
+     */
+    static String layerOf(CategorizationResult result) {
+        String reasoning = result.getReasoning();
+        if (reasoning.startsWith("Layer 1")) return AICategorizationService.LAYER_1;
+        if (reasoning.startsWith("Layer 2.5")) return AICategorizationService.LAYER_25;
+        if (reasoning.startsWith("Layer 2")) return AICategorizationService.LAYER_2;
+        if (reasoning.startsWith("Layer 3") && !reasoning.contains("Insufficient confidence")) {
+            return AICategorizationService.LAYER_3;
+        }
+        return AICategorizationService.FALLBACK;
+    }
+
+    private static ObjectNode report(ObjectMapper mapper, List<Integer> labels, int[] predicted, String[] layers,
+                                     long[][] confusion, long[] latencies, double wallSeconds,
+                                     String layer3, String dataset) {
+        int total = labels.size();
+        ObjectNode report = mapper.createObjectNode();
+        report.put("dataset", new File(dataset).getName());
+        report.put("layer3", layer3);
+        report.put("samples", total);
+
+        long correct = 0;
+        for (int c = 0; c <= CATEGORIES; c++) {
+            correct += confusion[c][c];
+        }
+        report.put("accuracy", round((double) correct / total));
+
+        ObjectNode perLayer = report.putObject("layers");
+        for (String layer : LAYERS) {
+            int count = 0;
+            int hits = 0;
+            for (int i = 0; i < total; i++) {
+                if (layer.equals(layers[i])) {
+                    count++;
+                    hits += predicted[i] == labels.get(i) ? 1 : 0;
+                }
+            }
+            ObjectNode node = perLayer.putObject(layer).put("count", count).put("coverage", round((double) count / total));
+            if (count > 0) {
+                node.put("accuracy", round((double) hits / count));
+            }
+        }
+
+        long[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        ObjectNode latency = report.putObject("latencyMicros");
+        latency.put("p50", round(percentile(sorted, 0.50) / 1e3));
+        latency.put("p90", round(percentile(sorted, 0.90) / 1e3));
+        latency.put("p99", round(percentile(sorted, 0.99) / 1e3));
+        latency.put("max", round(sorted[sorted.length - 1] / 1e3));
+        report.put("throughputPerSecond", round(total / wallSeconds));
+        return report;
+    }
+
+    private static void print(ObjectNode report, long[][] confusion) {
+        System.out.println("=== Categorization replay: " + report.get("dataset").asText()
+            + " (" + report.get("samples").asInt() + " samples, Layer 3 " + report.get("layer3").asText() + ") ===\n");
+        System.out.printf("%-10s %8s %9s %9s%n", "layer", "count", "coverage", "accuracy");
+        report.get("layers").fields().forEachRemaining(entry -> {
+            JsonNode layer = entry.getValue();
+            System.out.printf("%-10s %8d %8.2f%% %8s%n", entry.getKey(), layer.get("count").asInt(),
+                layer.get("coverage").asDouble() * 100,
+                layer.has("accuracy") ? String.format("%.2f%%", layer.get("accuracy").asDouble() * 100) : "-");
+        });
+        System.out.printf("%nAccuracy: %.2f%%%n", report.get("accuracy").asDouble() * 100);
+        JsonNode latency = report.get("latencyMicros");
+        System.out.printf("Latency: p50 %.1f µs, p90 %.1f µs, p99 %.1f µs, max %.1f µs%n",
+            latency.get("p50").asDouble(), latency.get("p90").asDouble(),
+            latency.get("p99").asDouble(), latency.get("max").asDouble());
+        System.out.printf("Throughput: %.0f descriptions/s (single thread)%n", report.get("throughputPerSecond").asDouble());
+
+        System.out.println("\nConfusion matrix (rows = label, columns = prediction):");
+        StringBuilder header = new StringBuilder("      ");
+        for (int c = 1; c <= CATEGORIES; c++) {
+            header.append(String.format("%5d", c));
+        }
+        System.out.println(header);
+        for (int row = 1; row <= CATEGORIES; row++) {
+            StringBuilder line = new StringBuilder(String.format("%5d ", row));
+            for (int c = 1; c <= CATEGORIES; c++) {
+                line.append(String.format("%5d", confusion[row][c]));
+            }
+            System.out.println(line);
+        }
+    }
+
+    /**
+     * Regressions of the current report against the baseline; latency is compared as a ratio
+     * because absolute numbers depend on the machine
+     */
+    static List<String> compare(JsonNode current, JsonNode baseline, double maxAccuracyDrop,
+                                double maxLayerAccuracyDrop, double maxLatencyRatio) {
+        List<String> regressions = new ArrayList<>();
+        if (current.get("samples").asInt() != baseline.get("samples").asInt()
+                || !current.get("layer3").asText().equals(baseline.get("layer3").asText())) {
+            regressions.add("Baseline was recorded for " + baseline.get("samples").asInt() + " samples, Layer 3 "
+                + baseline.get("layer3").asText() + ": not comparable");
+            return regressions;
+        }
+
+        double accuracy = current.get("accuracy").asDouble();
+        double baselineAccuracy = baseline.get("accuracy").asDouble();
+        if (accuracy < baselineAccuracy - maxAccuracyDrop) {
+            regressions.add(String.format("Accuracy %.2f%% < baseline %.2f%% - %.2f", accuracy * 100,
+                baselineAccuracy * 100, maxAccuracyDrop * 100));
+        }
+
+        for (String layer : LAYERS) {
+            JsonNode now = current.path("layers").path(layer);
+            JsonNode before = baseline.path("layers").path(layer);
+            if (!now.has("accuracy") || !before.has("accuracy")
+                    || before.get("count").asInt() < MIN_LAYER_SAMPLES || now.get("count").asInt() < MIN_LAYER_SAMPLES) {
+                continue;
+            }
+            if (now.get("accuracy").asDouble() < before.get("accuracy").asDouble() - maxLayerAccuracyDrop) {
+                regressions.add(String.format("%s accuracy %.2f%% < baseline %.2f%% - %.2f", layer,
+                    now.get("accuracy").asDouble() * 100, before.get("accuracy").asDouble() * 100,
+                    maxLayerAccuracyDrop * 100));
+            }
+        }
+
+        for (String percentile : new String[]{"p50", "p99"}) {
+            double now = current.get("latencyMicros").get(percentile).asDouble();
+            double before = baseline.get("latencyMicros").get(percentile).asDouble();
+            if (before > 0 && now > before * maxLatencyRatio) {
+                regressions.add(String.format("Latency %s %.1f µs > %.1f x baseline %.1f µs", percentile, now,
+                    maxLatencyRatio, before));
+            }
+        }
+        double throughput = current.get("throughputPerSecond").asDouble();
+        double baselineThroughput = baseline.get("throughputPerSecond").asDouble();
+        if (throughput * maxLatencyRatio < baselineThroughput) {
+            regressions.add(String.format("Throughput %.0f/s < baseline %.0f/s / %.1f", throughput,
+                baselineThroughput, maxLatencyRatio));
+        }
+        return regressions;
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 10_000) / 10_000.0;
+    }
+
+    private static int clamp(int category) {
+        return category >= 1 && category <= CATEGORIES ? category : 0;
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unknown argument: " + arg);
+            }
+            int eq = arg.indexOf('=');
+            options.put(eq < 0 ? arg.substring(2) : arg.substring(2, eq), eq < 0 ? "" : arg.substring(eq + 1));
+        }
+        return options;
+    }
+
+    /**
+     * Categorization service wired by hand: SVM trained on the train split (fixed seed), no user,
+     * Layer 3 local or stubbed to the fallback answer
+     */
+    private static AICategorizationService wire(String trainPath, String layer3, boolean cached) throws Exception {
+        TFIDFVectorizer vectorizer = new TFIDFVectorizer(2000);
+        LinearSVMClassifier svm = new LinearSVMClassifier(1.0, 30);
+        List<String> documents = new ArrayList<>();
+        List<Integer> labels = new ArrayList<>();
+        for (JsonNode node : new ObjectMapper().readTree(new File(trainPath))) {
+            documents.add(node.get("description").asText());
+            labels.add(node.get("category_id").asInt());
+        }
+        svm.setSeed(42);
+        svm.train(vectorizer.fitTransformSparse(documents), labels.stream().mapToInt(Integer::intValue).toArray(),
+            vectorizer.getVocabularySize());
+        ModelRegistryService registry = new ModelRegistryService();
+        @SuppressWarnings("unchecked")
+        AtomicReference<ModelSnapshot> current = (AtomicReference<ModelSnapshot>) field(registry, "current");
+        current.set(new ModelSnapshot("replay-1", vectorizer, svm, 1.0, "replay", trainPath, Instant.now()));
+
+        AICategorizationService ai;
+        if ("fallback".equals(layer3)) {
+            ai = new AICategorizationService() {
+                @Override
+                CategorizationResult categorizeBySupervisedLLM(String description, Long userId, String modelVersion) {
+                    return buildResult(14L, 0.30, "Layer 3: Insufficient confidence");
+                }
+            };
+        } else if ("local".equals(layer3)) {
+            ai = new AICategorizationService();
+        } else {
+            throw new IllegalArgumentException("--layer3 must be local or fallback: " + layer3);
+        }
+        CategorizationMetrics metrics = new CategorizationMetrics(new SimpleMeterRegistry());
+        inject(ai, "fuzzyMatchingService", new FuzzyMatchingService());
+        inject(ai, "featureExtractor", new EnhancedFeatureExtractor());
+        inject(ai, "confidenceCalibrator", new ConfidenceCalibrationService());
+        inject(ai, "userPatternCache", new UserPatternCacheService(null, null, 1000, 200, 30));
+        inject(ai, "modelRegistry", registry);
+        inject(ai, "metrics", metrics);
+        long cacheSize = cached ? 50_000 : 0;
+        inject(ai, "resultCache", new CategorizationResultCache(null, metrics, cacheSize, cacheSize, 60));
+        ai.rebuildFuzzyKeywordIndex();
+        return ai;
+    }
+
+    private static Object field(Object target, String name) throws Exception {
+        Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        return field.get(target);
+    }
+
+    private static void inject(Object target, String name, Object value) throws Exception {
+        Class<?> type = target.getClass();
+        while (type != null) {
+            try {
+                Field field = type.getDeclaredField(name);
+                field.setAccessible(true);
+                field.set(target, value);
+                return;
+            } catch (NoSuchFieldException e) {
+                type = type.getSuperclass();
+            }
+        }
+        throw new NoSuchFieldException(name);
+    }
+}
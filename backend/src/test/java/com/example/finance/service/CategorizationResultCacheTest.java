@@ -0,0 +1,280 @@
+package com.example.finance.service;
+
+import com.example.finance.entity.CategorySuggestion;
+import com.example.finance.entity.UserCategorizationPreference;
+import com.example.finance.ml.ModelSnapshot;
+import com.example.finance.repository.UserCategorizationPreferenceRepository;
+import com.example.finance.service.AICategorizationService.CategorizationResult;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Standalone test for CategorizationResultCache (no Spring context)
+ * - Differential: categorizeExpense() through the shared cache returns the same category / confidence /
+ *   reasoning as a service whose caches hold nothing, for anonymous calls and for users with history
+ *   (user-specific Layer 3 signal layered on the shared scores)
+ * - Repeats are served from the cache; concurrent misses on one key compute once
+ * - A new model version or invalidateAll() never serves an old entry
+ * - Layer / request timers and cache lookup counters are recorded with their tags
+ * - categorizeWithoutLayer3(): fast-layer answers as categorizeExpense() gives them, otherwise provisional
+ *
+ * Run from backend/: exits with status 1 on failure.
+ */
+public class CategorizationResultCacheTest {
+
+    private static final String DATASET = "../ai-service/vietnamese_transactions_14categories_test.json";
+
+    private static int failed = 0;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== CategorizationResultCache Test ===\n");
+
+        List<String> descriptions = new ArrayList<>();
+        File dataset = new File(DATASET);
+        if (dataset.exists()) {
+            for (JsonNode node : new ObjectMapper().readTree(dataset)) {
+                descriptions.add(node.get("description").asText());
+            }
+        } else {
+            System.out.println("Skipping missing dataset: " + DATASET);
+            // Layer 1 hits plus two texts no fast layer accepts, so Layer 3 / provisional paths run too
+            descriptions.addAll(List.of("Phở bò Hà Nội", "grab về nhà", "mua mô hình gundam 1/144", "tien dien thang 11",
+                "qzx wvb 0815", "chuyển khoản cho anh Tư"));
+        }
+
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        SimpleMeterRegistry meters = new SimpleMeterRegistry();
+        CategorizationMetrics metrics = new CategorizationMetrics(meters);
+        CategorizationResultCache cache = new CategorizationResultCache(cacheManager, metrics, 50_000, 20_000, 60);
+        cache.registerCaches();
+        AICategorizationService cached = wire(cache, metrics);
+        CategorizationMetrics uncachedMetrics = new CategorizationMetrics(new SimpleMeterRegistry());
+        AICategorizationService uncached = wire(new CategorizationResultCache(null, uncachedMetrics, 0, 0, 60),
+            uncachedMetrics);
+
+        // Same call sequence on both: anonymous, then users whose history covers part of the inputs
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        int mismatches = 0;
+        int calls = 0;
+        Random random = new Random(3);
+        for (int pass = 0; pass < 3; pass++) {
+            for (String description : descriptions) {
+                Long userId = pass == 0 ? null : (long) (1 + random.nextInt(3));
+                Double amount = random.nextBoolean() ? null : 1000.0 * (1 + random.nextInt(3000));
+                String want = describe(uncached.categorizeExpense(description, amount, userId));
+                String got = describe(cached.categorizeExpense(description, amount, userId));
+                calls++;
+                if (!want.equals(got) && mismatches++ < 10) {
+                    console.println("MISMATCH '" + description + "' user " + userId + ": " + want + " vs " + got);
+                }
+            }
+        }
+        System.setOut(console);
+        check("cached == uncached over " + calls + " calls (" + mismatches + " mismatches)", mismatches == 0);
+
+        var results = ((com.github.benmanes.caffeine.cache.Cache<?, ?>) cacheManager
+            .getCache(CategorizationResultCache.RESULTS_CACHE_NAME).getNativeCache()).stats();
+        System.out.println("Result cache: " + results);
+        check("repeats served from cache", results.hitCount() > 0 && results.hitCount() + results.missCount() == calls);
+
+        // Meters: one request timing per call, layers timed only when computed, lookups counted
+        long requests = meters.find("categorization.request").timers().stream().mapToLong(Timer::count).sum();
+        long cachedRequests = meters.find("categorization.request").tag("cache", "hit").timers().stream()
+            .mapToLong(Timer::count).sum();
+        long layer1 = meters.find("categorization.layer").tag("layer", AICategorizationService.LAYER_1).timers()
+            .stream().mapToLong(Timer::count).sum();
+        double lookupHits = meters.find("categorization.cache.lookups")
+            .tags("cache", CategorizationResultCache.RESULTS_CACHE_NAME, "result", "hit").counter().count();
+        System.out.println("Requests: " + requests + " (cache hits " + cachedRequests + "), layer 1 runs: " + layer1);
+        check("one request timing per call", requests == calls);
+        check("request cache tag matches the result cache", cachedRequests == results.hitCount()
+            && lookupHits == results.hitCount());
+        check("fast layers timed only on a miss", layer1 == results.missCount());
+        check("layer timers tagged with outcome and model version", meters.find("categorization.layer")
+            .tags("layer", AICategorizationService.LAYER_1, "outcome", CategorizationMetrics.OUTCOME_HIT,
+                "model_version", ModelSnapshot.NO_MODEL_VERSION).timer() != null
+            && meters.find("categorization.layer").tags("layer", AICategorizationService.LAYER_3,
+                "outcome", CategorizationMetrics.OUTCOME_FALL_THROUGH).timer() != null);
+
+        // Without Layer 3: final when a fast layer accepts, provisional only where Layer 3 would decide
+        int finals = 0;
+        int provisionals = 0;
+        int wrong = 0;
+        for (String description : descriptions) {
+            CategorizationResult fast = cached.categorizeWithoutLayer3(description, null, null);
+            CategorizationResult full = cached.categorizeExpense(description, null, null);
+            boolean layer3 = full.getReasoning().startsWith("Layer 3") || full.getReasoning().startsWith("Fallback");
+            if (fast.isProvisional()) {
+                provisionals++;
+                wrong += layer3 ? 0 : 1;
+            } else {
+                finals++;
+                wrong += !layer3 && describe(fast).equals(describe(full)) ? 0 : 1;
+            }
+        }
+        System.out.println("Without Layer 3: " + finals + " final, " + provisionals + " provisional");
+        check("categorizeWithoutLayer3 consistent with categorizeExpense (" + wrong + " wrong)",
+            wrong == 0 && finals > 0 && provisionals > 0);
+
+        // Coalescing: 8 concurrent misses, one computation
+        CategorizationResultCache coalescing = new CategorizationResultCache(null, metrics, 100, 100, 60);
+        AtomicInteger computations = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<CategorizationResultCache.FastLayerOutcome>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                return coalescing.fastLayers("grab", 35000.0, "v1", () -> {
+                    computations.incrementAndGet();
+                    sleep(200);
+                    return CategorizationResultCache.FastLayerOutcome.residual();
+                });
+            }));
+        }
+        start.countDown();
+        for (Future<CategorizationResultCache.FastLayerOutcome> future : futures) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+        check("8 concurrent misses, 1 computation (" + computations.get() + ")", computations.get() == 1);
+        check("coalesced misses counted", (Long) coalescing.stats().get("coalescedMisses") >= 1);
+
+        // Failures are not cached
+        try {
+            coalescing.fastLayers("boom", null, "v1", () -> { throw new IllegalStateException("boom"); });
+        } catch (IllegalStateException expected) {
+            // rethrown to the caller
+        }
+        check("failed computation retried", coalescing.fastLayers("boom", null, "v1",
+            CategorizationResultCache.FastLayerOutcome::residual).isResidual());
+
+        // Invalidation: model version is part of the key, invalidateAll() bumps the generation
+        computations.set(0);
+        coalescing.fastLayers("grab", 35000.0, "v1", () -> count(computations));
+        check("same version, same bucket: hit", computations.get() == 0);
+        coalescing.fastLayers("grab", 40000.0, "v1", () -> count(computations));
+        check("same amount bucket: hit", computations.get() == 0);
+        coalescing.fastLayers("grab", 150000.0, "v1", () -> count(computations));
+        check("other amount bucket: miss", computations.get() == 1);
+        coalescing.fastLayers("grab", 35000.0, "v2", () -> count(computations));
+        check("new model version: miss", computations.get() == 2);
+        coalescing.invalidateAll();
+        coalescing.fastLayers("grab", 35000.0, "v2", () -> count(computations));
+        check("after invalidateAll: miss", computations.get() == 3);
+
+        System.out.println("\n" + (failed == 0 ? "✓ All checks passed" : failed + " check(s) failed"));
+        if (failed > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static CategorizationResultCache.FastLayerOutcome count(AtomicInteger computations) {
+        computations.incrementAndGet();
+        return CategorizationResultCache.FastLayerOutcome.residual();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void check(String name, boolean ok) {
+        System.out.println((ok ? "✓ " : "✗ ") + name);
+        if (!ok) {
+            failed++;
+        }
+    }
+
+    private static String describe(CategorizationResult result) {
+        return result.getCategory() + "|" + result.getConfidence() + "|" + result.getReasoning() + "|" + result.getModelVersion();
+    }
+
+    /**
+     * Categorization service wired by hand: rule layers + Layer 3, no ML model, users 1-3 with a seeded history
+     */
+    private static AICategorizationService wire(CategorizationResultCache cache, CategorizationMetrics metrics)
+            throws Exception {
+        AICategorizationService ai = new AICategorizationService();
+        inject(ai, "fuzzyMatchingService", new FuzzyMatchingService());
+        inject(ai, "featureExtractor", new EnhancedFeatureExtractor());
+        inject(ai, "confidenceCalibrator", new ConfidenceCalibrationService());
+        inject(ai, "userPatternCache", new UserPatternCacheService(historyRepository(), null, 1000, 200, 30));
+        inject(ai, "preferenceWriter", new PreferenceWriteBehindService(new JdbcTemplate(), new SimpleMeterRegistry(),
+            Integer.MAX_VALUE, Integer.MAX_VALUE, 0));
+        inject(ai, "categorySuggestionService", new CategorySuggestionService() {
+            @Override
+            public Optional<CategorySuggestion> analyzeAndSuggest(String description, Long userId,
+                                                                  String transactionType, Long currentCategoryId) {
+                return Optional.empty();
+            }
+        });
+        inject(ai, "modelRegistry", new ModelRegistryService());
+        inject(ai, "resultCache", cache);
+        inject(ai, "metrics", metrics);
+        ai.rebuildFuzzyKeywordIndex();
+        check("no model loaded", !((ModelRegistryService) field(ai, "modelRegistry")).current().hasModel()
+            && ModelSnapshot.NO_MODEL_VERSION.equals(((ModelRegistryService) field(ai, "modelRegistry")).current().getVersion()));
+        return ai;
+    }
+
+    /**
+     * Users 1-3 each map a few common words to their own category (drives the Layer 3 user signal)
+     */
+    private static UserCategorizationPreferenceRepository historyRepository() {
+        Map<Long, List<UserCategorizationPreference>> table = new HashMap<>();
+        String[] patterns = {"mua do", "tien", "chuyen khoan", "thanh toan", "an"};
+        for (long user = 1; user <= 3; user++) {
+            List<UserCategorizationPreference> prefs = new ArrayList<>();
+            for (int i = 0; i < patterns.length; i++) {
+                UserCategorizationPreference pref = new UserCategorizationPreference();
+                pref.setUserId(user);
+                pref.setDescriptionPattern(patterns[i]);
+                pref.setCategoryId(5L + user + i);
+                pref.setFrequency(10 - i);
+                pref.setLastUsed(LocalDateTime.now());
+                prefs.add(pref);
+            }
+            table.put(user, prefs);
+        }
+        return (UserCategorizationPreferenceRepository) Proxy.newProxyInstance(
+            UserCategorizationPreferenceRepository.class.getClassLoader(),
+            new Class<?>[]{UserCategorizationPreferenceRepository.class},
+            (proxy, method, args) -> {
+                if (method.getName().equals("findByUserIdOrderByFrequencyDescLastUsedDesc")) {
+                    return new ArrayList<>(table.getOrDefault((Long) args[0], List.of()));
+                }
+                throw new UnsupportedOperationException(method.getName());
+            });
+    }
+
+    private static Object field(Object target, String name) throws Exception {
+        Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        return field.get(target);
+    }
+
+    private static void inject(Object target, String name, Object value) throws Exception {
+        Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+}
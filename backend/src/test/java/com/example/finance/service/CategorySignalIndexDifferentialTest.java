@@ -0,0 +1,303 @@
+package com.example.finance.service;
+
+import com.example.finance.entity.Category;
+import com.example.finance.ml.CategorySignalIndex;
+import com.example.finance.ml.VietnameseTextNormalizer;
+import com.example.finance.repository.CategoryRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.File;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.*;
+
+/**
+ * Differential test: Layer 3 signals 1, 3 and 4 (scoreBrandMatching / scoreNGramSimilarity /
+ * scoreTFIDFSimilarity over CategorySignalIndex) must give the same category scores as the original
+ * per-call implementations (kept below as the oracle: contains() per brand, bigram Jaccard per
+ * example, TF-IDF recomputed against every document), both built from the service's definitions.
+ *
+ * Inputs: every dataset description, raw lowercase and normalized, plus multi-word brands and
+ * document texts. Scores must agree to 1e-9 (the index sums dot products in another order).
+ *
+ * Also: after rebuildSignalIndex() with a category marked inactive, none of the three signals
+ * scores that category any more, and the others are unaffected.
+ *
+ * Run from backend/: exits with status 1 on mismatches.
+ */
+public class CategorySignalIndexDifferentialTest {
+
+    private static final String[] DATASETS = {
+        "../ai-service/vietnamese_transactions_14categories.json",
+        "../ai-service/vietnamese_transactions_14categories_train.json",
+        "../ai-service/vietnamese_transactions_14categories_test.json"
+    };
+    private static final double EPSILON = 1e-9;
+
+    private static int failed = 0;
+
+    public static void main(String[] args) throws Exception {
+        AICategorizationService ai = new AICategorizationService();
+        Map<Long, List<String>> brands = definitions(ai, "buildBrandPatternMap");
+        Map<Long, List<String>> ngramExamples = definitions(ai, "buildNGramExamples");
+        Map<Long, List<String>> documents = definitions(ai, "buildCategoryDocuments");
+
+        List<String> inputs = new ArrayList<>();
+        ObjectMapper mapper = new ObjectMapper();
+        for (String dataset : DATASETS) {
+            File file = new File(dataset);
+            if (!file.exists()) {
+                System.out.println("Skipping missing dataset: " + dataset);
+                continue;
+            }
+            for (JsonNode node : mapper.readTree(file)) {
+                String description = node.get("description").asText();
+                inputs.add(VietnameseTextNormalizer.normalize(description));
+                inputs.add(description.toLowerCase());
+            }
+        }
+        int datasetInputs = inputs.size();
+        for (Map<Long, List<String>> definitions : List.of(brands, ngramExamples, documents)) {
+            for (List<String> texts : definitions.values()) {
+                for (String text : texts) {
+                    inputs.add(text);
+                    inputs.add("mua " + text + " thang 11");
+                }
+            }
+        }
+        inputs.addAll(Arrays.asList("", " ", "h&m", "mua do h&m", "grab", "grabbike", "be", "tien dien tien nuoc",
+            "an com an com", "xe", "abc", "phong gym phong gym", "  quan   ao  "));
+
+        int mismatches = 0;
+        for (String input : inputs) {
+            String signal = null;
+            if (!sameScores(ReferenceSignals.scoreBrandMatching(brands, input), score(ai, "scoreBrandMatching", input))) {
+                signal = "brand";
+            } else if (!sameScores(ReferenceSignals.scoreNGramSimilarity(ngramExamples, input),
+                    score(ai, "scoreNGramSimilarity", input))) {
+                signal = "n-gram";
+            } else if (!sameScores(ReferenceSignals.scoreTFIDFSimilarity(documents, input),
+                    score(ai, "scoreTFIDFSimilarity", input))) {
+                signal = "tf-idf";
+            }
+            if (signal != null && mismatches++ < 20) {
+                System.out.println("MISMATCH (" + signal + ") for '" + input + "'");
+            }
+        }
+        System.out.println("Dataset inputs: " + datasetInputs + ", total inputs: " + inputs.size()
+            + ", mismatches: " + mismatches);
+        check("signals identical to the per-call implementation", mismatches == 0);
+
+        // Inactive category: gone from every index-backed signal after rebuildSignalIndex()
+        check("before rebuild: Cat10 scored", score(ai, "scoreBrandMatching", "mua shopee").containsKey(10L)
+            && score(ai, "scoreNGramSimilarity", "quan ao").containsKey(10L)
+            && score(ai, "scoreTFIDFSimilarity", "mo hinh gundam").containsKey(10L));
+        inject(ai, "categoryRepository", categoryRepository(10L));
+        inject(ai, "resultCache", new CategorizationResultCache(null, new CategorizationMetrics(new SimpleMeterRegistry()), 0, 0, 60));
+        ai.rebuildSignalIndex();
+        check("after rebuild: inactive Cat10 not scored", !score(ai, "scoreBrandMatching", "mua shopee").containsKey(10L)
+            && !score(ai, "scoreNGramSimilarity", "quan ao").containsKey(10L)
+            && !score(ai, "scoreTFIDFSimilarity", "mo hinh gundam").containsKey(10L));
+        check("after rebuild: active categories unchanged",
+            sameScores(ReferenceSignals.scoreBrandMatching(brands, "grab bike"), score(ai, "scoreBrandMatching", "grab bike"))
+                && sameScores(ReferenceSignals.scoreNGramSimilarity(ngramExamples, "tien dien"),
+                    score(ai, "scoreNGramSimilarity", "tien dien"))
+                && sameScores(ReferenceSignals.scoreTFIDFSimilarity(documents, "kham benh"),
+                    score(ai, "scoreTFIDFSimilarity", "kham benh")));
+
+        System.out.println("\n" + (failed == 0 ? "✓ All checks passed" : failed + " check(s) failed"));
+        if (failed > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static boolean sameScores(Map<Long, Double> expected, Map<Long, Double> actual) {
+        if (!expected.keySet().equals(actual.keySet())) {
+            return false;
+        }
+        for (Map.Entry<Long, Double> entry : expected.entrySet()) {
+            if (Math.abs(entry.getValue() - actual.get(entry.getKey())) > EPSILON) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The service's signal method, on the index it currently holds
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<Long, Double> score(AICategorizationService ai, String signal, String normalized) throws Exception {
+        Method method = AICategorizationService.class.getDeclaredMethod(signal, CategorySignalIndex.class, String.class);
+        method.setAccessible(true);
+        return (Map<Long, Double>) method.invoke(ai, field(ai, "signalIndex"), normalized);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<Long, List<String>> definitions(AICategorizationService ai, String builder) throws Exception {
+        Method method = AICategorizationService.class.getDeclaredMethod(builder);
+        method.setAccessible(true);
+        return (Map<Long, List<String>>) method.invoke(ai);
+    }
+
+    /**
+     * Categories 1 - 14, the given ones inactive
+     */
+    private static CategoryRepository categoryRepository(Long... inactive) {
+        List<Category> categories = new ArrayList<>();
+        for (long id = 1; id <= 14; id++) {
+            Category category = new Category();
+            category.setId(id);
+            category.setName("Cat" + id);
+            category.setIsActive(!Arrays.asList(inactive).contains(id));
+            categories.add(category);
+        }
+        return (CategoryRepository) Proxy.newProxyInstance(CategoryRepository.class.getClassLoader(),
+            new Class<?>[]{CategoryRepository.class},
+            (proxy, method, args) -> {
+                if (method.getName().equals("findAll") && (args == null || args.length == 0)) {
+                    return new ArrayList<>(categories);
+                }
+                throw new UnsupportedOperationException(method.getName());
+            });
+    }
+
+    private static Object field(Object target, String name) throws Exception {
+        Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        return field.get(target);
+    }
+
+    private static void inject(Object target, String name, Object value) throws Exception {
+        Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+
+    private static void check(String name, boolean ok) {
+        System.out.println((ok ? "✓ " : "✗ ") + name);
+        if (!ok) {
+            failed++;
+        }
+    }
+
+    /**
+     * Original signals 1, 3 and 4 (AICategorizationService before CategorySignalIndex), logging removed
+     */
+    private static class ReferenceSignals {
+
+        static Map<Long, Double> scoreBrandMatching(Map<Long, List<String>> brandPatterns, String normalized) {
+            Map<Long, Double> scores = new HashMap<>();
+            for (Map.Entry<Long, List<String>> entry : brandPatterns.entrySet()) {
+                for (String pattern : entry.getValue()) {
+                    if (normalized.contains(pattern)) {
+                        scores.merge(entry.getKey(), 1.0, Double::max);
+                        break;
+                    }
+                }
+            }
+            return scores;
+        }
+
+        static Map<Long, Double> scoreNGramSimilarity(Map<Long, List<String>> ngramExamples, String normalized) {
+            Map<Long, Double> scores = new HashMap<>();
+            for (Map.Entry<Long, List<String>> entry : ngramExamples.entrySet()) {
+                double maxSimilarity = 0.0;
+                for (String example : entry.getValue()) {
+                    maxSimilarity = Math.max(maxSimilarity, calculateNGramSimilarity(normalized, example));
+                }
+                if (maxSimilarity > 0.5) {
+                    scores.put(entry.getKey(), maxSimilarity);
+                }
+            }
+            return scores;
+        }
+
+        private static double calculateNGramSimilarity(String s1, String s2) {
+            Set<String> bigrams1 = extractBigrams(s1);
+            Set<String> bigrams2 = extractBigrams(s2);
+            if (bigrams1.isEmpty() && bigrams2.isEmpty()) {
+                return 0.0;
+            }
+            Set<String> intersection = new HashSet<>(bigrams1);
+            intersection.retainAll(bigrams2);
+            Set<String> union = new HashSet<>(bigrams1);
+            union.addAll(bigrams2);
+            return union.isEmpty() ? 0.0 : (double) intersection.size() / union.size();
+        }
+
+        private static Set<String> extractBigrams(String text) {
+            Set<String> bigrams = new HashSet<>();
+            String[] words = text.split("\\s+");
+            for (int i = 0; i < words.length - 1; i++) {
+                bigrams.add(words[i] + " " + words[i + 1]);
+            }
+            return bigrams;
+        }
+
+        static Map<Long, Double> scoreTFIDFSimilarity(Map<Long, List<String>> categoryDocuments, String normalized) {
+            Map<Long, Double> scores = new HashMap<>();
+            Map<String, Double> inputTFIDF = calculateTFIDF(normalized, categoryDocuments);
+            for (Map.Entry<Long, List<String>> entry : categoryDocuments.entrySet()) {
+                double maxSimilarity = 0.0;
+                for (String doc : entry.getValue()) {
+                    Map<String, Double> docTFIDF = calculateTFIDF(doc, categoryDocuments);
+                    maxSimilarity = Math.max(maxSimilarity, cosineSimilarity(inputTFIDF, docTFIDF));
+                }
+                if (maxSimilarity > 0.3) {
+                    scores.put(entry.getKey(), maxSimilarity);
+                }
+            }
+            return scores;
+        }
+
+        private static Map<String, Double> calculateTFIDF(String text, Map<Long, List<String>> allDocuments) {
+            Map<String, Double> tfidf = new HashMap<>();
+            String[] words = text.split("\\s+");
+            Map<String, Integer> termFreq = new HashMap<>();
+            for (String word : words) {
+                if (word.length() > 2) {
+                    termFreq.merge(word, 1, Integer::sum);
+                }
+            }
+            int totalDocs = allDocuments.values().stream().mapToInt(List::size).sum();
+            for (Map.Entry<String, Integer> entry : termFreq.entrySet()) {
+                String term = entry.getKey();
+                double tf = (double) entry.getValue() / words.length;
+                int docCount = 0;
+                for (List<String> docs : allDocuments.values()) {
+                    for (String doc : docs) {
+                        if (doc.contains(term)) {
+                            docCount++;
+                            break;
+                        }
+                    }
+                }
+                double idf = docCount > 0 ? Math.log((double) totalDocs / docCount) : 0.0;
+                tfidf.put(term, tf * idf);
+            }
+            return tfidf;
+        }
+
+        private static double cosineSimilarity(Map<String, Double> vec1, Map<String, Double> vec2) {
+            if (vec1.isEmpty() || vec2.isEmpty()) {
+                return 0.0;
+            }
+            double dotProduct = 0.0;
+            double norm1 = 0.0;
+            double norm2 = 0.0;
+            Set<String> allTerms = new HashSet<>(vec1.keySet());
+            allTerms.addAll(vec2.keySet());
+            for (String term : allTerms) {
+                double v1 = vec1.getOrDefault(term, 0.0);
+                double v2 = vec2.getOrDefault(term, 0.0);
+                dotProduct += v1 * v2;
+                norm1 += v1 * v1;
+                norm2 += v2 * v2;
+            }
+            return (norm1 > 0 && norm2 > 0) ? dotProduct / (Math.sqrt(norm1) * Math.sqrt(norm2)) : 0.0;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.finance.service;
+
+import com.example.finance.ml.FuzzyKeywordIndex;
+import com.example.finance.ml.VietnameseTextNormalizer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.lang.reflect.Method;
+import java.util.*;
+
+/**
+ * Differential test: Layer 2 through FuzzyKeywordIndex must accept exactly the same
+ * category / keyword / similarity / match type as the original scan (findBestMatch over every
+ * category's keywords, best category wins, accepted when similarity >= 0.70).
+ *
+ * Inputs: every dataset description, every keyword with 1-3 random typos, short random strings.
+ * Also reports how many keywords the index compares per lookup versus the full scan.
+ *
+ * Run from backend/: exits with status 1 on mismatches.
+ */
+public class FuzzyKeywordIndexDifferentialTest {
+
+    private static final String DATASET = "../ai-service/vietnamese_transactions_14categories.json";
+    private static final double LAYER2_THRESHOLD = 0.70;
+
+    public static void main(String[] args) throws Exception {
+        // Oracle: same service, with fullNormalize memoized so the full scan finishes in reasonable time
+        Map<String, String> normalizeCache = new HashMap<>();
+        FuzzyMatchingService fuzzy = new FuzzyMatchingService() {
+            @Override
+            public String fullNormalize(String text) {
+                return normalizeCache.computeIfAbsent(text, super::fullNormalize);
+            }
+        };
+        Map<Long, List<String>> categoryKeywords = layer2Keywords();
+        FuzzyKeywordIndex index = new FuzzyKeywordIndex(categoryKeywords, fuzzy::fullNormalize, LAYER2_THRESHOLD);
+
+        List<String> inputs = new ArrayList<>();
+        File dataset = new File(DATASET);
+        if (dataset.exists()) {
+            for (JsonNode node : new ObjectMapper().readTree(dataset)) {
+                inputs.add(node.get("description").asText());
+            }
+        } else {
+            System.out.println("Skipping missing dataset: " + DATASET);
+        }
+        Random random = new Random(11);
+        for (List<String> keywords : categoryKeywords.values()) {
+            for (String keyword : keywords) {
+                for (int i = 0; i < 5; i++) {
+                    inputs.add(typo(random, keyword));
+                }
+            }
+        }
+        for (int i = 0; i < 5000; i++) {
+            inputs.add(randomWord(random, 1 + random.nextInt(12)));
+        }
+
+        int mismatches = 0;
+        int accepted = 0;
+        for (String input : inputs) {
+            String normalized = VietnameseTextNormalizer.normalize(input);
+            Object[] expected = referenceLayer2(fuzzy, categoryKeywords, normalized);
+            FuzzyKeywordIndex.Match match = normalized.isEmpty() ? null : index.find(fuzzy.fullNormalize(normalized));
+            Object[] actual = match == null ? null
+                : new Object[]{match.getCategoryId(), match.getKeyword(), match.getSimilarity(), match.getMatchType()};
+            if (expected != null) {
+                accepted++;
+            }
+            if (!Arrays.equals(expected, actual) && mismatches++ < 20) {
+                System.out.println("MISMATCH '" + input + "' -> '" + normalized + "': "
+                    + Arrays.toString(expected) + " vs " + Arrays.toString(actual));
+            }
+        }
+
+        System.out.println("Inputs: " + inputs.size() + " (accepted by Layer 2: " + accepted + "), keywords indexed: "
+            + index.getKeywordCount() + ", mismatches: " + mismatches);
+        if (mismatches > 0) {
+            System.exit(1);
+        }
+        System.out.println("✓ Index lookup identical to full keyword scan");
+    }
+
+    /**
+     * Original fuzzyMatchCategories(), accepted only at the Layer 2 threshold: {category, keyword, similarity, type}
+     */
+    private static Object[] referenceLayer2(FuzzyMatchingService fuzzy, Map<Long, List<String>> categoryKeywords,
+                                            String normalized) {
+        Long bestCategoryId = null;
+        double bestSimilarity = 0.0;
+        String bestMatchedKeyword = null;
+        String bestMatchType = null;
+        for (Map.Entry<Long, List<String>> entry : categoryKeywords.entrySet()) {
+            FuzzyMatchingService.MatchResult match = fuzzy.findBestMatch(normalized, entry.getValue(), 0.60);
+            if (match != null && match.getSimilarity() > bestSimilarity) {
+                bestSimilarity = match.getSimilarity();
+                bestCategoryId = entry.getKey();
+                bestMatchedKeyword = match.getKeyword();
+                bestMatchType = match.getMatchType();
+            }
+        }
+        if (bestCategoryId == null || bestSimilarity < LAYER2_THRESHOLD) {
+            return null;
+        }
+        return new Object[]{bestCategoryId, bestMatchedKeyword, bestSimilarity, bestMatchType};
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<Long, List<String>> layer2Keywords() throws Exception {
+        Method method = AICategorizationService.class.getDeclaredMethod("buildCategoryKeywordMap");
+        method.setAccessible(true);
+        return (Map<Long, List<String>>) method.invoke(new AICategorizationService());
+    }
+
+    private static String typo(Random random, String keyword) {
+        String letters = "abcdeghiklmnopqrstuvxy";
+        StringBuilder sb = new StringBuilder(keyword);
+        int edits = 1 + random.nextInt(3);
+        for (int e = 0; e < edits && sb.length() > 0; e++) {
+            int pos = random.nextInt(sb.length());
+            switch (random.nextInt(3)) {
+                case 0 -> sb.insert(pos, letters.charAt(random.nextInt(letters.length())));
+                case 1 -> sb.deleteCharAt(pos);
+                default -> sb.setCharAt(pos, letters.charAt(random.nextInt(letters.length())));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String randomWord(Random random, int length) {
+        String letters = "abcdeghiklmnopqrstuvxy ";
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append(letters.charAt(random.nextInt(letters.length())));
+        }
+        return sb.toString();
+    }
+}
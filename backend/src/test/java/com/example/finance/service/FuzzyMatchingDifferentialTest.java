@@ -0,0 +1,198 @@
+package com.example.finance.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.lang.reflect.Method;
+import java.util.*;
+
+/**
+ * Differential test: the bit-parallel Levenshtein in FuzzyMatchingService must give exactly the same
+ * distances, similarity scores and findBestMatch() results as the original full-matrix DP
+ * (kept below as the oracle).
+ *
+ * - Every dataset description against every Layer 2 keyword, at the thresholds used in production
+ * - Random strings (ASCII, Vietnamese, lengths across the 64-char block boundary) with random cutoffs
+ *
+ * Run from backend/: exits with status 1 on mismatches.
+ */
+public class FuzzyMatchingDifferentialTest {
+
+    private static final String DATASET = "../ai-service/vietnamese_transactions_14categories.json";
+
+    public static void main(String[] args) throws Exception {
+        FuzzyMatchingService fuzzy = new FuzzyMatchingService();
+        Map<Long, List<String>> categoryKeywords = layer2Keywords();
+
+        List<String> descriptions = new ArrayList<>();
+        File dataset = new File(DATASET);
+        if (dataset.exists()) {
+            for (JsonNode node : new ObjectMapper().readTree(dataset)) {
+                descriptions.add(fuzzy.fullNormalize(node.get("description").asText()));
+            }
+        } else {
+            System.out.println("Skipping missing dataset: " + DATASET);
+        }
+
+        int mismatches = 0;
+        long comparisons = 0;
+
+        // 1. Dataset x keywords: findBestMatch per category, plus raw similarity per pair
+        double[] thresholds = {0.60, 0.85};
+        for (String description : descriptions) {
+            for (List<String> keywords : categoryKeywords.values()) {
+                for (double threshold : thresholds) {
+                    FuzzyMatchingService.MatchResult expected = referenceFindBestMatch(fuzzy, description, keywords, threshold);
+                    FuzzyMatchingService.MatchResult actual = fuzzy.findBestMatch(description, keywords, threshold);
+                    comparisons++;
+                    if (!sameResult(expected, actual) && mismatches++ < 20) {
+                        System.out.println("findBestMatch MISMATCH '" + description + "' @" + threshold + ": "
+                            + describe(expected) + " vs " + describe(actual));
+                    }
+                }
+                for (String keyword : keywords) {
+                    String normalizedKeyword = fuzzy.fullNormalize(keyword);
+                    double expected = referenceSimilarity(description, normalizedKeyword);
+                    comparisons++;
+                    if (expected != fuzzy.calculateSimilarity(description, normalizedKeyword) && mismatches++ < 20) {
+                        System.out.println("similarity MISMATCH '" + description + "' / '" + normalizedKeyword + "'");
+                    }
+                }
+            }
+        }
+
+        // 2. Random pairs: exact distance, and cutoff semantics (distance if <= k, else -1)
+        Random random = new Random(7);
+        String alphabets = "abcdeghiklmnopqrstuvxy ";
+        String vietnamese = "aăâđêôơưáàạảãấầậẩẫắằặẳẵéèẹẻẽếềệểễ";
+        for (int i = 0; i < 200000; i++) {
+            String pool = random.nextInt(4) == 0 ? vietnamese : random.nextBoolean() ? alphabets : "ab";
+            String a = randomString(random, pool, random.nextInt(random.nextInt(10) == 0 ? 200 : 40));
+            String b = random.nextInt(3) == 0 ? mutate(random, a, pool) : randomString(random, pool, random.nextInt(140));
+            int expected = referenceDistance(a, b);
+            int k = random.nextInt(Math.max(1, expected * 2 + 2));
+            int bounded = fuzzy.calculateLevenshteinDistance(a, b, k);
+            double minSimilarity = random.nextDouble();
+            double expectedSimilarity = referenceSimilarity(a, b);
+            double boundedSimilarity = fuzzy.calculateSimilarity(a, b, minSimilarity);
+            comparisons += 4;
+            if (fuzzy.calculateLevenshteinDistance(a, b) != expected
+                    || bounded != (expected <= k ? expected : -1)
+                    || fuzzy.calculateSimilarity(a, b) != expectedSimilarity
+                    || boundedSimilarity != (expectedSimilarity >= minSimilarity ? expectedSimilarity : 0.0)) {
+                if (mismatches++ < 20) {
+                    System.out.println("distance MISMATCH '" + a + "' / '" + b + "': expected " + expected
+                        + ", got " + fuzzy.calculateLevenshteinDistance(a, b) + " (k=" + k + " -> " + bounded + ")");
+                }
+            }
+        }
+
+        System.out.println("Comparisons: " + comparisons + ", mismatches: " + mismatches);
+        if (mismatches > 0) {
+            System.exit(1);
+        }
+        System.out.println("✓ Bit-parallel matcher identical to reference implementation");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<Long, List<String>> layer2Keywords() throws Exception {
+        Method method = AICategorizationService.class.getDeclaredMethod("buildCategoryKeywordMap");
+        method.setAccessible(true);
+        return (Map<Long, List<String>>) method.invoke(new AICategorizationService());
+    }
+
+    private static String randomString(Random random, String pool, int length) {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append(pool.charAt(random.nextInt(pool.length())));
+        }
+        return sb.toString();
+    }
+
+    private static String mutate(Random random, String s, String pool) {
+        StringBuilder sb = new StringBuilder(s);
+        int edits = random.nextInt(6);
+        for (int e = 0; e < edits; e++) {
+            int op = random.nextInt(3);
+            if (op == 0 || sb.length() == 0) {
+                sb.insert(random.nextInt(sb.length() + 1), pool.charAt(random.nextInt(pool.length())));
+            } else if (op == 1) {
+                sb.deleteCharAt(random.nextInt(sb.length()));
+            } else {
+                sb.setCharAt(random.nextInt(sb.length()), pool.charAt(random.nextInt(pool.length())));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static boolean sameResult(FuzzyMatchingService.MatchResult a, FuzzyMatchingService.MatchResult b) {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        return Objects.equals(a.getKeyword(), b.getKeyword())
+            && a.getSimilarity() == b.getSimilarity()
+            && a.getMatchType().equals(b.getMatchType());
+    }
+
+    private static String describe(FuzzyMatchingService.MatchResult r) {
+        return r == null ? "null" : r.getKeyword() + "/" + r.getSimilarity() + "/" + r.getMatchType();
+    }
+
+    // ===== Original implementation =====
+
+    private static int referenceDistance(String s1, String s2) {
+        int len1 = s1.length();
+        int len2 = s2.length();
+        int[][] dp = new int[len1 + 1][len2 + 1];
+        for (int i = 0; i <= len1; i++) {
+            dp[i][0] = i;
+        }
+        for (int j = 0; j <= len2; j++) {
+            dp[0][j] = j;
+        }
+        for (int i = 1; i <= len1; i++) {
+            for (int j = 1; j <= len2; j++) {
+                int cost = (s1.charAt(i - 1) == s2.charAt(j - 1)) ? 0 : 1;
+                dp[i][j] = Math.min(Math.min(dp[i - 1][j] + 1, dp[i][j - 1] + 1), dp[i - 1][j - 1] + cost);
+            }
+        }
+        return dp[len1][len2];
+    }
+
+    private static double referenceSimilarity(String s1, String s2) {
+        if (s1.equals(s2)) {
+            return 1.0;
+        }
+        int maxLen = Math.max(s1.length(), s2.length());
+        if (maxLen == 0) {
+            return 1.0;
+        }
+        return 1.0 - ((double) referenceDistance(s1, s2) / maxLen);
+    }
+
+    private static FuzzyMatchingService.MatchResult referenceFindBestMatch(FuzzyMatchingService fuzzy, String input,
+                                                                           List<String> keywords, double threshold) {
+        if (input == null || input.isEmpty() || keywords == null || keywords.isEmpty()) {
+            return null;
+        }
+        String normalizedInput = fuzzy.fullNormalize(input);
+        String bestMatch = null;
+        double bestSimilarity = 0.0;
+        for (String keyword : keywords) {
+            String normalizedKeyword = fuzzy.fullNormalize(keyword);
+            String wordPattern = "(^|\\s)" + java.util.regex.Pattern.quote(normalizedKeyword) + "(\\s|$)";
+            if (normalizedInput.matches(".*" + wordPattern + ".*")) {
+                return new FuzzyMatchingService.MatchResult(keyword, 1.0, "exact");
+            }
+            double similarity = referenceSimilarity(normalizedInput, normalizedKeyword);
+            if (similarity > bestSimilarity) {
+                bestSimilarity = similarity;
+                bestMatch = keyword;
+            }
+        }
+        if (bestSimilarity >= threshold) {
+            return new FuzzyMatchingService.MatchResult(bestMatch, bestSimilarity, "fuzzy");
+        }
+        return null;
+    }
+}
@@ -0,0 +1,220 @@
+package com.example.finance.service;
+
+import com.example.finance.entity.Category;
+import com.example.finance.entity.Transaction;
+import com.example.finance.entity.User;
+import com.example.finance.repository.TransactionRepository;
+import com.example.finance.service.AICategorizationService.CategorizationResult;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Standalone test for Layer3RefinementService (no Spring context, no database)
+ * - A different Layer 3 category replaces the provisional one and publishes an "updated" event
+ *   (budget alerts run from it)
+ * - The same category only clears the provisional flag; a user edit in between wins (stale)
+ * - A run over timeout-ms is interrupted and keeps the provisional category
+ * - A full pool rejects instead of queueing without limit; the sweep resubmits later
+ *
+ * Run from backend/: exits with status 1 on failure.
+ */
+public class Layer3RefinementServiceTest {
+
+    private static int failed = 0;
+
+    // transaction id -> {provisional flag (1/0), category id}
+    private static final Map<Long, long[]> table = new ConcurrentHashMap<>();
+    private static final List<TransactionChangedEvent> events = Collections.synchronizedList(new ArrayList<>());
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== Layer3RefinementService Test ===\n");
+
+        Map<String, Long> layer3 = new ConcurrentHashMap<>();
+        CountDownLatch release = new CountDownLatch(1);
+        AICategorizationService ai = new AICategorizationService() {
+            @Override
+            public CategorizationResult categorizeExpense(String description, Double amount, Long userId) {
+                if (description.startsWith("slow")) {
+                    try {
+                        Thread.sleep(10_000);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                } else if (description.startsWith("blocked")) {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return new CategorizationResult(layer3.getOrDefault(description, 14L), null, null, 0.8, null, "Layer 3");
+            }
+        };
+        SimpleMeterRegistry meters = new SimpleMeterRegistry();
+        // enabled=false: handlers run inline, no outbox
+        TransactionEventService eventService = new TransactionEventService(
+            List.of(TransactionEventHandler.of("budget", events::add)), null, null, noOpTransactions(), meters,
+            false, Set.of(), 1, 1, 1, 0, 0, 1);
+        Layer3RefinementService service = new Layer3RefinementService(ai, repository(), eventService,
+            new ConcurrentMapCacheManager("transactions"), noOpTransactions(), meters, true, 1, 2, 300);
+
+        // Changed: Layer 3 disagrees with the provisional guess
+        table.put(1L, new long[]{1, 14});
+        layer3.put("grab ve nha", 6L);
+        service.refineAfterCommit(1L, 14L, "grab ve nha", 35000.0, 7L);
+        await(() -> count(meters, Layer3RefinementService.OUTCOME_CHANGED) == 1);
+        check("changed: category replaced, flag cleared", table.get(1L)[1] == 6 && table.get(1L)[0] == 0);
+        check("changed: updated event published", events.size() == 1
+            && TransactionChangedEvent.UPDATED.equals(events.get(0).change()) && events.get(0).transactionId() == 1L
+            && events.get(0).categoryId() == 6L && events.get(0).previousCategoryId() == 14L);
+
+        // Confirmed: same category, no event
+        table.put(2L, new long[]{1, 5});
+        layer3.put("pho bo", 5L);
+        service.refineAfterCommit(2L, 5L, "pho bo", 50000.0, 7L);
+        await(() -> count(meters, Layer3RefinementService.OUTCOME_CONFIRMED) == 1);
+        check("confirmed: flag cleared", table.get(2L)[1] == 5 && events.size() == 1);
+
+        // Stale: the user picked a category meanwhile
+        table.put(3L, new long[]{0, 9});
+        layer3.put("hoc phi", 10L);
+        service.refineAfterCommit(3L, 9L, "hoc phi", 1000.0, 7L);
+        await(() -> count(meters, Layer3RefinementService.OUTCOME_STALE) == 1);
+        check("stale: user edit kept", table.get(3L)[1] == 9);
+
+        // Timeout: worker interrupted, provisional category becomes final
+        table.put(4L, new long[]{1, 10});
+        layer3.put("slow one", 7L);
+        long start = System.nanoTime();
+        service.refineAfterCommit(4L, 10L, "slow one", 1000.0, 7L);
+        await(() -> table.get(4L)[0] == 0);
+        long waitedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        check("timeout after ~300 ms (" + waitedMs + " ms)", waitedMs < 5_000);
+        check("timeout: provisional category kept", table.get(4L)[1] == 10
+            && count(meters, Layer3RefinementService.OUTCOME_TIMEOUT) == 1);
+
+        // Bounded: 1 worker busy + 2 queued, the 4th is rejected and stays provisional
+        Layer3RefinementService slow = new Layer3RefinementService(ai, repository(), eventService,
+            new ConcurrentMapCacheManager("transactions"), noOpTransactions(), meters, true, 1, 2, 30_000);
+        for (long id = 10; id < 14; id++) {
+            table.put(id, new long[]{1, 14});
+            slow.refineAfterCommit(id, 14L, "blocked " + id, 1000.0, 7L);
+        }
+        double rejected = meters.find("categorization.refinement.rejected").counter().count();
+        check("4th submission rejected (" + (long) rejected + ")", rejected == 1 && slow.getQueuedCount() <= 2);
+        release.countDown();
+        await(() -> table.get(10L)[0] == 0 && table.get(11L)[0] == 0 && table.get(12L)[0] == 0);
+        check("rejected transaction still provisional", table.get(13L)[0] == 1);
+        slow.sweep();
+        await(() -> table.get(13L)[0] == 0);
+        check("sweep resubmits it", table.get(13L)[0] == 0);
+
+        service.shutdown();
+        slow.shutdown();
+        System.out.println("\n" + (failed == 0 ? "✓ All checks passed" : failed + " check(s) failed"));
+        if (failed > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static long count(SimpleMeterRegistry meters, String outcome) {
+        Timer timer = meters.find("categorization.refinement").tag("outcome", outcome).timer();
+        return timer == null ? 0 : timer.count();
+    }
+
+    private static void await(java.util.function.BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static void check(String name, boolean ok) {
+        System.out.println((ok ? "✓ " : "✗ ") + name);
+        if (!ok) {
+            failed++;
+        }
+    }
+
+    /**
+     * Conditional update on the in-memory table, like the native UPDATE ... WHERE category_provisional = 1
+     */
+    private static TransactionRepository repository() {
+        return (TransactionRepository) Proxy.newProxyInstance(
+            TransactionRepository.class.getClassLoader(),
+            new Class<?>[]{TransactionRepository.class},
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "resolveProvisionalCategory": {
+                        long[] row = table.get((Long) args[0]);
+                        synchronized (row) {
+                            if (row[0] != 1 || row[1] != (Long) args[1]) {
+                                return 0;
+                            }
+                            row[0] = 0;
+                            row[1] = (Long) args[2];
+                            return 1;
+                        }
+                    }
+                    case "findByIdWithDetails":
+                        return Optional.of(transaction((Long) args[0]));
+                    case "findTop100ByCategoryProvisionalTrueAndIsDeletedFalseAndUpdatedAtBeforeOrderByIdAsc": {
+                        List<Transaction> rows = new ArrayList<>();
+                        new TreeMap<>(table).forEach((id, row) -> {
+                            if (row[0] == 1) {
+                                rows.add(transaction(id));
+                            }
+                        });
+                        return rows;
+                    }
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            });
+    }
+
+    private static Transaction transaction(Long id) {
+        Transaction transaction = new Transaction();
+        transaction.setId(id);
+        transaction.setType("expense");
+        transaction.setNote("blocked " + id);
+        transaction.setAmount(BigDecimal.valueOf(1000));
+        transaction.setCategoryProvisional(table.get(id)[0] == 1);
+        Category category = new Category();
+        category.setId(table.get(id)[1]);
+        transaction.setCategory(category);
+        User user = new User();
+        user.setId(7L);
+        transaction.setUser(user);
+        return transaction;
+    }
+
+    private static PlatformTransactionManager noOpTransactions() {
+        return new PlatformTransactionManager() {
+            @Override
+            public TransactionStatus getTransaction(TransactionDefinition definition) {
+                return new SimpleTransactionStatus();
+            }
+
+            @Override
+            public void commit(TransactionStatus status) {
+            }
+
+            @Override
+            public void rollback(TransactionStatus status) {
+            }
+        };
+    }
+}
@@ -0,0 +1,237 @@
+package com.example.finance.service;
+
+import com.example.finance.ml.BinaryModelFormat;
+import com.example.finance.ml.HashingVectorizer;
+import com.example.finance.ml.LinearSVMClassifier;
+import com.example.finance.ml.ModelSnapshot;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Standalone test for OnlineLearningService (no Spring context, no database)
+ * - Corrections for a merchant the model never saw are learned and published as "<base>+online.1"
+ * - Meters are tagged with the base version, not one tag value per online version
+ * - Copy-on-write: the snapshot held by an in-flight request keeps predicting as before
+ * - A poisoned batch that would cost holdout accuracy is rejected; the published model stays
+ * - Checkpoint writes a model file + metadata the registry loads after a restart, without the
+ *   directory watch reloading it in the running process
+ * - The base stays reachable: rollback history after the first publish, resetToBase() restores the
+ *   base bundle in model_metadata.json
+ * - Bounded queue, disabled mode
+ *
+ * Run from backend/: exits with status 1 on failure.
+ */
+public class OnlineLearningServiceTest {
+
+    private static final String TRAIN_SET = "../ai-service/vietnamese_transactions_14categories_train.json";
+    private static final String TEST_SET = "../ai-service/vietnamese_transactions_14categories_test.json";
+
+    private static int failed = 0;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== OnlineLearningService Test ===\n");
+        if (!new File(TRAIN_SET).exists() || !new File(TEST_SET).exists()) {
+            System.out.println("Datasets not found, skipping");
+            return;
+        }
+
+        Path modelsDir = Files.createTempDirectory("online-models");
+        ModelRegistryService registry = registry(modelsDir);
+        ModelSnapshot trained = trainedSnapshot();
+        String baseChecksum = BinaryModelFormat.write(trained.getVectorizer(), trained.getClassifier(),
+            modelsDir.resolve(BinaryModelFormat.DEFAULT_FILE_NAME));
+        ObjectNode baseMetadata = new ObjectMapper().createObjectNode()
+            .put("model_file", BinaryModelFormat.DEFAULT_FILE_NAME)
+            .put("checksum", baseChecksum)
+            .put("model_version", "base-1");
+        new ObjectMapper().writeValue(modelsDir.resolve("model_metadata.json").toFile(), baseMetadata);
+        ModelSnapshot base = registry.reload();
+
+        SimpleMeterRegistry meters = new SimpleMeterRegistry();
+        OnlineLearningService service = new OnlineLearningService(registry, meters, true, TEST_SET,
+            200, 100, 0.001, 0.0001, 3, 0.01, 0.0);
+        service.loadHoldout();
+
+        // New merchant: unknown to the base model, learned from corrections
+        String merchant = "zzqxmart";
+        int before = base.getClassifier().predict(base.getVectorizer().transformSparse(merchant));
+        int target = before == 7 ? 8 : 7;
+        for (int i = 0; i < 20; i++) {
+            service.recordCorrection(i % 2 == 0 ? merchant : merchant + " q7", (long) target);
+        }
+        String outcome = service.applyPending();
+        ModelSnapshot online = registry.current();
+        int after = online.getClassifier().predict(online.getVectorizer().transformSparse(merchant));
+        check("batch published (" + outcome + ", " + online.getVersion() + ")",
+            OnlineLearningService.OUTCOME_PUBLISHED.equals(outcome) && online.getVersion().equals("base-1+online.1"));
+        check("new merchant learned (" + before + " -> " + after + ", wanted " + target + ")", after == target);
+        check("in-flight snapshot unchanged", base.getClassifier().predict(base.getVectorizer().transformSparse(merchant)) == before);
+        Map<String, Object> status = service.status();
+        double baseAccuracy = (Double) status.get("baseHoldoutAccuracy");
+        double onlineAccuracy = (Double) status.get("lastHoldoutAccuracy");
+        check(String.format("holdout accuracy kept (base %.4f, online %.4f)", baseAccuracy, onlineAccuracy),
+            onlineAccuracy >= baseAccuracy - 0.01);
+        check("base pushed to rollback history once", registry.getVersions().size() == 2
+            && registry.getVersions().get(1) == base);
+
+        // Meters: one set per base version, however many online versions are published
+        CategorizationMetrics metrics = new CategorizationMetrics(meters);
+        for (int i = 1; i <= 50; i++) {
+            metrics.recordLayer(AICategorizationService.LAYER_25, CategorizationMetrics.OUTCOME_HIT, "base-1+online." + i, 1000);
+            metrics.recordRequest(AICategorizationService.LAYER_25, false, "base-1+online." + i, 1000);
+        }
+        check("meters tagged with the base version", meters.find("categorization.layer").timers().size() == 1
+            && meters.find("categorization.request").timers().size() == 1
+            && meters.find("categorization.layer").tag("model_version", "base-1").timer().count() == 50);
+
+        // Poisoned batch: most training descriptions relabeled to "other"
+        List<String> train = descriptions(TRAIN_SET);
+        for (int i = 0; i < 100; i++) {
+            service.recordCorrection(train.get(i), 14L);
+        }
+        outcome = service.applyPending();
+        check("poisoned batch rejected (" + outcome + ")", OnlineLearningService.OUTCOME_REJECTED.equals(outcome));
+        check("published model kept", registry.current() == online);
+
+        // Next refinement replaces the online model, the base stays the one history entry
+        for (int i = 0; i < 20; i++) {
+            service.recordCorrection(i % 2 == 0 ? merchant : merchant + " q1", (long) target);
+        }
+        outcome = service.applyPending();
+        online = registry.current();
+        check("second batch published as " + online.getVersion(), OnlineLearningService.OUTCOME_PUBLISHED.equals(outcome)
+            && online.getVersion().equals("base-1+online.2") && registry.getVersions().size() == 2
+            && registry.getVersions().get(1) == base);
+
+        // Checkpoint, then the directory watch must not reload it; a fresh registry does
+        check("checkpoint written", service.checkpoint());
+        check("nothing new to checkpoint", !service.checkpoint());
+        registry.checkForNewModel();
+        check("directory watch ignores own checkpoint", registry.current() == online);
+        ModelRegistryService restarted = registry(modelsDir);
+        ModelSnapshot restored = restarted.reload();
+        int disagreements = 0;
+        for (String description : descriptions(TEST_SET)) {
+            if (restored.getClassifier().predict(restored.getVectorizer().transformSparse(description))
+                    != online.getClassifier().predict(online.getVectorizer().transformSparse(description))) {
+                disagreements++;
+            }
+        }
+        check("restart loads " + restored.getVersion() + " (" + disagreements + " float32 disagreements)",
+            restored.getVersion().equals(online.getVersion()) && disagreements <= 3
+                && restored.getClassifier().predict(restored.getVectorizer().transformSparse(merchant)) == target);
+        JsonNode metadata = new ObjectMapper().readTree(modelsDir.resolve("model_metadata.json").toFile());
+        check("metadata records base and corrections", metadata.path("online_base_version").asText().equals("base-1")
+            && metadata.path("online_corrections").asLong() == 40);
+
+        // Reset: metadata back to the base bundle, base current again
+        ModelSnapshot reset = service.resetToBase();
+        JsonNode resetMetadata = new ObjectMapper().readTree(modelsDir.resolve("model_metadata.json").toFile());
+        check("reset reloads the base (" + reset.getVersion() + ")", reset.getVersion().equals("base-1")
+            && registry.current() == reset && reset.getChecksum().equals(baseChecksum));
+        check("reset restores the base bundle in metadata",
+            resetMetadata.path("model_file").asText().equals(BinaryModelFormat.DEFAULT_FILE_NAME)
+                && resetMetadata.path("checksum").asText().equals(baseChecksum)
+                && !resetMetadata.has("online_base_model_file") && !resetMetadata.has("online_corrections"));
+        check("restart after reset loads the base", registry(modelsDir).reload().getVersion().equals("base-1"));
+        check("nothing left to reset", rejects(service::resetToBase));
+
+        // Bounded queue, disabled mode
+        for (int i = 0; i < 150; i++) {
+            service.recordCorrection(merchant, (long) target);
+        }
+        double droppedCount = meters.find("categorization.online.corrections").tag("result", "dropped").counter().count();
+        check("queue bounded at 100 (" + (long) droppedCount + " dropped)", droppedCount == 50);
+        OnlineLearningService disabled = new OnlineLearningService(registry, new SimpleMeterRegistry(), false, TEST_SET,
+            200, 100, 0.001, 0.0001, 3, 0.01, 0.0);
+        disabled.recordCorrection(merchant, (long) target);
+        check("disabled: nothing queued", OnlineLearningService.OUTCOME_SKIPPED.equals(disabled.applyPending())
+            && ((Integer) disabled.status().get("pending")) == 0);
+
+        try (var files = Files.list(modelsDir)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(modelsDir);
+        System.out.println("\n" + (failed == 0 ? "✓ All checks passed" : failed + " check(s) failed"));
+        if (failed > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static ModelSnapshot trainedSnapshot() throws Exception {
+        List<String> documents = new ArrayList<>();
+        List<Integer> labels = new ArrayList<>();
+        for (JsonNode node : new ObjectMapper().readTree(new File(TRAIN_SET))) {
+            documents.add(node.get("description").asText());
+            labels.add(node.get("category_id").asInt());
+        }
+        HashingVectorizer vectorizer = new HashingVectorizer(1 << 14);
+        LinearSVMClassifier svm = new LinearSVMClassifier(1.0, 30);
+        svm.setSeed(42);
+        svm.train(vectorizer, documents, labels.stream().mapToInt(Integer::intValue).toArray());
+        return new ModelSnapshot("base-1", vectorizer, svm, 1.0, "test", "train split", Instant.now());
+    }
+
+    private static List<String> descriptions(String path) throws Exception {
+        List<String> descriptions = new ArrayList<>();
+        for (JsonNode node : new ObjectMapper().readTree(new File(path))) {
+            descriptions.add(node.get("description").asText());
+        }
+        return descriptions;
+    }
+
+    private static ModelRegistryService registry(Path modelsDir) throws Exception {
+        ModelRegistryService registry = new ModelRegistryService();
+        inject(registry, "confidenceCalibrator", new ConfidenceCalibrationService());
+        inject(registry, "modelsDir", modelsDir.toString());
+        inject(registry, "historySize", 3);
+        @SuppressWarnings("unchecked")
+        AtomicReference<ModelSnapshot> current = (AtomicReference<ModelSnapshot>) field(registry, "current");
+        current.set(ModelSnapshot.empty());
+        return registry;
+    }
+
+    private static Object field(Object target, String name) throws ReflectiveOperationException {
+        Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        return field.get(target);
+    }
+
+    private static void inject(Object target, String name, Object value) throws ReflectiveOperationException {
+        Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+
+    private interface Action {
+        Object run() throws Exception;
+    }
+
+    private static boolean rejects(Action action) throws Exception {
+        try {
+            action.run();
+            return false;
+        } catch (IllegalStateException e) {
+            return true;
+        }
+    }
+
+    private static void check(String name, boolean ok) {
+        System.out.println((ok ? "✓ " : "✗ ") + name);
+        if (!ok) {
+            failed++;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.finance.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Standalone test for PreferenceWriteBehindService (no Spring context, no database: the JdbcTemplate
+ * records the MERGE statements instead of executing them)
+ * - increments are coalesced per (user, pattern), latest category wins
+ * - one MERGE per MERGE_ROWS patterns
+ * - failed flush re-queues, size trigger flushes without the scheduler, drain empties the buffer
+ * - a constraint violation rejects only the offending rows, re-queues stop after max-retries
+ * - max-pending bound and metrics
+ */
+public class PreferenceWriteBehindServiceTest {
+
+    private static int failed = 0;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== PreferenceWriteBehindService Test ===\n");
+
+        RecordingJdbcTemplate jdbc = new RecordingJdbcTemplate();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        PreferenceWriteBehindService writer = new PreferenceWriteBehindService(jdbc, registry, 10_000, 100_000, 10);
+
+        // Coalescing: 1000 records over 10 (user, pattern) keys
+        for (int i = 0; i < 1000; i++) {
+            writer.record((long) (i % 2), "pattern " + (i % 5), (long) i);
+        }
+        writer.record(null, "ignored", 1L);
+        writer.record(1L, "", 1L);
+        check("10 pending patterns", writer.getPendingCount() == 10);
+        check("pending gauge", registry.get("categorization.preferences.pending").gauge().value() == 10);
+        check("no write before flush", jdbc.statements.isEmpty());
+
+        check("flush writes 10 rows", writer.flush() == 10);
+        check("one MERGE statement", jdbc.statements.size() == 1 && jdbc.statements.get(0).startsWith("MERGE "));
+        Map<String, Object[]> rows = jdbc.rows();
+        int total = rows.values().stream().mapToInt(r -> (Integer) r[3]).sum();
+        check("increments summed (" + total + ")", total == 1000 && rows.size() == 10);
+        // Keys with i % 10 == 9 -> user 1, pattern 4: last record is i = 999
+        check("latest category wins", ((Long) rows.get("1|pattern 4")[2]) == 999L);
+        check("buffer empty after flush", writer.getPendingCount() == 0 && writer.flush() == 0);
+
+        // Chunking
+        jdbc.clear();
+        for (int i = 0; i < PreferenceWriteBehindService.MERGE_ROWS * 2 + 1; i++) {
+            writer.record(7L, "chunk " + i, 3L);
+        }
+        writer.flush();
+        check("3 MERGE statements for 2 * MERGE_ROWS + 1", jdbc.statements.size() == 3);
+        check("parameter count within SQL Server limit", jdbc.maxArgs <= 2100);
+
+        // Failure: rows go back and merge with records made in the meantime
+        jdbc.clear();
+        writer.record(3L, "retry me", 4L);
+        jdbc.failNext = true;
+        check("failed flush writes nothing", writer.flush() == 0);
+        writer.record(3L, "retry me", 5L);
+        check("re-queued", writer.getPendingCount() == 1);
+        writer.flush();
+        Object[] retried = jdbc.rows().get("3|retry me");
+        check("retry carries both increments and newest category",
+            retried != null && (Integer) retried[3] == 2 && (Long) retried[2] == 5L);
+        check("failure timer", registry.get("categorization.preferences.flush").tag("outcome", "failure").timer().count() == 1);
+
+        // Constraint violation (category deleted since the record): only the offending rows are rejected
+        jdbc.clear();
+        int rowCount = PreferenceWriteBehindService.MERGE_ROWS + 10;
+        for (int i = 0; i < rowCount; i++) {
+            writer.record(4L, "fk " + i, i == 5 ? RecordingJdbcTemplate.DELETED_CATEGORY : 3L);
+        }
+        check("constraint violation writes the other rows",
+            writer.flush() == rowCount - 1 && jdbc.rows().size() == rowCount - 1);
+        check("offending row rejected, not re-queued", writer.getPendingCount() == 0
+            && registry.get("categorization.preferences.rejected").tag("reason", "constraint").counter().count() == 1);
+        // The bad row lands in the full chunk or in the 10-row tail: 1 MERGE for the other chunk + the good rows of its own
+        int statements = jdbc.statements.size();
+        check("only the failing chunk went row by row (" + statements + " statements)",
+            statements == 1 + PreferenceWriteBehindService.MERGE_ROWS - 1 || statements == 1 + 10 - 1);
+
+        // Transient failures: re-queued up to max-retries, then rejected
+        SimpleMeterRegistry retryRegistry = new SimpleMeterRegistry();
+        RecordingJdbcTemplate retryJdbc = new RecordingJdbcTemplate();
+        PreferenceWriteBehindService retrying = new PreferenceWriteBehindService(retryJdbc, retryRegistry, 10_000, 100_000, 2);
+        retrying.record(5L, "down", 1L);
+        retryJdbc.alwaysFail = true;
+        retrying.flush();
+        retrying.record(5L, "down", 2L); // newer record does not reset the attempt count
+        retrying.flush();
+        check("re-queued while under max-retries", retrying.getPendingCount() == 1);
+        retrying.flush();
+        check("given up after max-retries", retrying.getPendingCount() == 0
+            && retryRegistry.get("categorization.preferences.rejected").tag("reason", "retries").counter().count() == 1);
+        retryJdbc.alwaysFail = false;
+        retrying.record(5L, "down", 3L);
+        check("pattern recorded again starts over", retrying.flush() == 1);
+
+        // Size trigger: flushes on the writer's own thread without a scheduled tick
+        RecordingJdbcTemplate sizeJdbc = new RecordingJdbcTemplate();
+        PreferenceWriteBehindService sized = new PreferenceWriteBehindService(sizeJdbc, new SimpleMeterRegistry(), 50, 100_000, 10);
+        for (int i = 0; i < 50; i++) {
+            sized.record(1L, "size " + i, 2L);
+        }
+        check("size-triggered flush", sizeJdbc.await(1) && sizeJdbc.rows().size() == 50);
+
+        // Bound: new patterns above max-pending are dropped, known ones still coalesce
+        SimpleMeterRegistry boundRegistry = new SimpleMeterRegistry();
+        RecordingJdbcTemplate boundJdbc = new RecordingJdbcTemplate();
+        PreferenceWriteBehindService bounded = new PreferenceWriteBehindService(boundJdbc, boundRegistry, 10_000, 3, 10);
+        boundJdbc.alwaysFail = true; // keep the buffer full
+        for (int i = 0; i < 3; i++) {
+            bounded.record(1L, "bound " + i, 2L);
+        }
+        bounded.record(1L, "bound 3", 2L); // dropped, triggers a (failing) flush
+        boundJdbc.await(1);
+        bounded.record(1L, "bound 4", 2L); // dropped
+        boundJdbc.await(0);
+        check("max-pending bound", bounded.getPendingCount() == 3
+            && boundRegistry.get("categorization.preferences.dropped").counter().count() == 2);
+
+        // Drain on shutdown
+        writer.record(9L, "last one", 1L);
+        jdbc.clear();
+        writer.drain();
+        check("drain writes pending rows", writer.getPendingCount() == 0 && jdbc.rows().containsKey("9|last one"));
+        writer.record(9L, "after shutdown", 1L);
+        check("size trigger after shutdown does not throw", true);
+
+        System.out.println("Flush timer: " + registry.get("categorization.preferences.flush").tag("outcome", "success").timer());
+        System.out.println("\n" + (failed == 0 ? "✓ All checks passed" : failed + " check(s) failed"));
+        if (failed > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static void check(String name, boolean ok) {
+        System.out.println((ok ? "✓ " : "✗ ") + name);
+        if (!ok) {
+            failed++;
+        }
+    }
+
+    /**
+     * Captures update(sql, args) instead of executing it
+     */
+    private static class RecordingJdbcTemplate extends JdbcTemplate {
+        final List<String> statements = Collections.synchronizedList(new ArrayList<>());
+        final List<Object[]> args = Collections.synchronizedList(new ArrayList<>());
+        volatile boolean failNext;
+        volatile boolean alwaysFail;
+        volatile int maxArgs;
+        static final long DELETED_CATEGORY = -1L;
+        private final CountDownLatch firstCall = new CountDownLatch(1);
+
+        @Override
+        public int update(String sql, Object... params) {
+            firstCall.countDown();
+            if (failNext || alwaysFail) {
+                failNext = false;
+                throw new DataAccessResourceFailureException("connection reset");
+            }
+            for (int i = 2; i < params.length; i += 5) {
+                if (Long.valueOf(DELETED_CATEGORY).equals(params[i])) {
+                    throw new DataIntegrityViolationException("FK_user_cat_pref_category");
+                }
+            }
+            statements.add(sql);
+            args.add(params);
+            maxArgs = Math.max(maxArgs, params.length);
+            return params.length / 5;
+        }
+
+        /**
+         * "userId|pattern" -> {userId, pattern, categoryId, increments, lastUsed}
+         */
+        Map<String, Object[]> rows() {
+            Map<String, Object[]> rows = new HashMap<>();
+            synchronized (args) {
+                for (Object[] params : args) {
+                    for (int i = 0; i < params.length; i += 5) {
+                        rows.put(params[i] + "|" + params[i + 1], Arrays.copyOfRange(params, i, i + 5));
+                    }
+                }
+            }
+            return rows;
+        }
+
+        boolean await(int seconds) throws InterruptedException {
+            boolean called = firstCall.await(seconds, TimeUnit.SECONDS);
+            Thread.sleep(100); // let the flush finish
+            return called;
+        }
+
+        void clear() {
+            statements.clear();
+            args.clear();
+        }
+    }
+}
@@ -0,0 +1,355 @@
+package com.example.finance.service;
+
+import com.example.finance.entity.Category;
+import com.example.finance.entity.Transaction;
+import com.example.finance.entity.User;
+import com.example.finance.entity.Wallet;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Standalone test for TransactionEventService (no Spring context, no database: the JdbcTemplate keeps
+ * TransactionEventOutbox in memory)
+ * - One outbox row per handler; handlers run after commit, in order, off the calling thread
+ * - Nothing runs for a rolled-back save; rows left by a crash are delivered by the sweep
+ * - Failures retried by the sweep with the attempt count kept; failed after max-attempts
+ * - Full pool leaves rows to the sweep; disabled handlers get no rows; enabled=false runs inline
+ *
+ * Run from backend/: exits with status 1 on failure.
+ */
+public class TransactionEventServiceTest {
+
+    private static int failed = 0;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== TransactionEventService Test ===\n");
+        OutboxJdbcTemplate outbox = new OutboxJdbcTemplate();
+        SimpleMeterRegistry meters = new SimpleMeterRegistry();
+        List<String> calls = new CopyOnWriteArrayList<>();
+        AtomicInteger flakyFailures = new AtomicInteger(2);
+        List<TransactionEventHandler> handlers = List.of(
+            recording("budget", calls),
+            TransactionEventHandler.of("goal", event -> {
+                if (flakyFailures.getAndDecrement() > 0) {
+                    throw new IllegalStateException("goal store down");
+                }
+                calls.add("goal:" + event.transactionId());
+            }),
+            recording("notification", calls),
+            recording("gamification", calls));
+        TransactionEventService service = service(handlers, outbox, meters, true, Set.of("gamification"), 2, 100, 60_000);
+
+        // After commit, in handler order, with the event intact
+        TransactionChangedEvent event = event(1L);
+        TransactionSynchronizationManager.initSynchronization();
+        service.publish(event);
+        check("3 outbox rows (gamification disabled)", outbox.rows.size() == 3 && outbox.count("pending") == 3);
+        check("nothing runs before commit", calls.isEmpty());
+        commit();
+        check("budget and notification ran after commit", await(() -> outbox.count("done") == 2)
+            && calls.equals(List.of("budget:1", "notification:1")));
+        Row goal = outbox.row(event.eventId(), "goal");
+        check("goal failure scheduled for retry (attempts " + goal.attempts + ", " + goal.lastError + ")",
+            "pending".equals(goal.status) && goal.attempts == 1);
+        TransactionChangedEvent delivered = new ObjectMapper().findAndRegisterModules()
+            .readValue(goal.payload, TransactionChangedEvent.class);
+        check("payload round trip " + delivered, delivered.equals(event));
+
+        // Retries through the sweep
+        check("goal delivered on the third attempt", sweepUntil(service, outbox, event.eventId(), "goal", "done")
+            && outbox.row(event.eventId(), "goal").attempts == 3 && calls.contains("goal:1"));
+        check("handler timer (1 retry outcome per failure)",
+            meters.get("transaction.events.handler").tag("handler", "goal").tag("outcome", "retry").timer().count() == 2
+                && meters.get("transaction.events.handler").tag("handler", "goal").tag("outcome", "success").timer().count() == 1);
+
+        // Rollback: rows gone with the transaction, no afterCommit
+        calls.clear();
+        TransactionSynchronizationManager.initSynchronization();
+        int before = outbox.rows.size();
+        service.publish(event(2L));
+        outbox.rollbackTo(before);
+        rollback();
+        Thread.sleep(50);
+        check("rolled-back save runs nothing", calls.isEmpty() && outbox.rows.size() == before);
+
+        // Crash after commit: rows written, process gone before dispatch; another instance sweeps them
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionChangedEvent orphan = event(3L);
+        service.publish(orphan);
+        TransactionSynchronizationManager.clearSynchronization();
+        service.sweep();
+        Thread.sleep(50);
+        check("lease keeps the sweep off fresh rows", calls.isEmpty());
+        TransactionEventService restarted = service(handlers, outbox, new SimpleMeterRegistry(), true, Set.of(), 2, 100, 0);
+        outbox.rows.stream().filter(r -> r.eventId.equals(orphan.eventId())).forEach(r -> r.nextAttemptAt = past());
+        restarted.sweep();
+        check("orphaned rows delivered by the sweep", await(() -> calls.containsAll(List.of("budget:3", "goal:3", "notification:3"))));
+
+        // Exhausted retries
+        TransactionEventService strict = service(List.of(TransactionEventHandler.of("broken", e -> {
+            throw new IllegalStateException("always");
+        })), outbox, meters, true, Set.of(), 1, 10, 0);
+        TransactionChangedEvent doomed = event(4L);
+        strict.publish(doomed);
+        sweepUntil(strict, outbox, doomed.eventId(), "broken", "failed");
+        Row broken = outbox.row(doomed.eventId(), "broken");
+        check("failed after max-attempts (" + broken.attempts + ")", "failed".equals(broken.status) && broken.attempts == 3);
+
+        // Full pool: the rest waits for the sweep
+        CountDownLatch release = new CountDownLatch(1);
+        List<Long> slow = new CopyOnWriteArrayList<>();
+        SimpleMeterRegistry poolMeters = new SimpleMeterRegistry();
+        TransactionEventService small = service(List.of(TransactionEventHandler.of("slow", e -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ignored) {
+                Thread.currentThread().interrupt();
+            }
+            slow.add(e.transactionId());
+        })), outbox, poolMeters, true, Set.of(), 1, 1, 0);
+        for (long id = 10; id < 14; id++) {
+            small.publish(event(id));
+        }
+        double rejectedCount = poolMeters.get("transaction.events.rejected").counter().count();
+        check("pool full: " + (long) rejectedCount + " events left to the sweep", rejectedCount >= 2);
+        release.countDown();
+        await(() -> small.getQueuedCount() == 0 && slow.size() == 4 - (int) rejectedCount);
+        outbox.rows.stream().filter(r -> r.handler.equals("slow") && r.status.equals("pending")).forEach(r -> r.nextAttemptAt = past());
+        small.sweep();
+        check("sweep delivers them (" + slow + ")", await(() -> slow.size() == 4));
+
+        // Inline mode
+        List<String> inline = new ArrayList<>();
+        int rows = outbox.rows.size();
+        service(List.of(recording("budget", inline)), outbox, new SimpleMeterRegistry(), false, Set.of(), 1, 10, 0)
+            .publish(event(20L));
+        check("enabled=false: inline, no outbox", inline.equals(List.of("budget:20")) && outbox.rows.size() == rows);
+
+        TransactionChangedEvent fromEntity = TransactionChangedEvent.of(TransactionChangedEvent.DELETED, transaction(), 5L, 6L);
+        check("event from entity", fromEntity.walletId() == 3L && fromEntity.categoryId() == 4L && fromEntity.userId() == 2L
+            && !fromEntity.isLive() && fromEntity.previousWalletId() == 5L);
+
+        System.out.println("\n" + (failed == 0 ? "✓ All checks passed" : failed + " check(s) failed"));
+        if (failed > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static TransactionEventService service(List<TransactionEventHandler> handlers, OutboxJdbcTemplate outbox,
+                                                   SimpleMeterRegistry meters, boolean enabled, Set<String> disabled,
+                                                   int concurrency, int queue, long leaseMs) {
+        return new TransactionEventService(handlers, outbox, new ObjectMapper().findAndRegisterModules(),
+            noOpTransactions(), meters, enabled, disabled, concurrency, queue, 3, 0, leaseMs, 72);
+    }
+
+    /**
+     * Make the row due and sweep until it reaches status (a sweep during the delivery is skipped)
+     */
+    private static boolean sweepUntil(TransactionEventService service, OutboxJdbcTemplate outbox,
+                                      String eventId, String handler, String status) throws InterruptedException {
+        for (int i = 0; i < 200; i++) {
+            Row row = outbox.row(eventId, handler);
+            if (row.status.equals(status)) {
+                return true;
+            }
+            row.nextAttemptAt = past();
+            service.sweep();
+            Thread.sleep(10);
+        }
+        return false;
+    }
+
+    private static TransactionEventHandler recording(String name, List<String> calls) {
+        return TransactionEventHandler.of(name, event -> calls.add(name + ":" + event.transactionId()));
+    }
+
+    private static TransactionChangedEvent event(long transactionId) {
+        return new TransactionChangedEvent(UUID.randomUUID().toString(), TransactionChangedEvent.CREATED, transactionId,
+            7L, 3L, null, 4L, null, "expense", new BigDecimal("125000.50"), LocalDate.of(2026, 3, 14), false);
+    }
+
+    private static Transaction transaction() {
+        Transaction transaction = new Transaction();
+        transaction.setId(9L);
+        User user = new User();
+        user.setId(2L);
+        transaction.setUser(user);
+        Wallet wallet = new Wallet();
+        wallet.setId(3L);
+        transaction.setWallet(wallet);
+        Category category = new Category();
+        category.setId(4L);
+        transaction.setCategory(category);
+        transaction.setType("expense");
+        transaction.setAmount(BigDecimal.TEN);
+        return transaction;
+    }
+
+    private static void commit() {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+    }
+
+    private static void rollback() {
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    private static Timestamp past() {
+        return new Timestamp(System.currentTimeMillis() - 1000);
+    }
+
+    private static boolean await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                return false;
+            }
+            Thread.sleep(5);
+        }
+        return true;
+    }
+
+    private static PlatformTransactionManager noOpTransactions() {
+        return new PlatformTransactionManager() {
+            @Override
+            public TransactionStatus getTransaction(TransactionDefinition definition) {
+                return new SimpleTransactionStatus();
+            }
+
+            @Override
+            public void commit(TransactionStatus status) {
+            }
+
+            @Override
+            public void rollback(TransactionStatus status) {
+            }
+        };
+    }
+
+    static final class Row {
+        String eventId;
+        String handler;
+        String payload;
+        String status = "pending";
+        int attempts;
+        Timestamp nextAttemptAt;
+        String lastError;
+        Timestamp processedAt;
+    }
+
+    /**
+     * TransactionEventOutbox in memory, driven by the service's statements
+     */
+    static final class OutboxJdbcTemplate extends JdbcTemplate {
+        final List<Row> rows = new CopyOnWriteArrayList<>();
+
+        synchronized Row row(String eventId, String handler) {
+            return rows.stream().filter(r -> r.eventId.equals(eventId) && r.handler.equals(handler)).findFirst().orElse(null);
+        }
+
+        synchronized long count(String status) {
+            return rows.stream().filter(r -> r.status.equals(status)).count();
+        }
+
+        synchronized void rollbackTo(int size) {
+            while (rows.size() > size) {
+                rows.remove(rows.size() - 1);
+            }
+        }
+
+        @Override
+        public synchronized int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+            if (!sql.startsWith("INSERT INTO TransactionEventOutbox")) {
+                throw new UnsupportedOperationException(sql);
+            }
+            for (Object[] args : batchArgs) {
+                Row row = new Row();
+                row.eventId = (String) args[0];
+                row.handler = (String) args[1];
+                row.payload = (String) args[2];
+                row.nextAttemptAt = (Timestamp) args[3];
+                rows.add(row);
+            }
+            return new int[batchArgs.size()];
+        }
+
+        @Override
+        public synchronized int update(String sql, Object... args) {
+            if (sql.contains("SET status = 'done'")) {
+                Row row = row((String) args[1], (String) args[2]);
+                row.status = "done";
+                row.attempts++;
+                row.processedAt = (Timestamp) args[0];
+                return 1;
+            }
+            if (sql.contains("SET status = ?")) {
+                Row row = row((String) args[4], (String) args[5]);
+                row.status = (String) args[0];
+                row.attempts = (Integer) args[1];
+                row.nextAttemptAt = (Timestamp) args[2];
+                row.lastError = (String) args[3];
+                return 1;
+            }
+            if (sql.contains("SET next_attempt_at = ?")) {
+                Row row = row((String) args[1], (String) args[2]);
+                if (row == null || !row.status.equals("pending") || !row.nextAttemptAt.equals(args[3])) {
+                    return 0;
+                }
+                row.nextAttemptAt = (Timestamp) args[0];
+                return 1;
+            }
+            if (sql.startsWith("DELETE")) {
+                int before = rows.size();
+                rows.removeIf(r -> r.status.equals("done") && r.processedAt.before((Timestamp) args[0]));
+                return before - rows.size();
+            }
+            throw new UnsupportedOperationException(sql);
+        }
+
+        @Override
+        public synchronized List<Map<String, Object>> queryForList(String sql, Object... args) {
+            if (!sql.startsWith("SELECT")) {
+                throw new UnsupportedOperationException(sql);
+            }
+            List<Map<String, Object>> due = new ArrayList<>();
+            rows.stream()
+                .filter(r -> r.status.equals("pending") && !r.nextAttemptAt.after((Timestamp) args[0]))
+                .sorted(Comparator.comparing(r -> r.nextAttemptAt))
+                .forEach(r -> {
+                    Map<String, Object> map = new HashMap<>();
+                    map.put("event_id", r.eventId);
+                    map.put("handler", r.handler);
+                    map.put("payload", r.payload);
+                    map.put("attempts", r.attempts);
+                    map.put("next_attempt_at", r.nextAttemptAt);
+                    due.add(map);
+                });
+            return due;
+        }
+    }
+
+    private static void check(String name, boolean ok) {
+        System.out.println((ok ? "✓ " : "✗ ") + name);
+        if (!ok) {
+            failed++;
+        }
+    }
+}
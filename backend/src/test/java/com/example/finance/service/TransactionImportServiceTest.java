@@ -0,0 +1,382 @@
+package com.example.finance.service;
+
+import com.example.finance.entity.Category;
+import com.example.finance.entity.User;
+import com.example.finance.entity.Wallet;
+import com.example.finance.repository.CategoryRepository;
+import com.example.finance.repository.UserRepository;
+import com.example.finance.repository.WalletRepository;
+import com.example.finance.service.AICategorizationService.CategorizationResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Standalone test for TransactionImportService + TransactionImportParser (no Spring context, no
+ * database: the JdbcTemplate records the INSERTs and outputs generated ids)
+ * - csv / json / ofx rows validated with save()'s rules, rejected rows reported with their row number
+ * - multi-row INSERTs within the SQL Server parameter limit, one balance delta per wallet per batch,
+ *   one budget event per (category, month) per batch for an inserted row, one categorization call per batch
+ * - a batch hitting a constraint violation is split until only the offending rows are rejected; any
+ *   other failure rejects the batch whole and the next batch still goes in
+ * - app-side throughput (parse, validate, build the INSERTs) for 100k rows
+ *
+ * Run from backend/: exits with status 1 on failure.
+ */
+public class TransactionImportServiceTest {
+
+    private static int failed = 0;
+
+    private static final List<String> deltas = new ArrayList<>();
+    private static final List<String> budgetChecks = new ArrayList<>();
+    private static final List<Long> eventTransactionIds = new ArrayList<>();
+    private static int categorizeCalls = 0;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== TransactionImportService Test ===\n");
+        LocalDate today = LocalDate.now();
+        String lastMonth = today.minusMonths(1).withDayOfMonth(1).toString();
+
+        // CSV: aliases, quoting, semicolons, VND amounts, sign as type, invalid rows
+        String csv = "trans_date;Description;Amount;Type;Category;Wallet\n"
+            + lastMonth + ";\"Grab, đi làm\";45.000;expense;1;\n"
+            + lastMonth + ";Lương tháng;15.000.000;income;;\n"
+            + lastMonth + ";\"Cafe \"\"Highlands\"\"\";-55000;;1;2\n"
+            + today.plusDays(3) + ";Future;1000;expense;1;\n"
+            + lastMonth + ";Zero;0;expense;1;\n"
+            + lastMonth + ";Bad type;1000;transfer;1;\n"
+            + lastMonth + ";Not mine;1000;expense;1;99\n"
+            + lastMonth + ";Unknown category;1000;expense;Nope;\n"
+            + "31/02/2024;Bad date;1000;expense;1;\n"
+            + lastMonth + ";Shopee;120000;expense;;\n";
+        RecordingJdbcTemplate jdbc = new RecordingJdbcTemplate();
+        TransactionImportService service = service(jdbc, 1000, true);
+        List<Map<String, Object>> errors = new ArrayList<>();
+        TransactionImportService.ImportSummary summary = service.importStatement(7L, stream(csv), "csv", null, errors::add);
+        check("csv: 10 rows, 4 imported, 6 rejected " + summary,
+            summary.rows() == 10 && summary.imported() == 4 && summary.failed() == 6);
+        List<Object> rejected = errors.stream().map(e -> e.get("row")).toList();
+        check("rejected rows reported by row number " + rejected, rejected.equals(List.of(4, 5, 6, 7, 8, 9)));
+        check("future date message", errors.get(0).get("error").equals("Transaction date cannot be in the future"));
+        List<Object[]> inserted = jdbc.rows;
+        check("quoted note kept", inserted.get(0)[2].equals("Grab, đi làm") && inserted.get(2)[2].equals("Cafe \"Highlands\""));
+        check("VND thousands: 45.000 -> 45000, 15.000.000 -> 15000000",
+            ((BigDecimal) inserted.get(0)[0]).compareTo(new BigDecimal("45000")) == 0
+                && ((BigDecimal) inserted.get(1)[0]).compareTo(new BigDecimal("15000000")) == 0);
+        check("negative amount without type is an expense", inserted.get(2)[1].equals("expense")
+            && ((BigDecimal) inserted.get(2)[0]).compareTo(new BigDecimal("55000")) == 0);
+        check("uncategorized rows categorized in one call (Shopee -> 3, income -> 2)", categorizeCalls == 1
+            && Long.valueOf(3).equals(inserted.get(3)[8]) && Long.valueOf(2).equals(inserted.get(1)[8]));
+        check("one multi-row INSERT", jdbc.statements == 1);
+        check("one delta per wallet " + deltas, deltas.equals(List.of("1:14835000", "2:-55000")));
+        check("one budget event per category and month " + budgetChecks, budgetChecks.equals(List.of("1|" + lastMonth, "3|" + lastMonth)));
+        check("events carry an inserted row of their category " + eventTransactionIds, eventTransactionIds.size() == 2
+            && Long.valueOf(1).equals(inserted.get(eventTransactionIds.get(0).intValue() - 1)[8])
+            && Long.valueOf(3).equals(inserted.get(eventTransactionIds.get(1).intValue() - 1)[8]));
+
+        // Chunking and batching
+        reset();
+        RecordingJdbcTemplate big = new RecordingJdbcTemplate();
+        StringBuilder many = new StringBuilder("date,amount,note,category\n");
+        for (int i = 0; i < 2500; i++) {
+            many.append(lastMonth).append(',').append(-(1000 + i)).append(",row ").append(i).append(",1\n");
+        }
+        summary = service(big, 1000, true).importStatement(7L, stream(many.toString()), "csv", 2L, e -> { });
+        check("2500 rows in 3 batches: " + big.statements + " INSERTs, " + deltas.size() + " deltas",
+            summary.imported() == 2500 && big.statements == 13 && deltas.size() == 3 && budgetChecks.size() == 3);
+        check("parameters per INSERT within 2100 (" + big.maxArgs + ")", big.maxArgs <= 2100);
+
+        // Failed batch: reported whole, the next batch still imported
+        reset();
+        RecordingJdbcTemplate flaky = new RecordingJdbcTemplate();
+        flaky.failStatement = 1;
+        List<Map<String, Object>> batchErrors = new ArrayList<>();
+        summary = service(flaky, 1000, false).importStatement(7L, stream(many.toString()), "csv", 2L, batchErrors::add);
+        check("failed batch rejected, others imported " + summary, summary.imported() == 1500 && summary.failed() == 1000
+            && batchErrors.get(0).get("error").toString().startsWith("Batch not imported") && deltas.size() == 2);
+
+        // Constraint violation: the batch is split until only the offending rows are rejected
+        reset();
+        RecordingJdbcTemplate strict = new RecordingJdbcTemplate();
+        strict.failAmounts = Set.of(new BigDecimal("1009"), new BigDecimal("2499")); // rows 10 and 1500
+        List<Map<String, Object>> rowErrors = new ArrayList<>();
+        summary = service(strict, 1000, false).importStatement(7L, stream(many.toString()), "csv", 2L, rowErrors::add);
+        check("only the offending rows rejected " + summary + " " + rowErrors, summary.imported() == 2498 && summary.failed() == 2
+            && rowErrors.stream().map(e -> e.get("row")).toList().equals(List.of(10, 1500))
+            && rowErrors.get(0).get("error").toString().startsWith("Row not imported"));
+        check("split, not row by row: " + strict.statements + " statements for 2500 rows", strict.statements < 100);
+
+        // DECIMAL(18,2): sub-cent amounts and more than 16 integer digits are rejected up front
+        reset();
+        String precise = "date,amount,type,category\n"
+            + lastMonth + ",12.3456,expense,1\n"
+            + lastMonth + ",12.340,expense,1\n"
+            + lastMonth + ",99999999999999999,expense,1\n"
+            + lastMonth + ",9999999999999999.99,expense,1\n";
+        errors.clear();
+        summary = service(new RecordingJdbcTemplate(), 1000, false).importStatement(7L, stream(precise), "csv", 2L, errors::add);
+        check("amount precision and scale " + summary + " " + errors, summary.imported() == 2 && errors.size() == 2
+            && errors.get(0).get("error").equals("Amount cannot have more than 2 decimal places")
+            && errors.get(1).get("error").equals("Amount is too large"));
+
+        // JSON
+        reset();
+        RecordingJdbcTemplate json = new RecordingJdbcTemplate();
+        String jsonStatement = "[{\"date\":\"" + lastMonth + "\",\"amount\":125000.5,\"type\":\"expense\",\"description\":\"Điện\",\"categoryId\":1},"
+            + "{\"date\":\"" + lastMonth + "T08:30:00\",\"amount\":\"2,000,000\",\"type\":\"INCOME\",\"walletId\":2},"
+            + "{\"amount\":5}]";
+        errors.clear();
+        summary = service(json, 1000, false).importStatement(7L, stream(jsonStatement), "json", null, errors::add);
+        check("json: 2 imported, missing date rejected " + summary + " " + errors, summary.imported() == 2
+            && errors.size() == 1 && errors.get(0).get("error").equals("Transaction date is required"));
+        check("json values", ((BigDecimal) json.rows.get(0)[0]).compareTo(new BigDecimal("125000.5")) == 0
+            && ((BigDecimal) json.rows.get(1)[0]).compareTo(new BigDecimal("2000000")) == 0 && json.rows.get(1)[1].equals("income"));
+
+        // OFX (SGML, unclosed tags)
+        reset();
+        RecordingJdbcTemplate ofx = new RecordingJdbcTemplate();
+        String compact = lastMonth.replace("-", "");
+        String ofxStatement = "OFXHEADER:100\nDATA:OFXSGML\n<OFX><BANKMSGSRSV1><STMTTRNRS><STMTRS><BANKTRANLIST>\n"
+            + "<STMTTRN>\n<TRNTYPE>DEBIT\n<DTPOSTED>" + compact + "120000[+7:ICT]\n<TRNAMT>-89000.00\n<NAME>CIRCLE K\n<MEMO>Q1\n</STMTTRN>\n"
+            + "<STMTTRN><TRNTYPE>CREDIT<DTPOSTED>" + compact + "<TRNAMT>500000<NAME>Hoàn tiền</STMTTRN>\n"
+            + "</BANKTRANLIST></STMTRS></STMTTRNRS></BANKMSGSRSV1></OFX>\n";
+        summary = service(ofx, 1000, false).importStatement(7L, stream(ofxStatement), TransactionImportParser.detectFormat(null, "vcb.qfx"), null, e -> { });
+        check("ofx: 2 imported " + summary, summary.imported() == 2);
+        check("ofx values", ofx.rows.get(0)[1].equals("expense") && ofx.rows.get(0)[2].equals("CIRCLE K Q1")
+            && ofx.rows.get(1)[1].equals("income") && ofx.rows.get(1)[2].equals("Hoàn tiền"));
+
+        // Amount formats
+        check("amount formats", amount("1,234.50").equals("1234.50") && amount("1.234,50").equals("1234.50")
+            && amount("12,5").equals("12.5") && amount("(250.00)").equals("-250.00") && amount("1 500 000 ₫").equals("1500000")
+            && amount("99.99").equals("99.99"));
+
+        // Throughput (app side only: parse, validate, INSERT building; no database)
+        StringBuilder large = new StringBuilder("date,amount,type,note,category\n");
+        for (int i = 0; i < 100_000; i++) {
+            large.append(lastMonth).append(',').append(1000 + i % 5000).append(",expense,\"merchant ").append(i % 700).append("\",1\n");
+        }
+        byte[] bytes = large.toString().getBytes(StandardCharsets.UTF_8);
+        service(new RecordingJdbcTemplate(), 1000, false).importStatement(7L, new ByteArrayInputStream(bytes), "csv", null, e -> { });
+        RecordingJdbcTemplate timed = new RecordingJdbcTemplate();
+        timed.keepRows = false;
+        summary = service(timed, 1000, false).importStatement(7L, new ByteArrayInputStream(bytes), "csv", null, e -> { });
+        System.out.printf("   100k rows: %,d ms, %,d rows/min without database time%n", summary.elapsedMs(), summary.rowsPerMinute());
+        check("100k rows imported in 100 batches", summary.imported() == 100_000 && timed.statements == 500);
+
+        System.out.println("\n" + (failed == 0 ? "✓ All checks passed" : failed + " check(s) failed"));
+        if (failed > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static TransactionImportService service(JdbcTemplate jdbc, int batchSize, boolean categorize) {
+        WalletRepository wallets = walletRepository();
+        return new TransactionImportService(jdbc, noOpTransactions(), userRepository(), wallets, categoryRepository(),
+            batchCategorizer(), new WalletBalanceService(wallets, null, new SimpleMeterRegistry(), false, false, 500),
+            budgetEvents(), goals(), new ConcurrentMapCacheManager("budgets", "wallets"),
+            new ObjectMapper().findAndRegisterModules(), new SimpleMeterRegistry(), batchSize, 200_000, categorize);
+    }
+
+    private static void reset() {
+        deltas.clear();
+        budgetChecks.clear();
+        eventTransactionIds.clear();
+        categorizeCalls = 0;
+    }
+
+    private static String amount(String value) {
+        return TransactionImportService.parseAmount(value).toPlainString();
+    }
+
+    private static ByteArrayInputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** "Shopee" -> category 3, anything else -> 2 */
+    private static BatchCategorizationService batchCategorizer() {
+        return new BatchCategorizationService(null, null, null, null, null, 1) {
+            @Override
+            public BatchResult categorize(List<Item> items, Long userId) {
+                categorizeCalls++;
+                List<CategorizationResult> results = new ArrayList<>();
+                for (Item item : items) {
+                    long category = item.getDescription().contains("Shopee") ? 3L : 2L;
+                    results.add(new CategorizationResult(category, "k", "c" + category, 0.9, List.of(), "test"));
+                }
+                return new BatchResult(results, Collections.nCopies(items.size(), LAYER_1), Map.of());
+            }
+        };
+    }
+
+    /**
+     * enabled=false: the handler runs inline, no outbox
+     */
+    private static TransactionEventService budgetEvents() {
+        TransactionEventHandler budget = TransactionEventHandler.of("budget", event -> {
+            if (event.isLive() && "expense".equals(event.type()) && event.categoryId() != null) {
+                budgetChecks.add(event.categoryId() + "|" + event.date().withDayOfMonth(1));
+                eventTransactionIds.add(event.transactionId());
+            }
+        });
+        return new TransactionEventService(List.of(budget), null, null, noOpTransactions(), new SimpleMeterRegistry(),
+            false, Set.of(), 1, 1, 1, 0, 0, 1);
+    }
+
+    private static GoalService goals() {
+        return new GoalService(null, null, null, null, null, null, null, null, null) {
+            @Override
+            public void checkAndUpdateGoalStatus(Long userId) {
+            }
+        };
+    }
+
+    private static UserRepository userRepository() {
+        User user = new User();
+        user.setId(7L);
+        return (UserRepository) Proxy.newProxyInstance(UserRepository.class.getClassLoader(),
+            new Class<?>[]{UserRepository.class}, (proxy, method, args) -> {
+                if (method.getName().equals("findById")) {
+                    return Optional.of(user).filter(u -> u.getId().equals(args[0]));
+                }
+                throw new UnsupportedOperationException(method.getName());
+            });
+    }
+
+    private static WalletRepository walletRepository() {
+        List<Wallet> wallets = new ArrayList<>();
+        for (long id = 1; id <= 2; id++) {
+            Wallet wallet = new Wallet();
+            wallet.setId(id);
+            wallets.add(wallet);
+        }
+        return (WalletRepository) Proxy.newProxyInstance(WalletRepository.class.getClassLoader(),
+            new Class<?>[]{WalletRepository.class}, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "findByUserId":
+                        return wallets;
+                    case "addToBalance":
+                        deltas.add(args[0] + ":" + ((BigDecimal) args[1]).stripTrailingZeros().toPlainString());
+                        return 1;
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            });
+    }
+
+    private static CategoryRepository categoryRepository() {
+        List<Category> categories = new ArrayList<>();
+        String[] names = {"Ăn uống", "Thu nhập", "Mua sắm"};
+        for (int i = 0; i < names.length; i++) {
+            Category category = new Category();
+            category.setId(i + 1L);
+            category.setName(names[i]);
+            categories.add(category);
+        }
+        return (CategoryRepository) Proxy.newProxyInstance(CategoryRepository.class.getClassLoader(),
+            new Class<?>[]{CategoryRepository.class}, (proxy, method, args) -> {
+                if (method.getName().equals("findAll") && (args == null || args.length == 0)) {
+                    return categories;
+                }
+                throw new UnsupportedOperationException(method.getName());
+            });
+    }
+
+    private static PlatformTransactionManager noOpTransactions() {
+        return new PlatformTransactionManager() {
+            @Override
+            public TransactionStatus getTransaction(TransactionDefinition definition) {
+                return new SimpleTransactionStatus();
+            }
+
+            @Override
+            public void commit(TransactionStatus status) {
+            }
+
+            @Override
+            public void rollback(TransactionStatus status) {
+            }
+        };
+    }
+
+    /**
+     * Records multi-row INSERTs as rows of 9 values and outputs ids 1, 2, ... for them (in reverse,
+     * OUTPUT order is not the VALUES order); failStatement = n fails the n-th statement (1-based),
+     * a statement containing one of failAmounts fails like an arithmetic overflow
+     */
+    static final class RecordingJdbcTemplate extends JdbcTemplate {
+        final List<Object[]> rows = new ArrayList<>();
+        boolean keepRows = true;
+        int statements;
+        int maxArgs;
+        int failStatement;
+        Set<BigDecimal> failAmounts = Set.of();
+        long lastId;
+
+        @Override
+        public void query(String sql, RowCallbackHandler handler, Object... args) {
+            if (!sql.startsWith("INSERT INTO Transactions") || !sql.contains("OUTPUT INSERTED.id")) {
+                throw new UnsupportedOperationException(sql);
+            }
+            statements++;
+            if (statements == failStatement) {
+                throw new DataAccessResourceFailureException("connection reset");
+            }
+            for (int i = 0; i < args.length; i += 9) {
+                if (failAmounts.contains(args[i])) {
+                    throw new DataIntegrityViolationException("Arithmetic overflow error converting numeric to data type numeric");
+                }
+            }
+            maxArgs = Math.max(maxArgs, args.length);
+            List<ResultSet> output = new ArrayList<>();
+            for (int i = 0; i < args.length; i += 9) {
+                Object[] row = Arrays.copyOfRange(args, i, i + 9);
+                if (keepRows) {
+                    rows.add(row);
+                }
+                output.add(0, outputRow(++lastId, row));
+            }
+            try {
+                for (ResultSet rs : output) {
+                    handler.processRow(rs);
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private static ResultSet outputRow(long id, Object[] row) {
+            return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class}, (proxy, method, args) -> switch (method.getName() + ":" + args[0]) {
+                    case "getLong:id" -> id;
+                    case "getString:type" -> row[1];
+                    case "getObject:category_id" -> row[8];
+                    case "getDate:trans_date" -> row[3];
+                    default -> throw new UnsupportedOperationException(method.getName() + " " + args[0]);
+                });
+        }
+    }
+
+    private static void check(String name, boolean ok) {
+        System.out.println((ok ? "✓ " : "✗ ") + name);
+        if (!ok) {
+            failed++;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.finance.service;
+
+import com.example.finance.service.TransactionQueryService.Cursor;
+import com.example.finance.service.TransactionQueryService.Filter;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Standalone test for the parts of TransactionQueryService that run without a database
+ * - cursor round trip, opaque encoding, rejection of tampered cursors
+ * - filter normalization and validation, page size default / cap
+ *
+ * Run from backend/: exits with status 1 on failure.
+ */
+public class TransactionQueryServiceTest {
+
+    private static int failed = 0;
+
+    public static void main(String[] args) {
+        System.out.println("=== TransactionQueryService Test ===\n");
+
+        Cursor cursor = new Cursor(LocalDate.of(2025, 3, 31), 987654321L);
+        String encoded = cursor.encode();
+        check("cursor round trip (" + encoded + ")", cursor.equals(Cursor.decode(encoded)));
+        check("cursor is url-safe", encoded.matches("[A-Za-z0-9_-]+"));
+        check("no cursor -> first page", Cursor.decode(null) == null && Cursor.decode(" ") == null);
+        check("garbage cursor rejected", rejects(() -> Cursor.decode("not a cursor!")));
+        check("cursor without id rejected", rejects(() -> Cursor.decode(
+            java.util.Base64.getUrlEncoder().encodeToString("2025-03-31".getBytes()))));
+        check("cursor with bad id rejected", rejects(() -> Cursor.decode(
+            java.util.Base64.getUrlEncoder().encodeToString("2025-03-31|x".getBytes()))));
+
+        Filter filter = new Filter(" Expense ", 3L, null, LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 31),
+            new BigDecimal("10000"), null).validated();
+        check("type normalized", "expense".equals(filter.type()) && filter.categoryId() == 3L);
+        check("blank type means no type filter", new Filter("", null, null, null, null, null, null).validated().type() == null);
+        check("unknown type rejected", rejects(() -> new Filter("transfer", null, null, null, null, null, null).validated()));
+        check("inverted date range rejected", rejects(() -> new Filter(null, null, null,
+            LocalDate.of(2025, 2, 1), LocalDate.of(2025, 1, 1), null, null).validated()));
+        check("single-day range allowed", new Filter(null, null, null,
+            LocalDate.of(2025, 2, 1), LocalDate.of(2025, 2, 1), null, null).validated() != null);
+        check("inverted amount range rejected", rejects(() -> new Filter(null, null, null, null, null,
+            new BigDecimal("500"), new BigDecimal("100")).validated()));
+
+        TransactionQueryService service = new TransactionQueryService(50, 200);
+        check("page size: default 50, capped at 200, as asked in between",
+            service.pageSize(null) == 50 && service.pageSize(0) == 50 && service.pageSize(1000) == 200
+                && service.pageSize(25) == 25);
+
+        System.out.println("\n" + (failed == 0 ? "✓ All checks passed" : failed + " check(s) failed"));
+        if (failed > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static boolean rejects(Runnable action) {
+        try {
+            action.run();
+            return false;
+        } catch (IllegalArgumentException e) {
+            return true;
+        }
+    }
+
+    private static void check(String name, boolean ok) {
+        System.out.println((ok ? "✓ " : "✗ ") + name);
+        if (!ok) {
+            failed++;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.finance.service;
+
+import com.example.finance.entity.UserCategorizationPreference;
+import com.example.finance.repository.UserCategorizationPreferenceRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.data.domain.Pageable;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Standalone test for UserPatternCacheService (no Spring context, in-memory preference repository)
+ * - lazy seeding: one repository query per user, then served from the cache
+ * - per-user isolation, exact / fuzzy / miss scoring
+ * - learn() updates cached users only; per-user and global pattern bounds hold
+ * - registered with the CacheManager under "userPatterns"
+ */
+public class UserPatternCacheServiceTest {
+
+    private static int failed = 0;
+
+    public static void main(String[] args) {
+        System.out.println("=== UserPatternCacheService Test ===\n");
+
+        Map<Long, List<UserCategorizationPreference>> table = new HashMap<>();
+        table.put(1L, List.of(
+            pref(1L, "grab bike di lam", 6L, 12),
+            pref(1L, "tra sua gong cha", 5L, 7),
+            pref(1L, "vot cau long yonex", 8L, 2)
+        ));
+        table.put(2L, List.of(
+            pref(2L, "grab bike di lam", 7L, 4)
+        ));
+        AtomicInteger queries = new AtomicInteger();
+
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        UserPatternCacheService service = new UserPatternCacheService(repository(table, queries), cacheManager, 1000, 200, 30);
+        service.registerCache();
+
+        // Lazy seeding
+        check("no query before first lookup", queries.get() == 0);
+        check("exact hit user 1", service.score(1L, "grab bike di lam", 0.85).equals(Map.of(6L, 1.0)));
+        check("one query after first lookup", queries.get() == 1);
+        service.score(1L, "tra sua gong cha", 0.85);
+        check("no query on second lookup", queries.get() == 1);
+
+        // Isolation: same pattern, different user, different category
+        check("exact hit user 2", service.score(2L, "grab bike di lam", 0.85).equals(Map.of(7L, 1.0)));
+        check("user 3 has no history", service.score(3L, "grab bike di lam", 0.85).isEmpty());
+        check("anonymous has no history", service.score(null, "grab bike di lam", 0.85).isEmpty());
+
+        // Fuzzy: one typo in 17 chars = 0.94 similarity; unrelated text misses
+        Map<Long, Double> fuzzy = service.score(1L, "tra sua gong chaa", 0.85);
+        check("fuzzy hit " + fuzzy, fuzzy.size() == 1 && fuzzy.get(5L) > 0.85 && fuzzy.get(5L) < 1.0);
+        check("miss", service.score(1L, "hoc phi dai hoc", 0.85).isEmpty());
+
+        // learn(): cached user sees it immediately, uncached user is not loaded
+        service.learn(1L, "hoc phi dai hoc", 9L);
+        check("learned pattern", service.score(1L, "hoc phi dai hoc", 0.85).equals(Map.of(9L, 1.0)));
+        service.learn(1L, "grab bike di lam", 10L);
+        check("re-learned pattern moves category", service.score(1L, "grab bike di lam", 0.85).equals(Map.of(10L, 1.0)));
+        int before = queries.get();
+        service.learn(4L, "cafe sang", 5L);
+        check("learn does not load uncached user", queries.get() == before);
+
+        // Per-user bound: oldest learned patterns evicted first, most used seed kept longest
+        UserPatternCacheService small = new UserPatternCacheService(repository(table, queries), null, 1000, 5, 30);
+        small.score(1L, "x", 0.85);
+        for (int i = 0; i < 10; i++) {
+            small.learn(1L, "pattern number " + i, 14L);
+        }
+        check("per-user cap keeps newest", small.score(1L, "pattern number 9", 0.85).equals(Map.of(14L, 1.0)));
+        check("per-user cap evicts oldest", !small.score(1L, "pattern number 0", 0.85).containsValue(1.0));
+        check("per-user cap evicts seeds", !small.score(1L, "grab bike di lam", 0.85).containsValue(1.0));
+
+        // Global bound: weight = 1 + patterns per user
+        Map<Long, List<UserCategorizationPreference>> many = new HashMap<>();
+        for (long user = 100; user < 200; user++) {
+            List<UserCategorizationPreference> prefs = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                prefs.add(pref(user, "user " + user + " pattern " + i, 5L, 20 - i));
+            }
+            many.put(user, prefs);
+        }
+        UserPatternCacheService bounded = new UserPatternCacheService(repository(many, new AtomicInteger()), null, 500, 200, 30);
+        for (long user = 100; user < 200; user++) {
+            bounded.score(user, "anything", 0.85);
+        }
+        Cache<Object, Object> nativeCache = bounded.nativeCache();
+        nativeCache.cleanUp();
+        long weight = nativeCache.policy().eviction().orElseThrow().weightedSize().orElse(-1);
+        check("global weight bound (" + weight + " <= 500)", weight >= 0 && weight <= 500);
+
+        // CacheManager registration + stats
+        CaffeineCache registered = (CaffeineCache) cacheManager.getCache(UserPatternCacheService.CACHE_NAME);
+        // One miss (= one seeding query) per user looked up
+        check("registered with CacheManager", registered != null && registered.getNativeCache().stats().missCount() == 3);
+        Map<String, Object> stats = service.lookupStats();
+        System.out.println("Lookup stats: " + stats);
+        check("lookup counters", (Long) stats.get("exactHitCount") == 5 && (Long) stats.get("fuzzyHitCount") == 1);
+
+        System.out.println("\n" + (failed == 0 ? "✓ All checks passed" : failed + " check(s) failed"));
+        if (failed > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static void check(String name, boolean ok) {
+        System.out.println((ok ? "✓ " : "✗ ") + name);
+        if (!ok) {
+            failed++;
+        }
+    }
+
+    private static UserCategorizationPreference pref(Long userId, String pattern, Long categoryId, int frequency) {
+        UserCategorizationPreference pref = new UserCategorizationPreference();
+        pref.setUserId(userId);
+        pref.setDescriptionPattern(pattern);
+        pref.setCategoryId(categoryId);
+        pref.setFrequency(frequency);
+        pref.setLastUsed(LocalDateTime.now());
+        return pref;
+    }
+
+    /**
+     * Repository stub: only the seeding query is implemented (rows already in frequency order)
+     */
+    private static UserCategorizationPreferenceRepository repository(Map<Long, List<UserCategorizationPreference>> table,
+                                                                     AtomicInteger queries) {
+        return (UserCategorizationPreferenceRepository) Proxy.newProxyInstance(
+            UserCategorizationPreferenceRepository.class.getClassLoader(),
+            new Class<?>[]{UserCategorizationPreferenceRepository.class},
+            (proxy, method, args) -> {
+                if (method.getName().equals("findByUserIdOrderByFrequencyDescLastUsedDesc")) {
+                    queries.incrementAndGet();
+                    List<UserCategorizationPreference> rows = table.getOrDefault((Long) args[0], List.of());
+                    int limit = ((Pageable) args[1]).getPageSize();
+                    return new ArrayList<>(rows.subList(0, Math.min(limit, rows.size())));
+                }
+                throw new UnsupportedOperationException(method.getName());
+            });
+    }
+}
@@ -0,0 +1,231 @@
+package com.example.finance.service;
+
+import com.example.finance.entity.Transaction;
+import com.example.finance.entity.Wallet;
+import com.example.finance.repository.TransactionRepository;
+import com.example.finance.repository.WalletRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Standalone test for WalletBalanceService (no Spring context, no database)
+ * - Create / update / move / soft-delete / restore / delete keep the delta-maintained balance equal to
+ *   initial + income - expense of the live transactions
+ * - Concurrent deltas on one wallet are not lost (addToBalance is a single atomic update)
+ * - Reconciler: drift repaired, or only reported with repair off; a wallet that changes between the
+ *   version read and the repair is left alone ("changed")
+ *
+ * Run from backend/: exits with status 1 on failure.
+ */
+public class WalletBalanceServiceTest {
+
+    private static int failed = 0;
+
+    /** In-memory Wallets (balance, version, initial) + Transactions rows */
+    private static final Map<Long, BigDecimal[]> wallets = new TreeMap<>();
+    private static final Map<Long, Transaction> transactions = new HashMap<>();
+    /** Runs once right before the next guarded repair, to simulate a concurrent save */
+    private static Runnable beforeGuardedUpdate;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== WalletBalanceService Test ===\n");
+        SimpleMeterRegistry meters = new SimpleMeterRegistry();
+        WalletBalanceService service = new WalletBalanceService(walletRepository(), transactionRepository(),
+            meters, true, true, 2);
+
+        Wallet cash = wallet(1L, "100");
+        Wallet bank = wallet(2L, "0");
+        wallet(3L, "0");
+
+        save(service, tx(10L, "income", "500", cash));
+        save(service, tx(11L, "expense", "30", cash));
+        check("create: 100 + 500 - 30 = " + balance(1L), balance(1L).compareTo(new BigDecimal("570")) == 0);
+
+        save(service, tx(11L, "expense", "45", cash));
+        check("update amount: " + balance(1L), balance(1L).compareTo(new BigDecimal("555")) == 0);
+
+        save(service, tx(11L, "income", "45", cash));
+        check("update type: " + balance(1L), balance(1L).compareTo(new BigDecimal("645")) == 0);
+
+        save(service, tx(10L, "income", "500", bank));
+        check("move wallet: cash " + balance(1L) + ", bank " + balance(2L),
+            balance(1L).compareTo(new BigDecimal("145")) == 0 && balance(2L).compareTo(new BigDecimal("500")) == 0);
+
+        Transaction deleted = tx(10L, "income", "500", bank);
+        deleted.setDeleted(true);
+        save(service, deleted);
+        check("soft delete: bank " + balance(2L), balance(2L).signum() == 0);
+        save(service, tx(10L, "income", "500", bank));
+        check("restore: bank " + balance(2L), balance(2L).compareTo(new BigDecimal("500")) == 0);
+
+        Transaction removed = transactions.remove(11L);
+        service.applyDelta(cash, WalletBalanceService.contribution(removed).negate());
+        check("hard delete: cash " + balance(1L), balance(1L).compareTo(new BigDecimal("100")) == 0);
+
+        Map<String, Integer> clean = service.reconcile();
+        check("no drift after deltas " + clean, clean.equals(Map.of(WalletBalanceService.RESULT_OK, 3)));
+
+        // Concurrent deltas on one wallet
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int i = 0; i < 400; i++) {
+            pool.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                service.applyDelta(bank, BigDecimal.ONE);
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.SECONDS);
+        check("400 concurrent deltas: bank " + balance(2L), balance(2L).compareTo(new BigDecimal("900")) == 0);
+        wallets.get(2L)[0] = new BigDecimal("500");
+
+        // Drift: repaired
+        wallets.get(1L)[0] = new BigDecimal("999");
+        Map<String, Integer> repaired = service.reconcile();
+        check("drift repaired " + repaired + ", cash " + balance(1L),
+            repaired.get(WalletBalanceService.RESULT_REPAIRED) == 1 && balance(1L).compareTo(new BigDecimal("100")) == 0);
+
+        // Drift, but a save commits between the version read and the repair
+        wallets.get(3L)[0] = new BigDecimal("-7");
+        beforeGuardedUpdate = () -> wallets.get(3L)[1] = wallets.get(3L)[1].add(BigDecimal.ONE);
+        Map<String, Integer> raced = service.reconcile();
+        check("concurrent change leaves wallet alone " + raced + ", balance " + balance(3L),
+            raced.get(WalletBalanceService.RESULT_CHANGED) == 1 && balance(3L).compareTo(new BigDecimal("-7")) == 0);
+        check("manual recompute retries past it: " + service.recompute(3L), balance(3L).signum() == 0);
+
+        // Report only
+        WalletBalanceService reportOnly = new WalletBalanceService(walletRepository(), transactionRepository(),
+            meters, true, false, 500);
+        wallets.get(2L)[0] = new BigDecimal("1");
+        Map<String, Integer> reported = reportOnly.reconcile();
+        check("report-only mode " + reported + ", bank " + balance(2L),
+            reported.get(WalletBalanceService.RESULT_REPORTED) == 1 && balance(2L).compareTo(BigDecimal.ONE) == 0);
+
+        double repairedCount = meters.find("wallet.balance.reconcile").tag("result", "repaired").counter().count();
+        check("reconcile meter (" + (long) repairedCount + " repaired)", repairedCount == 1);
+
+        System.out.println("\n" + (failed == 0 ? "✓ All checks passed" : failed + " check(s) failed"));
+        if (failed > 0) {
+            System.exit(1);
+        }
+    }
+
+    /** What TransactionService.save does around repo.save */
+    private static void save(WalletBalanceService service, Transaction after) {
+        Transaction before = transactions.put(after.getId(), after);
+        service.applyChange(before != null ? before.getWallet() : null, WalletBalanceService.contribution(before),
+            after.getWallet(), WalletBalanceService.contribution(after));
+    }
+
+    private static Wallet wallet(Long id, String initial) {
+        wallets.put(id, new BigDecimal[]{new BigDecimal(initial), BigDecimal.ZERO, new BigDecimal(initial)});
+        Wallet wallet = new Wallet();
+        wallet.setId(id);
+        return wallet;
+    }
+
+    private static Transaction tx(Long id, String type, String amount, Wallet wallet) {
+        Transaction transaction = new Transaction();
+        transaction.setId(id);
+        transaction.setType(type);
+        transaction.setAmount(new BigDecimal(amount));
+        transaction.setWallet(wallet);
+        return transaction;
+    }
+
+    private static BigDecimal balance(Long walletId) {
+        synchronized (wallets) {
+            return wallets.get(walletId)[0];
+        }
+    }
+
+    private static BigDecimal sum(Long walletId, String type) {
+        return transactions.values().stream()
+            .filter(t -> !t.isDeleted() && t.getWallet().getId().equals(walletId) && t.getType().equals(type))
+            .map(Transaction::getAmount)
+            .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    private static WalletRepository walletRepository() {
+        return (WalletRepository) Proxy.newProxyInstance(
+            WalletRepository.class.getClassLoader(),
+            new Class<?>[]{WalletRepository.class},
+            (proxy, method, args) -> {
+                synchronized (wallets) {
+                    switch (method.getName()) {
+                        case "addToBalance": {
+                            BigDecimal[] row = wallets.get((Long) args[0]);
+                            if (row == null) {
+                                return 0;
+                            }
+                            row[0] = row[0].add((BigDecimal) args[1]);
+                            row[1] = row[1].add(BigDecimal.ONE);
+                            return 1;
+                        }
+                        case "addToBalanceIfVersion": {
+                            if (beforeGuardedUpdate != null) {
+                                beforeGuardedUpdate.run();
+                                beforeGuardedUpdate = null;
+                            }
+                            BigDecimal[] row = wallets.get((Long) args[0]);
+                            if (row == null || row[1].longValue() != (Long) args[2]) {
+                                return 0;
+                            }
+                            row[0] = row[0].add((BigDecimal) args[1]);
+                            row[1] = row[1].add(BigDecimal.ONE);
+                            return 1;
+                        }
+                        case "findBalanceState": {
+                            BigDecimal[] row = wallets.get((Long) args[0]);
+                            return row == null ? List.of() : List.<Object[]>of(new Object[]{row[0], row[1].longValue(), row[2]});
+                        }
+                        case "findBalanceSummaries": {
+                            List<Object[]> page = new ArrayList<>();
+                            for (Map.Entry<Long, BigDecimal[]> entry : wallets.entrySet()) {
+                                if (entry.getKey() > (Long) args[0] && page.size() < (Integer) args[1]) {
+                                    BigDecimal[] row = entry.getValue();
+                                    BigDecimal expected = row[2].add(sum(entry.getKey(), "income"))
+                                        .subtract(sum(entry.getKey(), "expense"));
+                                    page.add(new Object[]{entry.getKey(), row[0], expected});
+                                }
+                            }
+                            return page;
+                        }
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                }
+            });
+    }
+
+    private static TransactionRepository transactionRepository() {
+        return (TransactionRepository) Proxy.newProxyInstance(
+            TransactionRepository.class.getClassLoader(),
+            new Class<?>[]{TransactionRepository.class},
+            (proxy, method, args) -> {
+                if (method.getName().equals("sumByWalletIdAndType")) {
+                    return sum((Long) args[0], (String) args[1]);
+                }
+                throw new UnsupportedOperationException(method.getName());
+            });
+    }
+
+    private static void check(String name, boolean ok) {
+        System.out.println((ok ? "✓ " : "✗ ") + name);
+        if (!ok) {
+            failed++;
+        }
+    }
+}
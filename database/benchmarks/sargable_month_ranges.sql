@@ -0,0 +1,127 @@
+-- Benchmark: month / year aggregates, catch-all MONTH() / YEAR() predicates vs half-open date ranges
+-- Purpose: measures what TransactionAggregatesImpl changed, on a 10M-row synthetic copy of the
+-- Transactions columns the aggregates read. Runs in its own database (FinanceBench), never against
+-- FinancialManagement. Takes a few minutes to load; needs ~1.5 GB of data + log space.
+--
+-- Shapes compared, each executed @runs times for random users through sp_executesql (as the JDBC
+-- driver sends them), with the plan cache cleared first:
+--   catch-all : user_id = @u AND type = @t AND (@m IS NULL OR MONTH(trans_date) = @m)
+--               AND (@y IS NULL OR YEAR(trans_date) = @y)          -- the old JPQL
+--   range     : user_id = @u AND type = @t AND trans_date >= @from AND trans_date < @until
+-- Results: average logical reads / CPU / elapsed per execution from sys.dm_exec_query_stats, and the
+-- number of cached plans per statement (the catch-all has one plan for every argument combination).
+
+IF DB_ID('FinanceBench') IS NULL
+    CREATE DATABASE FinanceBench;
+GO
+USE FinanceBench;
+GO
+
+-- ====================================
+-- 1. Synthetic data: 10M rows, 20k users, 5 years
+-- ====================================
+IF OBJECT_ID('dbo.BenchTransactions') IS NULL
+BEGIN
+    CREATE TABLE dbo.BenchTransactions (
+        id BIGINT IDENTITY(1,1) NOT NULL CONSTRAINT PK_BenchTransactions PRIMARY KEY CLUSTERED,
+        user_id BIGINT NOT NULL,
+        wallet_id BIGINT NULL,
+        category_id BIGINT NULL,
+        type VARCHAR(20) NOT NULL,
+        amount DECIMAL(18,2) NOT NULL,
+        trans_date DATE NOT NULL,
+        is_deleted BIT NOT NULL DEFAULT 0
+    );
+
+    ;WITH n AS (
+        SELECT TOP (10000000) ROW_NUMBER() OVER (ORDER BY (SELECT NULL)) AS i
+        FROM sys.all_objects a CROSS JOIN sys.all_objects b CROSS JOIN sys.all_objects c
+    )
+    INSERT INTO dbo.BenchTransactions WITH (TABLOCK)
+        (user_id, wallet_id, category_id, type, amount, trans_date, is_deleted)
+    SELECT
+        1 + ABS(CHECKSUM(NEWID())) % 20000,
+        1 + ABS(CHECKSUM(NEWID())) % 60000,
+        1 + ABS(CHECKSUM(NEWID())) % 40,
+        CASE WHEN ABS(CHECKSUM(NEWID())) % 5 = 0 THEN 'income' ELSE 'expense' END,
+        CAST(10000 + ABS(CHECKSUM(NEWID())) % 5000000 AS DECIMAL(18,2)),
+        DATEADD(DAY, -(ABS(CHECKSUM(NEWID())) % 1826), CAST('2025-12-31' AS DATE)),
+        CASE WHEN ABS(CHECKSUM(NEWID())) % 50 = 0 THEN 1 ELSE 0 END
+    FROM n;
+END
+GO
+
+-- Same shape as the application's (user_id, trans_date) indexes
+IF NOT EXISTS (SELECT * FROM sys.indexes WHERE name = 'IX_Bench_user_date' AND object_id = OBJECT_ID('dbo.BenchTransactions'))
+    CREATE NONCLUSTERED INDEX IX_Bench_user_date
+        ON dbo.BenchTransactions(user_id, trans_date)
+        INCLUDE (type, amount, wallet_id, category_id, is_deleted);
+GO
+UPDATE STATISTICS dbo.BenchTransactions WITH FULLSCAN;
+GO
+
+-- ====================================
+-- 2. Run both shapes
+-- ====================================
+DBCC FREEPROCCACHE;  -- scratch database only
+GO
+
+SET NOCOUNT ON;
+DECLARE @runs INT = 500;
+DECLARE @i INT = 0, @u BIGINT, @m INT, @y INT, @from DATE, @until DATE, @sum DECIMAL(18,2);
+DECLARE @catchAll NVARCHAR(MAX) = N'/* bench:catch-all */ SELECT @sum = SUM(amount) FROM dbo.BenchTransactions
+    WHERE user_id = @u AND type = @t AND is_deleted = 0
+    AND (@m IS NULL OR MONTH(trans_date) = @m) AND (@y IS NULL OR YEAR(trans_date) = @y)';
+DECLARE @range NVARCHAR(MAX) = N'/* bench:range */ SELECT @sum = SUM(amount) FROM dbo.BenchTransactions
+    WHERE user_id = @u AND type = @t AND is_deleted = 0
+    AND trans_date >= @from AND trans_date < @until';
+DECLARE @all NVARCHAR(MAX) = N'/* bench:range-no-period */ SELECT @sum = SUM(amount) FROM dbo.BenchTransactions
+    WHERE user_id = @u AND type = @t AND is_deleted = 0';
+
+-- The catch-all is compiled first for "all time" (month / year NULL), as happens when the summary
+-- page without a period is the first caller after a restart; its plan then serves every month query
+EXEC sp_executesql @catchAll, N'@u BIGINT, @t VARCHAR(20), @m INT, @y INT, @sum DECIMAL(18,2) OUTPUT',
+    1, 'expense', NULL, NULL, @sum OUTPUT;
+
+WHILE @i < @runs
+BEGIN
+    SET @u = 1 + ABS(CHECKSUM(NEWID())) % 20000;
+    SET @y = 2021 + ABS(CHECKSUM(NEWID())) % 5;
+    SET @m = 1 + ABS(CHECKSUM(NEWID())) % 12;
+    SET @from = DATEFROMPARTS(@y, @m, 1);
+    SET @until = DATEADD(MONTH, 1, @from);
+
+    EXEC sp_executesql @catchAll, N'@u BIGINT, @t VARCHAR(20), @m INT, @y INT, @sum DECIMAL(18,2) OUTPUT',
+        @u, 'expense', @m, @y, @sum OUTPUT;
+    EXEC sp_executesql @range, N'@u BIGINT, @t VARCHAR(20), @from DATE, @until DATE, @sum DECIMAL(18,2) OUTPUT',
+        @u, 'expense', @from, @until, @sum OUTPUT;
+    -- "All time" is a separate statement (and plan) in the new layer
+    EXEC sp_executesql @all, N'@u BIGINT, @t VARCHAR(20), @sum DECIMAL(18,2) OUTPUT',
+        @u, 'expense', @sum OUTPUT;
+    SET @i += 1;
+END
+GO
+
+-- ====================================
+-- 3. Results
+-- ====================================
+SELECT
+    SUBSTRING(t.text, CHARINDEX('bench:', t.text), CHARINDEX('*/', t.text) - CHARINDEX('bench:', t.text)) AS shape,
+    COUNT(DISTINCT s.plan_handle) AS cached_plans,
+    SUM(s.execution_count) AS executions,
+    SUM(s.total_logical_reads) / SUM(s.execution_count) AS avg_logical_reads,
+    SUM(s.total_worker_time) / SUM(s.execution_count) AS avg_cpu_us,
+    SUM(s.total_elapsed_time) / SUM(s.execution_count) AS avg_elapsed_us
+FROM sys.dm_exec_query_stats s
+CROSS APPLY sys.dm_exec_sql_text(s.sql_handle) t
+-- sp_executesql texts start with their parameter list; skip the driver batch above and this query
+WHERE t.text LIKE '%/* bench:%' AND t.text NOT LIKE '%sp_executesql%' AND t.text NOT LIKE '%dm_exec_query_stats%'
+GROUP BY SUBSTRING(t.text, CHARINDEX('bench:', t.text), CHARINDEX('*/', t.text) - CHARINDEX('bench:', t.text))
+ORDER BY shape;
+GO
+
+-- Expected: catch-all reads the user's whole (user_id) range and evaluates MONTH() / YEAR() on every
+-- row (reads grow with the user's history); range seeks (user_id, trans_date) and reads one month.
+-- Inspect plans: SET STATISTICS XML ON and run one execution of each shape.
+
+-- Cleanup: DROP DATABASE FinanceBench;
@@ -0,0 +1,14 @@
+-- Migration: Provisional AI category on Transactions (async Layer 3)
+-- Purpose: a transaction saved with the Layers 1-2.5 guess is flagged until background Layer 3
+-- stores the final category (Layer3RefinementService)
+
+ALTER TABLE Transactions
+ADD category_provisional BIT NOT NULL
+    CONSTRAINT DF_Transactions_category_provisional DEFAULT 0;
+GO
+
+-- Sweep of provisional rows left behind (queue full, restart): only flagged rows are indexed
+CREATE INDEX IX_Transactions_category_provisional
+    ON Transactions(updated_at, id)
+    WHERE category_provisional = 1 AND is_deleted = 0;
+GO
@@ -0,0 +1,43 @@
+-- Migration: Keyset indexes for the transaction listing
+-- Purpose: GET /api/transactions/page reads (user_id, is_deleted = 0) ordered by trans_date DESC, id DESC
+-- and continues after the last row with trans_date < d OR (trans_date = d AND id < i). With id in the index
+-- key in the same direction, each page is a seek + TOP (limit + 1) range scan, no sort; the listed columns
+-- are included so no key lookup is needed. idx_transactions_user_date (user_id, trans_date DESC, is_deleted)
+-- cannot serve this order: its implicit clustering key (id) is ascending and comes after is_deleted.
+-- Wallet / category / type filters get their own leading-column variants; amount ranges are residual
+-- predicates on the included amount column.
+
+-- Unfiltered listing (and amount / date range only)
+IF NOT EXISTS (SELECT * FROM sys.indexes WHERE name = 'IX_Transactions_user_date_id' AND object_id = OBJECT_ID('Transactions'))
+    CREATE NONCLUSTERED INDEX IX_Transactions_user_date_id
+        ON Transactions(user_id, trans_date DESC, id DESC)
+        INCLUDE (amount, type, status, category_id, wallet_id, category_provisional)
+        WHERE is_deleted = 0;
+GO
+
+-- ?walletId=
+IF NOT EXISTS (SELECT * FROM sys.indexes WHERE name = 'IX_Transactions_user_wallet_date_id' AND object_id = OBJECT_ID('Transactions'))
+    CREATE NONCLUSTERED INDEX IX_Transactions_user_wallet_date_id
+        ON Transactions(user_id, wallet_id, trans_date DESC, id DESC)
+        INCLUDE (amount, type, status, category_id, category_provisional)
+        WHERE is_deleted = 0;
+GO
+
+-- ?categoryId=
+IF NOT EXISTS (SELECT * FROM sys.indexes WHERE name = 'IX_Transactions_user_category_date_id' AND object_id = OBJECT_ID('Transactions'))
+    CREATE NONCLUSTERED INDEX IX_Transactions_user_category_date_id
+        ON Transactions(user_id, category_id, trans_date DESC, id DESC)
+        INCLUDE (amount, type, status, wallet_id, category_provisional)
+        WHERE is_deleted = 0;
+GO
+
+-- ?type=
+IF NOT EXISTS (SELECT * FROM sys.indexes WHERE name = 'IX_Transactions_user_type_date_id' AND object_id = OBJECT_ID('Transactions'))
+    CREATE NONCLUSTERED INDEX IX_Transactions_user_type_date_id
+        ON Transactions(user_id, type, trans_date DESC, id DESC)
+        INCLUDE (amount, status, category_id, wallet_id, category_provisional)
+        WHERE is_deleted = 0;
+GO
+
+-- note is NVARCHAR(MAX) and stays out of the indexes: it is read with one clustered key lookup per
+-- returned row (at most limit + 1), not per scanned row
@@ -0,0 +1,16 @@
+-- Migration: Incremental wallet balances
+-- Purpose: Wallets.balance is maintained with signed deltas (WalletBalanceService) instead of
+-- re-summing the wallet's transactions on every write. balance_version is bumped by every delta, so
+-- the drift reconciler only corrects a balance nobody changed since it was read
+
+ALTER TABLE Wallets
+ADD balance_version BIGINT NOT NULL
+    CONSTRAINT DF_Wallets_balance_version DEFAULT 0;
+GO
+
+-- Reconciler / manual recompute: income and expense sums per wallet from the index alone
+IF NOT EXISTS (SELECT * FROM sys.indexes WHERE name = 'IX_Transactions_wallet_type_amount' AND object_id = OBJECT_ID('Transactions'))
+    CREATE NONCLUSTERED INDEX IX_Transactions_wallet_type_amount
+        ON Transactions(wallet_id, type)
+        INCLUDE (amount, is_deleted);
+GO
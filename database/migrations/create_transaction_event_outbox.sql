@@ -0,0 +1,31 @@
+-- Migration: Outbox for post-commit transaction side effects
+-- Purpose: TransactionService.save / deleteById write one row per handler (budget, goal, notification,
+-- gamification, achievement) in the saving transaction; TransactionEventService runs the handlers after
+-- commit, retries failures with backoff and re-delivers rows left behind by a crash
+
+CREATE TABLE TransactionEventOutbox (
+    id BIGINT IDENTITY(1,1) PRIMARY KEY,
+    event_id CHAR(36) NOT NULL,
+    handler NVARCHAR(50) NOT NULL,
+    payload NVARCHAR(MAX) NOT NULL,
+    status NVARCHAR(10) NOT NULL DEFAULT 'pending',   -- pending | done | failed
+    attempts INT NOT NULL DEFAULT 0,
+    next_attempt_at DATETIME2 NOT NULL,               -- also the claim lease of the worker delivering it
+    last_error NVARCHAR(500) NULL,
+    created_at DATETIME2 NOT NULL DEFAULT GETDATE(),
+    processed_at DATETIME2 NULL,
+
+    CONSTRAINT UQ_TransactionEventOutbox_event_handler UNIQUE (event_id, handler)
+);
+
+-- Sweep: due rows only
+CREATE INDEX IX_TransactionEventOutbox_due
+    ON TransactionEventOutbox(next_attempt_at)
+    WHERE status = 'pending';
+
+-- Purge of delivered rows
+CREATE INDEX IX_TransactionEventOutbox_done
+    ON TransactionEventOutbox(processed_at)
+    WHERE status = 'done';
+
+GO